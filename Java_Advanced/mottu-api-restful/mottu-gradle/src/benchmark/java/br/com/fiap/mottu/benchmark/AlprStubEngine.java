@@ -0,0 +1,97 @@
+package br.com.fiap.mottu.benchmark;
+
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.service.ocr.PlateEngine;
+import br.com.fiap.mottu.service.ocr.PlateResult;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OpenALPR de mentira para medir o harness, o hedge e os compostos sem o binário instalado.
+ * Conhece a placa verdadeira de cada imagem do corpus (pelo SHA-256 dos bytes), dorme uma latência
+ * log-normal e erra numa taxa que depende da degradação: troca um caractere por um parecido
+ * (0/O, 8/B, O/D, M/N...) com confiança mais baixa, ou não lê nada. Tudo derivado da semente e da
+ * imagem, então duas rodadas iguais dão o mesmo resultado.
+ */
+public class AlprStubEngine implements PlateEngine {
+
+    private static final Map<String, Double> ERROR_RATE = Map.of(
+            "limpa", 0.02, "ruido", 0.08, "desfoque", 0.12, "rotacao", 0.10, "iluminacao", 0.08);
+    /** Trocas letra/dígito (que a normalização Mercosul às vezes desfaz) e dentro da mesma classe (que não). */
+    private static final Map<Character, Character> CONFUSABLE = Map.ofEntries(
+            Map.entry('0', 'O'), Map.entry('O', 'D'), Map.entry('D', '0'), Map.entry('1', 'I'), Map.entry('I', '1'),
+            Map.entry('8', 'B'), Map.entry('B', '8'), Map.entry('5', 'S'), Map.entry('S', '5'), Map.entry('2', 'Z'),
+            Map.entry('Z', '2'), Map.entry('6', '5'), Map.entry('G', 'C'), Map.entry('7', '1'), Map.entry('Q', 'O'),
+            Map.entry('3', '8'), Map.entry('E', 'F'), Map.entry('M', 'N'), Map.entry('N', 'M'), Map.entry('U', 'V'));
+
+    private final Map<String, PlateCorpus.Sample> byDigest = new ConcurrentHashMap<>();
+    private final long seed;
+    private final double medianMs;
+    private final double sigma;
+
+    /**
+     * @param medianMs latência mediana simulada
+     * @param sigma    dispersão da log-normal (0.5 dá p99 perto de 3x a mediana)
+     */
+    public AlprStubEngine(List<PlateCorpus.Sample> corpus, long seed, double medianMs, double sigma) {
+        for (PlateCorpus.Sample s : corpus) {
+            byDigest.put(digest(s.jpeg()), s);
+        }
+        this.seed = seed;
+        this.medianMs = medianMs;
+        this.sigma = sigma;
+    }
+
+    @Override
+    public String name() {
+        return "openalpr";
+    }
+
+    @Override
+    public PlateResult recognize(String sessionId, byte[] imageBytes) throws Exception {
+        PlateCorpus.Sample sample = byDigest.get(digest(imageBytes));
+        if (sample == null) throw new InvalidInputException("Nenhuma placa válida encontrada.");
+
+        Random rnd = new Random(seed ^ ((long) sample.index() << 20));
+        long sleepMs = Math.round(medianMs * Math.exp(sigma * rnd.nextGaussian()));
+        Thread.sleep(Math.max(1, sleepMs));
+
+        double roll = rnd.nextDouble();
+        double errorRate = ERROR_RATE.getOrDefault(sample.variant(), 0.05);
+        if (roll < errorRate / 3) {
+            throw new InvalidInputException("Nenhuma placa válida encontrada.");
+        }
+        if (roll < errorRate) {
+            return new PlateResult(confuse(sample.plate(), rnd), 60 + rnd.nextDouble() * 25, name());
+        }
+        return new PlateResult(sample.plate(), 85 + rnd.nextDouble() * 10, name());
+    }
+
+    private static String confuse(String plate, Random rnd) {
+        char[] chars = plate.toCharArray();
+        for (int attempt = 0; attempt < chars.length; attempt++) {
+            int i = rnd.nextInt(chars.length);
+            Character swap = CONFUSABLE.get(chars[i]);
+            if (swap != null) {
+                chars[i] = swap;
+                return new String(chars);
+            }
+        }
+        chars[chars.length - 1] = chars[chars.length - 1] == '0' ? '8' : '0';
+        return new String(chars);
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
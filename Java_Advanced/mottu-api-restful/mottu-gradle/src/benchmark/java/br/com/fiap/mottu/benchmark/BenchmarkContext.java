@@ -0,0 +1,93 @@
+package br.com.fiap.mottu.benchmark;
+
+import br.com.fiap.mottu.config.OpenCvLoader;
+import br.com.fiap.mottu.repository.VeiculoRepository;
+import br.com.fiap.mottu.service.ocr.*;
+import br.com.fiap.mottu.service.placa.PlacasCadastradas;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.*;
+import org.springframework.context.event.EventListener;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sobe só o pipeline de OCR (sem web, JPA nem banco) com as mesmas propriedades da aplicação.
+ * O cadastro de placas vem do próprio corpus, para o OCR poder preferir placas cadastradas como em produção.
+ * Com {@code benchmark.alpr=stub} (padrão) o OpenALPR é trocado pelo {@link AlprStubEngine}.
+ */
+@Configuration(proxyBeanMethods = false)
+@Import(OpenCvLoader.class)
+@ComponentScan(basePackageClasses = PlateEngine.class, excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE, classes = {OpenAlprService.class, CameraIngestService.class}))
+public class BenchmarkContext {
+
+    /** Corpus da rodada, registrado antes do refresh pelo {@link OcrBenchmark}. */
+    public record Corpus(List<PlateCorpus.Sample> samples, long seed, boolean registry) {}
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean
+    ObjectMapper objectMapper() {
+        return JsonMapper.builder().findAndAddModules().build();
+    }
+
+    @Bean
+    PlacasCadastradas placasCadastradas(Corpus corpus) {
+        List<String> placas = corpus.registry() ? corpus.samples().stream().map(PlateCorpus.Sample::plate).toList() : List.of();
+        VeiculoRepository repository = (VeiculoRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{VeiculoRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "listarPlacas" -> placas;
+                    case "toString" -> "VeiculoRepository(corpus)";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException("Repositório do benchmark: " + method.getName());
+                });
+        return new PlacasCadastradas(repository);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "benchmark.alpr", havingValue = "stub", matchIfMissing = true)
+    AlprStubEngine alprStubEngine(Corpus corpus) {
+        return new AlprStubEngine(corpus.samples(), corpus.seed(), 120, 0.5);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "benchmark.alpr", havingValue = "real")
+    OpenAlprService openAlprService(OcrSessionManager sessionManager, OcrExecutor ocrExecutor, OcrMetrics metrics,
+                                    OcrDiagnostics diagnostics, PlacasCadastradas placasCadastradas) {
+        return new OpenAlprService(sessionManager, ocrExecutor, metrics, diagnostics, placasCadastradas);
+    }
+
+    @Bean
+    SessionWaiter sessionWaiter() {
+        return new SessionWaiter();
+    }
+
+    /** Liga cada sessão disparada num {@link PlateRecognizer} ao futuro que o benchmark aguarda. */
+    public static class SessionWaiter {
+
+        private final Map<String, CompletableFuture<OcrSession>> pending = new ConcurrentHashMap<>();
+
+        public CompletableFuture<OcrSession> expect(String sessionId) {
+            return pending.computeIfAbsent(sessionId, id -> new CompletableFuture<>());
+        }
+
+        @EventListener
+        public void onSessionEvent(OcrSessionEvent event) {
+            if (!event.terminal()) return;
+            CompletableFuture<OcrSession> future = pending.remove(event.session().getId());
+            if (future != null) future.complete(event.session());
+        }
+    }
+}
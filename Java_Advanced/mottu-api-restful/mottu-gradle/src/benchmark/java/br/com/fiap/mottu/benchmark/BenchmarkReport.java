@@ -0,0 +1,131 @@
+package br.com.fiap.mottu.benchmark;
+
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Relatório de uma rodada, serializado em JSON. Os nomes dos campos são estáveis: é o que os
+ * relatórios de rodadas diferentes (e o {@code --baseline}) comparam.
+ */
+public record BenchmarkReport(
+        Instant generatedAt,
+        String target,
+        Map<String, Object> config,
+        Map<String, Object> environment,
+        Throughput throughput,
+        Latency latencyMs,
+        Accuracy accuracy,
+        Map<String, Map<String, Accuracy>> accuracyBy,
+        Map<String, Long> errors,
+        Memory memory,
+        Comparison comparison) {
+
+    /** Resultado de uma imagem: leitura (ou null) e o erro, quando o motor falhou. */
+    public record Result(PlateCorpus.Sample sample, long latencyNanos, String plate, Double confidence, String error) {}
+
+    public record Throughput(int images, double wallSeconds, double imagesPerSecond) {}
+
+    public record Latency(double mean, double p50, double p95, double p99, double max) {}
+
+    /**
+     * @param exact  leitura igual à placa verdadeira (as duas normalizadas para Mercosul)
+     * @param fuzzy  a até 1 edição (Levenshtein) da verdadeira; inclui as exatas
+     * @param noRead o motor não devolveu placa (falha, timeout ou "nenhuma placa")
+     */
+    public record Accuracy(int count, int exact, int fuzzy, int noRead, double exactRate, double fuzzyRate) {}
+
+    /** Picos amostrados durante a rodada; RSS fica null fora do Linux. */
+    public record Memory(double heapPeakMb, Double rssStartMb, Double rssPeakMb, double liveMatsPeak,
+                         long gcCount, long gcTimeMs) {}
+
+    /** Diferenças contra o relatório de referência e o que passou da tolerância. */
+    public record Comparison(String baseline, double tolerance, Map<String, Double> deltas, List<String> regressions) {}
+
+    public static Latency latency(List<Result> results) {
+        long[] nanos = results.stream().mapToLong(Result::latencyNanos).sorted().toArray();
+        if (nanos.length == 0) return new Latency(0, 0, 0, 0, 0);
+        double mean = Arrays.stream(nanos).average().orElse(0);
+        return new Latency(ms(mean), ms(percentile(nanos, 0.50)), ms(percentile(nanos, 0.95)),
+                ms(percentile(nanos, 0.99)), ms(nanos[nanos.length - 1]));
+    }
+
+    public static Accuracy accuracy(Collection<Result> results) {
+        int exact = 0, fuzzy = 0, noRead = 0;
+        for (Result r : results) {
+            if (r.plate() == null) {
+                noRead++;
+                continue;
+            }
+            int distance = PlateUtils.levenshtein(PlateUtils.normalizeMercosul(r.plate()),
+                    PlateUtils.normalizeMercosul(r.sample().plate()));
+            if (distance == 0) exact++;
+            if (distance <= 1) fuzzy++;
+        }
+        int n = results.size();
+        return new Accuracy(n, exact, fuzzy, noRead, rate(exact, n), rate(fuzzy, n));
+    }
+
+    /** Acerto por variação, formato e layout. */
+    public static Map<String, Map<String, Accuracy>> accuracyBy(List<Result> results) {
+        Map<String, Map<String, Accuracy>> by = new LinkedHashMap<>();
+        by.put("variant", groupAccuracy(results, r -> r.sample().variant()));
+        by.put("format", groupAccuracy(results, r -> r.sample().format()));
+        by.put("layout", groupAccuracy(results, r -> r.sample().layout()));
+        return by;
+    }
+
+    /**
+     * Compara com um relatório anterior. Regressão: vazão ou acerto exato caindo, ou p95 subindo,
+     * mais que a tolerância relativa.
+     */
+    public static Comparison compare(String baselineName, JsonNode baseline, Throughput throughput, Latency latency,
+                                     Accuracy accuracy, double tolerance) {
+        Map<String, Double> deltas = new LinkedHashMap<>();
+        List<String> regressions = new ArrayList<>();
+        check("imagesPerSecond", baseline.path("throughput").path("imagesPerSecond").asDouble(),
+                throughput.imagesPerSecond(), true, tolerance, deltas, regressions);
+        check("p95", baseline.path("latencyMs").path("p95").asDouble(), latency.p95(), false, tolerance, deltas, regressions);
+        check("p99", baseline.path("latencyMs").path("p99").asDouble(), latency.p99(), false, tolerance, deltas, regressions);
+        check("exactRate", baseline.path("accuracy").path("exactRate").asDouble(), accuracy.exactRate(), true,
+                tolerance, deltas, regressions);
+        return new Comparison(baselineName, tolerance, deltas, regressions);
+    }
+
+    private static void check(String metric, double before, double after, boolean higherIsBetter, double tolerance,
+                              Map<String, Double> deltas, List<String> regressions) {
+        if (before <= 0) return;
+        double delta = (after - before) / before;
+        deltas.put(metric, Math.round(delta * 10_000) / 10_000.0);
+        if (higherIsBetter ? delta < -tolerance : delta > tolerance) {
+            regressions.add("%s: %.2f -> %.2f (%+.1f%%)".formatted(metric, before, after, delta * 100));
+        }
+    }
+
+    private static Map<String, Accuracy> groupAccuracy(List<Result> results, Function<Result, String> key) {
+        Map<String, List<Result>> groups = new TreeMap<>();
+        for (Result r : results) {
+            groups.computeIfAbsent(key.apply(r), k -> new ArrayList<>()).add(r);
+        }
+        Map<String, Accuracy> out = new LinkedHashMap<>();
+        groups.forEach((k, v) -> out.put(k, accuracy(v)));
+        return out;
+    }
+
+    /** Nearest-rank sobre o vetor já ordenado. */
+    private static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private static double ms(double nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private static double rate(int part, int total) {
+        return total == 0 ? 0 : Math.round(part * 10_000.0 / total) / 10_000.0;
+    }
+}
@@ -0,0 +1,324 @@
+package br.com.fiap.mottu.benchmark;
+
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.service.ocr.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmark de reconhecimento de placas: gera o corpus sintético ({@link PlateCorpus}), sobe o
+ * pipeline de OCR ({@link BenchmarkContext}) e dispara as imagens com a concorrência pedida.
+ * Grava um relatório JSON com vazão, p50/p95/p99, memória e acerto exato/aproximado.
+ *
+ * <pre>
+ * ./gradlew benchmark -PbenchmarkArgs="--target=hedged --images=500 --concurrency=8"
+ * </pre>
+ *
+ * Opções ({@code --nome=valor}):
+ * <ul>
+ *   <li>target: nome de um {@link PlateEngine} (tesseract, openalpr) chamado direto, ou de um bean
+ *       {@link PlateRecognizer} (hedged = o reconhecedor principal) usado pelo fluxo de sessões (padrão: hedged)</li>
+ *   <li>alpr: stub (padrão) ou real (precisa do binário do OpenALPR)</li>
+ *   <li>images (300), concurrency (4), warmup (20), seed (42), width/height (1024x768), timeout-ms (30000)</li>
+ *   <li>registry: true (padrão) para o cadastro de placas conter as placas do corpus</li>
+ *   <li>report: arquivo do relatório (build/reports/ocr-benchmark/&lt;target&gt;.json)</li>
+ *   <li>baseline/tolerance: relatório anterior para comparar; sai com código 2 se regredir além da tolerância (0.10)</li>
+ *   <li>corpus-dir: grava as imagens e o truth.csv para uso fora do benchmark</li>
+ *   <li>qualquer {@code --mottu.*} ou {@code --logging.*} sobrescreve a propriedade da aplicação</li>
+ * </ul>
+ */
+public final class OcrBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrBenchmark.class);
+
+    private OcrBenchmark() {}
+
+    /** Uma forma de reconhecer uma imagem, bloqueando até a leitura. */
+    private interface Target {
+        PlateResult recognize(String sessionId, byte[] imageBytes) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        String targetName = opts.getOrDefault("target", "hedged");
+        int images = Integer.parseInt(opts.getOrDefault("images", "300"));
+        int concurrency = Integer.parseInt(opts.getOrDefault("concurrency", "4"));
+        int warmup = Integer.parseInt(opts.getOrDefault("warmup", "20"));
+        long seed = Long.parseLong(opts.getOrDefault("seed", "42"));
+        long timeoutMs = Long.parseLong(opts.getOrDefault("timeout-ms", "30000"));
+        Path report = Path.of(opts.getOrDefault("report", "build/reports/ocr-benchmark/" + targetName + ".json"));
+
+        long genStart = System.nanoTime();
+        PlateCorpus generator = new PlateCorpus(seed, Integer.parseInt(opts.getOrDefault("width", "1024")),
+                Integer.parseInt(opts.getOrDefault("height", "768")));
+        List<PlateCorpus.Sample> corpus = generator.generate(images);
+        List<PlateCorpus.Sample> warmupSamples = new ArrayList<>();
+        for (int i = 0; i < warmup; i++) {
+            warmupSamples.add(generator.sample(images + i)); // fora do corpus medido
+        }
+        log.info("Corpus: {} imagens (semente {}) geradas em {} ms.", images, seed, (System.nanoTime() - genStart) / 1_000_000);
+        if (opts.containsKey("corpus-dir")) {
+            PlateCorpus.writeTo(Path.of(opts.get("corpus-dir")), corpus);
+        }
+
+        List<PlateCorpus.Sample> known = new ArrayList<>(corpus);
+        known.addAll(warmupSamples);
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("logging.level.br.com.fiap.mottu.service", "WARN");
+        properties.put("logging.level.br.com.fiap.mottu.config", "WARN");
+        properties.put("mottu.ocr.tesseract.lazy-init", "false");
+        properties.put("mottu.ocr.diagnostics.enabled", "false");
+        properties.put("mottu.ocr.executor.queue-capacity", String.valueOf(Math.max(32, concurrency * 4)));
+        properties.put("benchmark.alpr", opts.getOrDefault("alpr", "stub"));
+        opts.forEach((k, v) -> {
+            if (k.startsWith("mottu.") || k.startsWith("logging.")) properties.put(k, v);
+        });
+        BenchmarkContext.Corpus corpusBean = new BenchmarkContext.Corpus(known, seed,
+                Boolean.parseBoolean(opts.getOrDefault("registry", "true")));
+
+        int exitCode = 0;
+        try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(BenchmarkContext.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .initializers(c -> {
+                    c.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+                    c.getBeanFactory().registerSingleton("benchmarkCorpus", corpusBean);
+                })
+                .run()) {
+            Target target = resolve(ctx, targetName, timeoutMs);
+            MeterRegistry meterRegistry = ctx.getBean(MeterRegistry.class);
+
+            for (PlateCorpus.Sample s : warmupSamples) {
+                run(target, s, "warmup-" + s.index());
+            }
+
+            MemorySampler sampler = new MemorySampler(ctx.getBean(NativeMemoryMetrics.class), meterRegistry);
+            long start = System.nanoTime();
+            List<BenchmarkReport.Result> results = runAll(target, corpus, concurrency);
+            double wallSeconds = (System.nanoTime() - start) / 1e9;
+            BenchmarkReport.Memory memory = sampler.stop();
+
+            BenchmarkReport.Throughput throughput = new BenchmarkReport.Throughput(results.size(), round(wallSeconds),
+                    round(results.size() / wallSeconds));
+            BenchmarkReport.Latency latency = BenchmarkReport.latency(results);
+            BenchmarkReport.Accuracy accuracy = BenchmarkReport.accuracy(results);
+            BenchmarkReport.Comparison comparison = null;
+            ObjectMapper mapper = ctx.getBean(ObjectMapper.class).copy()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+            if (opts.containsKey("baseline")) {
+                Path baseline = Path.of(opts.get("baseline"));
+                comparison = BenchmarkReport.compare(baseline.toString(), mapper.readTree(baseline.toFile()),
+                        throughput, latency, accuracy, Double.parseDouble(opts.getOrDefault("tolerance", "0.10")));
+                if (!comparison.regressions().isEmpty()) exitCode = 2;
+            }
+
+            Map<String, Object> config = new LinkedHashMap<>();
+            config.put("images", images);
+            config.put("concurrency", concurrency);
+            config.put("warmup", warmup);
+            config.put("seed", seed);
+            config.put("alpr", properties.get("benchmark.alpr"));
+            config.put("registry", corpusBean.registry());
+            config.put("width", generator.width());
+            config.put("height", generator.height());
+            config.put("overrides", properties);
+
+            BenchmarkReport out = new BenchmarkReport(Instant.now(), targetName, config, environment(), throughput,
+                    latency, accuracy, BenchmarkReport.accuracyBy(results), errors(results), memory, comparison);
+            Files.createDirectories(report.toAbsolutePath().getParent());
+            mapper.writeValue(report.toFile(), out);
+
+            log.info("{}: {} imagens/s | p50 {} ms, p95 {} ms, p99 {} ms | exato {}%, aproximado {}%, sem leitura {} | relatório {}",
+                    targetName, throughput.imagesPerSecond(), latency.p50(), latency.p95(), latency.p99(),
+                    round(accuracy.exactRate() * 100), round(accuracy.fuzzyRate() * 100), accuracy.noRead(), report);
+            if (comparison != null) {
+                for (String regression : comparison.regressions()) {
+                    log.warn("Regressão contra {}: {}", comparison.baseline(), regression);
+                }
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Motor síncrono pelo nome (chamado direto, sem sessão), ou um {@link PlateRecognizer} pelo nome do
+     * bean: aí a imagem passa pelo fluxo real (sessão, fila do {@link OcrExecutor}, evento de conclusão).
+     */
+    private static Target resolve(ConfigurableApplicationContext ctx, String name, long timeoutMs) {
+        for (PlateEngine engine : ctx.getBeansOfType(PlateEngine.class).values()) {
+            if (engine.name().equalsIgnoreCase(name)) return engine::recognize;
+        }
+        Map<String, PlateRecognizer> recognizers = ctx.getBeansOfType(PlateRecognizer.class);
+        PlateRecognizer recognizer = "hedged".equalsIgnoreCase(name) ? ctx.getBean(PlateRecognizer.class) : recognizers.get(name);
+        if (recognizer == null) {
+            throw new IllegalArgumentException("Alvo desconhecido: " + name + ". Motores: "
+                    + ctx.getBeansOfType(PlateEngine.class).values().stream().map(PlateEngine::name).toList()
+                    + ", reconhecedores: hedged, " + recognizers.keySet());
+        }
+        OcrSessionManager sessions = ctx.getBean(OcrSessionManager.class);
+        BenchmarkContext.SessionWaiter waiter = ctx.getBean(BenchmarkContext.SessionWaiter.class);
+        return (ignored, bytes) -> {
+            String id = sessions.createSession().getId();
+            try {
+                CompletableFuture<OcrSession> done = waiter.expect(id);
+                recognizer.extractPlate(id, bytes);
+                OcrSession session = done.get(timeoutMs, TimeUnit.MILLISECONDS);
+                if (session.getStatus() != OcrSession.Status.COMPLETED) {
+                    throw new InvalidInputException(Objects.toString(session.getErrorMessage(), "Sessão expirada."));
+                }
+                return new PlateResult(session.getRecognizedPlate(), session.getConfidence(), name);
+            } finally {
+                sessions.removeSession(id);
+            }
+        };
+    }
+
+    private static List<BenchmarkReport.Result> runAll(Target target, List<PlateCorpus.Sample> corpus, int concurrency)
+            throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger threads = new AtomicInteger();
+        AtomicReferenceArray<BenchmarkReport.Result> results = new AtomicReferenceArray<>(corpus.size());
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "ocr-benchmark-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int w = 0; w < concurrency; w++) {
+            pool.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < corpus.size()) {
+                    PlateCorpus.Sample s = corpus.get(i);
+                    results.set(i, run(target, s, "bench-" + s.index()));
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        List<BenchmarkReport.Result> out = new ArrayList<>(corpus.size());
+        for (int i = 0; i < corpus.size(); i++) out.add(results.get(i));
+        return out;
+    }
+
+    private static BenchmarkReport.Result run(Target target, PlateCorpus.Sample sample, String sessionId) {
+        long start = System.nanoTime();
+        try {
+            PlateResult result = target.recognize(sessionId, sample.jpeg());
+            return new BenchmarkReport.Result(sample, System.nanoTime() - start, result.plate(), result.confidence(), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new BenchmarkReport.Result(sample, System.nanoTime() - start, null, null, "interrompido");
+        } catch (Exception e) {
+            String error = e instanceof InvalidInputException ? e.getMessage() : e.toString();
+            return new BenchmarkReport.Result(sample, System.nanoTime() - start, null, null, error);
+        }
+    }
+
+    /** Motivos de "sem leitura", do mais frequente ao menos. */
+    private static Map<String, Long> errors(List<BenchmarkReport.Result> results) {
+        Map<String, Long> counts = results.stream().filter(r -> r.error() != null)
+                .collect(Collectors.groupingBy(BenchmarkReport.Result::error, Collectors.counting()));
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream().sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    private static Map<String, Object> environment() {
+        Map<String, Object> env = new LinkedHashMap<>();
+        env.put("java", System.getProperty("java.version"));
+        env.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        env.put("cpus", Runtime.getRuntime().availableProcessors());
+        env.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        return env;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Argumento inválido (use --nome=valor): " + arg);
+            int eq = arg.indexOf('=');
+            opts.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        return opts;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 100) / 100.0;
+    }
+
+    /** Amostra heap, RSS e Mats vivos a cada 50 ms enquanto a rodada corre; GC é a diferença do início ao fim. */
+    private static final class MemorySampler {
+
+        private static final double MB = 1024.0 * 1024.0;
+
+        private final NativeMemoryMetrics nativeMemory;
+        private final Gauge liveMats;
+        private final MemoryMXBean heap = ManagementFactory.getMemoryMXBean();
+        private final DoubleAccumulator heapPeak = new DoubleAccumulator(Math::max, 0);
+        private final DoubleAccumulator rssPeak = new DoubleAccumulator(Math::max, 0);
+        private final DoubleAccumulator matsPeak = new DoubleAccumulator(Math::max, 0);
+        private final double rssStart;
+        private final long gcCountStart;
+        private final long gcTimeStart;
+        private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ocr-benchmark-memory");
+            t.setDaemon(true);
+            return t;
+        });
+
+        MemorySampler(NativeMemoryMetrics nativeMemory, MeterRegistry meterRegistry) {
+            this.nativeMemory = nativeMemory;
+            this.liveMats = meterRegistry.find("mottu.ocr.native.mats.live").gauge();
+            this.rssStart = nativeMemory.rssBytes();
+            this.gcCountStart = gc(GarbageCollectorMXBean::getCollectionCount);
+            this.gcTimeStart = gc(GarbageCollectorMXBean::getCollectionTime);
+            timer.scheduleAtFixedRate(this::sample, 0, 50, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            heapPeak.accumulate(heap.getHeapMemoryUsage().getUsed());
+            double rss = nativeMemory.rssBytes();
+            if (!Double.isNaN(rss)) rssPeak.accumulate(rss);
+            if (liveMats != null) matsPeak.accumulate(liveMats.value());
+        }
+
+        BenchmarkReport.Memory stop() {
+            timer.shutdownNow();
+            sample();
+            boolean rss = !Double.isNaN(rssStart);
+            return new BenchmarkReport.Memory(round(heapPeak.get() / MB), rss ? round(rssStart / MB) : null,
+                    rss ? round(rssPeak.get() / MB) : null, matsPeak.get(),
+                    gc(GarbageCollectorMXBean::getCollectionCount) - gcCountStart,
+                    gc(GarbageCollectorMXBean::getCollectionTime) - gcTimeStart);
+        }
+
+        private static long gc(ToLongFunction<GarbageCollectorMXBean> metric) {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(metric).filter(v -> v > 0).sum();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package br.com.fiap.mottu.benchmark;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Corpus sintético e determinístico de fotos de placas: a mesma semente gera as mesmas placas, nas
+ * mesmas cenas, com as mesmas degradações. Mistura o padrão Mercosul (LLLNLNN, fundo branco com a
+ * faixa azul) e o antigo (LLLNNNN, fundo cinza), em layout de carro (uma linha) e de moto (duas linhas),
+ * e aplica uma variação por imagem: limpa, ruído, desfoque, rotação ou iluminação.
+ */
+public final class PlateCorpus {
+
+    public static final List<String> VARIANTS = List.of("limpa", "ruido", "desfoque", "rotacao", "iluminacao");
+
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final Color MERCOSUL_BLUE = new Color(0, 51, 153);
+
+    /**
+     * Uma imagem do corpus.
+     *
+     * @param plate   placa verdadeira, sem hífen (é o que o OCR deve devolver)
+     * @param format  "mercosul" ou "antiga"
+     * @param layout  "carro" ou "moto"
+     * @param variant degradação aplicada (ver {@link #VARIANTS})
+     */
+    public record Sample(int index, String plate, String format, String layout, String variant, byte[] jpeg) {
+
+        public String fileName() {
+            return "%05d-%s-%s-%s.jpg".formatted(index, variant, layout, plate);
+        }
+    }
+
+    private final long seed;
+    private final int width;
+    private final int height;
+
+    public PlateCorpus(long seed, int width, int height) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Gera {@code count} imagens em paralelo; a i-ésima depende só da semente e de i. */
+    public List<Sample> generate(int count) {
+        return IntStream.range(0, count).parallel().mapToObj(this::sample).toList();
+    }
+
+    public Sample sample(int index) {
+        Random rnd = new Random(seed * 1_000_003L + index);
+        boolean mercosul = rnd.nextInt(100) < 70;
+        boolean moto = rnd.nextInt(100) < 50;
+        String plate = mercosul ? mercosulPlate(rnd) : oldPlate(rnd);
+        String variant = VARIANTS.get(index % VARIANTS.size());
+
+        BufferedImage scene = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = scene.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            drawBackground(g, rnd);
+
+            int plateW = moto ? (int) (width * (0.18 + rnd.nextDouble() * 0.10)) : (int) (width * (0.26 + rnd.nextDouble() * 0.14));
+            int plateH = moto ? (int) (plateW * 0.85) : (int) (plateW * 0.325);
+            int x = (int) ((width - plateW) * (0.2 + rnd.nextDouble() * 0.6));
+            int y = (int) ((height - plateH) * (0.3 + rnd.nextDouble() * 0.5));
+            double angle = "rotacao".equals(variant) ? Math.toRadians((4 + rnd.nextDouble() * 8) * (rnd.nextBoolean() ? 1 : -1)) : 0;
+
+            AffineTransform saved = g.getTransform();
+            g.rotate(angle, x + plateW / 2.0, y + plateH / 2.0);
+            drawPlate(g, plate, mercosul, moto, x, y, plateW, plateH);
+            g.setTransform(saved);
+        } finally {
+            g.dispose();
+        }
+
+        BufferedImage out = switch (variant) {
+            case "ruido" -> noise(scene, rnd, 18 + rnd.nextInt(20));
+            case "desfoque" -> blur(scene, 3 + 2 * rnd.nextInt(3));
+            case "iluminacao" -> lighting(scene, rnd);
+            default -> scene;
+        };
+        return new Sample(index, plate, mercosul ? "mercosul" : "antiga", moto ? "moto" : "carro", variant, jpeg(out, 0.85f));
+    }
+
+    /** Grava as imagens e um truth.csv (arquivo;placa;formato;layout;variacao) para uso fora do benchmark. */
+    public static void writeTo(Path dir, List<Sample> samples) throws IOException {
+        Files.createDirectories(dir);
+        try (Writer w = Files.newBufferedWriter(dir.resolve("truth.csv"))) {
+            w.write("arquivo;placa;formato;layout;variacao\n");
+            for (Sample s : samples) {
+                Files.write(dir.resolve(s.fileName()), s.jpeg());
+                w.write(String.join(";", s.fileName(), s.plate(), s.format(), s.layout(), s.variant()) + "\n");
+            }
+        }
+    }
+
+    private static String mercosulPlate(Random rnd) {
+        return "" + letter(rnd) + letter(rnd) + letter(rnd) + rnd.nextInt(10) + letter(rnd) + rnd.nextInt(10) + rnd.nextInt(10);
+    }
+
+    private static String oldPlate(Random rnd) {
+        return "" + letter(rnd) + letter(rnd) + letter(rnd) + rnd.nextInt(10) + rnd.nextInt(10) + rnd.nextInt(10) + rnd.nextInt(10);
+    }
+
+    private static char letter(Random rnd) {
+        return LETTERS.charAt(rnd.nextInt(LETTERS.length()));
+    }
+
+    /** Gradiente de fundo e alguns blocos coloridos (carenagem, parede, chão) para o detector ter o que descartar. */
+    private void drawBackground(Graphics2D g, Random rnd) {
+        int top = 40 + rnd.nextInt(120);
+        int bottom = 40 + rnd.nextInt(120);
+        g.setPaint(new GradientPaint(0, 0, new Color(top, top, top + 10), 0, height, new Color(bottom, bottom - 10, bottom)));
+        g.fillRect(0, 0, width, height);
+        int blocks = 4 + rnd.nextInt(6);
+        for (int i = 0; i < blocks; i++) {
+            g.setColor(new Color(rnd.nextInt(256), rnd.nextInt(256), rnd.nextInt(256), 90 + rnd.nextInt(120)));
+            int w = width / 8 + rnd.nextInt(width / 3);
+            int h = height / 10 + rnd.nextInt(height / 3);
+            if (rnd.nextBoolean()) {
+                g.fillRect(rnd.nextInt(width), rnd.nextInt(height), w, h);
+            } else {
+                g.fillOval(rnd.nextInt(width), rnd.nextInt(height), w, h);
+            }
+        }
+    }
+
+    private static void drawPlate(Graphics2D g, String plate, boolean mercosul, boolean moto, int x, int y, int w, int h) {
+        RoundRectangle2D body = new RoundRectangle2D.Double(x, y, w, h, w * 0.06, w * 0.06);
+        g.setColor(mercosul ? Color.WHITE : new Color(200, 200, 196));
+        g.fill(body);
+
+        int textTop;
+        if (mercosul) {
+            int band = (int) (h * (moto ? 0.18 : 0.24));
+            g.setColor(MERCOSUL_BLUE);
+            g.fill(new RoundRectangle2D.Double(x, y, w, band, w * 0.06, w * 0.06));
+            g.fillRect(x, y + band / 2, w, band - band / 2);
+            g.setColor(Color.WHITE);
+            drawCentered(g, "BRASIL", new Font(Font.SANS_SERIF, Font.BOLD, 1), x, y, w, band, 0.35, 0.7);
+            textTop = y + band;
+        } else {
+            int strip = (int) (h * (moto ? 0.14 : 0.18));
+            g.setColor(new Color(40, 40, 40));
+            drawCentered(g, "SP-SAO PAULO", new Font(Font.SANS_SERIF, Font.PLAIN, 1), x, y + h / 40, w, strip, 0.5, 0.8);
+            textTop = y + strip;
+        }
+
+        g.setColor(new Color(15, 15, 15));
+        Font font = new Font(Font.SANS_SERIF, Font.BOLD, 1);
+        int textH = y + h - textTop;
+        if (moto) {
+            drawCentered(g, plate.substring(0, 3), font, x, textTop, w, textH / 2, 0.62, 0.9);
+            drawCentered(g, plate.substring(3), font, x, textTop + textH / 2, w, textH / 2, 0.80, 0.9);
+        } else {
+            String text = mercosul ? plate : plate.substring(0, 3) + "-" + plate.substring(3);
+            drawCentered(g, text, font, x, textTop, w, textH, 0.88, 0.8);
+        }
+
+        g.setColor(Color.BLACK);
+        g.setStroke(new BasicStroke(Math.max(2f, w / 120f)));
+        g.draw(body);
+    }
+
+    /** Escreve o texto centralizado na caixa, no maior corpo que caiba em widthFrac x heightFrac dela. */
+    private static void drawCentered(Graphics2D g, String text, Font base, int x, int y, int w, int h,
+                                     double widthFrac, double heightFrac) {
+        Font font = base.deriveFont((float) (h * heightFrac * 1.3));
+        FontMetrics fm = g.getFontMetrics(font);
+        float scale = (float) Math.min(1.0, w * widthFrac / Math.max(1, fm.stringWidth(text)));
+        font = font.deriveFont(font.getSize2D() * scale);
+        fm = g.getFontMetrics(font);
+        g.setFont(font);
+        int tx = x + (w - fm.stringWidth(text)) / 2;
+        int ty = y + (h - fm.getAscent() - fm.getDescent()) / 2 + fm.getAscent();
+        g.drawString(text, tx, ty);
+    }
+
+    /** Ruído gaussiano de luminância (o mesmo desvio nos três canais do pixel). */
+    private static BufferedImage noise(BufferedImage src, Random rnd, int sigma) {
+        byte[] data = ((DataBufferByte) src.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i += 3) {
+            int n = (int) (rnd.nextGaussian() * sigma);
+            for (int c = i; c < i + 3; c++) data[c] = (byte) Math.max(0, Math.min(255, (data[c] & 0xFF) + n));
+        }
+        return src;
+    }
+
+    private static BufferedImage blur(BufferedImage src, int size) {
+        float[] k = new float[size * size];
+        Arrays.fill(k, 1f / k.length);
+        BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        return new ConvolveOp(new Kernel(size, size, k), ConvolveOp.EDGE_NO_OP, null).filter(src, dst);
+    }
+
+    /** Subexposição ou estouro geral mais uma faixa de sombra diagonal. */
+    private static BufferedImage lighting(BufferedImage src, Random rnd) {
+        double gain = rnd.nextBoolean() ? 0.45 + rnd.nextDouble() * 0.2 : 1.3 + rnd.nextDouble() * 0.3;
+        Graphics2D g = src.createGraphics();
+        try {
+            int w = src.getWidth(), h = src.getHeight();
+            g.setColor(new Color(0, 0, 0, 70 + rnd.nextInt(80)));
+            int offset = rnd.nextInt(w);
+            g.fillPolygon(new int[]{offset, offset + w / 4, offset + w / 4 - h / 2, offset - h / 2},
+                    new int[]{0, 0, h, h}, 4);
+        } finally {
+            g.dispose();
+        }
+        byte[] data = ((DataBufferByte) src.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < data.length; i++) data[i] = (byte) Math.min(255, (int) ((data[i] & 0xFF) * gain));
+        return src;
+    }
+
+    private static byte[] jpeg(BufferedImage img, float quality) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
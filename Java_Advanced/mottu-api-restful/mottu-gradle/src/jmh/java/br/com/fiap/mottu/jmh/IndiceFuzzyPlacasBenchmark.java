@@ -0,0 +1,77 @@
+package br.com.fiap.mottu.jmh;
+
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+import br.com.fiap.mottu.service.placa.IndiceFuzzyPlacas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fuzzy do {@code parkMoto}: o {@link IndiceFuzzyPlacas} contra a varredura do cadastro com
+ * {@link PlateUtils#bestCandidate}. Consultas como no PlateUtilsBenchmark: placas cadastradas com um
+ * erro ou placas desconhecidas (o pior caso da varredura).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndiceFuzzyPlacasBenchmark {
+
+    @Param({"10000", "100000"})
+    public int registrySize;
+
+    private List<String> registry;
+    private IndiceFuzzyPlacas indice;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        registry = new ArrayList<>(registrySize);
+        indice = new IndiceFuzzyPlacas(1, registrySize);
+        for (int i = 0; i < registrySize; i++) {
+            String p = plate(rnd);
+            registry.add(p);
+            indice.add(p);
+        }
+        queries = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            char[] q = registry.get(rnd.nextInt(registrySize)).toCharArray();
+            if (i % 3 == 0) {
+                queries[i] = plate(rnd);
+            } else {
+                q[rnd.nextInt(7)] = (char) ('0' + rnd.nextInt(10));
+                queries[i] = new String(q);
+            }
+        }
+    }
+
+    private String nextQuery() {
+        return queries[next++ & 255];
+    }
+
+    @Benchmark
+    public Object indice() {
+        return indice.buscar(nextQuery(), 1);
+    }
+
+    @Benchmark
+    public String varredura() {
+        return PlateUtils.bestCandidate(registry, nextQuery(), 1);
+    }
+
+    private static String plate(Random rnd) {
+        StringBuilder sb = new StringBuilder(7);
+        for (int j = 0; j < 7; j++) {
+            boolean letter = j < 3 || j == 4;
+            sb.append(letter ? (char) ('A' + rnd.nextInt(26)) : (char) ('0' + rnd.nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
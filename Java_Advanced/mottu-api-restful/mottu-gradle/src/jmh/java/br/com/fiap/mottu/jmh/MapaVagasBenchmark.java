@@ -0,0 +1,89 @@
+package br.com.fiap.mottu.jmh;
+
+import br.com.fiap.mottu.model.Box;
+import br.com.fiap.mottu.service.vaga.MapaVagas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escolha do box livre no estacionamento: o {@link MapaVagas} (bitset por setor) contra o
+ * {@code findAll().stream().filter("L").findFirst()} antigo sobre a lista já carregada, ou seja, sem
+ * contar a ida ao banco nem a hidratação das entidades que ele fazia a cada estacionamento.
+ * Pátio com {@code ocupacao} dos boxes ocupados ao acaso; cada operação aloca um box e libera outro,
+ * para a ocupação ficar estável.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapaVagasBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int boxes;
+
+    @Param({"0.95"})
+    public double ocupacao;
+
+    private MapaVagas mapa;
+    private List<Box> lista;
+    private long[] ocupados;
+    private int proximo;
+    private long semente = 42;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Random rnd = new Random(42);
+        MapaVagas.Builder builder = MapaVagas.builder();
+        lista = new ArrayList<>(boxes);
+        List<Long> ocupadosIniciais = new ArrayList<>();
+        for (int i = 0; i < boxes; i++) {
+            long id = i + 1;
+            boolean livre = rnd.nextDouble() >= ocupacao;
+            builder.add(id, 1 + i % 4, 1 + i % 16, livre);
+            lista.add(Box.builder().idBox(id).status(livre ? "L" : "O").build());
+            if (!livre) ocupadosIniciais.add(id);
+        }
+        mapa = builder.build();
+        ocupados = new long[boxes];
+        for (int i = 0; i < ocupadosIniciais.size(); i++) ocupados[i] = ocupadosIniciais.get(i);
+        proximo = ocupadosIniciais.size();
+    }
+
+    @Benchmark
+    public long mapaVagas() {
+        long id = mapa.alocar();
+        int saida = sorteio();
+        long libera = ocupados[saida];
+        ocupados[saida] = id;
+        mapa.liberar(libera);
+        return id;
+    }
+
+    @Benchmark
+    public long findAllFilter() {
+        Box vaga = lista.stream()
+                .filter(box -> "L".equals(box.getStatus()))
+                .findFirst()
+                .orElseThrow();
+        vaga.setStatus("O");
+        long id = vaga.getIdBox();
+        int saida = sorteio();
+        lista.get((int) ocupados[saida] - 1).setStatus("L");
+        ocupados[saida] = id;
+        return id;
+    }
+
+    /** Um dos boxes ocupados, ao acaso (xorshift, sem alocar). */
+    private int sorteio() {
+        semente ^= semente << 13;
+        semente ^= semente >>> 7;
+        semente ^= semente << 17;
+        return (int) ((semente >>> 1) % proximo);
+    }
+}
@@ -0,0 +1,131 @@
+package br.com.fiap.mottu.jmh;
+
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminhos quentes do {@link PlateUtils} contra a implementação original ({@link LegacyPlateUtils}).
+ * As leituras imitam a saída do OCR (minúsculas, hífen, espaços, acento); as consultas do fuzzy
+ * são placas cadastradas com um erro ou placas desconhecidas, como no {@code parkMoto}.
+ * Rode com {@code -prof gc} (padrão da task) para ver a alocação por operação.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlateUtilsBenchmark {
+
+    @Param({"1000", "10000"})
+    public int registrySize;
+
+    private List<String> registry;
+    private String[] reads;
+    private String[] queries;
+    private String[] targets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        registry = new ArrayList<>(registrySize);
+        for (int i = 0; i < registrySize; i++) {
+            registry.add(plate(rnd));
+        }
+        reads = new String[256];
+        for (int i = 0; i < reads.length; i++) {
+            String p = registry.get(rnd.nextInt(registrySize));
+            reads[i] = switch (i % 4) {
+                case 0 -> p;
+                case 1 -> p.substring(0, 3).toLowerCase() + "-" + p.substring(3);
+                case 2 -> " " + p.substring(0, 3) + " " + p.substring(3).replace('0', 'O') + " ";
+                default -> p.substring(0, 2) + "É" + p.substring(3);
+            };
+        }
+        queries = new String[256];
+        targets = new String[256];
+        for (int i = 0; i < queries.length; i++) {
+            char[] q = registry.get(rnd.nextInt(registrySize)).toCharArray();
+            if (i % 3 == 0) {
+                queries[i] = plate(rnd); // provavelmente fora do cadastro: varre tudo
+            } else {
+                q[rnd.nextInt(7)] = (char) ('0' + rnd.nextInt(10));
+                queries[i] = new String(q);
+            }
+            targets[i] = registry.get(rnd.nextInt(registrySize));
+        }
+    }
+
+    private String nextRead() {
+        return reads[next++ & 255];
+    }
+
+    private String nextQuery() {
+        return queries[next++ & 255];
+    }
+
+    @Benchmark
+    public String cleanRaw() {
+        return PlateUtils.cleanRaw(nextRead());
+    }
+
+    @Benchmark
+    public String cleanRawLegacy() {
+        return LegacyPlateUtils.cleanRaw(nextRead());
+    }
+
+    @Benchmark
+    public String normalizeMercosul() {
+        return PlateUtils.normalizeMercosul(nextRead());
+    }
+
+    @Benchmark
+    public String normalizeMercosulLegacy() {
+        return LegacyPlateUtils.normalizeMercosul(nextRead());
+    }
+
+    @Benchmark
+    public int levenshtein() {
+        int i = next++ & 255;
+        return PlateUtils.levenshtein(queries[i], targets[i]);
+    }
+
+    @Benchmark
+    public int levenshteinLegacy() {
+        int i = next++ & 255;
+        return LegacyPlateUtils.levenshtein(queries[i], targets[i]);
+    }
+
+    /** Como o fuzzy compara: com limite, desistindo cedo quando já passou de 1. */
+    @Benchmark
+    public int levenshteinBounded() {
+        int i = next++ & 255;
+        return PlateUtils.levenshtein(queries[i], targets[i], 1);
+    }
+
+    /** O fuzzy do parkMoto: uma leitura contra o cadastro inteiro, tolerando 1 erro. */
+    @Benchmark
+    public String bestCandidate() {
+        return PlateUtils.bestCandidate(registry, nextQuery(), 1);
+    }
+
+    @Benchmark
+    public String bestCandidateLegacy() {
+        return LegacyPlateUtils.bestCandidate(registry, nextQuery(), 1);
+    }
+
+    private static String plate(Random rnd) {
+        StringBuilder sb = new StringBuilder(7);
+        for (int j = 0; j < 7; j++) {
+            boolean letter = j < 3 || j == 4;
+            sb.append(letter ? (char) ('A' + rnd.nextInt(26)) : (char) ('0' + rnd.nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.fiap.mottu.jmh;
+
+import br.com.fiap.mottu.service.placa.PlacaAlteradaEvent;
+import br.com.fiap.mottu.service.placa.RegistroPlacas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consulta de portaria no {@link RegistroPlacas} (placa codificada + tabela primitiva) contra um
+ * {@code HashMap<String, Long>} com as mesmas placas. Com {@code -prof gc} o registro deve dar 0 B/op.
+ * Metade das consultas é de placas fora do cadastro.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistroPlacasBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int registrySize;
+
+    private RegistroPlacas registro;
+    private Map<String, Long> mapa;
+    private String[] queries;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        registro = new RegistroPlacas(null); // sem banco: preenchido pelos eventos, como após um cadastro
+        mapa = new HashMap<>(registrySize * 2);
+        String[] placas = new String[registrySize];
+        for (int i = 0; i < registrySize; i++) {
+            placas[i] = plate(rnd);
+            registro.onPlacaAlterada(new PlacaAlteradaEvent((long) i + 1, null, placas[i]));
+            mapa.put(placas[i], (long) i + 1);
+        }
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = i % 2 == 0 ? placas[rnd.nextInt(registrySize)] : plate(rnd);
+        }
+    }
+
+    @Benchmark
+    public long registro(Cursor c) {
+        return registro.veiculoId(queries[c.next++ & 1023]);
+    }
+
+    @Benchmark
+    public Long hashMap(Cursor c) {
+        return mapa.get(queries[c.next++ & 1023]);
+    }
+
+    private static String plate(Random rnd) {
+        StringBuilder sb = new StringBuilder(7);
+        for (int j = 0; j < 7; j++) {
+            boolean letter = j < 3 || j == 4;
+            sb.append(letter ? (char) ('A' + rnd.nextInt(26)) : (char) ('0' + rnd.nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
@@ -8,12 +8,14 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.web.client.RestTemplate; // <-- Importar RestTemplate
 import org.springframework.web.reactive.function.client.WebClient; // <-- Adicione esta importação AQUI!
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @EnableJpaRepositories
 @SpringBootApplication
 @EnableCaching
 @EnableJpaAuditing
+@EnableScheduling
 public class MottuApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,92 @@
+package br.com.fiap.mottu.controller;
+
+import br.com.fiap.mottu.service.ocr.CameraIngestService;
+import br.com.fiap.mottu.service.ocr.CameraPlateEvent;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/radar/cameras")
+@Tag(name = "Câmeras", description = "Ingestão contínua (MJPEG) das câmeras fixas dos portões")
+public class CameraController {
+
+    private static final Logger log = LoggerFactory.getLogger(CameraController.class);
+
+    private final CameraIngestService cameraIngestService;
+
+    public CameraController(CameraIngestService cameraIngestService) {
+        this.cameraIngestService = cameraIngestService;
+    }
+
+    @Operation(summary = "Enviar Stream da Câmera",
+            description = "Corpo MJPEG (multipart/x-mixed-replace, chunked ou JPEGs concatenados). "
+                    + "A requisição fica aberta enquanto a câmera transmitir; responde com o resumo ao final.")
+    @PostMapping("/{cameraId}/stream")
+    public ResponseEntity<?> receberStream(@PathVariable String cameraId,
+                                           @RequestParam(defaultValue = "0") double fps,
+                                           HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(cameraIngestService.ingest(cameraId, request.getInputStream(), fps));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            log.warn("Câmera {}: stream interrompido: {}", cameraId, e.toString());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Stream interrompido."));
+        }
+    }
+
+    @Operation(summary = "Puxar Stream de uma Fonte",
+            description = "Lê em background uma URL MJPEG da câmera (http/https) ou um clipe local (file:). "
+                    + "Desligado por padrão (mottu.ocr.camera.pull.enabled); só aceita hosts de "
+                    + "mottu.ocr.camera.pull.allowed-hosts e clipes em mottu.ocr.camera.pull.clip-dir. "
+                    + "'fps' limita o ritmo de leitura de arquivos.")
+    @PostMapping("/{cameraId}/fonte")
+    public ResponseEntity<Map<String, String>> puxarFonte(@PathVariable String cameraId,
+                                                          @RequestParam String url,
+                                                          @RequestParam(defaultValue = "0") double fps) {
+        if (!cameraIngestService.isPullEnabled()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Leitura de fontes desativada."));
+        }
+        try {
+            cameraIngestService.startPull(cameraId, url, fps);
+            return ResponseEntity.accepted().body(Map.of("status", "Leitura da fonte iniciada."));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(summary = "Encerrar Stream da Câmera")
+    @DeleteMapping("/{cameraId}/stream")
+    public ResponseEntity<Void> encerrarStream(@PathVariable String cameraId) {
+        return cameraIngestService.stop(cameraId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Listar Câmeras")
+    @GetMapping
+    public ResponseEntity<List<CameraIngestService.CameraStatus>> listarCameras() {
+        return ResponseEntity.ok(cameraIngestService.cameras());
+    }
+
+    @Operation(summary = "Eventos de Placa (todas as câmeras)", description = "Passagens detectadas, mais recentes primeiro.")
+    @GetMapping("/eventos")
+    public ResponseEntity<List<CameraPlateEvent>> listarEventos(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(cameraIngestService.events(null, Math.max(1, Math.min(limit, 500))));
+    }
+
+    @Operation(summary = "Eventos de Placa da Câmera")
+    @GetMapping("/{cameraId}/eventos")
+    public ResponseEntity<List<CameraPlateEvent>> listarEventosCamera(@PathVariable String cameraId,
+                                                                      @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(cameraIngestService.events(cameraId, Math.max(1, Math.min(limit, 500))));
+    }
+}
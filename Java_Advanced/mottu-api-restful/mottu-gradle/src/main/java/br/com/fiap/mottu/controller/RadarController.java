@@ -1,18 +1,34 @@
 package br.com.fiap.mottu.controller;
 
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.exception.OcrQueueFullException;
+import br.com.fiap.mottu.service.ocr.BoundedImageDecoder;
+import br.com.fiap.mottu.service.ocr.MultiFrameRecognizer;
+import br.com.fiap.mottu.service.ocr.OcrDiagnostics;
+import br.com.fiap.mottu.service.ocr.OcrMetrics;
 import br.com.fiap.mottu.service.ocr.OcrSession;
 import br.com.fiap.mottu.service.ocr.OcrSessionManager;
+import br.com.fiap.mottu.service.ocr.OcrStatusBroadcaster;
+import br.com.fiap.mottu.service.ocr.PlateRecognitionCache;
 import br.com.fiap.mottu.service.ocr.PlateRecognizer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -25,10 +41,28 @@ public class RadarController {
 
     private final OcrSessionManager sessionManager;
     private final PlateRecognizer plateRecognizer;
+    private final OcrStatusBroadcaster statusBroadcaster;
+    private final PlateRecognitionCache recognitionCache;
+    private final BoundedImageDecoder imageDecoder;
+    private final MultiFrameRecognizer multiFrameRecognizer;
+    private final OcrMetrics ocrMetrics;
+    private final OcrDiagnostics diagnostics;
 
-    public RadarController(OcrSessionManager sessionManager, PlateRecognizer plateRecognizer) {
+    @Value("${mottu.ocr.batch.max-frames:8}")
+    private int maxFrames;
+
+    public RadarController(OcrSessionManager sessionManager, PlateRecognizer plateRecognizer,
+                           OcrStatusBroadcaster statusBroadcaster, PlateRecognitionCache recognitionCache,
+                           BoundedImageDecoder imageDecoder, MultiFrameRecognizer multiFrameRecognizer,
+                           OcrMetrics ocrMetrics, OcrDiagnostics diagnostics) {
         this.sessionManager = sessionManager;
         this.plateRecognizer = plateRecognizer;
+        this.statusBroadcaster = statusBroadcaster;
+        this.recognitionCache = recognitionCache;
+        this.imageDecoder = imageDecoder;
+        this.multiFrameRecognizer = multiFrameRecognizer;
+        this.ocrMetrics = ocrMetrics;
+        this.diagnostics = diagnostics;
     }
 
     @Operation(summary = "Iniciar Sessão de OCR")
@@ -41,13 +75,58 @@ public class RadarController {
 
     @Operation(summary = "Verificar Status da Sessão")
     @GetMapping("/status-sessao/{sessionId}")
-    public ResponseEntity<OcrSession> getStatusSessao(@PathVariable String sessionId) {
-        return sessionManager.getSession(sessionId)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> getStatusSessao(@PathVariable String sessionId) {
+        Optional<OcrSession> session = sessionManager.getSession(sessionId);
+        if (session.isPresent()) {
+            return ResponseEntity.ok(session.get());
+        }
+        if (sessionManager.isExpired(sessionId)) {
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", "Sessão expirada. Inicie uma nova sessão."));
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    @Operation(summary = "Acompanhar Status da Sessão (SSE)",
+            description = "Stream text/event-stream: evento 'status' a cada transição; fecha em COMPLETED/ERROR ou com 'expired'.")
+    @GetMapping(value = "/status-sessao/{sessionId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStatusSessao(@PathVariable String sessionId) {
+        if (sessionManager.getSession(sessionId).isEmpty()) {
+            return ResponseEntity.status(sessionManager.isExpired(sessionId) ? HttpStatus.GONE : HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(statusBroadcaster.subscribe(sessionId));
     }
 
-    @Operation(summary = "Upload de Imagem da Placa")
+    @Operation(summary = "Aguardar Mudança de Status (long-poll)",
+            description = "Responde assim que o status for diferente de 'desde', ou com o status atual ao fim de 'timeoutMs'.")
+    @GetMapping("/status-sessao/{sessionId}/aguardar")
+    public DeferredResult<ResponseEntity<?>> aguardarStatusSessao(
+            @PathVariable String sessionId,
+            @RequestParam(required = false) OcrSession.Status desde,
+            @RequestParam(defaultValue = "25000") long timeoutMs) {
+        return statusBroadcaster.awaitChange(sessionId, desde, Math.min(Math.max(timeoutMs, 1000), 60000));
+    }
+
+    @Operation(summary = "Diagnóstico da Sessão",
+            description = "Artefatos gravados da sessão (saída do OpenALPR, recortes PNG em Base64, tempos por etapa). "
+                    + "Só sessões amostradas (mottu.ocr.diagnostics.sample-rate) ou com falha do alpr têm artefatos.")
+    @GetMapping("/diagnostico/{sessionId}")
+    public ResponseEntity<?> getDiagnosticoSessao(@PathVariable String sessionId) {
+        if (!diagnostics.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Diagnóstico do OCR desativado."));
+        }
+        try {
+            List<OcrDiagnostics.Artefact> artefacts = diagnostics.find(sessionId);
+            return artefacts.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(artefacts);
+        } catch (IOException e) {
+            log.error("Falha ao ler diagnóstico da sessão {}", sessionId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Falha ao ler o diagnóstico."));
+        }
+    }
+
+    @Operation(summary = "Upload de Imagem da Placa",
+            description = "'cameraId' (opcional) identifica a câmera da portaria: quadros quase idênticos só "
+                    + "reaproveitam a placa em cache dentro do mesmo burst da mesma câmera (ou da mesma sessão).")
     @PostMapping(
             value = "/upload-imagem/{sessionId}",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
@@ -56,12 +135,16 @@ public class RadarController {
     public ResponseEntity<Map<String, String>> uploadImagem(
             @PathVariable String sessionId,
             @RequestPart(value = "image", required = false) MultipartFile image,
-            @RequestPart(value = "file", required = false) MultipartFile file) {
+            @RequestPart(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "cameraId", required = false) String cameraId) {
 
         log.info("Recebida requisição de upload para a sessão: {}", sessionId);
 
         Optional<OcrSession> optSession = sessionManager.getSession(sessionId);
         if (optSession.isEmpty()) {
+            if (sessionManager.isExpired(sessionId)) {
+                return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", "Sessão expirada. Inicie uma nova sessão."));
+            }
             return ResponseEntity.status(404).body(Map.of("error", "Sessão inválida ou expirada."));
         }
 
@@ -75,14 +158,44 @@ public class RadarController {
         }
 
         try {
-            byte[] imageBytes = mainPart.getBytes();
+            // Formato e dimensões vêm só do cabeçalho: entrada inválida é recusada antes de carregar o arquivo.
+            byte[] imageBytes = ocrMetrics.time(sessionId, "upload", OcrMetrics.NONE, OcrMetrics.NONE, () -> {
+                try (InputStream in = mainPart.getInputStream()) {
+                    BoundedImageDecoder.ImageInfo info = imageDecoder.probe(in);
+                    log.info("Sessão {}: imagem {} {}x{}.", sessionId, info.format(), info.width(), info.height());
+                }
+                return mainPart.getBytes();
+            });
             log.info("Sessão {}: Imagem lida com {} bytes.", sessionId, imageBytes.length);
 
-            // Dispara processamento assíncrono no motor configurado (OpenALPR @Primary por padrão).
+            // Mesma foto já reconhecida: conclui a sessão sem rodar o OCR. O quadro quase idêntico de um
+            // burst é procurado pelo worker, que já decodifica a imagem.
+            if (recognitionCache.isEnabled()) {
+                PlateRecognitionCache.Fingerprint fingerprint = recognitionCache.fingerprint(imageBytes,
+                        cameraId == null || cameraId.isBlank() ? sessionId : "camera:" + cameraId.trim());
+                Optional<PlateRecognitionCache.Hit> hit = recognitionCache.lookup(fingerprint);
+                if (hit.isPresent()) {
+                    log.info("Sessão {}: placa {} obtida do cache (imagem idêntica).", sessionId, hit.get().plate());
+                    sessionManager.updateSessionSuccess(sessionId, hit.get().plate(), hit.get().confidence());
+                    return ResponseEntity.ok(Map.of("status", "Placa reconhecida (cache)."));
+                }
+                recognitionCache.track(sessionId, fingerprint);
+            }
+
+            // Dispara processamento assíncrono pelo reconhecedor com hedge (motor principal em mottu.ocr.hedge.primary).
             plateRecognizer.extractPlate(sessionId, imageBytes); // compatível com o fluxo anterior  :contentReference[oaicite:13]{index=13}
 
             return ResponseEntity.accepted().body(Map.of("status", "Processamento da imagem iniciado."));
 
+        } catch (InvalidInputException e) {
+            log.warn("Sessão {}: imagem recusada: {}", sessionId, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+
+        } catch (OcrQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", e.getMessage()));
+
         } catch (IOException e) {
             log.error("Sessão {}: Falha ao ler os bytes da imagem.", sessionId, e);
             sessionManager.updateSessionError(sessionId, "Erro ao ler o arquivo de imagem.");
@@ -94,4 +207,70 @@ public class RadarController {
             return ResponseEntity.status(500).body(Map.of("error", "Erro interno ao processar a imagem."));
         }
     }
+
+    @Operation(summary = "Upload de Vários Quadros da Placa",
+            description = "Recebe N quadros ('images') da mesma placa; as leituras são combinadas por votação "
+                    + "caractere a caractere e a sessão conclui assim que o consenso fica confiável.")
+    @PostMapping(
+            value = "/upload-imagens/{sessionId}",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Map<String, String>> uploadImagens(
+            @PathVariable String sessionId,
+            @RequestPart(value = "images", required = false) List<MultipartFile> images) {
+
+        if (sessionManager.getSession(sessionId).isEmpty()) {
+            if (sessionManager.isExpired(sessionId)) {
+                return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", "Sessão expirada. Inicie uma nova sessão."));
+            }
+            return ResponseEntity.status(404).body(Map.of("error", "Sessão inválida ou expirada."));
+        }
+        List<MultipartFile> parts = images == null ? List.of()
+                : images.stream().filter(f -> f != null && !f.isEmpty()).toList();
+        if (parts.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Nenhum quadro enviado. Envie um ou mais arquivos no campo 'images' em multipart/form-data."));
+        }
+        if (parts.size() > maxFrames) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Envie no máximo " + maxFrames + " quadros por vez."));
+        }
+
+        try {
+            // quadros com cabeçalho inválido são descartados; os demais seguem para a votação
+            long uploadStart = System.nanoTime();
+            List<byte[]> frames = new ArrayList<>(parts.size());
+            String lastRejection = null;
+            for (MultipartFile part : parts) {
+                try (InputStream in = part.getInputStream()) {
+                    imageDecoder.probe(in);
+                    frames.add(part.getBytes());
+                } catch (InvalidInputException e) {
+                    lastRejection = e.getMessage();
+                    log.warn("Sessão {}: quadro '{}' recusado: {}", sessionId, part.getOriginalFilename(), e.getMessage());
+                }
+            }
+            ocrMetrics.record(sessionId, "upload", OcrMetrics.NONE, OcrMetrics.NONE,
+                    frames.isEmpty() ? OcrMetrics.ERROR : OcrMetrics.SUCCESS, System.nanoTime() - uploadStart);
+            if (frames.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", lastRejection));
+            }
+
+            int queued = multiFrameRecognizer.extractPlate(sessionId, frames);
+            log.info("Sessão {}: {} de {} quadro(s) enfileirados para votação.", sessionId, queued, parts.size());
+            return ResponseEntity.accepted().body(Map.of(
+                    "status", "Processamento dos quadros iniciado.",
+                    "quadros", String.valueOf(queued)));
+
+        } catch (OcrQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("error", e.getMessage()));
+
+        } catch (IOException e) {
+            log.error("Sessão {}: Falha ao ler os quadros enviados.", sessionId, e);
+            sessionManager.updateSessionError(sessionId, "Erro ao ler os arquivos de imagem.");
+            return ResponseEntity.status(500).body(Map.of("error", "Erro interno ao ler os arquivos enviados."));
+        }
+    }
 }
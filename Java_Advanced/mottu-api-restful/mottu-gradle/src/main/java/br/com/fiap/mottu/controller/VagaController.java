@@ -1,6 +1,7 @@
 package br.com.fiap.mottu.controller;
 
 import br.com.fiap.mottu.dto.box.BoxResponseDto;
+import br.com.fiap.mottu.service.vaga.AlocadorVagas;
 import br.com.fiap.mottu.service.vaga.VagaOracleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,9 +20,11 @@ import java.util.*;
 public class VagaController {
 
     private final VagaOracleService service;
+    private final AlocadorVagas alocadorVagas;
 
-    public VagaController(VagaOracleService service) {
+    public VagaController(VagaOracleService service, AlocadorVagas alocadorVagas) {
         this.service = service;
+        this.alocadorVagas = alocadorVagas;
     }
 
     /**
@@ -73,7 +76,7 @@ public class VagaController {
      * body:
      * { "placa": "ABC1D23", "boxId": 12 (opcional) }
      *
-     * resposta: { ok, message, placa, boxId }
+     * resposta: { ok, message, placa, boxId, veiculoId, statusAnterior }
      */
     @Operation(summary = "Armazenar placa (aloca box). Se não informar boxId, usa primeiro livre.")
     @PostMapping("/armazenar")
@@ -89,18 +92,27 @@ public class VagaController {
         out.put("message", "Vaga cadastrada");
         out.put("placa", res.placa());
         out.put("boxId", res.boxId());
+        out.put("veiculoId", res.veiculoId());
+        out.put("statusAnterior", res.statusAnterior());
         return ResponseEntity.status(201).body(out);
     }
 
     /**
      * Libera um box (remove vínculo e marca STATUS='L').
-     * resposta: { ok, boxId }
+     * resposta: { ok, boxId, placa, veiculoId, statusAnterior } (placa/veiculoId null se o box estava vazio)
      */
     @Operation(summary = "Liberar box (remove vínculo e marca STATUS='L')")
     @PostMapping("/liberar/{boxId}")
     public ResponseEntity<Map<String, Object>> liberar(@PathVariable Long boxId) {
-        service.liberarBox(boxId);
-        return ResponseEntity.ok(Map.of("ok", true, "boxId", boxId));
+        var res = service.liberarBox(boxId);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ok", true);
+        out.put("boxId", boxId);
+        out.put("placa", res.placa());
+        out.put("veiculoId", res.veiculoId());
+        out.put("statusAnterior", res.statusAnterior());
+        return ResponseEntity.ok(out);
     }
 
     /**
@@ -123,4 +135,21 @@ public class VagaController {
                 )))
                 .orElse(ResponseEntity.ok(Map.of("found", false, "placa", placa.toUpperCase())));
     }
+
+    /**
+     * Boxes livres segundo o alocador em memória, por pátio/zona.
+     * resposta: { carregado, boxes, livres, bytes, setores: [{ patioId, zonaId, boxes, livres }] }
+     */
+    @Operation(summary = "Boxes livres no alocador em memória, por pátio/zona")
+    @GetMapping("/livres")
+    public ResponseEntity<AlocadorVagas.Estatisticas> livres() {
+        return ResponseEntity.ok(alocadorVagas.estatisticas());
+    }
+
+    /** Relê os boxes do banco agora, sem esperar a reconciliação agendada. */
+    @Operation(summary = "Reconciliar o alocador de vagas com o banco")
+    @PostMapping("/livres/reconciliar")
+    public ResponseEntity<AlocadorVagas.Estatisticas> reconciliarLivres() {
+        return ResponseEntity.ok(alocadorVagas.reconciliar());
+    }
 }
@@ -8,7 +8,13 @@ import br.com.fiap.mottu.service.VeiculoService; // Serviço com a lógica de ne
 import br.com.fiap.mottu.mapper.VeiculoMapper; // Mapper para converter entre Entidade e DTOs de Veículo
 import br.com.fiap.mottu.model.Veiculo; // Entidade Veiculo
 import br.com.fiap.mottu.repository.VeiculoRepository;
+import br.com.fiap.mottu.exception.InvalidInputException;
 import br.com.fiap.mottu.exception.ResourceNotFoundException;
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+import br.com.fiap.mottu.service.placa.FiltroPlacas;
+import br.com.fiap.mottu.service.placa.PlacaProxima;
+import br.com.fiap.mottu.service.placa.PlacasCadastradas;
+import br.com.fiap.mottu.service.placa.RegistroPlacas;
 
 import io.swagger.v3.oas.annotations.Operation; // Anotação do Swagger para descrever a operação
 import io.swagger.v3.oas.annotations.media.Content; // Anotação do Swagger para descrever o conteúdo da resposta
@@ -29,6 +35,9 @@ import org.springframework.http.ResponseEntity; // Classe para construir respost
 import org.springframework.web.bind.annotation.*; // Anotações para mapeamento de requisições web
 import jakarta.validation.Valid; // Para validar DTOs de entrada
 
+import java.util.List;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/veiculos")
 @Tag(name = "Veiculos", description = "Gerenciamento de Veículos, incluindo Rastreamento e Localização")
@@ -38,12 +47,19 @@ public class VeiculoController {
     private final VeiculoService veiculoService;
     private final VeiculoMapper veiculoMapper;
     private final VeiculoRepository veiculoRepository; // Injetado para o novo endpoint
+    private final PlacasCadastradas placasCadastradas;
+    private final RegistroPlacas registroPlacas;
+    private final FiltroPlacas filtroPlacas;
 
     @Autowired
-    public VeiculoController(VeiculoService veiculoService, VeiculoMapper veiculoMapper, VeiculoRepository veiculoRepository) {
+    public VeiculoController(VeiculoService veiculoService, VeiculoMapper veiculoMapper, VeiculoRepository veiculoRepository,
+                             PlacasCadastradas placasCadastradas, RegistroPlacas registroPlacas, FiltroPlacas filtroPlacas) {
         this.veiculoService = veiculoService;
         this.veiculoMapper = veiculoMapper;
         this.veiculoRepository = veiculoRepository;
+        this.placasCadastradas = placasCadastradas;
+        this.registroPlacas = registroPlacas;
+        this.filtroPlacas = filtroPlacas;
     }
 
     @Operation(
@@ -205,10 +221,62 @@ public class VeiculoController {
     @GetMapping("/localizacao-por-placa")
     public ResponseEntity<VeiculoLocalizacaoResponseDto> getLocalizacaoPorPlaca(@RequestParam String placa) {
         log.info("Buscando localização para o veículo com PLACA: {}", placa);
-        Veiculo veiculo = veiculoRepository.findByPlaca(placa)
+        // acerto no registro vira busca pela chave, conferida contra a placa (ela pode ter sido trocada fora
+        // desta instância); sem acerto conferido, busca pela placa: a falta pode ser atraso do registro
+        long doRegistro = registroPlacas.conhece(placa) ? registroPlacas.veiculoId(placa) : RegistroPlacas.AUSENTE;
+        Long veiculoId = (doRegistro == RegistroPlacas.AUSENTE ? Optional.<Veiculo>empty() : veiculoRepository.findById(doRegistro))
+                .filter(v -> placa.equalsIgnoreCase(v.getPlaca()))
+                .or(() -> veiculoRepository.findByPlaca(placa))
+                .map(Veiculo::getIdVeiculo)
                 .orElseThrow(() -> new ResourceNotFoundException("Veículo", "placa", placa));
-        VeiculoLocalizacaoResponseDto localizacao = veiculoService.getLocalizacaoVeiculo(veiculo.getIdVeiculo());
+        VeiculoLocalizacaoResponseDto localizacao = veiculoService.getLocalizacaoVeiculo(veiculoId);
         log.info("Localização do veículo com PLACA {} encontrada com sucesso.", placa);
         return ResponseEntity.ok(localizacao);
     }
+
+    @Operation(
+            summary = "Placas cadastradas próximas de uma leitura",
+            description = "Normaliza a placa (Mercosul) e devolve as placas cadastradas a até 'distancia' erros (Levenshtein), da mais próxima para a mais distante. Mais de uma na menor distância indica leitura ambígua.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Lista (possivelmente vazia) de placas próximas"),
+                    @ApiResponse(responseCode = "400", description = "Placa inválida ou distância acima da configurada")
+            }
+    )
+    @GetMapping("/placas-proximas")
+    public ResponseEntity<List<PlacaProxima>> buscarPlacasProximas(@RequestParam String placa,
+                                                                  @RequestParam(required = false) Integer distancia) {
+        String normalized = PlateUtils.normalizeMercosul(placa);
+        if (normalized.isEmpty()) {
+            throw new InvalidInputException("Placa inválida.");
+        }
+        int k = distancia == null ? placasCadastradas.fuzzyMaxDistance() : distancia;
+        List<PlacaProxima> proximas = placasCadastradas.proximas(normalized, k);
+        log.info("Placas próximas de {} (k={}): {}", normalized, k, proximas.size());
+        return ResponseEntity.ok(proximas);
+    }
+
+    @Operation(
+            summary = "Situação do filtro de placas da portaria",
+            description = "Filtro de Bloom que descarta, sem ir ao banco, placas sem nenhuma cadastrada a até 1 erro. Retorna placas indexadas, capacidade, remoções pendentes, tamanho e taxa de falsos positivos estimada.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Estatísticas do filtro")
+            }
+    )
+    @GetMapping("/placas-filtro")
+    public ResponseEntity<FiltroPlacas.Estatisticas> estatisticasFiltroPlacas() {
+        return ResponseEntity.ok(filtroPlacas.estatisticas());
+    }
+
+    @Operation(
+            summary = "Reconstruir o filtro de placas a partir do banco",
+            description = "Relê todas as placas do banco, redimensiona o filtro e descarta os falsos positivos deixados por placas excluídas ou alteradas.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Filtro reconstruído; estatísticas do novo filtro")
+            }
+    )
+    @PostMapping("/placas-filtro/reconstruir")
+    public ResponseEntity<FiltroPlacas.Estatisticas> reconstruirFiltroPlacas() {
+        log.info("Reconstruindo o filtro de placas a partir do banco.");
+        return ResponseEntity.ok(filtroPlacas.reconstruir());
+    }
 }
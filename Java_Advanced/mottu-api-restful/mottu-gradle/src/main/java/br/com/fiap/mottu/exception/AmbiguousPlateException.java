@@ -0,0 +1,25 @@
+// Caminho do arquivo: br\com\fiap\mottu\exception\AmbiguousPlateException.java
+package br.com.fiap.mottu.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.List;
+
+// Leitura que casa com mais de uma placa cadastrada na mesma distância: quem chamou escolhe
+@ResponseStatus(HttpStatus.CONFLICT) // 409 Conflict
+public class AmbiguousPlateException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> candidatas;
+
+    public AmbiguousPlateException(String placa, List<String> candidatas) {
+        super(String.format("Placa '%s' é ambígua: confere com %s.", placa, String.join(", ", candidatas)));
+        this.candidatas = List.copyOf(candidatas);
+    }
+
+    public List<String> getCandidatas() {
+        return candidatas;
+    }
+}
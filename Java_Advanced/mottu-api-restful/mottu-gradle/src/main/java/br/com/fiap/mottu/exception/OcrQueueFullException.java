@@ -0,0 +1,23 @@
+// Caminho do arquivo: br\com\fiap\mottu\exception\OcrQueueFullException.java
+package br.com.fiap.mottu.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Fila de OCR cheia: o cliente deve tentar de novo após 'retryAfterSeconds'
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS) // 429 Too Many Requests
+public class OcrQueueFullException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public OcrQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,6 +1,7 @@
 // Caminho do arquivo: br\com\fiap\mottu\exception\handler\GlobalExceptionHandler.java
 package br.com.fiap.mottu.exception.handler;
 
+import br.com.fiap.mottu.exception.AmbiguousPlateException;
 import br.com.fiap.mottu.exception.DuplicatedResourceException;
 import br.com.fiap.mottu.exception.InvalidInputException;
 import br.com.fiap.mottu.exception.ResourceNotFoundException;
@@ -40,6 +41,18 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(AmbiguousPlateException.class)
+    public ResponseEntity<Object> handleAmbiguousPlateException(AmbiguousPlateException ex, WebRequest request) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Placa Ambígua");
+        body.put("message", ex.getMessage());
+        body.put("candidatas", ex.getCandidatas());
+        body.put("path", request.getDescription(false));
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(InvalidInputException.class)
     public ResponseEntity<Object> handleInvalidInputException(InvalidInputException ex, WebRequest request) {
         Map<String, Object> body = new LinkedHashMap<>();
@@ -5,9 +5,23 @@ import br.com.fiap.mottu.model.relacionamento.VeiculoBox;
 import br.com.fiap.mottu.model.relacionamento.VeiculoBoxId;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface VeiculoBoxRepository extends JpaRepository<VeiculoBox, VeiculoBoxId>, JpaSpecificationExecutor<VeiculoBox> {
     // Adicione métodos de busca específicos se precisar
+
+    /**
+     * Desfaz o vínculo só se ele existe e o veículo ainda tem a placa (em UPPERCASE).
+     * Devolve as linhas removidas: 0 quer dizer que quem chamou partiu de um dado velho.
+     */
+    @Modifying
+    @Query("""
+            delete from VeiculoBox vb
+             where vb.id.veiculoId = :veiculoId and vb.id.boxId = :boxId
+               and exists (select 1 from Veiculo v where v.idVeiculo = :veiculoId and upper(v.placa) = :placa)""")
+    int desvincular(@Param("veiculoId") Long veiculoId, @Param("boxId") Long boxId, @Param("placa") String placa);
 }
\ No newline at end of file
@@ -1,22 +1,29 @@
 package br.com.fiap.mottu.service;
 
+import br.com.fiap.mottu.exception.AmbiguousPlateException;
 import br.com.fiap.mottu.exception.InvalidInputException;
 import br.com.fiap.mottu.exception.ResourceNotFoundException;
 import br.com.fiap.mottu.model.Box;
 import br.com.fiap.mottu.model.Veiculo;
 import br.com.fiap.mottu.model.relacionamento.VeiculoBox;
+import br.com.fiap.mottu.model.relacionamento.VeiculoBoxId;
 import br.com.fiap.mottu.repository.BoxRepository;
 import br.com.fiap.mottu.repository.VeiculoRepository;
 import br.com.fiap.mottu.repository.relacionamento.VeiculoBoxRepository;
 import br.com.fiap.mottu.service.ocr.PlateUtils;
+import br.com.fiap.mottu.service.placa.FiltroPlacas;
+import br.com.fiap.mottu.service.placa.PlacaProxima;
+import br.com.fiap.mottu.service.placa.PlacasCadastradas;
+import br.com.fiap.mottu.service.placa.RegistroPlacas;
+import br.com.fiap.mottu.service.placa.VagaAlteradaEvent;
+import br.com.fiap.mottu.service.vaga.AlocadorVagas;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 public class EstacionamentoService {
@@ -24,14 +31,29 @@ public class EstacionamentoService {
     private final VeiculoRepository veiculoRepository;
     private final BoxRepository boxRepository;
     private final VeiculoBoxRepository veiculoBoxRepository;
+    private final PlacasCadastradas placasCadastradas;
+    private final RegistroPlacas registroPlacas;
+    private final FiltroPlacas filtroPlacas;
+    private final AlocadorVagas alocadorVagas;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public EstacionamentoService(VeiculoRepository veiculoRepository,
                                  BoxRepository boxRepository,
-                                 VeiculoBoxRepository veiculoBoxRepository) {
+                                 VeiculoBoxRepository veiculoBoxRepository,
+                                 PlacasCadastradas placasCadastradas,
+                                 RegistroPlacas registroPlacas,
+                                 FiltroPlacas filtroPlacas,
+                                 AlocadorVagas alocadorVagas,
+                                 ApplicationEventPublisher eventPublisher) {
         this.veiculoRepository = veiculoRepository;
         this.boxRepository = boxRepository;
         this.veiculoBoxRepository = veiculoBoxRepository;
+        this.placasCadastradas = placasCadastradas;
+        this.registroPlacas = registroPlacas;
+        this.filtroPlacas = filtroPlacas;
+        this.alocadorVagas = alocadorVagas;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -42,48 +64,41 @@ public class EstacionamentoService {
             throw new InvalidInputException("Placa inválida.");
         }
 
-        // 2) tenta match exato primeiro
-        Optional<Veiculo> opt = veiculoRepository.findByPlaca(normalized);
-
-        // 3) se não achou, faz fuzzy contra todas as placas cadastradas (normalizadas)
-        Veiculo veiculo = opt.orElseGet(() -> {
-            List<Veiculo> all = veiculoRepository.findAll();
-            if (all.isEmpty()) throw new ResourceNotFoundException("Nenhum veículo cadastrado.");
-            // Lista normalizada
-            List<VeiculoNormalized> norm = all.stream()
-                    .map(v -> new VeiculoNormalized(v, PlateUtils.normalizeMercosul(v.getPlaca())))
-                    .collect(Collectors.toList());
-            String bestPlate = PlateUtils.bestCandidate(
-                    norm.stream().map(VeiculoNormalized::normalized).collect(Collectors.toList()),
-                    normalized,
-                    1 // tolera 1 erro; ajuste p/ 2 se necessário
-            );
-            if (bestPlate == null) {
+        // 1b) nenhuma placa cadastrada a até 1 erro? descarta já (o filtro só cobre o fuzzy de distância ≤ 1;
+        //     placa gravada fora desta instância só entra nele na reconstrução agendada)
+        if (placasCadastradas.fuzzyMaxDistance() <= 1 && filtroPlacas.certamenteAusente(normalized)) {
+            throw new ResourceNotFoundException("Veículo com placa " + placa + " não cadastrado.");
+        }
+
+        // 2) tenta match exato primeiro (registro em memória; banco quando ele não responde pela placa)
+        String cadastrada = normalized;
+        Veiculo veiculo = findByPlacaCadastrada(normalized);
+
+        // 3) se não achou, faz fuzzy no índice das placas cadastradas (até mottu.placas.fuzzy.max-distance erros)
+        if (veiculo == null) {
+            cadastrada = placaAproximada(placa, normalized);
+            veiculo = findByPlacaCadastrada(cadastrada);
+            if (veiculo == null) {
                 throw new ResourceNotFoundException("Veículo com placa " + placa + " não cadastrado.");
             }
-            return norm.stream()
-                    .min(Comparator.comparingInt(vn -> PlateUtils.levenshtein(vn.normalized(), normalized)))
-                    .filter(vn -> PlateUtils.levenshtein(vn.normalized(), normalized) <= 1)
-                    .map(VeiculoNormalized::entity)
-                    .orElseThrow(() -> new ResourceNotFoundException("Veículo com placa " + placa + " não cadastrado."));
-        });
-
-        // 4) já estacionado?
-        if (veiculo.getVeiculoBoxes() != null && !veiculo.getVeiculoBoxes().isEmpty()) {
-            throw new InvalidInputException("Veículo de placa " + veiculo.getPlaca() + " já está estacionado.");
         }
 
-        // 5) encontra primeira vaga livre
-        Box vagaLivre = boxRepository.findAll().stream()
-                .filter(box -> "L".equals(box.getStatus()))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("Nenhuma vaga livre encontrada."));
+        // 4) já estacionado? (sempre pelo banco: outro gravador pode ter estacionado fora do registro)
+        if (estacionado(veiculo)) {
+            throw new InvalidInputException("Veículo de placa " + cadastrada + " já está estacionado.");
+        }
 
-        vagaLivre.setStatus("O");
-        boxRepository.save(vagaLivre);
+        // 5) ocupa a primeira vaga livre (alocador em memória + UPDATE condicional nesta transação)
+        long boxId = alocadorVagas.ocuparLivre();
+        if (boxId == AlocadorVagas.NENHUM) {
+            throw new ResourceNotFoundException("Nenhuma vaga livre encontrada.");
+        }
+        Box vagaLivre = boxRepository.findById(boxId)
+                .orElseThrow(() -> new ResourceNotFoundException("Box", boxId));
 
         VeiculoBox associacao = new VeiculoBox(veiculo, vagaLivre);
         veiculoBoxRepository.save(associacao);
+        eventPublisher.publishEvent(new VagaAlteradaEvent(cadastrada, vagaLivre.getIdBox(), "O"));
 
         return vagaLivre;
     }
@@ -95,20 +110,79 @@ public class EstacionamentoService {
             throw new InvalidInputException("Placa inválida.");
         }
 
-        Veiculo veiculo = veiculoRepository.findByPlaca(normalized)
-                .orElseThrow(() -> new ResourceNotFoundException("Veículo com placa " + placa + " não encontrado."));
-
-        VeiculoBox associacao = veiculo.getVeiculoBoxes().stream()
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("Veículo com placa " + placa + " não está estacionado em nenhum box."));
+        // o vínculo que o registro aponta só vale se o DELETE condicional (veículo, box e placa conferidos
+        // no banco) o encontrar; registro atrasado, sem box ou sem a placa cai na consulta ao banco
+        long registroBox = registroPlacas.conhece(normalized) ? registroPlacas.boxId(normalized) : RegistroPlacas.AUSENTE;
+        long boxId;
+        if (registroBox > 0
+                && veiculoBoxRepository.desvincular(registroPlacas.veiculoId(normalized), registroBox, normalized) == 1) {
+            boxId = registroBox;
+        } else {
+            Veiculo veiculo = veiculoRepository.findByPlacaIgnoreCase(normalized)
+                    .orElseThrow(() -> new ResourceNotFoundException("Veículo com placa " + placa + " não encontrado."));
+            VeiculoBoxId associacao = veiculo.getVeiculoBoxes().stream()
+                    .findFirst()
+                    .map(VeiculoBox::getId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Veículo com placa " + placa + " não está estacionado em nenhum box."));
+            // 0 linhas: outra liberação desfez o vínculo depois da leitura
+            if (veiculoBoxRepository.desvincular(associacao.getVeiculoId(), associacao.getBoxId(), normalized) == 0) {
+                throw new ResourceNotFoundException("Veículo com placa " + placa + " não está estacionado em nenhum box.");
+            }
+            boxId = associacao.getBoxId();
+        }
 
-        Box boxOcupado = associacao.getBox();
+        Box boxOcupado = boxRepository.findById(boxId)
+                .orElseThrow(() -> new ResourceNotFoundException("Box", boxId));
         boxOcupado.setStatus("L");
         boxRepository.save(boxOcupado);
 
-        veiculoBoxRepository.deleteById(associacao.getId());
+        eventPublisher.publishEvent(new VagaAlteradaEvent(normalized, boxId, "L"));
     }
 
-    /** Par auxiliar para manter a entidade + sua placa normalizada. */
-    private record VeiculoNormalized(Veiculo entity, String normalized) {}
+    /**
+     * Veículo com a placa exata. O id do {@link RegistroPlacas} vira uma busca pela chave, conferida contra
+     * a placa: o registro pode estar atrasado (placa trocada ou veículo excluído fora desta instância).
+     * Sem acerto conferido, consulta pela placa: a falta no registro também pode ser só atraso.
+     */
+    private Veiculo findByPlacaCadastrada(String placa) {
+        if (registroPlacas.conhece(placa)) {
+            long id = registroPlacas.veiculoId(placa);
+            if (id != RegistroPlacas.AUSENTE) {
+                Optional<Veiculo> conferido = veiculoRepository.findById(id)
+                        .filter(v -> placa.equalsIgnoreCase(v.getPlaca()));
+                if (conferido.isPresent()) return conferido.get();
+            }
+        }
+        return veiculoRepository.findByPlacaIgnoreCase(placa).orElse(null);
+    }
+
+    private boolean estacionado(Veiculo veiculo) {
+        return veiculo.getVeiculoBoxes() != null && !veiculo.getVeiculoBoxes().isEmpty();
+    }
+
+    /**
+     * Placa cadastrada mais próxima da leitura. Se mais de uma empata na menor distância a leitura é
+     * ambígua e a escolha fica com quem chamou ({@link AmbiguousPlateException} com as candidatas).
+     */
+    private String placaAproximada(String placa, String normalized) {
+        if (!placasCadastradas.isLoaded()) {
+            placasCadastradas.reload();
+            if (!placasCadastradas.isLoaded()) {
+                throw new IllegalStateException("Cadastro de placas indisponível para a busca aproximada.");
+            }
+        }
+        List<PlacaProxima> proximas = placasCadastradas.proximas(normalized);
+        if (proximas.isEmpty()) {
+            throw new ResourceNotFoundException("Veículo com placa " + placa + " não cadastrado.");
+        }
+        int melhor = proximas.get(0).distancia();
+        List<String> empatadas = proximas.stream()
+                .filter(p -> p.distancia() == melhor)
+                .map(PlacaProxima::cadastrada)
+                .toList();
+        if (empatadas.size() > 1) {
+            throw new AmbiguousPlateException(placa, empatadas);
+        }
+        return empatadas.get(0);
+    }
 }
@@ -1,23 +1,180 @@
 package br.com.fiap.mottu.service.vaga;
 
+import br.com.fiap.mottu.service.placa.PlacaAlteradaEvent;
+import br.com.fiap.mottu.service.placa.RegistroPlacas;
+import br.com.fiap.mottu.service.placa.VagaAlteradaEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.CallableStatementCallback;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
 
 @Service
 public class VagaOracleService {
 
+    /**
+     * {@link #alocarPlaca} inteiro numa ida ao Oracle: acha (ou cria) o veículo, recusa placa já num box,
+     * ocupa o box pedido (esperando quem estiver com ele), o candidato do {@link AlocadorVagas} ou o primeiro
+     * livre (os dois com {@code SKIP LOCKED}: travado por outra transação conta como tomado) e vincula. Entradas 1-4: placa, id do veículo se o registro souber, box pedido, candidato.
+     * Saídas 5-10: código, veículo, veículo criado (1/0), box, status anterior do box, nome do box.
+     */
+    private static final String PLSQL_ALOCAR = """
+            DECLARE
+              v_placa    TB_VEICULO.PLACA%TYPE := ?;
+              v_veic     NUMBER := ?;
+              v_pref     NUMBER := ?;
+              v_cand     NUMBER := ?;
+              v_box      NUMBER;
+              v_anterior VARCHAR2(1);
+              v_nome     VARCHAR2(50);
+              v_codigo   VARCHAR2(20) := 'OK';
+              v_criado   NUMBER := 0;
+              CURSOR c_livre IS
+                SELECT b.ID_BOX
+                  FROM TB_BOX b
+                 WHERE b.STATUS = 'L'
+                   AND NOT EXISTS (SELECT 1 FROM TB_VEICULOBOX vb WHERE vb.TB_BOX_ID_BOX = b.ID_BOX)
+                 ORDER BY b.ID_BOX
+                   FOR UPDATE SKIP LOCKED;
+              -- candidato do alocador: outra instância com o mesmo mapa pode estar nele; travado = tomado
+              CURSOR c_cand(p_box NUMBER) IS
+                SELECT b.ID_BOX
+                  FROM TB_BOX b
+                 WHERE b.ID_BOX = p_box AND b.STATUS = 'L'
+                   AND NOT EXISTS (SELECT 1 FROM TB_VEICULOBOX vb WHERE vb.TB_BOX_ID_BOX = b.ID_BOX)
+                   FOR UPDATE SKIP LOCKED;
+            BEGIN
+              IF v_veic IS NOT NULL THEN
+                -- o registro pode estar atrasado (veículo excluído ou com a placa trocada fora daqui)
+                SELECT MAX(ID_VEICULO) INTO v_veic FROM TB_VEICULO WHERE ID_VEICULO = v_veic AND UPPER(PLACA) = v_placa;
+              END IF;
+              IF v_veic IS NULL THEN
+                BEGIN
+                  SELECT ID_VEICULO INTO v_veic FROM TB_VEICULO WHERE UPPER(PLACA) = v_placa AND ROWNUM = 1;
+                EXCEPTION WHEN NO_DATA_FOUND THEN
+                  INSERT INTO TB_VEICULO (PLACA) VALUES (v_placa) RETURNING ID_VEICULO INTO v_veic;
+                  v_criado := 1;
+                END;
+              END IF;
+
+              SELECT MIN(TB_BOX_ID_BOX) INTO v_box FROM TB_VEICULOBOX WHERE TB_VEICULO_ID_VEICULO = v_veic;
+              IF v_box IS NOT NULL THEN
+                v_codigo := 'JA_ALOCADA';
+                SELECT STATUS, NOME INTO v_anterior, v_nome FROM TB_BOX WHERE ID_BOX = v_box;
+              ELSE
+                IF v_pref IS NOT NULL THEN
+                  -- box pedido: espera quem estiver com ele
+                  v_box := v_pref;
+                  UPDATE TB_BOX b SET STATUS = 'O', DATA_ENTRADA = SYSDATE, DATA_SAIDA = NULL
+                   WHERE b.ID_BOX = v_box AND b.STATUS = 'L'
+                     AND NOT EXISTS (SELECT 1 FROM TB_VEICULOBOX vb WHERE vb.TB_BOX_ID_BOX = b.ID_BOX)
+                  RETURNING NOME INTO v_nome;
+                  IF SQL%ROWCOUNT = 0 THEN
+                    v_box := NULL;
+                  END IF;
+                ELSIF v_cand IS NOT NULL THEN
+                  OPEN c_cand(v_cand);
+                  FETCH c_cand INTO v_box;
+                  IF c_cand%NOTFOUND THEN
+                    v_box := NULL;
+                  END IF;
+                  CLOSE c_cand;
+                  IF v_box IS NOT NULL THEN
+                    UPDATE TB_BOX SET STATUS = 'O', DATA_ENTRADA = SYSDATE, DATA_SAIDA = NULL
+                     WHERE ID_BOX = v_box
+                    RETURNING NOME INTO v_nome;
+                  END IF;
+                END IF;
+                IF v_box IS NULL AND v_pref IS NOT NULL THEN
+                  v_codigo := 'OCUPADO';
+                ELSE
+                  IF v_box IS NULL THEN
+                    OPEN c_livre;
+                    FETCH c_livre INTO v_box;
+                    CLOSE c_livre;
+                    IF v_box IS NOT NULL THEN
+                      UPDATE TB_BOX SET STATUS = 'O', DATA_ENTRADA = SYSDATE, DATA_SAIDA = NULL
+                       WHERE ID_BOX = v_box
+                      RETURNING NOME INTO v_nome;
+                    END IF;
+                  END IF;
+                  IF v_box IS NULL THEN
+                    v_codigo := 'SEM_VAGA';
+                  ELSE
+                    v_anterior := 'L';
+                    INSERT INTO TB_VEICULOBOX (TB_VEICULO_ID_VEICULO, TB_BOX_ID_BOX) VALUES (v_veic, v_box);
+                  END IF;
+                END IF;
+              END IF;
+
+              ? := v_codigo;
+              ? := v_veic;
+              ? := v_criado;
+              ? := v_box;
+              ? := v_anterior;
+              ? := v_nome;
+            END;
+            """;
+
+    /**
+     * {@link #liberarBox} numa ida ao Oracle: trava o box, anota quem estava nele, desfaz o vínculo e marca
+     * livre. Entrada 1: box. Saídas 2-4: status anterior (null se o box não existe), veículo, placa.
+     */
+    private static final String PLSQL_LIBERAR = """
+            DECLARE
+              v_box      NUMBER := ?;
+              v_anterior VARCHAR2(1);
+              v_veic     NUMBER;
+              v_placa    TB_VEICULO.PLACA%TYPE;
+            BEGIN
+              BEGIN
+                SELECT STATUS INTO v_anterior FROM TB_BOX WHERE ID_BOX = v_box FOR UPDATE;
+              EXCEPTION WHEN NO_DATA_FOUND THEN
+                v_anterior := NULL;
+              END;
+              IF v_anterior IS NOT NULL THEN
+                SELECT MIN(TB_VEICULO_ID_VEICULO) INTO v_veic FROM TB_VEICULOBOX WHERE TB_BOX_ID_BOX = v_box;
+                IF v_veic IS NOT NULL THEN
+                  SELECT PLACA INTO v_placa FROM TB_VEICULO WHERE ID_VEICULO = v_veic;
+                END IF;
+                DELETE FROM TB_VEICULOBOX WHERE TB_BOX_ID_BOX = v_box;
+                UPDATE TB_BOX SET STATUS = 'L', DATA_SAIDA = SYSDATE WHERE ID_BOX = v_box;
+              END IF;
+
+              ? := v_anterior;
+              ? := v_veic;
+              ? := v_placa;
+            END;
+            """;
+
     private final JdbcTemplate jdbc;
+    private final RegistroPlacas registroPlacas;
+    private final AlocadorVagas alocadorVagas;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public VagaOracleService(JdbcTemplate jdbc) {
+    public VagaOracleService(JdbcTemplate jdbc, RegistroPlacas registroPlacas, AlocadorVagas alocadorVagas,
+                             ApplicationEventPublisher eventPublisher) {
         this.jdbc = jdbc;
+        this.registroPlacas = registroPlacas;
+        this.alocadorVagas = alocadorVagas;
+        this.eventPublisher = eventPublisher;
     }
 
+    /** Estacionar/liberar pelos blocos PL/SQL (uma ida ao banco) quando o banco é Oracle. */
+    @Value("${mottu.vagas.bloco-plsql:true}")
+    private boolean blocoPlsql = true;
+    private volatile Boolean oracle;
+
     @Transactional(readOnly = true)
     public List<BoxRow> listarBoxesComPlaca() {
         String sql = """
@@ -39,10 +196,24 @@ public class VagaOracleService {
         ));
     }
 
+    /**
+     * O id do {@link RegistroPlacas} vira uma busca pela chave, conferida contra a placa; sem acerto conferido,
+     * busca pela placa. O registro acompanha só os commits desta instância: pode não ter o veículo (gravado
+     * por outra instância ou direto no banco) ou ter a placa antiga dele (trocada fora daqui).
+     */
     @Transactional(readOnly = true)
     public Optional<Long> findVeiculoIdByPlaca(String placa) {
+        String p = placa.toUpperCase();
+        if (registroPlacas.conhece(p)) {
+            long id = registroPlacas.veiculoId(p);
+            if (id != RegistroPlacas.AUSENTE) {
+                List<Long> conferido = jdbc.query("SELECT ID_VEICULO FROM TB_VEICULO WHERE ID_VEICULO = ? AND UPPER(PLACA) = ?",
+                        (rs, i) -> rs.getLong(1), id, p);
+                if (!conferido.isEmpty()) return Optional.of(conferido.getFirst());
+            }
+        }
         String sql = "SELECT ID_VEICULO FROM TB_VEICULO WHERE UPPER(PLACA) = ?";
-        List<Long> ids = jdbc.query(sql, ps -> ps.setString(1, placa.toUpperCase()),
+        List<Long> ids = jdbc.query(sql, ps -> ps.setString(1, p),
                 (rs, i) -> rs.getLong("ID_VEICULO"));
         return ids.isEmpty() ? Optional.empty() : Optional.of(ids.getFirst());
     }
@@ -60,6 +231,7 @@ public class VagaOracleService {
         if (key == null) {
             throw new IllegalStateException("Não foi possível obter ID do veículo criado.");
         }
+        eventPublisher.publishEvent(new PlacaAlteradaEvent(key.longValue(), null, placa.toUpperCase()));
         return key.longValue();
     }
 
@@ -87,38 +259,141 @@ public class VagaOracleService {
         jdbc.update("INSERT INTO TB_VEICULOBOX (TB_VEICULO_ID_VEICULO, TB_BOX_ID_BOX) VALUES (?, ?)", veiculoId, boxId);
     }
 
+    /** Desfaz o vínculo e marca o box livre; devolve quem estava nele e o status anterior. */
     @Transactional
-    public void liberarBox(Long boxId) {
+    public LiberacaoResult liberarBox(Long boxId) {
+        LiberacaoResult r = usarBloco() ? liberarBoxEmBloco(boxId) : liberarBoxEmComandos(boxId);
+        eventPublisher.publishEvent(new VagaAlteradaEvent(r.placa(), boxId, "L"));
+        return r;
+    }
+
+    private LiberacaoResult liberarBoxEmBloco(Long boxId) {
+        return jdbc.execute(PLSQL_LIBERAR, (CallableStatementCallback<LiberacaoResult>) cs -> {
+            cs.setLong(1, boxId);
+            cs.registerOutParameter(2, Types.VARCHAR);
+            cs.registerOutParameter(3, Types.NUMERIC);
+            cs.registerOutParameter(4, Types.VARCHAR);
+            cs.execute();
+            return new LiberacaoResult(boxId, getLong(cs, 3), cs.getString(4), cs.getString(2));
+        });
+    }
+
+    private LiberacaoResult liberarBoxEmComandos(Long boxId) {
+        String sql = """
+            SELECT b.STATUS, vb.TB_VEICULO_ID_VEICULO, v.PLACA
+              FROM TB_BOX b
+              LEFT JOIN TB_VEICULOBOX vb ON vb.TB_BOX_ID_BOX = b.ID_BOX
+              LEFT JOIN TB_VEICULO v ON v.ID_VEICULO = vb.TB_VEICULO_ID_VEICULO
+             WHERE b.ID_BOX = ?
+            """;
+        List<LiberacaoResult> antes = jdbc.query(sql, (rs, i) -> new LiberacaoResult(
+                boxId,
+                rs.getObject(2) == null ? null : rs.getLong(2),
+                rs.getString(3),
+                rs.getString(1)
+        ), boxId);
         jdbc.update("DELETE FROM TB_VEICULOBOX WHERE TB_BOX_ID_BOX = ?", boxId);
         jdbc.update("UPDATE TB_BOX SET STATUS = 'L', DATA_SAIDA = SYSDATE WHERE ID_BOX = ?", boxId);
+        return antes.isEmpty() ? new LiberacaoResult(boxId, null, null, null) : antes.getFirst();
     }
 
     @Transactional
     public AlocacaoResult alocarPlaca(String placa, Long preferidoBoxId) {
         String p = placa == null ? "" : placa.trim().toUpperCase();
         if (p.isEmpty()) throw new IllegalArgumentException("Placa é obrigatória.");
+        if (usarBloco()) return alocarPlacaEmBloco(p, preferidoBoxId);
 
-        Long veiculoId = findVeiculoIdByPlaca(p).orElseGet(() -> createVeiculoComPlaca(p));
-
-        // já alocada?
-        Optional<BuscaBox> ja = buscarBoxPorPlaca(p);
+        // já alocada? Sempre pelo banco: o registro não vê a placa trocada nem o box ocupado por outro gravador
+        Optional<Long> doBanco = findVeiculoIdByPlaca(p);
+        Long veiculoId = doBanco.orElseGet(() -> createVeiculoComPlaca(p));
+        Optional<BuscaBox> ja = doBanco.isPresent() ? buscarBoxPorPlaca(p) : Optional.empty();
         if (ja.isPresent()) {
             throw new IllegalStateException("Placa já alocada no box " + ja.get().idBox() + " (" + ja.get().nomeBox() + ")");
         }
 
-        Long boxId = (preferidoBoxId != null) ? preferidoBoxId
-                : firstBoxLivreId().orElseThrow(() -> new IllegalStateException("Não há boxes livres."));
-
-        int ocupados = jdbc.queryForObject(
-                "SELECT COUNT(1) FROM TB_VEICULOBOX WHERE TB_BOX_ID_BOX = ?",
-                Integer.class, boxId
-        );
-        if (ocupados > 0) throw new IllegalStateException("Box já ocupado: " + boxId);
+        // reserva atômica: o box sai livre (STATUS 'L', sem vínculo) e fica 'O' nesta transação, ou nada feito
+        Long boxId;
+        if (preferidoBoxId != null) {
+            if (!alocadorVagas.ocupar(preferidoBoxId)) throw new IllegalStateException("Box já ocupado: " + preferidoBoxId);
+            boxId = preferidoBoxId;
+        } else {
+            long livre = alocadorVagas.ocuparLivre();
+            if (livre == AlocadorVagas.NENHUM) throw new IllegalStateException("Não há boxes livres.");
+            boxId = livre;
+        }
 
-        ocuparBox(boxId);
+        ocuparBox(boxId); // datas de entrada/saída (a linha já está travada por esta transação)
         vincularVeiculoBox(veiculoId, boxId);
+        eventPublisher.publishEvent(new VagaAlteradaEvent(p, boxId, "O"));
+
+        return new AlocacaoResult(veiculoId, boxId, p, "L");
+    }
+
+    private AlocacaoResult alocarPlacaEmBloco(String p, Long preferidoBoxId) {
+        long conhecido = registroPlacas.conhece(p) ? registroPlacas.veiculoId(p) : RegistroPlacas.AUSENTE;
+        long candidato = preferidoBoxId == null ? alocadorVagas.reservarCandidato() : AlocadorVagas.NENHUM;
+        ResultadoBloco r;
+        try {
+            r = jdbc.execute(PLSQL_ALOCAR, (CallableStatementCallback<ResultadoBloco>) cs -> {
+                cs.setString(1, p);
+                setLong(cs, 2, conhecido == RegistroPlacas.AUSENTE ? null : conhecido);
+                setLong(cs, 3, preferidoBoxId);
+                setLong(cs, 4, candidato == AlocadorVagas.NENHUM ? null : candidato);
+                cs.registerOutParameter(5, Types.VARCHAR);
+                cs.registerOutParameter(6, Types.NUMERIC);
+                cs.registerOutParameter(7, Types.NUMERIC);
+                cs.registerOutParameter(8, Types.NUMERIC);
+                cs.registerOutParameter(9, Types.VARCHAR);
+                cs.registerOutParameter(10, Types.VARCHAR);
+                cs.execute();
+                return new ResultadoBloco(cs.getString(5), cs.getLong(6), cs.getInt(7) == 1,
+                        getLong(cs, 8), cs.getString(9), cs.getString(10));
+            });
+        } catch (RuntimeException e) {
+            alocadorVagas.devolverCandidato(candidato); // o bloco falhou inteiro: nada dele ficou no banco
+            throw e;
+        }
+
+        switch (r.codigo()) {
+            case "JA_ALOCADA" -> {
+                alocadorVagas.devolverCandidato(candidato);
+                throw new IllegalStateException("Placa já alocada no box " + r.boxId() + " (" + r.nomeBox() + ")");
+            }
+            case "OCUPADO" -> throw new IllegalStateException("Box já ocupado: " + preferidoBoxId);
+            case "SEM_VAGA" -> throw new IllegalStateException("Não há boxes livres.");
+            default -> {
+                // OK; se o box não é o candidato, o candidato estava ocupado no banco e fica fora do mapa
+            }
+        }
+
+        alocadorVagas.confirmarOcupado(r.boxId());
+        if (r.veiculoCriado()) {
+            eventPublisher.publishEvent(new PlacaAlteradaEvent(r.veiculoId(), null, p));
+        }
+        eventPublisher.publishEvent(new VagaAlteradaEvent(p, r.boxId(), "O"));
+        return new AlocacaoResult(r.veiculoId(), r.boxId(), p, r.statusAnterior());
+    }
+
+    /** Liga os blocos só em Oracle (o H2 dos testes não roda PL/SQL) e com a propriedade ligada. */
+    private boolean usarBloco() {
+        if (!blocoPlsql) return false;
+        Boolean o = oracle;
+        if (o == null) {
+            o = Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) con ->
+                    con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("oracle")));
+            oracle = o;
+        }
+        return o;
+    }
 
-        return new AlocacaoResult(veiculoId, boxId, p);
+    private static void setLong(CallableStatement cs, int i, Long valor) throws SQLException {
+        if (valor == null) cs.setNull(i, Types.NUMERIC);
+        else cs.setLong(i, valor);
+    }
+
+    private static Long getLong(CallableStatement cs, int i) throws SQLException {
+        long valor = cs.getLong(i);
+        return cs.wasNull() ? null : valor;
     }
 
     /** NOVO: retorna o box atual da placa, se houver (id e nome do box). */
@@ -142,7 +417,14 @@ public class VagaOracleService {
                          java.time.LocalDate dataEntrada, java.time.LocalDate dataSaida,
                          String observacao, String placa) {}
 
-    public record AlocacaoResult(Long veiculoId, Long boxId, String placa) {}
+    /** @param statusAnterior status do box antes de ser ocupado ("L") */
+    public record AlocacaoResult(Long veiculoId, Long boxId, String placa, String statusAnterior) {}
+
+    /** @param statusAnterior status do box antes de ser liberado (null se o box não existe) */
+    public record LiberacaoResult(Long boxId, Long veiculoId, String placa, String statusAnterior) {}
+
+    private record ResultadoBloco(String codigo, long veiculoId, boolean veiculoCriado, Long boxId,
+                                  String statusAnterior, String nomeBox) {}
 
     public record BuscaBox(Long idBox, String nomeBox, String status) {}
 }
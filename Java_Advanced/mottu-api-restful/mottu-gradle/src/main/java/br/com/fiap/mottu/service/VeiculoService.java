@@ -16,9 +16,11 @@ import br.com.fiap.mottu.model.relacionamento.VeiculoZona;
 import br.com.fiap.mottu.repository.VeiculoRepository;
 import br.com.fiap.mottu.exception.DuplicatedResourceException;
 import br.com.fiap.mottu.exception.ResourceNotFoundException;
+import br.com.fiap.mottu.service.placa.PlacaAlteradaEvent;
 import br.com.fiap.mottu.specification.VeiculoSpecification;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
@@ -28,6 +30,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Comparator;
+import java.util.Objects;
 
 @Service
 public class VeiculoService {
@@ -38,6 +41,7 @@ public class VeiculoService {
     private final PatioMapper patioMapper;
     private final ZonaMapper zonaMapper;
     private final BoxMapper boxMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public VeiculoService(VeiculoRepository veiculoRepository,
@@ -45,13 +49,15 @@ public class VeiculoService {
                           RastreamentoMapper rastreamentoMapper,
                           PatioMapper patioMapper,
                           ZonaMapper zonaMapper,
-                          BoxMapper boxMapper) {
+                          BoxMapper boxMapper,
+                          ApplicationEventPublisher eventPublisher) {
         this.veiculoRepository = veiculoRepository;
         this.veiculoMapper = veiculoMapper;
         this.rastreamentoMapper = rastreamentoMapper;
         this.patioMapper = patioMapper;
         this.zonaMapper = zonaMapper;
         this.boxMapper = boxMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
@@ -93,7 +99,9 @@ public class VeiculoService {
 
         Veiculo veiculo = veiculoMapper.toEntity(dto);
         // A lógica da tag agora é tratada diretamente pelo mapper.
-        return veiculoRepository.save(veiculo);
+        Veiculo salvo = veiculoRepository.save(veiculo);
+        eventPublisher.publishEvent(new PlacaAlteradaEvent(salvo.getIdVeiculo(), null, salvo.getPlaca()));
+        return salvo;
     }
 
     @Transactional
@@ -122,17 +130,22 @@ public class VeiculoService {
         }
 
         // O mapper cuidará da atualização dos campos, incluindo tagBleId e status
+        String placaAnterior = existente.getPlaca();
         veiculoMapper.partialUpdate(dto, existente);
-        return veiculoRepository.save(existente);
+        Veiculo salvo = veiculoRepository.save(existente);
+        if (!Objects.equals(placaAnterior, salvo.getPlaca())) {
+            eventPublisher.publishEvent(new PlacaAlteradaEvent(salvo.getIdVeiculo(), placaAnterior, salvo.getPlaca()));
+        }
+        return salvo;
     }
 
     @Transactional
     @CacheEvict(value = {"veiculoPorId", "veiculosList", "veiculoLocalizacao"}, allEntries = true, key = "#id")
     public void deletarVeiculo(Long id) {
-        if (!veiculoRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Veículo", id);
-        }
+        Veiculo veiculo = veiculoRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Veículo", id));
         veiculoRepository.deleteById(id);
+        eventPublisher.publishEvent(new PlacaAlteradaEvent(id, veiculo.getPlaca(), null));
     }
 
     @Transactional(readOnly = true)
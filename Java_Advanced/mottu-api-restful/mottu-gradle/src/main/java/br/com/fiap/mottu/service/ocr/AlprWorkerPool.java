@@ -0,0 +1,199 @@
+package br.com.fiap.mottu.service.ocr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de processos {@code alpr} de longa duração para uma região.
+ * Cada worker roda {@code alpr -j -c <região> -n <topN> stdin}: o processo carrega config e modelos
+ * uma vez e recebe, pelo stdin, o caminho de cada imagem; a resposta é uma linha JSON no stdout.
+ * Workers mortos são recriados ao serem emprestados; um worker que estoura o timeout é descartado
+ * e substituído sem derrubar o pool.
+ */
+public class AlprWorkerPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AlprWorkerPool.class);
+    private static final long LIVENESS_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    /**
+     * Saída de uma execução: o ruído do alpr/opencv e, separada, a linha JSON (null se não veio), entregue
+     * como lida para o parser ler direto dela.
+     */
+    public record Reply(boolean ok, boolean timedOut, String noise, String json) {
+
+        /** Saída completa, para diagnóstico e mensagens de erro. */
+        public String output() {
+            return json == null ? noise : noise + json + "\n";
+        }
+    }
+
+    private final List<String> command;
+    private final String region;
+    private final int maxRequestsPerWorker;
+    private final BlockingQueue<Worker> idle;
+    private final List<Worker> all = new ArrayList<>();
+    private volatile boolean closed;
+
+    public AlprWorkerPool(String alprCommand, String region, int topN, int size, int maxRequestsPerWorker) {
+        this.command = List.of(alprCommand, "-j", "-c", region, "-n", String.valueOf(topN), "stdin");
+        this.region = region;
+        this.maxRequestsPerWorker = maxRequestsPerWorker;
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            Worker w = new Worker(i);
+            w.start();
+            synchronized (all) { all.add(w); }
+            idle.add(w);
+        }
+        log.info("Pool OpenALPR '{}' iniciado com {} worker(s): {}", region, size, String.join(" ", command));
+    }
+
+    /**
+     * Envia a imagem a um worker livre e aguarda a linha JSON de resposta.
+     * O timeout cobre a espera por um worker e o processamento.
+     */
+    public Reply recognize(Path imageFile, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        Worker w = idle.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (w == null) {
+            return new Reply(false, true, "Nenhum worker OpenALPR livre (" + region + ").", null);
+        }
+        boolean healthy = false;
+        try {
+            if (!w.isAlive() || w.served >= maxRequestsPerWorker) {
+                w.restart();
+            }
+            Reply reply = w.send(imageFile, deadline);
+            healthy = !reply.timedOut() && w.isAlive();
+            return reply;
+        } catch (IOException e) {
+            return new Reply(false, false, w.drainNoise() + e, null);
+        } finally {
+            if (!healthy) {
+                w.destroy(); // próximo empréstimo recria o processo
+            }
+            if (!closed) idle.offer(w);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (all) {
+            all.forEach(Worker::destroy);
+        }
+        idle.clear();
+    }
+
+    /**
+     * Um processo alpr + thread que lê o stdout linha a linha. Cada processo tem sua fila de linhas: o
+     * leitor de um processo descartado (timeout, hedge cancelado) ainda pode entregar a resposta da imagem
+     * anterior depois de morto, e ela não pode chegar à próxima requisição do worker recriado.
+     */
+    private final class Worker {
+        private final int index;
+        private LinkedBlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private Process process;
+        private Writer stdin;
+        private int served;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        boolean isAlive() {
+            return process != null && process.isAlive();
+        }
+
+        void start() {
+            LinkedBlockingQueue<String> q = new LinkedBlockingQueue<>();
+            lines = q;
+            try {
+                ProcessBuilder pb = new ProcessBuilder(command);
+                pb.redirectErrorStream(true);
+                Process p = pb.start();
+                process = p;
+                stdin = new BufferedWriter(new OutputStreamWriter(p.getOutputStream(), StandardCharsets.UTF_8));
+                served = 0;
+                Thread reader = new Thread(() -> pump(p, q), "alpr-" + region + "-" + index);
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                process = null;
+                q.add("Falha ao iniciar o OpenALPR: " + e);
+                log.warn("Worker OpenALPR '{}' #{} não iniciou: {}", region, index, e.toString());
+            }
+        }
+
+        void restart() {
+            destroy();
+            start();
+        }
+
+        void destroy() {
+            if (process != null) {
+                process.destroyForcibly();
+                process = null;
+            }
+        }
+
+        private void pump(Process p, BlockingQueue<String> q) {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) q.add(line);
+            } catch (IOException ignored) {
+                // processo encerrado
+            }
+        }
+
+        String drainNoise() {
+            List<String> pending = new ArrayList<>();
+            lines.drainTo(pending);
+            return pending.isEmpty() ? "" : String.join("\n", pending) + "\n";
+        }
+
+        Reply send(Path imageFile, long deadlineNanos) throws IOException, InterruptedException {
+            // só o ruído é acumulado; a linha JSON segue intacta para o parser
+            StringBuilder noise = new StringBuilder(drainNoise());
+            if (!isAlive()) {
+                return new Reply(false, false, noise.toString(), null);
+            }
+            stdin.write(imageFile.toAbsolutePath().toString());
+            stdin.write('\n');
+            stdin.flush();
+            served++;
+
+            while (true) {
+                long remaining = deadlineNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    return new Reply(false, true, noise.toString(), null);
+                }
+                String line = lines.poll(Math.min(remaining, LIVENESS_CHECK_NANOS), TimeUnit.NANOSECONDS);
+                if (line == null) {
+                    if (!isAlive()) {
+                        return new Reply(false, false, noise + drainNoise(), null);
+                    }
+                    continue;
+                }
+                String trimmed = line.trim();
+                if (trimmed.startsWith("{")) {
+                    return new Reply(true, false, noise.toString(), trimmed);
+                }
+                noise.append(line).append('\n');
+                if (trimmed.startsWith("Image file not found")) {
+                    return new Reply(false, false, noise.toString(), null);
+                }
+            }
+        }
+    }
+}
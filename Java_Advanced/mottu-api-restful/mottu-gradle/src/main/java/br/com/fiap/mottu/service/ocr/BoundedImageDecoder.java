@@ -0,0 +1,242 @@
+package br.com.fiap.mottu.service.ocr;
+
+import br.com.fiap.mottu.exception.InvalidInputException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Decodificação de imagens com memória limitada.
+ * Lê formato e dimensões só do cabeçalho (rejeita entrada ruim antes de decodificar), escolhe um fator de
+ * subamostragem (1, 2, 4 ou 8) para chegar perto da resolução-alvo e limita, entre todas as requisições,
+ * quantos pixels decodificados podem estar vivos ao mesmo tempo.
+ */
+@Component
+public class BoundedImageDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(BoundedImageDecoder.class);
+
+    /** Formato e dimensões lidos do cabeçalho, sem decodificar os pixels. */
+    public record ImageInfo(String format, int width, int height) {
+        public long pixels() {
+            return (long) width * height;
+        }
+    }
+
+    @Value("${mottu.ocr.decode.formats:jpeg,png,bmp,gif,tiff}")
+    private String allowedFormats;
+
+    @Value("${mottu.ocr.decode.min-width:64}")
+    private int minWidth;
+
+    @Value("${mottu.ocr.decode.min-height:32}")
+    private int minHeight;
+
+    /** Acima disso a imagem é recusada só pelo cabeçalho (proteção contra "pixel bombs"). */
+    @Value("${mottu.ocr.decode.max-source-pixels:60000000}")
+    private long maxSourcePixels;
+
+    /** Lado maior desejado depois da subamostragem; suficiente para a placa continuar legível. */
+    @Value("${mottu.ocr.decode.target-long-side:2000}")
+    private int targetLongSide;
+
+    @Value("${mottu.ocr.decode.acquire-timeout-ms:10000}")
+    private long acquireTimeoutMs;
+
+    private final int maxInflightPixels;
+    private final Semaphore inflightPixels;
+    private Set<String> formats;
+
+    public BoundedImageDecoder(@Value("${mottu.ocr.decode.max-inflight-pixels:64000000}") int maxInflightPixels,
+                               MeterRegistry meterRegistry) {
+        this.maxInflightPixels = maxInflightPixels;
+        this.inflightPixels = new Semaphore(maxInflightPixels, true);
+        Gauge.builder("mottu.ocr.decode.inflight.pixels", inflightPixels, s -> maxInflightPixels - s.availablePermits())
+                .description("Pixels decodificados em uso pelo OCR")
+                .register(meterRegistry);
+    }
+
+    /** Imagem decodificada em tons de cinza; fechar libera o Mat e a cota de pixels. */
+    public final class DecodedImage implements AutoCloseable {
+        private final Mat mat;
+        private final int permits;
+        private boolean closed;
+
+        private DecodedImage(Mat mat, int permits) {
+            this.mat = mat;
+            this.permits = permits;
+        }
+
+        public Mat mat() {
+            return mat;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            mat.release();
+            inflightPixels.release(permits);
+        }
+    }
+
+    /**
+     * Lê formato e dimensões do cabeçalho e valida. Serve tanto para o stream do upload
+     * (antes de carregar o arquivo em memória) quanto para os bytes já lidos.
+     *
+     * @throws InvalidInputException formato não suportado, cabeçalho ilegível ou dimensões fora dos limites
+     */
+    public ImageInfo probe(InputStream in) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in)) {
+            if (iis == null) throw new IOException("Não foi possível criar ImageInputStream.");
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) throw new InvalidInputException("Formato de imagem não suportado.");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageInfo info = new ImageInfo(canonicalFormat(reader.getFormatName()),
+                        reader.getWidth(0), reader.getHeight(0));
+                validate(info);
+                return info;
+            } catch (IOException e) {
+                throw new InvalidInputException("Arquivo de imagem corrompido ou incompleto.");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodifica em tons de cinza já subamostrada. Bloqueia enquanto a cota global de pixels estiver
+     * tomada (até {@code mottu.ocr.decode.acquire-timeout-ms}).
+     */
+    public DecodedImage decodeGray(byte[] bytes) throws IOException, InterruptedException {
+        ImageInfo info = probe(new ByteArrayInputStream(bytes));
+        int factor = subsampling(info);
+        long targetPixels = (long) ceilDiv(info.width(), factor) * ceilDiv(info.height(), factor);
+        int permits = (int) Math.min(maxInflightPixels, targetPixels);
+
+        if (!inflightPixels.tryAcquire(permits, acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Limite de memória para decodificação de imagens atingido.");
+        }
+        try {
+            // JPEG o OpenCV reduz na própria decodificação (escala DCT); nos outros formatos o imdecode
+            // materializaria a resolução cheia antes de reduzir, então a subamostragem fica com o ImageIO.
+            Mat mat = "jpeg".equals(info.format()) || factor == 1 ? decodeWithOpenCv(bytes, factor) : null;
+            if (mat == null) {
+                mat = decodeWithImageIO(bytes, factor);
+            }
+            log.debug("Imagem {} {}x{} decodificada com fator 1/{} -> {}x{}.", info.format(), info.width(),
+                    info.height(), factor, mat.cols(), mat.rows());
+            return new DecodedImage(mat, permits);
+        } catch (IOException | RuntimeException e) {
+            inflightPixels.release(permits);
+            throw e;
+        }
+    }
+
+    /** Maior potência de 2 (até 8) que ainda deixa o lado maior acima da resolução-alvo. */
+    int subsampling(ImageInfo info) {
+        int longSide = Math.max(info.width(), info.height());
+        int factor = 1;
+        while (factor < 8 && longSide / (factor * 2) >= targetLongSide) {
+            factor *= 2;
+        }
+        return factor;
+    }
+
+    private void validate(ImageInfo info) {
+        if (!formats().contains(info.format())) {
+            throw new InvalidInputException("Formato de imagem não suportado: " + info.format() + ".");
+        }
+        if (info.width() < minWidth || info.height() < minHeight) {
+            throw new InvalidInputException("Imagem muito pequena (" + info.width() + "x" + info.height() + ").");
+        }
+        if (info.pixels() > maxSourcePixels) {
+            throw new InvalidInputException("Imagem muito grande (" + info.width() + "x" + info.height() + ").");
+        }
+    }
+
+    private Set<String> formats() {
+        if (formats == null) {
+            formats = Arrays.stream(allowedFormats.split(","))
+                    .map(BoundedImageDecoder::canonicalFormat)
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+        return formats;
+    }
+
+    private static String canonicalFormat(String name) {
+        String f = name.trim().toLowerCase(Locale.ROOT);
+        return switch (f) {
+            case "jpg" -> "jpeg";
+            case "tif" -> "tiff";
+            default -> f;
+        };
+    }
+
+    private static Mat decodeWithOpenCv(byte[] bytes, int factor) {
+        int flag = switch (factor) {
+            case 2 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2;
+            case 4 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4;
+            case 8 -> Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8;
+            default -> Imgcodecs.IMREAD_GRAYSCALE;
+        };
+        try (MatScope scope = new MatScope()) {
+            Mat gray = scope.add(Imgcodecs.imdecode(scope.add(new MatOfByte(bytes)), flag));
+            return gray != null && !gray.empty() ? scope.detach(gray) : null;
+        }
+    }
+
+    /** Subamostragem na leitura via {@link ImageReadParam}: só as linhas/colunas usadas chegam à memória. */
+    private static Mat decodeWithImageIO(byte[] bytes, int factor) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) throw new InvalidInputException("Formato de imagem não suportado.");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                BufferedImage img = reader.read(0, param);
+                if (img == null) throw new IOException("Falha ao decodificar a imagem.");
+                if (img.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+                    BufferedImage gray = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+                    Graphics2D g = gray.createGraphics();
+                    try { g.drawImage(img, 0, 0, null); } finally { g.dispose(); }
+                    img = gray;
+                }
+                return ImageCVUtils.grayToMat(img);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
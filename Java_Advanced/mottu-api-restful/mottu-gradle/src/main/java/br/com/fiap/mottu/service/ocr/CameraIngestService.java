@@ -0,0 +1,475 @@
+package br.com.fiap.mottu.service.ocr;
+
+import br.com.fiap.mottu.exception.OcrQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingestão contínua de câmeras fixas de portão (MJPEG / HTTP chunked).
+ * Os quadros passam por uma triagem barata antes do OCR: amostragem por intervalo (curto com movimento,
+ * crescendo até o intervalo ocioso sem movimento), diferença de quadros numa miniatura e, se o detector
+ * de ROI estiver ativo, presença de placa. Só os quadros promissores viram uma sessão no
+ * {@link PlateRecognizer}, no máximo uma por câmera de cada vez. As leituras são deduplicadas por
+ * câmera dentro de uma janela de tempo: uma passagem da moto gera um único {@link CameraPlateEvent}.
+ */
+@Service
+public class CameraIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(CameraIngestService.class);
+    private static final Size MOTION_BLUR = new Size(5, 5);
+    private static final WorkerMats MOTION_DIFF_BUFFER = new WorkerMats();
+
+    /** Situação de uma câmera, exposta pela API. */
+    public record CameraStatus(String cameraId, boolean streaming, long framesReceived, long framesAnalyzed,
+                               long framesWithMotion, long framesRecognized, long events, long intervalMs) {}
+
+    /** Resumo de um stream encerrado. */
+    public record IngestSummary(String cameraId, long framesReceived, long framesAnalyzed, long framesRecognized,
+                                long events) {}
+
+    @Value("${mottu.ocr.camera.max-frame-bytes:4194304}")
+    private int maxFrameBytes;
+
+    /** Intervalo entre quadros analisados com movimento na cena. */
+    @Value("${mottu.ocr.camera.active-interval-ms:150}")
+    private long activeIntervalMs;
+
+    /** Teto do intervalo quando a cena está parada. */
+    @Value("${mottu.ocr.camera.idle-interval-ms:1000}")
+    private long idleIntervalMs;
+
+    /** Fração de pixels da miniatura que precisa mudar para contar como movimento. */
+    @Value("${mottu.ocr.camera.motion-threshold:0.01}")
+    private double motionThreshold;
+
+    @Value("${mottu.ocr.camera.motion-width:160}")
+    private int motionWidth;
+
+    @Value("${mottu.ocr.camera.dedup-window:PT30S}")
+    private Duration dedupWindow;
+
+    /** Leituras a até N caracteres de distância de uma placa recente contam como a mesma passagem. */
+    @Value("${mottu.ocr.camera.dedup-max-distance:1}")
+    private int dedupMaxDistance;
+
+    @Value("${mottu.ocr.camera.events-capacity:500}")
+    private int eventsCapacity;
+
+    @Value("${mottu.ocr.camera.max-cameras:8}")
+    private int maxCameras;
+
+    /** Pull de fontes ({@link #startPull}): desligado por padrão; o servidor só abre o que está liberado abaixo. */
+    @Value("${mottu.ocr.camera.pull.enabled:false}")
+    private boolean pullEnabled;
+
+    /** Câmeras que podem ser puxadas por http(s): "host" ou "host:porta", separados por vírgula. */
+    @Value("${mottu.ocr.camera.pull.allowed-hosts:}")
+    private String pullAllowedHosts;
+
+    /** Diretório dos clipes que podem ser lidos por file:; vazio recusa file:. */
+    @Value("${mottu.ocr.camera.pull.clip-dir:}")
+    private String pullClipDir;
+
+    @Value("${mottu.ocr.camera.pull.connect-timeout-ms:5000}")
+    private int pullConnectTimeoutMs;
+
+    @Value("${mottu.ocr.camera.pull.read-timeout-ms:30000}")
+    private int pullReadTimeoutMs;
+
+    private final OcrSessionManager sessionManager;
+    private final PlateRecognizer plateRecognizer;
+    private final PlateRoiDetector roiDetector;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, Camera> cameras = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionCamera = new ConcurrentHashMap<>();
+    private final Deque<CameraPlateEvent> events = new ArrayDeque<>();
+    private final AtomicInteger pullThreads = new AtomicInteger();
+    private final ExecutorService pullers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "camera-pull-" + pullThreads.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Counter framesReceived;
+    private final Counter framesSkipped;
+    private final Counter framesRecognized;
+    private final Counter duplicates;
+    private final Counter eventsEmitted;
+
+    public CameraIngestService(OcrSessionManager sessionManager, PlateRecognizer plateRecognizer,
+                               PlateRoiDetector roiDetector, ApplicationEventPublisher eventPublisher,
+                               MeterRegistry meterRegistry) {
+        this.sessionManager = sessionManager;
+        this.plateRecognizer = plateRecognizer;
+        this.roiDetector = roiDetector;
+        this.eventPublisher = eventPublisher;
+        this.framesReceived = meterRegistry.counter("mottu.ocr.camera.frames", "stage", "received");
+        this.framesSkipped = meterRegistry.counter("mottu.ocr.camera.frames", "stage", "skipped");
+        this.framesRecognized = meterRegistry.counter("mottu.ocr.camera.frames", "stage", "recognized");
+        this.duplicates = meterRegistry.counter("mottu.ocr.camera.events.duplicates");
+        this.eventsEmitted = meterRegistry.counter("mottu.ocr.camera.events");
+        Gauge.builder("mottu.ocr.camera.streaming", cameras,
+                m -> m.values().stream().filter(c -> c.streaming).count()).register(meterRegistry);
+    }
+
+    /**
+     * Consome o stream até o fim (ou até {@link #stop}); bloqueia a thread chamadora.
+     * Usado tanto pelo push (corpo da requisição HTTP) quanto pelo pull ({@link #startPull}).
+     *
+     * @param fps se maior que zero, limita a leitura a esse ritmo (clipes locais lidos de arquivo)
+     * @throws IllegalStateException se a câmera já estiver transmitindo ou o limite de câmeras foi atingido
+     */
+    public IngestSummary ingest(String cameraId, InputStream stream, double fps) throws IOException {
+        Camera cam = claim(cameraId);
+        long pacingNanos = fps > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / fps) : 0;
+        long[] at = {cam.framesReceived.get(), cam.framesAnalyzed.get(), cam.framesRecognized.get(), cam.events.get()};
+        log.info("Câmera {}: stream iniciado.", cameraId);
+        try (MjpegFrameReader reader = new MjpegFrameReader(stream, maxFrameBytes)) {
+            long nextFrameAt = System.nanoTime();
+            while (!cam.stopRequested) {
+                if (pacingNanos > 0) {
+                    long wait = nextFrameAt - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                    nextFrameAt += pacingNanos;
+                }
+                long now = System.nanoTime();
+                if (now - cam.nextSampleAt < 0 || cam.inFlightSession != null) {
+                    // fora da janela de amostragem ou OCR ainda rodando: descarta sem copiar
+                    if (!reader.skipFrame()) break;
+                    cam.framesReceived.incrementAndGet();
+                    framesReceived.increment();
+                    framesSkipped.increment();
+                    continue;
+                }
+                byte[] frame = reader.nextFrame();
+                if (frame == null) break;
+                cam.framesReceived.incrementAndGet();
+                framesReceived.increment();
+                cam.nextSampleAt = now + TimeUnit.MILLISECONDS.toNanos(cam.intervalMs);
+                analyze(cam, frame);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cam.release();
+            WorkerMats.releaseThread(); // thread do request/pull: os buffers de trabalho não voltam a ser usados
+            log.info("Câmera {}: stream encerrado ({} quadros, {} analisados, {} no OCR).", cameraId,
+                    cam.framesReceived.get(), cam.framesAnalyzed.get(), cam.framesRecognized.get());
+        }
+        return new IngestSummary(cameraId, cam.framesReceived.get() - at[0], cam.framesAnalyzed.get() - at[1],
+                cam.framesRecognized.get() - at[2], cam.events.get() - at[3]);
+    }
+
+    public boolean isPullEnabled() {
+        return pullEnabled;
+    }
+
+    /**
+     * Passa a puxar o stream de uma URL em background: http(s) só de um host em
+     * {@code mottu.ocr.camera.pull.allowed-hosts} (sem seguir redirecionamentos), file: só de um clipe
+     * dentro de {@code mottu.ocr.camera.pull.clip-dir}.
+     *
+     * @throws IllegalStateException    se o pull estiver desligado
+     * @throws IllegalArgumentException se a fonte não for permitida
+     */
+    public void startPull(String cameraId, String url, double fps) {
+        if (!pullEnabled) throw new IllegalStateException("Leitura de fontes desativada.");
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("URL inválida.");
+        }
+        PullSource source = "file".equals(uri.getScheme()) ? clipSource(uri) : cameraSource(uri);
+        pullers.execute(() -> {
+            try (InputStream in = source.open()) {
+                ingest(cameraId, in, fps);
+            } catch (IllegalStateException e) {
+                log.warn("Câmera {}: {}", cameraId, e.getMessage());
+            } catch (IOException e) {
+                log.warn("Câmera {}: falha ao ler a fonte {}: {}", cameraId, url, e.toString());
+            }
+        });
+    }
+
+    private interface PullSource {
+        InputStream open() throws IOException;
+    }
+
+    private PullSource cameraSource(URI uri) {
+        if (!"http".equals(uri.getScheme()) && !"https".equals(uri.getScheme())) {
+            throw new IllegalArgumentException("Fonte deve ser http(s):// ou file:.");
+        }
+        String host = uri.getHost();
+        if (host == null || uri.getRawUserInfo() != null || !hostAllowed(host, uri.getPort() < 0
+                ? ("https".equals(uri.getScheme()) ? 443 : 80) : uri.getPort())) {
+            throw new IllegalArgumentException("Host da câmera não permitido.");
+        }
+        return () -> {
+            HttpURLConnection con = (HttpURLConnection) uri.toURL().openConnection();
+            con.setInstanceFollowRedirects(false); // um redirecionamento levaria para fora da lista
+            con.setConnectTimeout(pullConnectTimeoutMs);
+            con.setReadTimeout(pullReadTimeoutMs);
+            int status = con.getResponseCode();
+            if (status / 100 != 2) {
+                con.disconnect();
+                throw new IOException("HTTP " + status);
+            }
+            return con.getInputStream();
+        };
+    }
+
+    private boolean hostAllowed(String host, int port) {
+        for (String entry : pullAllowedHosts.split(",")) {
+            String e = entry.trim();
+            if (e.isEmpty()) continue;
+            int colon = e.lastIndexOf(':');
+            if (colon < 0) {
+                if (e.equalsIgnoreCase(host)) return true;
+            } else if (e.substring(0, colon).equalsIgnoreCase(host) && e.substring(colon + 1).equals(String.valueOf(port))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Clipe local: o caminho real (links resolvidos) tem que estar dentro do diretório de clipes. */
+    private PullSource clipSource(URI uri) {
+        if (pullClipDir.isBlank()) throw new IllegalArgumentException("Leitura de clipes locais desativada.");
+        Path dir;
+        Path clip;
+        try {
+            dir = Path.of(pullClipDir).toRealPath();
+            clip = Path.of(uri).toRealPath();
+        } catch (IOException | RuntimeException e) { // inexistente, URI file: malformada
+            throw new IllegalArgumentException("Clipe não encontrado.");
+        }
+        if (!clip.startsWith(dir) || !Files.isRegularFile(clip)) {
+            throw new IllegalArgumentException("Clipe fora do diretório permitido.");
+        }
+        return () -> Files.newInputStream(clip);
+    }
+
+    /** Pede o encerramento do stream da câmera; retorna false se ela não estava transmitindo. */
+    public boolean stop(String cameraId) {
+        Camera cam = cameras.get(cameraId);
+        if (cam == null || !cam.streaming) return false;
+        cam.stopRequested = true;
+        return true;
+    }
+
+    public List<CameraStatus> cameras() {
+        return cameras.values().stream().map(Camera::status).toList();
+    }
+
+    /** Eventos mais recentes primeiro; {@code cameraId} nulo = todas as câmeras. */
+    public List<CameraPlateEvent> events(String cameraId, int limit) {
+        synchronized (events) {
+            return events.stream()
+                    .filter(e -> cameraId == null || e.cameraId().equals(cameraId))
+                    .limit(limit)
+                    .toList();
+        }
+    }
+
+    @EventListener
+    public void onSessionEvent(OcrSessionEvent event) {
+        if (!event.terminal()) return;
+        String sessionId = event.session().getId();
+        String cameraId = sessionCamera.remove(sessionId);
+        if (cameraId == null) return;
+        Camera cam = cameras.get(cameraId);
+        if (cam != null && sessionId.equals(cam.inFlightSession)) cam.inFlightSession = null;
+        sessionManager.removeSession(sessionId); // sessão interna, ninguém consulta
+        OcrSession s = event.session();
+        if (!event.expired() && s.getStatus() == OcrSession.Status.COMPLETED && cam != null) {
+            record(cam, s.getRecognizedPlate(), s.getConfidence(), sessionId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cameras.values().forEach(c -> c.stopRequested = true);
+        pullers.shutdownNow();
+    }
+
+    private Camera claim(String cameraId) {
+        Camera cam = cameras.compute(cameraId, (id, existing) -> {
+            if (existing != null && existing.streaming) {
+                throw new IllegalStateException("A câmera " + id + " já está transmitindo.");
+            }
+            long streaming = cameras.values().stream().filter(c -> c.streaming).count();
+            if (streaming >= maxCameras) {
+                throw new IllegalStateException("Limite de " + maxCameras + " câmeras simultâneas atingido.");
+            }
+            Camera c = existing != null ? existing : new Camera(id, idleIntervalMs);
+            c.streaming = true;
+            c.stopRequested = false;
+            return c;
+        });
+        return cam;
+    }
+
+    /** Triagem do quadro: movimento na miniatura, depois presença de placa, e só então o OCR. */
+    private void analyze(Camera cam, byte[] frame) {
+        cam.framesAnalyzed.incrementAndGet();
+        if (!hasMotion(cam, frame)) {
+            // cena parada: espaça as amostras até o intervalo ocioso
+            cam.intervalMs = Math.min(idleIntervalMs, Math.max(activeIntervalMs, (long) (cam.intervalMs * 1.5)));
+            return;
+        }
+        cam.framesWithMotion.incrementAndGet();
+        cam.intervalMs = activeIntervalMs;
+        if (roiDetector.isEnabled() && !containsPlate(frame)) {
+            return;
+        }
+        submit(cam, frame);
+    }
+
+    /**
+     * Compara a miniatura do quadro com a anterior. As duas miniaturas da câmera se alternam
+     * (a atual vira a anterior), então o buffer só é realocado se a resolução mudar.
+     */
+    private boolean hasMotion(Camera cam, byte[] frame) {
+        try (MatScope scope = new MatScope()) {
+            Mat decoded = scope.add(Imgcodecs.imdecode(scope.add(new MatOfByte(frame)), Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8));
+            if (decoded == null || decoded.empty()) return false;
+            Mat thumb = cam.spareThumb != null ? cam.spareThumb : new Mat();
+            cam.spareThumb = null;
+            double f = (double) motionWidth / decoded.cols();
+            Imgproc.resize(decoded, thumb, new Size(), f, f, Imgproc.INTER_AREA);
+            Imgproc.GaussianBlur(thumb, thumb, MOTION_BLUR, 0);
+            Mat previous = cam.previousThumb;
+            cam.previousThumb = thumb;
+            if (previous == null) return false;
+            cam.spareThumb = previous;
+            if (!previous.size().equals(thumb.size())) return true; // resolução mudou no meio do stream
+            Mat diff = MOTION_DIFF_BUFFER.get();
+            Core.absdiff(thumb, previous, diff);
+            Imgproc.threshold(diff, diff, 25, 255, Imgproc.THRESH_BINARY);
+            double changed = (double) Core.countNonZero(diff) / diff.total();
+            return changed >= motionThreshold;
+        }
+    }
+
+    private boolean containsPlate(byte[] frame) {
+        try (MatScope scope = new MatScope()) {
+            Mat gray = scope.add(Imgcodecs.imdecode(scope.add(new MatOfByte(frame)), Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2));
+            return gray != null && !gray.empty() && roiDetector.containsPlate(gray);
+        }
+    }
+
+    private void submit(Camera cam, byte[] frame) {
+        String sessionId = sessionManager.createSession().getId();
+        sessionCamera.put(sessionId, cam.id);
+        cam.inFlightSession = sessionId;
+        try {
+            plateRecognizer.extractPlate(sessionId, frame);
+            cam.framesRecognized.incrementAndGet();
+            framesRecognized.increment();
+        } catch (OcrQueueFullException e) {
+            // OCR saturado: perde este quadro, a câmera segue amostrando
+            sessionCamera.remove(sessionId);
+            sessionManager.removeSession(sessionId);
+            cam.inFlightSession = null;
+        }
+    }
+
+    private void record(Camera cam, String plate, Double confidence, String sessionId) {
+        if (plate == null || plate.isBlank()) return;
+        Instant now = Instant.now();
+        synchronized (cam.recentPlates) {
+            cam.recentPlates.values().removeIf(seen -> seen.plusMillis(dedupWindow.toMillis()).isBefore(now));
+            for (Map.Entry<String, Instant> recent : cam.recentPlates.entrySet()) {
+                if (dedupMaxDistance >= 0
+                        && PlateUtils.levenshtein(recent.getKey(), plate, dedupMaxDistance) <= dedupMaxDistance) {
+                    recent.setValue(now); // mesma passagem: estende a janela
+                    duplicates.increment();
+                    return;
+                }
+            }
+            cam.recentPlates.put(plate, now);
+        }
+        CameraPlateEvent event = new CameraPlateEvent(cam.id, plate, confidence, now, sessionId);
+        synchronized (events) {
+            events.addFirst(event);
+            while (events.size() > eventsCapacity) events.removeLast();
+        }
+        cam.events.incrementAndGet();
+        eventsEmitted.increment();
+        log.info("Câmera {}: placa {} detectada (confiança {}).", cam.id, plate, confidence);
+        eventPublisher.publishEvent(event);
+    }
+
+    /** Estado por câmera; sobrevive a reconexões para manter a deduplicação. */
+    private static final class Camera {
+        final String id;
+        final AtomicLong framesReceived = new AtomicLong();
+        final AtomicLong framesAnalyzed = new AtomicLong();
+        final AtomicLong framesWithMotion = new AtomicLong();
+        final AtomicLong framesRecognized = new AtomicLong();
+        final AtomicLong events = new AtomicLong();
+        final Map<String, Instant> recentPlates = new HashMap<>();
+        volatile boolean streaming;
+        volatile boolean stopRequested;
+        volatile String inFlightSession;
+        volatile long intervalMs;
+        long nextSampleAt = System.nanoTime();
+        Mat previousThumb;
+        /** Miniatura de dois quadros atrás, reaproveitada como destino da próxima. */
+        Mat spareThumb;
+
+        Camera(String id, long intervalMs) {
+            this.id = id;
+            this.intervalMs = intervalMs;
+        }
+
+        void release() {
+            if (previousThumb != null) {
+                previousThumb.release();
+                previousThumb = null;
+            }
+            if (spareThumb != null) {
+                spareThumb.release();
+                spareThumb = null;
+            }
+            streaming = false;
+        }
+
+        CameraStatus status() {
+            return new CameraStatus(id, streaming, framesReceived.get(), framesAnalyzed.get(), framesWithMotion.get(),
+                    framesRecognized.get(), events.get(), intervalMs);
+        }
+    }
+}
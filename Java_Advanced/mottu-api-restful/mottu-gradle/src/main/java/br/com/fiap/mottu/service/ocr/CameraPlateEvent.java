@@ -0,0 +1,9 @@
+package br.com.fiap.mottu.service.ocr;
+
+import java.time.Instant;
+
+/**
+ * Passagem de uma placa por uma câmera fixa, já sem duplicatas dentro da janela configurada.
+ * Publicado também como evento de aplicação.
+ */
+public record CameraPlateEvent(String cameraId, String plate, Double confidence, Instant detectedAt, String sessionId) {}
@@ -0,0 +1,278 @@
+package br.com.fiap.mottu.service.ocr;
+
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.exception.OcrQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Reconhecedor composto: dispara o motor principal e, se ele não responder dentro do p95
+ * recente da própria latência (ou falhar antes disso), dispara o segundo motor em paralelo
+ * (hedged request). A primeira leitura que passa no filtro de confiança e formato vence;
+ * o outro motor é cancelado. Leitura conferida no cadastro ({@link PlateResult#registered()}) passa
+ * com o piso de confiança do próprio motor. Se nenhuma passar, fica a melhor leitura disponível,
+ * preferindo as cadastradas.
+ * As duas execuções rodam no {@link OcrExecutor}, dividindo o mesmo limite de concorrência.
+ */
+@Service
+@Primary
+public class HedgedPlateRecognizer implements PlateRecognizer {
+
+    private static final Logger log = LoggerFactory.getLogger(HedgedPlateRecognizer.class);
+    /** Mercosul (ABC1D23) ou modelo antigo (ABC1234). */
+    private static final Pattern PLATE_FORMAT = Pattern.compile("^[A-Z]{3}[0-9][A-Z0-9][0-9]{2}$");
+    /** Desempate do fallback: cadastrada antes de não cadastrada, depois a maior confiança. */
+    private static final Comparator<PlateResult> FALLBACK_ORDER = Comparator
+            .comparing(PlateResult::registered)
+            .thenComparingDouble(r -> r.confidence() == null ? 0.0 : r.confidence());
+
+    /** Motor disparado primeiro (nome de {@link PlateEngine#name()}). */
+    @Value("${mottu.ocr.hedge.primary:openalpr}")
+    private String primaryName;
+
+    /** false = só o motor principal. */
+    @Value("${mottu.ocr.hedge.enabled:true}")
+    private boolean hedgingEnabled;
+
+    /** true = dispara os dois motores juntos, sem esperar o atraso. */
+    @Value("${mottu.ocr.hedge.parallel:false}")
+    private boolean parallel;
+
+    /** Atraso usado enquanto o motor principal ainda não tem amostras suficientes. */
+    @Value("${mottu.ocr.hedge.initial-delay-ms:1500}")
+    private long initialDelayMs;
+
+    @Value("${mottu.ocr.hedge.min-delay-ms:200}")
+    private long minDelayMs;
+
+    @Value("${mottu.ocr.hedge.max-delay-ms:5000}")
+    private long maxDelayMs;
+
+    @Value("${mottu.ocr.hedge.min-samples:20}")
+    private long minSamples;
+
+    /**
+     * Confiança mínima (0..100) para aceitar uma leitura de imediato e cancelar o outro motor.
+     * Não se aplica a leituras cadastradas, já filtradas pelo motor.
+     */
+    @Value("${mottu.ocr.hedge.min-confidence:80}")
+    private double minConfidence;
+
+    private final List<PlateEngine> engines;
+    private final OcrSessionManager sessionManager;
+    private final OcrExecutor ocrExecutor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> latency = new ConcurrentHashMap<>();
+    private final Map<String, Timer> cancelledLatency = new ConcurrentHashMap<>();
+    private final Map<String, Counter> wins = new ConcurrentHashMap<>();
+    private final Counter hedged;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ocr-hedge-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private PlateEngine primary;
+    private PlateEngine secondary;
+
+    public HedgedPlateRecognizer(List<PlateEngine> engines, OcrSessionManager sessionManager,
+                                 OcrExecutor ocrExecutor, MeterRegistry meterRegistry) {
+        this.engines = engines;
+        this.sessionManager = sessionManager;
+        this.ocrExecutor = ocrExecutor;
+        this.meterRegistry = meterRegistry;
+        this.hedged = Counter.builder("mottu.ocr.hedge.hedged")
+                .description("Reconhecimentos em que o segundo motor foi disparado")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        primary = engines.stream().filter(e -> e.name().equalsIgnoreCase(primaryName)).findFirst()
+                .orElse(engines.get(0));
+        secondary = engines.stream().filter(e -> e != primary).findFirst().orElse(null);
+        for (PlateEngine engine : engines) {
+            latency.put(engine.name(), Timer.builder("mottu.ocr.engine.latency")
+                    .description("Latência de cada motor de OCR (execuções que terminaram, vencedoras ou não)")
+                    .tag("engine", engine.name())
+                    .tag("outcome", "completed")
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+            // cancelada = limite inferior da latência real; fica fora do p95 usado no atraso do hedge
+            cancelledLatency.put(engine.name(), Timer.builder("mottu.ocr.engine.latency")
+                    .description("Tempo até o cancelamento do motor que perdeu a disputa")
+                    .tag("engine", engine.name())
+                    .tag("outcome", "cancelled")
+                    .register(meterRegistry));
+            wins.put(engine.name(), Counter.builder("mottu.ocr.hedge.wins")
+                    .description("Reconhecimentos vencidos por cada motor")
+                    .tag("engine", engine.name())
+                    .register(meterRegistry));
+        }
+        log.info("Reconhecimento com hedge: principal '{}', secundário '{}' ({}).", primary.name(),
+                secondary == null ? "-" : secondary.name(),
+                !hedgingEnabled || secondary == null ? "desativado" : parallel ? "em paralelo" : "após o p95 do principal");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    @Override
+    public void extractPlate(String sessionId, byte[] imageBytes) {
+        sessionManager.setSessionProcessing(sessionId);
+        boolean hedge = hedgingEnabled && secondary != null;
+        Race race = new Race(sessionId, imageBytes, hedge ? 2 : 1);
+        try {
+            race.start(primary);
+        } catch (OcrQueueFullException e) {
+            sessionManager.setSessionPending(sessionId);
+            throw e;
+        }
+        if (!hedge) return;
+        if (parallel) {
+            race.startQuietly(secondary);
+        } else {
+            race.hedgeTimer = timer.schedule(() -> race.startQuietly(secondary), hedgeDelayMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** p95 recente do motor principal, limitado a [min, max]; antes de haver amostras, o atraso inicial. */
+    long hedgeDelayMs() {
+        Timer t = latency.get(primary.name());
+        if (t == null || t.count() < minSamples) return initialDelayMs;
+        for (ValueAtPercentile v : t.takeSnapshot().percentileValues()) {
+            if (v.percentile() == 0.95) {
+                long p95 = (long) v.value(TimeUnit.MILLISECONDS);
+                return Math.max(minDelayMs, Math.min(maxDelayMs, p95));
+            }
+        }
+        return initialDelayMs;
+    }
+
+    private boolean acceptable(PlateResult r) {
+        return r.plate() != null && PLATE_FORMAT.matcher(r.plate()).matches()
+                && (r.registered() || r.confidence() != null && r.confidence() >= minConfidence);
+    }
+
+
+    /** Disputa de uma imagem entre os motores; a sessão é atualizada uma única vez. */
+    private final class Race {
+        final String sessionId;
+        final byte[] imageBytes;
+        final AtomicBoolean decided = new AtomicBoolean();
+        final AtomicInteger remaining;
+        final Set<String> started = ConcurrentHashMap.newKeySet();
+        final Map<String, Future<?>> running = new ConcurrentHashMap<>();
+        final List<PlateResult> rejected = Collections.synchronizedList(new ArrayList<>());
+        volatile String lastError;
+        volatile ScheduledFuture<?> hedgeTimer;
+
+        Race(String sessionId, byte[] imageBytes, int engineCount) {
+            this.sessionId = sessionId;
+            this.imageBytes = imageBytes;
+            this.remaining = new AtomicInteger(engineCount);
+        }
+
+        boolean start(PlateEngine engine) {
+            if (decided.get() || !started.add(engine.name())) return false;
+            running.put(engine.name(), ocrExecutor.submit(sessionId, () -> run(engine)));
+            return true;
+        }
+
+        /** Disparo do motor secundário: fila cheia conta como falha desse motor, sem derrubar a sessão. */
+        void startQuietly(PlateEngine engine) {
+            try {
+                if (start(engine)) {
+                    hedged.increment();
+                    log.info("[OCR:{}] Motor '{}' disparado em paralelo.", sessionId, engine.name());
+                }
+            } catch (OcrQueueFullException e) {
+                lastError = lastError != null ? lastError : e.getMessage();
+                finished();
+            }
+        }
+
+        private void run(PlateEngine engine) {
+            long t0 = System.nanoTime();
+            try {
+                PlateResult result = engine.recognize(sessionId, imageBytes);
+                latency.get(engine.name()).record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                if (decided.get()) return; // perdeu a disputa
+                if (acceptable(result) && decided.compareAndSet(false, true)) {
+                    win(engine, result);
+                    return;
+                }
+                log.info("[OCR:{}] '{}' leu '{}' (confiança {}), abaixo do aceite imediato.",
+                        sessionId, engine.name(), result.plate(), result.confidence());
+                rejected.add(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (decided.get()) {
+                    cancelledLatency.get(engine.name()).record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                    return;
+                }
+                lastError = "Reconhecimento interrompido.";
+            } catch (Throwable t) {
+                latency.get(engine.name()).record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                if (decided.get()) return;
+                log.warn("[OCR:{}] Motor '{}' falhou: {}", sessionId, engine.name(), t.toString());
+                lastError = t instanceof InvalidInputException ? t.getMessage() : lastError;
+            }
+            finished();
+        }
+
+        /** Um motor terminou sem vencer: adianta o outro ou, se era o último, decide com o que há. */
+        private void finished() {
+            if (remaining.decrementAndGet() > 0) {
+                cancelTimer();
+                if (secondary != null) startQuietly(secondary);
+                return;
+            }
+            if (!decided.compareAndSet(false, true)) return;
+            Optional<PlateResult> best;
+            synchronized (rejected) {
+                best = rejected.stream().max(FALLBACK_ORDER);
+            }
+            if (best.isPresent()) {
+                win(engines.stream().filter(e -> e.name().equals(best.get().engine())).findFirst().orElse(primary),
+                        best.get());
+            } else {
+                sessionManager.updateSessionError(sessionId,
+                        lastError != null ? lastError : "Não foi possível reconhecer uma placa válida na imagem.");
+            }
+        }
+
+        private void win(PlateEngine engine, PlateResult result) {
+            cancelTimer();
+            running.forEach((name, future) -> {
+                if (!name.equals(engine.name())) future.cancel(true);
+            });
+            wins.get(engine.name()).increment();
+            log.info("[OCR:{}] Placa {} reconhecida por '{}' (confiança {}).",
+                    sessionId, result.plate(), engine.name(), result.confidence());
+            sessionManager.updateSessionSuccess(sessionId, result.plate(), result.confidence());
+        }
+
+        private void cancelTimer() {
+            ScheduledFuture<?> t = hedgeTimer;
+            if (t != null) t.cancel(false);
+        }
+    }
+}
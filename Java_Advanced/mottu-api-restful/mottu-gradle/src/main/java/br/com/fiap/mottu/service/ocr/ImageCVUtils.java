@@ -3,25 +3,58 @@ package br.com.fiap.mottu.service.ocr;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 
 /**
  * Utilitários mínimos para converter entre BufferedImage e Mat.
  * Mantém BGR de forma compatível com o OpenCV.
+ * O Mat devolvido pertence a quem chamou e precisa de {@code release()} (ou de um {@link MatScope}).
  */
 public final class ImageCVUtils {
 
     private ImageCVUtils() {}
 
     public static Mat bufferedToMat(BufferedImage bi) {
-        // garante formato 3 canais
-        BufferedImage img = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-        img.getGraphics().drawImage(bi, 0, 0, null);
+        Mat mat = new Mat();
+        try {
+            bufferedToMat(bi, mat);
+            return mat;
+        } catch (RuntimeException e) {
+            mat.release();
+            throw e;
+        }
+    }
 
+    /** Copia para {@code dst} (3 canais BGR), reaproveitando o buffer nativo se o tamanho não mudou. */
+    public static void bufferedToMat(BufferedImage bi, Mat dst) {
+        // garante formato 3 canais; se já for BGR de 3 bytes, usa o raster direto
+        BufferedImage img = bi;
+        if (bi.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            img = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = img.createGraphics();
+            try {
+                g.drawImage(bi, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+        }
         byte[] data = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
-        Mat mat = new Mat(img.getHeight(), img.getWidth(), CvType.CV_8UC3);
-        mat.put(0, 0, data);
-        return mat;
+        dst.create(img.getHeight(), img.getWidth(), CvType.CV_8UC3);
+        dst.put(0, 0, data);
+    }
+
+    /** BufferedImage TYPE_BYTE_GRAY para Mat de 1 canal. */
+    public static Mat grayToMat(BufferedImage gray) {
+        byte[] data = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        Mat mat = new Mat(gray.getHeight(), gray.getWidth(), CvType.CV_8UC1);
+        try {
+            mat.put(0, 0, data);
+            return mat;
+        } catch (RuntimeException e) {
+            mat.release();
+            throw e;
+        }
     }
 }
@@ -0,0 +1,67 @@
+package br.com.fiap.mottu.service.ocr;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escopo de Mats temporários: tudo que for registrado é liberado no {@link #close()}, na ordem
+ * inversa, inclusive quando o bloco termina com exceção. Use com try-with-resources:
+ * <pre>
+ * try (MatScope scope = new MatScope()) {
+ *     Mat bin = scope.mat();
+ *     ...
+ *     return scope.detach(resultado); // sai do escopo: quem recebe libera
+ * }
+ * </pre>
+ * A memória dos pixels fica fora do heap; sem o release ela só volta quando o finalizer do Mat rodar.
+ * Não é thread-safe: um escopo por thread.
+ */
+public final class MatScope implements AutoCloseable {
+
+    private static final AtomicLong LIVE = new AtomicLong();
+
+    private final List<Mat> owned = new ArrayList<>(8);
+
+    /** Mat vazio, liberado no fim do escopo. */
+    public Mat mat() {
+        return add(new Mat());
+    }
+
+    /** Passa o Mat para o escopo (retorna o mesmo objeto). Aceita null. */
+    public <T extends Mat> T add(T mat) {
+        if (mat != null) {
+            owned.add(mat);
+            LIVE.incrementAndGet();
+        }
+        return mat;
+    }
+
+    /** Tira o Mat do escopo: não será liberado no close, quem recebe passa a ser dono. */
+    public <T extends Mat> T detach(T mat) {
+        for (int i = owned.size() - 1; i >= 0; i--) {
+            if (owned.get(i) == mat) {
+                owned.remove(i);
+                LIVE.decrementAndGet();
+                break;
+            }
+        }
+        return mat;
+    }
+
+    @Override
+    public void close() {
+        for (int i = owned.size() - 1; i >= 0; i--) {
+            owned.get(i).release();
+        }
+        LIVE.addAndGet(-owned.size());
+        owned.clear();
+    }
+
+    /** Mats registrados em escopos ainda abertos (todas as threads). */
+    static long live() {
+        return LIVE.get();
+    }
+}
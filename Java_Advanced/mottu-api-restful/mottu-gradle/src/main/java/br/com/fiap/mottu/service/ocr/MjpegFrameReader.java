@@ -0,0 +1,108 @@
+package br.com.fiap.mottu.service.ocr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Separa quadros JPEG de um stream MJPEG (multipart/x-mixed-replace, HTTP chunked ou JPEGs
+ * concatenados) pelos marcadores SOI (FFD8) e EOI (FFD9). Cabeçalhos de parte e boundaries
+ * entre um quadro e outro são ignorados.
+ * Quem consome pode pular um quadro sem copiar os bytes ({@link #skipFrame()}).
+ */
+public class MjpegFrameReader implements AutoCloseable {
+
+    private static final byte[] SOI = {(byte) 0xFF, (byte) 0xD8};
+
+    private final InputStream in;
+    private final int maxFrameBytes;
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream(256 * 1024);
+    /** Buffer próprio (sem o lock do BufferedInputStream a cada byte). */
+    private final byte[] buf = new byte[64 * 1024];
+    private int pos;
+    private int limit;
+
+    public MjpegFrameReader(InputStream in, int maxFrameBytes) {
+        this.in = in;
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    /** Próximo quadro completo, ou null no fim do stream. Quadros maiores que o limite são descartados. */
+    public byte[] nextFrame() throws IOException {
+        while (true) {
+            if (!seekStartOfImage()) return null;
+            frame.reset();
+            frame.write(SOI, 0, SOI.length);
+            boolean complete = copyUntilEndOfImage(true);
+            if (complete) return frame.toByteArray();
+            if (frame.size() == 0) return null; // fim do stream no meio do quadro
+        }
+    }
+
+    /** Avança até o fim do próximo quadro sem guardar os bytes. Retorna false no fim do stream. */
+    public boolean skipFrame() throws IOException {
+        if (!seekStartOfImage()) return false;
+        frame.reset();
+        return copyUntilEndOfImage(false) || frame.size() > 0;
+    }
+
+    private boolean seekStartOfImage() throws IOException {
+        int prev = -1, b;
+        while ((b = read()) != -1) {
+            if (prev == 0xFF && b == 0xD8) return true;
+            prev = b;
+        }
+        return false;
+    }
+
+    /**
+     * Lê até o EOI. Retorna true com o quadro completo; false com o buffer zerado se o stream acabou,
+     * ou com o buffer preenchido (marcador de "descartado") se o quadro passou do limite.
+     */
+    private boolean copyUntilEndOfImage(boolean keep) throws IOException {
+        int prev = -1;
+        long size = 2;
+        while (true) {
+            if (pos == limit && !fill()) {
+                frame.reset();
+                return false;
+            }
+            // varre o buffer e copia em blocos, não byte a byte
+            int start = pos;
+            int end = (int) Math.min(limit, start + (maxFrameBytes - size) + 1);
+            while (pos < end) {
+                int b = buf[pos++] & 0xFF;
+                if (prev == 0xFF && b == 0xD9) {
+                    if (keep) frame.write(buf, start, pos - start);
+                    return true;
+                }
+                prev = b;
+            }
+            if (keep) frame.write(buf, start, pos - start);
+            size += pos - start;
+            if (size > maxFrameBytes) {
+                frame.reset();
+                frame.write(0); // sinaliza "quadro descartado, continue"
+                return false;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
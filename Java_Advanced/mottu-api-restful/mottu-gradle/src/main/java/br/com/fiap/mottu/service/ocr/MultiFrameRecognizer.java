@@ -0,0 +1,172 @@
+package br.com.fiap.mottu.service.ocr;
+
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.exception.OcrQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reconhecimento de vários quadros da mesma placa numa única sessão.
+ * Cada quadro vira uma tarefa no {@link OcrExecutor}; as leituras entram numa {@link PlateVote}
+ * à medida que terminam. Assim que o consenso fica confiável o resultado é publicado e os
+ * quadros ainda pendentes são cancelados; senão, vale o consenso de todos os quadros.
+ */
+@Service
+public class MultiFrameRecognizer {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiFrameRecognizer.class);
+
+    /** Motor usado nos quadros (nome de {@link PlateEngine#name()}). */
+    @Value("${mottu.ocr.batch.engine:${mottu.ocr.hedge.primary:openalpr}}")
+    private String engineName;
+
+    /** Parada antecipada: pelo menos N quadros lendo exatamente a placa de consenso... */
+    @Value("${mottu.ocr.batch.stop-agreeing-frames:2}")
+    private int stopAgreeingFrames;
+
+    /** ...e confiança fundida mínima (0..100). */
+    @Value("${mottu.ocr.batch.stop-confidence:85}")
+    private double stopConfidence;
+
+    private final List<PlateEngine> engines;
+    private final OcrSessionManager sessionManager;
+    private final OcrExecutor ocrExecutor;
+    private final Counter framesRead;
+    private final Counter framesCancelled;
+    private final Counter earlyStops;
+    private PlateEngine engine;
+
+    public MultiFrameRecognizer(List<PlateEngine> engines, OcrSessionManager sessionManager,
+                                OcrExecutor ocrExecutor, MeterRegistry meterRegistry) {
+        this.engines = engines;
+        this.sessionManager = sessionManager;
+        this.ocrExecutor = ocrExecutor;
+        this.framesRead = meterRegistry.counter("mottu.ocr.batch.frames", "outcome", "read");
+        this.framesCancelled = meterRegistry.counter("mottu.ocr.batch.frames", "outcome", "cancelled");
+        this.earlyStops = meterRegistry.counter("mottu.ocr.batch.early-stops");
+    }
+
+    @PostConstruct
+    public void init() {
+        engine = engines.stream().filter(e -> e.name().equalsIgnoreCase(engineName)).findFirst()
+                .orElse(engines.get(0));
+    }
+
+    /**
+     * Enfileira os quadros e retorna. Quadros que não couberem na fila são descartados;
+     * se nenhum couber, a sessão volta a PENDING e a exceção sobe para o controller (429).
+     *
+     * @return quantos quadros foram enfileirados
+     */
+    public int extractPlate(String sessionId, List<byte[]> frames) {
+        sessionManager.setSessionProcessing(sessionId);
+        Batch batch = new Batch(sessionId, frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            byte[] frame = frames.get(i);
+            int index = i;
+            try {
+                Future<?> future = ocrExecutor.submit(sessionId, () -> batch.run(index, frame));
+                synchronized (batch.futures) {
+                    batch.futures.add(future);
+                }
+            } catch (OcrQueueFullException e) {
+                if (batch.futures.isEmpty()) {
+                    sessionManager.setSessionPending(sessionId);
+                    throw e;
+                }
+                log.warn("[OCR:{}] Fila cheia: {} de {} quadros enfileirados.", sessionId, i, frames.size());
+                for (int j = i; j < frames.size(); j++) batch.finished();
+                break;
+            }
+        }
+        synchronized (batch.futures) {
+            return batch.futures.size();
+        }
+    }
+
+    private final class Batch {
+        final String sessionId;
+        final PlateVote vote = new PlateVote();
+        final List<Future<?>> futures = new ArrayList<>();
+        final AtomicBoolean decided = new AtomicBoolean();
+        final AtomicInteger remaining;
+        volatile String lastError;
+
+        Batch(String sessionId, int frames) {
+            this.sessionId = sessionId;
+            this.remaining = new AtomicInteger(frames);
+        }
+
+        void run(int index, byte[] frame) {
+            if (decided.get()) return;
+            try {
+                PlateResult r = engine.recognize(sessionId, frame);
+                if (decided.get()) return;
+                framesRead.increment();
+                PlateVote.Consensus consensus;
+                synchronized (vote) {
+                    vote.add(r.plate(), r.confidence() == null ? 0.0 : r.confidence());
+                    consensus = vote.consensus();
+                }
+                log.info("[OCR:{}] Quadro {}: '{}' (confiança {}); consenso parcial {}.",
+                        sessionId, index, r.plate(), r.confidence(), consensus);
+                if (consensus != null && consensus.agreeingFrames() >= stopAgreeingFrames
+                        && consensus.confidence() >= stopConfidence && decided.compareAndSet(false, true)) {
+                    earlyStops.increment();
+                    complete(consensus);
+                    cancelPending(); // por último: também interrompe a própria thread
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (decided.get()) return;
+            } catch (Throwable t) {
+                if (decided.get()) return;
+                log.warn("[OCR:{}] Quadro {} sem leitura: {}", sessionId, index, t.toString());
+                if (t instanceof InvalidInputException) lastError = t.getMessage();
+            }
+            finished();
+        }
+
+        /** Último quadro terminou sem parada antecipada: decide com o consenso de todos. */
+        void finished() {
+            if (remaining.decrementAndGet() > 0 || !decided.compareAndSet(false, true)) return;
+            PlateVote.Consensus consensus;
+            synchronized (vote) {
+                consensus = vote.consensus();
+            }
+            if (consensus != null) {
+                complete(consensus);
+            } else {
+                sessionManager.updateSessionError(sessionId,
+                        lastError != null ? lastError : "Não foi possível reconhecer uma placa válida nos quadros enviados.");
+            }
+        }
+
+        private void cancelPending() {
+            synchronized (futures) {
+                for (Future<?> f : futures) {
+                    if (f.cancel(true)) framesCancelled.increment();
+                }
+            }
+        }
+
+        private void complete(PlateVote.Consensus consensus) {
+            log.info("[OCR:{}] Placa {} por votação: {} de {} quadro(s) concordam, confiança fundida {}.",
+                    sessionId, consensus.plate(), consensus.agreeingFrames(), consensus.frames(),
+                    String.format("%.1f", consensus.confidence()));
+            sessionManager.updateSessionSuccess(sessionId, consensus.plate(), consensus.confidence());
+        }
+    }
+}
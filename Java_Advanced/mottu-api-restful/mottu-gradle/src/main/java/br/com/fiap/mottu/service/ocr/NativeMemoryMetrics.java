@@ -0,0 +1,80 @@
+package br.com.fiap.mottu.service.ocr;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Memória fora do controle do GC. O OpenCV e o Tesseract alocam pixels com malloc, então o heap
+ * pode estar tranquilo enquanto o RSS cresce até o container ser morto. Publica:
+ * <ul>
+ *   <li>{@code mottu.native.rss} – RSS do processo (VmRSS do /proc; só Linux);</li>
+ *   <li>{@code mottu.native.untracked} – RSS menos o que a JVM declara (heap, non-heap e buffers diretos):
+ *       estimativa do que as bibliotecas nativas estão segurando;</li>
+ *   <li>{@code mottu.ocr.native.worker-buffers} – bytes retidos pelos Mats de trabalho reaproveitados;</li>
+ *   <li>{@code mottu.ocr.native.mats.live} – Mats em escopos ({@link MatScope}) ainda abertos.</li>
+ * </ul>
+ */
+@Component
+public class NativeMemoryMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(NativeMemoryMetrics.class);
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<BufferPoolMXBean> bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    private final boolean procAvailable = Files.isReadable(PROC_STATUS);
+
+    public NativeMemoryMetrics(MeterRegistry meterRegistry) {
+        if (procAvailable) {
+            Gauge.builder("mottu.native.rss", this, NativeMemoryMetrics::rssBytes)
+                    .description("RSS do processo (VmRSS)").baseUnit("bytes").register(meterRegistry);
+            Gauge.builder("mottu.native.untracked", this, NativeMemoryMetrics::untrackedBytes)
+                    .description("RSS fora do que a JVM contabiliza (OpenCV, Tesseract, malloc)").baseUnit("bytes")
+                    .register(meterRegistry);
+        } else {
+            log.info("/proc/self/status indisponível: métricas de RSS desativadas.");
+        }
+        Gauge.builder("mottu.ocr.native.worker-buffers", WorkerMats::retainedBytes)
+                .description("Bytes retidos pelos Mats de trabalho reaproveitados por thread").baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("mottu.ocr.native.mats.live", MatScope::live)
+                .description("Mats em escopos abertos").register(meterRegistry);
+    }
+
+    /** VmRSS em bytes, ou NaN se não der para ler. */
+    public double rssBytes() {
+        if (!procAvailable) return Double.NaN;
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS)) {
+                if (line.startsWith("VmRSS:")) {
+                    String kb = line.substring(6).trim().split("\\s+")[0];
+                    return Long.parseLong(kb) * 1024.0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Falha ao ler VmRSS: {}", e.toString());
+        }
+        return Double.NaN;
+    }
+
+    public double untrackedBytes() {
+        double rss = rssBytes();
+        if (Double.isNaN(rss)) return Double.NaN;
+        long jvm = memory.getHeapMemoryUsage().getCommitted() + memory.getNonHeapMemoryUsage().getCommitted();
+        for (BufferPoolMXBean pool : bufferPools) {
+            jvm += Math.max(0, pool.getMemoryUsed());
+        }
+        return Math.max(0, rss - jvm);
+    }
+}
@@ -0,0 +1,444 @@
+package br.com.fiap.mottu.service.ocr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Artefatos de diagnóstico do OCR (saída JSON do OpenALPR, recortes de placa, tempos por etapa)
+ * gravados fora da thread de reconhecimento. Quem produz só enfileira num buffer circular limitado
+ * (cheio = descarta o mais antigo); a thread "ocr-diagnostics" grava em lote, uma linha JSON por
+ * artefato, em segmentos rotativos com limite de tamanho total e de idade.
+ * A amostragem é por sessão, para que os artefatos de uma sessão amostrada fiquem completos.
+ * <p>
+ * Cada segmento fechado ganha um índice ao lado ({@code <segmento>.sessions}, um id por linha), carregado
+ * na partida: a leitura por sessão só abre os segmentos que têm a sessão, inclusive os de execuções anteriores.
+ */
+@Component
+public class OcrDiagnostics {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrDiagnostics.class);
+    private static final String SEGMENT_PREFIX = "diag-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+    private static final String INDEX_SUFFIX = ".sessions";
+    private static final DateTimeFormatter SEGMENT_TS = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int MAX_READ_RESULTS = 200;
+    /** Teto de segmentos abertos por consulta (os mais recentes da sessão). */
+    private static final int MAX_READ_SEGMENTS = 16;
+
+    public static final String ALPR_JSON = "alpr-json";
+    public static final String ROI_CROP = "roi-crop";
+    public static final String TIMINGS = "timings";
+
+    /**
+     * Um artefato. {@code content} é texto (JSON/saída do alpr) ou PNG em Base64 quando
+     * {@code contentType} é image/png.
+     */
+    public record Artefact(Instant at, String sessionId, String kind, String engine, String region,
+                           String contentType, String content) {}
+
+    @Value("${mottu.ocr.diagnostics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mottu.ocr.diagnostics.dir:${mottu.ocr.alpr.debugOutputDir:logs}/ocr-diagnostics}")
+    private String dir;
+
+    /** Capacidade do buffer circular (artefatos aguardando gravação). */
+    @Value("${mottu.ocr.diagnostics.capacity:1024}")
+    private int capacity;
+
+    /** Fração das sessões (0..1) com artefatos gravados. */
+    @Value("${mottu.ocr.diagnostics.sample-rate:1.0}")
+    private double sampleRate;
+
+    /** Fração das sessões amostradas que também guardam os recortes de placa (PNG). */
+    @Value("${mottu.ocr.diagnostics.crop-sample-rate:0.1}")
+    private double cropSampleRate;
+
+    /** Saídas com falha do alpr são gravadas mesmo em sessões fora da amostra. */
+    @Value("${mottu.ocr.diagnostics.always-on-error:true}")
+    private boolean alwaysOnError;
+
+    @Value("${mottu.ocr.diagnostics.segment-max-bytes:16777216}")
+    private long segmentMaxBytes;
+
+    @Value("${mottu.ocr.diagnostics.max-total-bytes:268435456}")
+    private long maxTotalBytes;
+
+    @Value("${mottu.ocr.diagnostics.max-age:PT24H}")
+    private Duration maxAge;
+
+    @Value("${mottu.ocr.diagnostics.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private final ObjectMapper objectMapper;
+    private final Counter written;
+    private final Counter dropped;
+    private ArrayBlockingQueue<Artefact> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private Path baseDir;
+
+    /** sessão -> segmentos que têm artefatos dela (índice da API de leitura, recarregado dos arquivos .sessions). */
+    private final Map<String, Set<String>> segmentsBySession = new ConcurrentHashMap<>();
+    /** Só a thread de gravação mexe: segmento -> sessões, para limpar o índice quando o segmento sai. */
+    private final Map<String, Set<String>> sessionsBySegment = new HashMap<>();
+    private Path segment;
+    private OutputStream segmentOut;
+    private long segmentBytes;
+    private int segmentSeq;
+    private long lastRetentionNanos;
+
+    public OcrDiagnostics(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.written = meterRegistry.counter("mottu.ocr.diagnostics.artefacts", "outcome", "written");
+        this.dropped = meterRegistry.counter("mottu.ocr.diagnostics.artefacts", "outcome", "dropped");
+        meterRegistry.gauge("mottu.ocr.diagnostics.queue", this, d -> d.queue == null ? 0 : d.queue.size());
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Diagnóstico do OCR desativado (mottu.ocr.diagnostics.enabled=false).");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(16, capacity));
+        baseDir = Path.of(dir);
+        running = true;
+        writer = new Thread(this::writeLoop, "ocr-diagnostics");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Diagnóstico do OCR em {} (amostragem {}, recortes {}).", baseDir.toAbsolutePath(), sampleRate, cropSampleRate);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join(5000);
+        }
+    }
+
+    /** A sessão entra na amostra? Decisão estável por id. */
+    public boolean sampled(String sessionId) {
+        return enabled && sessionId != null && bucket(sessionId, 0) < sampleRate;
+    }
+
+    /** Vale a pena preparar os recortes (encode PNG) desta sessão? */
+    public boolean wantsCrops(String sessionId) {
+        return sampled(sessionId) && bucket(sessionId, 0x9E3779B9) < cropSampleRate;
+    }
+
+    /** Saída do alpr de uma tentativa (região configurada ou fallback). */
+    public void alprOutput(String sessionId, String region, String output, boolean ok) {
+        if (!enabled || output == null || !(sampled(sessionId) || (!ok && alwaysOnError))) return;
+        offer(new Artefact(Instant.now(), sessionId, ALPR_JSON, "openalpr", region, "application/json", output));
+    }
+
+    /** Recorte de placa; o PNG é gerado aqui (recorte pequeno), a gravação fica com a thread de diagnóstico. */
+    public void roiCrop(String sessionId, String engine, Mat crop) {
+        if (!wantsCrops(sessionId) || crop.empty()) return;
+        try (MatScope scope = new MatScope()) {
+            MatOfByte png = scope.add(new MatOfByte());
+            if (!Imgcodecs.imencode(".png", crop, png)) return;
+            offer(new Artefact(Instant.now(), sessionId, ROI_CROP, engine, OcrMetrics.NONE, "image/png",
+                    Base64.getEncoder().encodeToString(png.toArray())));
+        }
+    }
+
+    /** Tempos por etapa, gravados quando a sessão termina. */
+    @EventListener
+    public void onSessionEvent(OcrSessionEvent event) {
+        if (!event.terminal() || event.expired()) return;
+        OcrSession s = event.session();
+        if (!sampled(s.getId())) return;
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", s.getStatus());
+        body.put("plate", s.getRecognizedPlate());
+        body.put("confidence", s.getConfidence());
+        body.put("error", s.getErrorMessage());
+        body.put("timingsMs", s.getTimingsMs());
+        try {
+            offer(new Artefact(Instant.now(), s.getId(), TIMINGS, OcrMetrics.NONE, OcrMetrics.NONE,
+                    "application/json", objectMapper.writeValueAsString(body)));
+        } catch (IOException e) {
+            log.debug("Tempos da sessão {} não serializados: {}", s.getId(), e.toString());
+        }
+    }
+
+    /**
+     * Artefatos da sessão, mais antigos primeiro: os já gravados e os que ainda estão no buffer.
+     * Só lê segmentos indexados para a sessão (no máximo {@value #MAX_READ_SEGMENTS}, os mais recentes);
+     * id fora do índice não varre o disco.
+     */
+    public List<Artefact> find(String sessionId) throws IOException {
+        List<Artefact> out = new ArrayList<>();
+        if (!enabled) return out;
+        Set<String> indexed = segmentsBySession.getOrDefault(sessionId, Set.of());
+        List<Path> segments = indexed.stream().map(baseDir::resolve)
+                .sorted(Comparator.comparing((Path p) -> lastModified(p)).thenComparing(Path::toString))
+                .toList();
+        if (segments.size() > MAX_READ_SEGMENTS) {
+            segments = segments.subList(segments.size() - MAX_READ_SEGMENTS, segments.size());
+        }
+        String needle = "\"sessionId\":\"" + sessionId + "\"";
+        for (Path p : segments) {
+            try (BufferedReader br = Files.newBufferedReader(p, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = br.readLine()) != null && out.size() < MAX_READ_RESULTS) {
+                    if (!line.contains(needle)) continue;
+                    try {
+                        out.add(objectMapper.readValue(line, Artefact.class));
+                    } catch (IOException e) {
+                        // linha sendo gravada neste instante: fica para a próxima consulta
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // removido pela retenção durante a leitura
+            }
+        }
+        for (Artefact a : queue) {
+            if (out.size() >= MAX_READ_RESULTS) break;
+            if (sessionId.equals(a.sessionId())) out.add(a);
+        }
+        return out;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void offer(Artefact a) {
+        // buffer circular: nunca bloqueia quem reconhece; cheio, perde o mais antigo
+        while (!queue.offer(a)) {
+            if (queue.poll() != null) dropped.increment();
+        }
+    }
+
+    private static double bucket(String sessionId, int salt) {
+        int h = (sessionId.hashCode() ^ salt) * 0x01000193;
+        return ((h ^ (h >>> 16)) & 0x7fffffff) / (double) Integer.MAX_VALUE;
+    }
+
+    // ---------------------------------------------------------------- thread de gravação
+
+    private void writeLoop() {
+        loadIndex();
+        List<Artefact> batch = new ArrayList<>(256);
+        while (running || !queue.isEmpty()) {
+            try {
+                Artefact first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, 255);
+                    writeBatch(batch);
+                }
+                if (System.nanoTime() - lastRetentionNanos > TimeUnit.MINUTES.toNanos(1)) {
+                    applyRetention();
+                }
+            } catch (InterruptedException e) {
+                if (running) continue;
+                queue.drainTo(batch);
+                writeBatch(batch);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao gravar diagnóstico do OCR: {}", e.toString());
+                closeSegment();
+            } finally {
+                batch.clear();
+            }
+        }
+        closeSegment();
+    }
+
+    private void writeBatch(List<Artefact> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            for (Artefact a : batch) {
+                byte[] line = objectMapper.writeValueAsBytes(a);
+                if (segmentOut == null || segmentBytes + line.length + 1 > segmentMaxBytes) rollSegment();
+                segmentOut.write(line);
+                segmentOut.write('\n');
+                segmentBytes += line.length + 1;
+                String name = segment.getFileName().toString();
+                segmentsBySession.computeIfAbsent(a.sessionId(), k -> ConcurrentHashMap.newKeySet()).add(name);
+                sessionsBySegment.computeIfAbsent(name, k -> new HashSet<>()).add(a.sessionId());
+                written.increment();
+            }
+            segmentOut.flush();
+        } catch (IOException e) {
+            log.warn("Falha ao gravar diagnóstico do OCR: {}", e.toString());
+            closeSegment();
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        closeSegment();
+        Files.createDirectories(baseDir);
+        String ts = LocalDateTime.now().format(SEGMENT_TS);
+        segment = baseDir.resolve(SEGMENT_PREFIX + ts + "-" + (segmentSeq++) + SEGMENT_SUFFIX);
+        segmentOut = new BufferedOutputStream(
+                Files.newOutputStream(segment, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        segmentBytes = Files.size(segment);
+        applyRetention();
+    }
+
+    private void closeSegment() {
+        if (segmentOut == null) return;
+        try {
+            segmentOut.close();
+        } catch (IOException ignored) {
+        }
+        segmentOut = null;
+        writeIndex(segment.getFileName().toString());
+    }
+
+    /** Grava o índice do segmento fechado (sessões que aparecem nele). */
+    private void writeIndex(String segmentName) {
+        Set<String> sessions = sessionsBySegment.getOrDefault(segmentName, Set.of());
+        try {
+            Files.write(baseDir.resolve(segmentName + INDEX_SUFFIX), sessions, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.debug("Índice do segmento {} não gravado: {}", segmentName, e.toString());
+        }
+    }
+
+    /**
+     * Carrega o índice dos segmentos já em disco. Segmento sem índice (a execução anterior caiu com ele
+     * aberto) é lido uma vez aqui, na thread de gravação, e ganha o seu .sessions.
+     */
+    private void loadIndex() {
+        try {
+            for (Path p : listSegments()) {
+                String name = p.getFileName().toString();
+                Path index = baseDir.resolve(name + INDEX_SUFFIX);
+                Set<String> sessions = new HashSet<>();
+                try {
+                    if (Files.exists(index)) {
+                        for (String id : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+                            if (!id.isBlank()) sessions.add(id);
+                        }
+                    } else {
+                        sessions.addAll(scanSessions(p));
+                        sessionsBySegment.put(name, sessions);
+                        writeIndex(name);
+                    }
+                } catch (IOException e) {
+                    log.debug("Segmento {} fora do índice: {}", name, e.toString());
+                    continue;
+                }
+                sessionsBySegment.put(name, sessions);
+                for (String id : sessions) {
+                    segmentsBySession.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(name);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Índice do diagnóstico do OCR não carregado: {}", e.toString());
+        }
+    }
+
+    private Set<String> scanSessions(Path segmentFile) throws IOException {
+        Set<String> sessions = new HashSet<>();
+        try (BufferedReader br = Files.newBufferedReader(segmentFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                try {
+                    String id = objectMapper.readTree(line).path("sessionId").asText(null);
+                    if (id != null) sessions.add(id);
+                } catch (IOException e) {
+                    // linha truncada na queda da execução anterior
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /** Remove os segmentos mais antigos até caber no limite total e apaga os que passaram da idade. */
+    private void applyRetention() {
+        lastRetentionNanos = System.nanoTime();
+        try {
+            List<Path> segments = listSegments();
+            long total = 0;
+            for (Path p : segments) total += sizeOf(p);
+            Instant oldest = Instant.now().minus(maxAge);
+            for (Path p : segments) {
+                if (p.equals(segment)) continue;
+                boolean expired = Files.getLastModifiedTime(p).toInstant().isBefore(oldest);
+                if (!expired && total <= maxTotalBytes) break;
+                long size = sizeOf(p);
+                Files.deleteIfExists(p);
+                Files.deleteIfExists(baseDir.resolve(p.getFileName() + INDEX_SUFFIX));
+                total -= size;
+                forget(p.getFileName().toString());
+            }
+        } catch (IOException e) {
+            log.debug("Retenção do diagnóstico do OCR: {}", e.toString());
+        }
+    }
+
+    private void forget(String segmentName) {
+        Set<String> sessions = sessionsBySegment.remove(segmentName);
+        if (sessions == null) return;
+        for (String id : sessions) {
+            segmentsBySession.computeIfPresent(id, (k, v) -> {
+                v.remove(segmentName);
+                return v.isEmpty() ? null : v;
+            });
+        }
+    }
+
+    /** Segmentos em ordem de criação (o nome começa pelo timestamp). */
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(baseDir)) return List.of();
+        try (Stream<Path> s = Files.list(baseDir)) {
+            return s.filter(p -> {
+                        String n = p.getFileName().toString();
+                        return n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing((Path p) -> lastModified(p)).thenComparing(Path::toString))
+                    .toList();
+        }
+    }
+
+    private static long sizeOf(Path p) {
+        try {
+            return Files.size(p);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static Instant lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toInstant();
+        } catch (IOException e) {
+            return Instant.EPOCH;
+        }
+    }
+}
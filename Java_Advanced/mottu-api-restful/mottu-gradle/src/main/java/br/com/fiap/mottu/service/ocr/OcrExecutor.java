@@ -0,0 +1,108 @@
+package br.com.fiap.mottu.service.ocr;
+
+import br.com.fiap.mottu.exception.OcrQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor dedicado ao reconhecimento de placas.
+ * Número fixo de workers + fila limitada: quando a fila enche, a submissão falha com
+ * {@link OcrQueueFullException} (o controller responde 429) em vez de empilhar
+ * processos/threads sem limite no ForkJoinPool comum.
+ */
+@Component
+public class OcrExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrExecutor.class);
+
+    /** 0 = automático (um worker por núcleo). */
+    @Value("${mottu.ocr.executor.workers:0}")
+    private int configuredWorkers;
+
+    @Value("${mottu.ocr.executor.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${mottu.ocr.executor.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    @Value("${mottu.ocr.executor.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private final MeterRegistry meterRegistry;
+    private ThreadPoolExecutor executor;
+    private Timer queueWait;
+    private Counter rejected;
+
+    public OcrExecutor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        int workers = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "ocr-worker-" + seq.incrementAndGet());
+            t.setDaemon(false);
+            return t;
+        };
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+
+        queueWait = Timer.builder("mottu.ocr.executor.queue.wait")
+                .description("Tempo que a imagem ficou na fila até um worker de OCR assumir")
+                .register(meterRegistry);
+        rejected = Counter.builder("mottu.ocr.executor.rejected")
+                .description("Submissões recusadas por fila de OCR cheia")
+                .register(meterRegistry);
+        Gauge.builder("mottu.ocr.executor.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("mottu.ocr.executor.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+
+        log.info("Executor de OCR iniciado: {} worker(s), fila de {} posição(ões).", workers, queueCapacity);
+    }
+
+    /**
+     * Enfileira o processamento da sessão.
+     *
+     * @throws OcrQueueFullException se a fila estiver cheia ou o executor estiver encerrando
+     */
+    public Future<?> submit(String sessionId, Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                task.run();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("[OCR:{}] Fila de OCR cheia ({} aguardando). Requisição recusada.", sessionId, executor.getQueue().size());
+            throw new OcrQueueFullException("Fila de reconhecimento cheia. Tente novamente em instantes.", retryAfterSeconds);
+        }
+    }
+
+    /** Drena os jobs em andamento/enfileirados antes de encerrar (desligamento gracioso). */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Executor de OCR não drenou em {} ms; {} job(s) descartado(s).",
+                        shutdownTimeoutMs, executor.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.fiap.mottu.service.ocr;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo de cada etapa do pipeline de OCR (upload, decode, preprocess, roi, engine, parse, normalize,
+ * session-update) no timer {@code mottu.ocr.stage}, com tags {@code stage}, {@code engine}, {@code region}
+ * e {@code outcome}, histograma e percentis (visível em /actuator/metrics/mottu.ocr.stage).
+ * A mesma medida entra no detalhamento da sessão ({@link OcrSession#getTimingsMs()}).
+ */
+@Component
+public class OcrMetrics {
+
+    /** Valor de tag quando a dimensão não se aplica à etapa. */
+    public static final String NONE = "none";
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    /** Corpo de uma etapa cronometrada. */
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final OcrSessionManager sessionManager;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public OcrMetrics(MeterRegistry meterRegistry, OcrSessionManager sessionManager) {
+        this.meterRegistry = meterRegistry;
+        this.sessionManager = sessionManager;
+    }
+
+    /** Executa e cronometra a etapa; outcome = error se lançar exceção. */
+    public <T, E extends Exception> T time(String sessionId, String stage, String engine, String region,
+                                           Stage<T, E> body) throws E {
+        long start = System.nanoTime();
+        String outcome = ERROR;
+        try {
+            T result = body.run();
+            outcome = SUCCESS;
+            return result;
+        } finally {
+            record(sessionId, stage, engine, region, outcome, System.nanoTime() - start);
+        }
+    }
+
+    /** Para etapas medidas à mão (início com {@link System#nanoTime()}). */
+    public void record(String sessionId, String stage, String engine, String region, String outcome, long nanos) {
+        timers.computeIfAbsent(stage + '|' + engine + '|' + region + '|' + outcome,
+                        k -> stageTimer(meterRegistry, stage, engine, region, outcome))
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (sessionId != null) {
+            sessionManager.recordTiming(sessionId, NONE.equals(engine) ? stage : engine + "." + stage, nanos);
+        }
+    }
+
+    static Timer stageTimer(MeterRegistry registry, String stage, String engine, String region, String outcome) {
+        return Timer.builder("mottu.ocr.stage")
+                .description("Duração de cada etapa do pipeline de OCR")
+                .tags("stage", stage, "engine", engine, "region", region, "outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
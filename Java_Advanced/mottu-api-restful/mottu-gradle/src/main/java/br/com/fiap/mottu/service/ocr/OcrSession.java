@@ -2,8 +2,13 @@
 
 package br.com.fiap.mottu.service.ocr;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Data
 public class OcrSession {
     public enum Status {
@@ -14,7 +19,35 @@ public class OcrSession {
     }
 
     private final String id;
-    private Status status = Status.PENDING;
+    private final Instant createdAt = Instant.now();
+    private volatile Status status = Status.PENDING;
     private String recognizedPlate;
+    /** Confiança (0..100) informada pelo motor de OCR para a placa reconhecida. */
+    private Double confidence;
+    /** A placa reconhecida consta no cadastro de veículos? (null = cadastro ainda não carregado) */
+    private Boolean registered;
     private String errorMessage;
-}
\ No newline at end of file
+    private volatile Instant expiresAt;
+
+    /** Tempo (ms) de cada etapa do pipeline nesta sessão, na ordem em que ocorreram: "motor.etapa" -> ms. */
+    private final Map<String, Double> timingsMs = new LinkedHashMap<>();
+
+    /** Prazo de expiração em System.nanoTime(); renovado a cada mudança de status. */
+    @JsonIgnore
+    private volatile long deadlineNanos;
+
+    /** Soma a duração à etapa (etapas repetidas, como o OCR de vários recortes, acumulam). */
+    public void addTiming(String stage, long nanos) {
+        double ms = Math.round(nanos / 10_000.0) / 100.0;
+        synchronized (timingsMs) {
+            timingsMs.merge(stage, ms, Double::sum);
+        }
+    }
+
+    /** Cópia consistente para serialização (o mapa é alterado pelas threads de OCR). */
+    public Map<String, Double> getTimingsMs() {
+        synchronized (timingsMs) {
+            return new LinkedHashMap<>(timingsMs);
+        }
+    }
+}
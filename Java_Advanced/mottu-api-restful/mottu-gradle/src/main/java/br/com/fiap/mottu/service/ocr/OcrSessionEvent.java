@@ -0,0 +1,17 @@
+package br.com.fiap.mottu.service.ocr;
+
+/**
+ * Publicado pelo {@link OcrSessionManager} a cada mudança de status de uma sessão
+ * (e quando ela expira), para quem acompanha a sessão por push.
+ *
+ * @param session sessão já com o novo status
+ * @param expired true quando a sessão foi removida por expiração
+ */
+public record OcrSessionEvent(OcrSession session, boolean expired) {
+
+    public boolean terminal() {
+        return expired
+                || session.getStatus() == OcrSession.Status.COMPLETED
+                || session.getStatus() == OcrSession.Status.ERROR;
+    }
+}
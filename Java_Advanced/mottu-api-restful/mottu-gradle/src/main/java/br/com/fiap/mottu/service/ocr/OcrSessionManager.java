@@ -2,47 +2,255 @@
 
 package br.com.fiap.mottu.service.ocr;
 
+import br.com.fiap.mottu.service.placa.PlacasCadastradas;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Guarda as sessões de OCR em memória com expiração por status.
+ * Cada mudança de status renova o prazo e agenda uma entrada numa {@link DelayQueue};
+ * uma única thread remove as sessões vencidas (entradas antigas de uma sessão que mudou
+ * de status são simplesmente ignoradas). Há também um teto de sessões vivas: ao atingir
+ * o limite, a sessão mais próxima de vencer é descartada.
+ * Toda transição é publicada como {@link OcrSessionEvent} (push via SSE/long-poll).
+ */
 @Component
 public class OcrSessionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrSessionManager.class);
+
+    @Value("${mottu.ocr.session.ttl-pending:PT10M}")
+    private Duration ttlPending;
+
+    @Value("${mottu.ocr.session.ttl-processing:PT5M}")
+    private Duration ttlProcessing;
+
+    @Value("${mottu.ocr.session.ttl-finished:PT2M}")
+    private Duration ttlFinished;
+
+    @Value("${mottu.ocr.session.max-sessions:10000}")
+    private int maxSessions;
+
+    /** Quantos ids expirados lembrar para responder 410 em vez de 404. */
+    @Value("${mottu.ocr.session.expired-memory:10000}")
+    private int expiredMemory;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlacasCadastradas placasCadastradas;
     private final ConcurrentHashMap<String, OcrSession> sessions = new ConcurrentHashMap<>();
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+    private Map<String, Boolean> expiredIds;
+    private Thread reaper;
+
+    private final Counter createdCounter;
+    private final Counter expiredCounter;
+    private final Counter completedCounter;
+    private final Counter evictedCounter;
+    private final Timer updateSuccessTimer;
+    private final Timer updateErrorTimer;
+
+    public OcrSessionManager(ApplicationEventPublisher eventPublisher, PlacasCadastradas placasCadastradas,
+                             MeterRegistry meterRegistry) {
+        this.eventPublisher = eventPublisher;
+        this.placasCadastradas = placasCadastradas;
+        // mesma métrica das demais etapas do pipeline (ver OcrMetrics); inclui a entrega do evento aos ouvintes
+        this.updateSuccessTimer = OcrMetrics.stageTimer(meterRegistry, "session-update", OcrMetrics.NONE, OcrMetrics.NONE, "success");
+        this.updateErrorTimer = OcrMetrics.stageTimer(meterRegistry, "session-update", OcrMetrics.NONE, OcrMetrics.NONE, "error");
+        this.createdCounter = meterRegistry.counter("mottu.ocr.sessions.created");
+        this.expiredCounter = meterRegistry.counter("mottu.ocr.sessions.expired");
+        this.completedCounter = meterRegistry.counter("mottu.ocr.sessions.completed");
+        this.evictedCounter = meterRegistry.counter("mottu.ocr.sessions.evicted");
+        Gauge.builder("mottu.ocr.sessions.active", sessions, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        expiredIds = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > expiredMemory;
+            }
+        });
+        reaper = new Thread(this::reapLoop, "ocr-session-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reaper != null) reaper.interrupt();
+    }
 
     public OcrSession createSession() {
+        while (sessions.size() >= maxSessions && evictNextToExpire()) {
+            // libera espaço descartando a sessão mais próxima de vencer
+        }
         String sessionId = UUID.randomUUID().toString();
         OcrSession session = new OcrSession(sessionId);
         sessions.put(sessionId, session);
+        schedule(session);
+        createdCounter.increment();
         return session;
     }
 
     public Optional<OcrSession> getSession(String sessionId) {
-        return Optional.ofNullable(sessions.get(sessionId));
+        OcrSession session = sessions.get(sessionId);
+        if (session != null && System.nanoTime() - session.getDeadlineNanos() >= 0) {
+            expire(session, expiredCounter);
+            return Optional.empty();
+        }
+        return Optional.ofNullable(session);
+    }
+
+    /** true se a sessão existiu e foi removida por expiração (ou pelo teto de sessões). */
+    public boolean isExpired(String sessionId) {
+        return expiredIds.containsKey(sessionId);
     }
 
     public void updateSessionSuccess(String sessionId, String plate) {
+        updateSessionSuccess(sessionId, plate, null);
+    }
+
+    public void updateSessionSuccess(String sessionId, String plate, Double confidence) {
         Optional.ofNullable(sessions.get(sessionId)).ifPresent(session -> {
-            session.setStatus(OcrSession.Status.COMPLETED);
+            long start = System.nanoTime();
             session.setRecognizedPlate(plate);
+            session.setConfidence(confidence);
+            session.setRegistered(placasCadastradas.isLoaded() ? placasCadastradas.contains(plate) : null);
+            session.setStatus(OcrSession.Status.COMPLETED);
+            schedule(session);
+            completedCounter.increment();
+            eventPublisher.publishEvent(new OcrSessionEvent(session, false));
+            long elapsed = System.nanoTime() - start;
+            updateSuccessTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            session.addTiming("session-update", elapsed);
         });
     }
 
+    /** Registra a duração de uma etapa na sessão (se ela ainda existir). */
+    public void recordTiming(String sessionId, String stage, long nanos) {
+        OcrSession session = sessions.get(sessionId);
+        if (session != null) session.addTiming(stage, nanos);
+    }
+
     public void updateSessionError(String sessionId, String errorMessage) {
         Optional.ofNullable(sessions.get(sessionId)).ifPresent(session -> {
-            session.setStatus(OcrSession.Status.ERROR);
+            long start = System.nanoTime();
             session.setErrorMessage(errorMessage);
+            session.setStatus(OcrSession.Status.ERROR);
+            schedule(session);
+            eventPublisher.publishEvent(new OcrSessionEvent(session, false));
+            long elapsed = System.nanoTime() - start;
+            updateErrorTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            session.addTiming("session-update", elapsed);
         });
     }
 
     public void setSessionProcessing(String sessionId) {
         Optional.ofNullable(sessions.get(sessionId)).ifPresent(session -> {
             session.setStatus(OcrSession.Status.PROCESSING);
+            schedule(session);
+            eventPublisher.publishEvent(new OcrSessionEvent(session, false));
+        });
+    }
+
+    /** Volta a sessão para PENDING (ex.: a fila de OCR recusou a imagem e o cliente pode reenviar). */
+    public void setSessionPending(String sessionId) {
+        Optional.ofNullable(sessions.get(sessionId)).ifPresent(session -> {
+            session.setStatus(OcrSession.Status.PENDING);
+            schedule(session);
+            eventPublisher.publishEvent(new OcrSessionEvent(session, false));
         });
     }
 
     public void removeSession(String sessionId) {
         sessions.remove(sessionId);
     }
-}
\ No newline at end of file
+
+    // ---------------- expiração ----------------
+
+    private Duration ttlFor(OcrSession.Status status) {
+        return switch (status) {
+            case PENDING -> ttlPending;
+            case PROCESSING -> ttlProcessing;
+            case COMPLETED, ERROR -> ttlFinished;
+        };
+    }
+
+    private void schedule(OcrSession session) {
+        Duration ttl = ttlFor(session.getStatus());
+        long deadline = System.nanoTime() + ttl.toNanos();
+        session.setDeadlineNanos(deadline);
+        session.setExpiresAt(Instant.now().plus(ttl));
+        expiries.add(new Expiry(session.getId(), deadline));
+    }
+
+    private void reapLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Expiry e = expiries.take();
+                OcrSession session = sessions.get(e.sessionId());
+                if (session != null && session.getDeadlineNanos() == e.deadlineNanos()) {
+                    expire(session, expiredCounter);
+                }
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void expire(OcrSession session, Counter counter) {
+        if (sessions.remove(session.getId(), session)) {
+            expiredIds.put(session.getId(), Boolean.TRUE);
+            counter.increment();
+            eventPublisher.publishEvent(new OcrSessionEvent(session, true));
+            log.debug("Sessão de OCR {} expirada (status {}).", session.getId(), session.getStatus());
+        }
+    }
+
+    private boolean evictNextToExpire() {
+        Expiry e;
+        while ((e = expiries.peek()) != null) {
+            expiries.remove(e);
+            OcrSession session = sessions.get(e.sessionId());
+            if (session != null && session.getDeadlineNanos() == e.deadlineNanos()) {
+                expire(session, evictedCounter);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Expiry(String sessionId, long deadlineNanos) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((Expiry) other).deadlineNanos);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package br.com.fiap.mottu.service.ocr;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Entrega as mudanças de status das sessões de OCR por push, no lugar do polling em
+ * {@code /status-sessao/{id}}: um stream SSE por sessão e, como fallback, long-poll
+ * (a requisição fica aberta até a próxima transição ou o timeout).
+ * <p>
+ * Cada cliente SSE tem sua fila de eventos, esvaziada por uma thread de cada vez, fora do worker de OCR:
+ * uma escrita travada num cliente lento segura só a fila dele. Um cliente cuja escrita passa de
+ * {@code mottu.ocr.push.send-timeout-ms}, ou que acumula mais de {@code mottu.ocr.push.max-pending}
+ * eventos, sai da lista e não recebe mais nada; a escrita presa termina pelo timeout do servidor.
+ */
+@Component
+public class OcrStatusBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(OcrStatusBroadcaster.class);
+    /** Sessão que já não existe na inscrição. */
+    private static final OcrSessionEvent EXPIRED = new OcrSessionEvent(null, true);
+
+    @Value("${mottu.ocr.push.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    @Value("${mottu.ocr.push.send-timeout-ms:5000}")
+    private long sendTimeoutMs = 5000;
+
+    @Value("${mottu.ocr.push.max-pending:32}")
+    private int maxPending = 32;
+
+    private final Map<String, List<Client>> emitters = new ConcurrentHashMap<>();
+    private final Map<String, List<Waiter>> waiters = new ConcurrentHashMap<>();
+    /** No máximo uma thread por cliente com fila pendente; ociosas morrem. */
+    private final ExecutorService dispatcher = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "ocr-status-push");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ocr-status-push-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final OcrSessionManager sessionManager;
+
+    public OcrStatusBroadcaster(OcrSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+    }
+
+    @PostConstruct
+    public void init() {
+        long period = Math.max(100, sendTimeoutMs / 2);
+        watchdog.scheduleWithFixedDelay(this::dropStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Abre um stream SSE: envia o status atual e depois cada transição; fecha no status final. */
+    public SseEmitter subscribe(String sessionId) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Client client = new Client(sessionId, emitter);
+        List<Client> list = emitters.computeIfAbsent(sessionId, k -> new CopyOnWriteArrayList<>());
+        list.add(client);
+        Runnable cleanup = () -> removeEmitter(client);
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(e -> cleanup.run());
+
+        // registrado antes de ler o estado: nenhuma transição se perde entre a leitura e a inscrição
+        sessionManager.getSession(sessionId).ifPresentOrElse(
+                session -> client.enqueue(new OcrSessionEvent(session, false)),
+                () -> client.enqueue(EXPIRED));
+        return emitter;
+    }
+
+    /**
+     * Long-poll: responde assim que o status for diferente de {@code lastKnown}
+     * (imediatamente, se já for), ou com o status atual ao fim de {@code timeoutMs}.
+     */
+    public DeferredResult<ResponseEntity<?>> awaitChange(String sessionId, OcrSession.Status lastKnown, long timeoutMs) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeoutMs);
+        Waiter waiter = new Waiter(result, lastKnown);
+        List<Waiter> list = waiters.computeIfAbsent(sessionId, k -> new CopyOnWriteArrayList<>());
+        list.add(waiter);
+        result.onCompletion(() -> removeWaiter(sessionId, waiter));
+        result.onTimeout(() -> result.setResult(currentStatus(sessionId)));
+
+        sessionManager.getSession(sessionId).ifPresentOrElse(session -> {
+            if (lastKnown == null || session.getStatus() != lastKnown) {
+                result.setResult(ResponseEntity.ok(session));
+            }
+        }, () -> result.setResult(currentStatus(sessionId)));
+        return result;
+    }
+
+    @EventListener
+    public void onSessionEvent(OcrSessionEvent event) {
+        String sessionId = event.session().getId();
+        List<Waiter> pending = waiters.get(sessionId);
+        if (pending != null) {
+            ResponseEntity<?> body = event.expired() ? gone() : ResponseEntity.ok(event.session());
+            OcrSession.Status status = event.expired() ? null : event.session().getStatus();
+            // só quem esperava sair de outro status; a conclusão tira o waiter da lista
+            pending.forEach(w -> {
+                if (status == null || w.lastKnown() == null || w.lastKnown() != status) w.result().setResult(body);
+            });
+        }
+        List<Client> list = emitters.get(sessionId);
+        if (list != null) {
+            list.forEach(client -> client.enqueue(event));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        dispatcher.shutdownNow();
+        emitters.values().forEach(list -> list.forEach(client -> client.emitter.complete()));
+    }
+
+    /** Tira da lista os clientes com uma escrita presa há mais de {@code sendTimeoutMs}. */
+    private void dropStalled() {
+        long limit = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        emitters.values().forEach(list -> list.forEach(client -> {
+            long since = client.sendingSince;
+            if (since != 0 && since - limit < 0) {
+                log.debug("Sessão {}: cliente SSE parado há mais de {} ms, descartado.", client.sessionId, sendTimeoutMs);
+                removeEmitter(client);
+            }
+        }));
+    }
+
+    private void sendExpired(SseEmitter emitter) {
+        try {
+            emitter.send(SseEmitter.event().name("expired").data(Map.of("error", "Sessão expirada. Inicie uma nova sessão.")));
+        } catch (IOException | IllegalStateException ignored) {
+            // cliente já saiu
+        }
+        emitter.complete();
+    }
+
+    private ResponseEntity<?> currentStatus(String sessionId) {
+        return sessionManager.getSession(sessionId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> sessionManager.isExpired(sessionId) ? gone() : ResponseEntity.notFound().build());
+    }
+
+    private static ResponseEntity<?> gone() {
+        return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", "Sessão expirada. Inicie uma nova sessão."));
+    }
+
+    private void removeEmitter(Client client) {
+        client.closed = true;
+        client.pending.clear();
+        emitters.computeIfPresent(client.sessionId, (k, list) -> {
+            list.remove(client);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    /** Um stream SSE e sua fila de eventos, enviados em ordem. */
+    private final class Client {
+        final String sessionId;
+        final SseEmitter emitter;
+        final ConcurrentLinkedQueue<OcrSessionEvent> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        /** {@link System#nanoTime()} do início da escrita em curso; 0 quando não há. */
+        volatile long sendingSince;
+        volatile boolean closed;
+
+        Client(String sessionId, SseEmitter emitter) {
+            this.sessionId = sessionId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(OcrSessionEvent event) {
+            if (closed) return;
+            if (pending.size() >= maxPending) {
+                log.debug("Sessão {}: cliente SSE com {} eventos pendentes, descartado.", sessionId, maxPending);
+                removeEmitter(this);
+                return;
+            }
+            pending.add(event);
+            if (draining.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                OcrSessionEvent event;
+                while (!closed && (event = pending.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    try {
+                        send(event);
+                    } finally {
+                        sendingSince = 0;
+                    }
+                }
+                draining.set(false);
+            } while (!closed && !pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void send(OcrSessionEvent event) {
+            try {
+                if (event.expired()) {
+                    sendExpired(emitter);
+                    closed = true;
+                    return;
+                }
+                emitter.send(SseEmitter.event().name("status").data(event.session()));
+                if (event.terminal()) {
+                    emitter.complete();
+                    closed = true;
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Sessão {}: cliente SSE desconectado ({}).", sessionId, e.toString());
+                removeEmitter(this);
+            }
+        }
+    }
+
+    /** Long-poll pendente e o status que o cliente já conhece ({@code null} = qualquer transição). */
+    private record Waiter(DeferredResult<ResponseEntity<?>> result, OcrSession.Status lastKnown) {}
+
+    private void removeWaiter(String sessionId, Waiter waiter) {
+        waiters.computeIfPresent(sessionId, (k, list) -> {
+            list.remove(waiter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
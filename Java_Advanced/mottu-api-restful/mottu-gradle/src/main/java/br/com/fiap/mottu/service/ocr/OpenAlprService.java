@@ -1,32 +1,44 @@
 package br.com.fiap.mottu.service.ocr;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.exception.OcrQueueFullException;
+import br.com.fiap.mottu.service.placa.PlacasCadastradas;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
-@Primary
-public class OpenAlprService implements PlateRecognizer {
+public class OpenAlprService implements PlateRecognizer, PlateEngine {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAlprService.class);
-    private final ObjectMapper om = new ObjectMapper();
+    private final JsonFactory jsonFactory = new JsonFactory();
     private final OcrSessionManager sessionManager;
-
-    public OpenAlprService(OcrSessionManager sessionManager) {
+    private final OcrExecutor ocrExecutor;
+    private final OcrMetrics metrics;
+    private final OcrDiagnostics diagnostics;
+    private final PlacasCadastradas placasCadastradas;
+
+    public OpenAlprService(OcrSessionManager sessionManager, OcrExecutor ocrExecutor, OcrMetrics metrics,
+                           OcrDiagnostics diagnostics, PlacasCadastradas placasCadastradas) {
+        this.placasCadastradas = placasCadastradas;
         this.sessionManager = sessionManager;
+        this.ocrExecutor = ocrExecutor;
+        this.metrics = metrics;
+        this.diagnostics = diagnostics;
     }
 
     @Value("${mottu.ocr.alpr.command:alpr}")
@@ -41,19 +53,73 @@ public class OpenAlprService implements PlateRecognizer {
     @Value("${mottu.ocr.alpr.minConfidence:80}")
     private double minConfidence;
 
+    /** Candidato que consta no cadastro vale a partir desta confiança (abaixo de minConfidence). */
+    @Value("${mottu.ocr.alpr.registeredMinConfidence:60}")
+    private double registeredMinConfidence;
+
     @Value("${mottu.ocr.alpr.timeoutMs:15000}")
     private long timeoutMs;
 
-    @Value("${mottu.ocr.alpr.debugOutputDir:logs}")
-    private String debugOutputDir;
+    /** true = processos alpr persistentes alimentados via stdin; false = um processo por imagem. */
+    @Value("${mottu.ocr.alpr.persistent-workers:true}")
+    private boolean persistentWorkers;
+
+    @Value("${mottu.ocr.alpr.workers:2}")
+    private int workers;
+
+    /** Recicla o processo após N imagens (protege contra vazamentos do alpr nativo). */
+    @Value("${mottu.ocr.alpr.max-requests-per-worker:1000}")
+    private int maxRequestsPerWorker;
+
+    private final Map<String, AlprWorkerPool> workerPools = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (persistentWorkers) {
+            poolFor(region); // sobe os workers da região configurada já no startup
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workerPools.values().forEach(AlprWorkerPool::close);
+    }
+
+    private AlprWorkerPool poolFor(String cfgRegion) {
+        return workerPools.computeIfAbsent(cfgRegion,
+                r -> new AlprWorkerPool(alprCommand, r, topN, Math.max(1, workers), maxRequestsPerWorker));
+    }
 
     @Override
     public void extractPlate(String sessionId, byte[] imageBytes) {
         sessionManager.setSessionProcessing(sessionId);
-        CompletableFuture.runAsync(() -> runWithFallback(sessionId, imageBytes));
+        try {
+            ocrExecutor.submit(sessionId, () -> runWithFallback(sessionId, imageBytes));
+        } catch (OcrQueueFullException e) {
+            sessionManager.setSessionPending(sessionId);
+            throw e;
+        }
     }
 
     private void runWithFallback(String sessionId, byte[] imageBytes) {
+        try {
+            PlateResult r = recognize(sessionId, imageBytes);
+            sessionManager.updateSessionSuccess(sessionId, r.plate(), r.confidence());
+        } catch (InvalidInputException e) {
+            sessionManager.updateSessionError(sessionId, e.getMessage());
+        } catch (Throwable t) {
+            log.error("[OCR:{}] Erro no OpenALPR", sessionId, t);
+            sessionManager.updateSessionError(sessionId, "Erro interno no reconhecimento.");
+        }
+    }
+
+    @Override
+    public String name() {
+        return "openalpr";
+    }
+
+    @Override
+    public PlateResult recognize(String sessionId, byte[] imageBytes) throws IOException, InterruptedException {
         File tmp = null;
         try {
             tmp = Files.createTempFile("mottu-plate-", ".jpg").toFile();
@@ -64,88 +130,180 @@ public class OpenAlprService implements PlateRecognizer {
 
             // 1) tenta com a região configurada
             Result r = runOnce(sessionId, tmp, region);
-            if (r.ok() && r.normalizedPlate() != null) {
-                sessionManager.updateSessionSuccess(sessionId, r.normalizedPlate());
-                return;
-            }
 
             // 2) se foi erro típico de perfil ausente (ex.: br.xml), tenta 'eu'
-            if (needsEuFallback(r.stderrOrMixed())) {
+            if (!(r.ok() && r.normalizedPlate() != null) && needsEuFallback(r.stderrOrMixed())) {
                 log.warn("[OCR:{}] Região '{}' falhou. Tentando fallback 'eu'…", sessionId, region);
-                Result r2 = runOnce(sessionId, tmp, "eu");
-                if (r2.ok() && r2.normalizedPlate() != null) {
-                    sessionManager.updateSessionSuccess(sessionId, r2.normalizedPlate());
-                    return;
-                }
-                sessionManager.updateSessionError(sessionId, r2.messageForUser());
-                return;
+                r = runOnce(sessionId, tmp, "eu");
             }
 
-            // 3) sem fallback aplicável
-            sessionManager.updateSessionError(sessionId, r.messageForUser());
-
-        } catch (Throwable t) {
-            log.error("[OCR:{}] Erro no OpenALPR", sessionId, t);
-            sessionManager.updateSessionError(sessionId, "Erro interno no reconhecimento.");
+            if (r.ok() && r.normalizedPlate() != null) {
+                return new PlateResult(r.normalizedPlate(), r.confidence(), name(), r.registered());
+            }
+            throw new InvalidInputException(r.messageForUser());
         } finally {
             if (tmp != null) try { Files.deleteIfExists(tmp.toPath()); } catch (IOException ignored) {}
         }
     }
 
-    private Result runOnce(String sessionId, File imageFile, String cfgRegion) {
+    /** Interrupção não vira erro de leitura: sobe para quem cancelou (o worker alpr em uso é descartado). */
+    private Result runOnce(String sessionId, File imageFile, String cfgRegion) throws InterruptedException {
         try {
-            List<String> cmd = new ArrayList<>();
-            cmd.add(alprCommand);
-            cmd.add("-j");
-            cmd.add("-c"); cmd.add(cfgRegion);
-            cmd.add("-n"); cmd.add(String.valueOf(topN));
-            cmd.add(imageFile.getAbsolutePath());
+            return persistentWorkers
+                    ? runPooled(sessionId, imageFile, cfgRegion)
+                    : runProcess(sessionId, imageFile, cfgRegion);
+        } catch (IOException e) {
+            return Result.error("Falha ao executar o OpenALPR (" + cfgRegion + ").", e.toString());
+        }
+    }
 
-            log.info("[OCR:{}] Executando ({}): {}", sessionId, cfgRegion, String.join(" ", cmd));
+    /** Worker persistente: o parser lê direto da linha JSON devolvida pelo pool. */
+    private Result runPooled(String sessionId, File imageFile, String cfgRegion) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        AlprWorkerPool.Reply reply;
+        try {
+            reply = poolFor(cfgRegion).recognize(imageFile.toPath(), timeoutMs);
+        } catch (InterruptedException | RuntimeException e) {
+            metrics.record(sessionId, "engine", name(), cfgRegion, OcrMetrics.ERROR, System.nanoTime() - start);
+            throw e;
+        }
+        metrics.record(sessionId, "engine", name(), cfgRegion,
+                reply.ok() ? OcrMetrics.SUCCESS : reply.timedOut() ? "timeout" : OcrMetrics.ERROR,
+                System.nanoTime() - start);
 
-            ProcessBuilder pb = new ProcessBuilder(cmd);
-            pb.redirectErrorStream(true);
-            Process p = pb.start();
+        // diagnóstico assíncrono: a gravação fica com a thread ocr-diagnostics
+        diagnostics.alprOutput(sessionId, cfgRegion, reply.output(), reply.ok());
 
-            boolean finished = p.waitFor(timeoutMs, TimeUnit.MILLISECONDS);
+        if (reply.timedOut()) {
+            return Result.error("Timeout executando o OpenALPR (" + cfgRegion + ").", reply.output());
+        }
+        if (!reply.ok()) {
+            return Result.error("OpenALPR falhou (" + cfgRegion + ").", reply.output());
+        }
+        return parse(sessionId, cfgRegion, jsonFactory.createParser(reply.json()), reply.noise());
+    }
+
+    /**
+     * Modo legado: um processo alpr por imagem (usado com mottu.ocr.alpr.persistent-workers=false).
+     * Pula o ruído antes do JSON e entrega o próprio stdout do processo ao parser; a saída só é copiada
+     * quando a sessão está na amostra do diagnóstico.
+     */
+    private Result runProcess(String sessionId, File imageFile, String cfgRegion)
+            throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(alprCommand);
+        cmd.add("-j");
+        cmd.add("-c"); cmd.add(cfgRegion);
+        cmd.add("-n"); cmd.add(String.valueOf(topN));
+        cmd.add(imageFile.getAbsolutePath());
+
+        log.info("[OCR:{}] Executando ({}): {}", sessionId, cfgRegion, String.join(" ", cmd));
+
+        long start = System.nanoTime();
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectErrorStream(true);
+        Process p = pb.start();
+        try {
+            boolean finished;
+            try {
+                finished = p.waitFor(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                metrics.record(sessionId, "engine", name(), cfgRegion, OcrMetrics.ERROR, System.nanoTime() - start);
+                throw e;
+            }
             if (!finished) {
-                p.destroyForcibly();
-                return Result.error("Timeout executando o OpenALPR (" + cfgRegion + ").", null);
+                metrics.record(sessionId, "engine", name(), cfgRegion, "timeout", System.nanoTime() - start);
+                return Result.error("Timeout executando o OpenALPR (" + cfgRegion + ").", "");
             }
-
-            String mixedOut = readAll(p.getInputStream());
             int exit = p.exitValue();
-
-            // dump debug
-            dumpJsonDebug(mixedOut, cfgRegion);
-
-            if (exit != 0) {
-                return Result.error("OpenALPR retornou código " + exit + " (" + cfgRegion + ").", mixedOut);
+            metrics.record(sessionId, "engine", name(), cfgRegion,
+                    exit == 0 ? OcrMetrics.SUCCESS : OcrMetrics.ERROR, System.nanoTime() - start);
+
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+                StringBuilder noise = new StringBuilder();
+                boolean json = skipNoise(out, noise);
+                if (exit != 0 || !json) {
+                    String mixed = exit != 0
+                            ? "OpenALPR retornou código " + exit + "\n" + noise + out.lines().collect(Collectors.joining("\n"))
+                            : noise.toString();
+                    diagnostics.alprOutput(sessionId, cfgRegion, mixed, false);
+                    return exit != 0
+                            ? Result.error("OpenALPR falhou (" + cfgRegion + ").", mixed)
+                            : Result.error("Saída inválida do OpenALPR (" + cfgRegion + ").", mixed);
+                }
+                StringBuilder copy = diagnostics.sampled(sessionId) ? new StringBuilder() : null;
+                Reader source = copy == null ? out : new CopyingReader(out, copy);
+                Result result = parse(sessionId, cfgRegion, jsonFactory.createParser(source), noise.toString());
+                if (copy != null) diagnostics.alprOutput(sessionId, cfgRegion, noise.append(copy).toString(), true);
+                return result;
             }
+        } finally {
+            p.destroyForcibly(); // cancelado ou terminado: não deixa o alpr órfão
+        }
+    }
 
-            // corta somente o JSON (ignora ruídos antes/depois)
-            String json = extractJson(mixedOut);
-            if (json == null) {
-                return Result.error("Saída inválida do OpenALPR (" + cfgRegion + ").", mixedOut);
+    /**
+     * Avança {@code in} até a primeira linha que começa com '{', acumulando as anteriores em {@code noise}.
+     *
+     * @return false se a saída acabou sem JSON
+     */
+    private static boolean skipNoise(BufferedReader in, StringBuilder noise) throws IOException {
+        while (true) {
+            in.mark(1);
+            int c = in.read();
+            if (c < 0) return false;
+            if (c == '{') {
+                in.reset();
+                return true;
             }
-
-            Optional<String> best = pickBest(json);
-            if (best.isEmpty()) {
-                return Result.error("Nenhuma placa encontrada (" + cfgRegion + ").", json);
+            if (c == '\n') {
+                noise.append('\n');
+                continue;
             }
+            String rest = in.readLine();
+            noise.append((char) c).append(rest == null ? "" : rest).append('\n');
+        }
+    }
 
-            String normalized = PlateUtils.normalizeMercosul(best.get());
-            if (normalized == null || normalized.isBlank()) {
-                return Result.error("Falha ao normalizar a placa.", json);
-            }
+    /** Repassa a leitura e guarda uma cópia do que foi lido (só para o diagnóstico). */
+    private static final class CopyingReader extends FilterReader {
+        private final StringBuilder copy;
+
+        CopyingReader(Reader in, StringBuilder copy) {
+            super(in);
+            this.copy = copy;
+        }
 
-            return Result.success(normalized, mixedOut);
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) copy.append((char) c);
+            return c;
+        }
 
-        } catch (IOException | InterruptedException e) {
-            return Result.error("Falha ao executar o OpenALPR (" + cfgRegion + ").", e.toString());
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) copy.append(buf, off, n);
+            return n;
         }
     }
 
+    /** Escolhe a placa com o parser já posicionado no JSON; {@code noise} vai nas mensagens de erro. */
+    private Result parse(String sessionId, String cfgRegion, JsonParser parser, String noise) {
+        Optional<Candidate> best;
+        try (parser) {
+            best = pickBest(sessionId, cfgRegion, parser);
+        } catch (IOException e) {
+            log.warn("[OCR:{}] Saída do OpenALPR sem JSON válido ({}): {}", sessionId, cfgRegion, e.getMessage());
+            return Result.error("Saída inválida do OpenALPR (" + cfgRegion + ").", noise);
+        }
+        if (best.isEmpty()) {
+            return Result.error("Nenhuma placa encontrada (" + cfgRegion + ").", noise);
+        }
+        return Result.success(best.get().plate(), best.get().confidence(), best.get().registered(), noise);
+    }
+
     /** detecta mensagens clássicas de perfil ausente/ruído do opencv */
     private boolean needsEuFallback(String mixed) {
         if (mixed == null) return false;
@@ -154,74 +312,128 @@ public class OpenAlprService implements PlateRecognizer {
                 || s.contains("missing config for the country") || s.contains("br.xml");
     }
 
-    /** extrai apenas o JSON (do primeiro '{' ao último '}') */
-    private String extractJson(String mixed) {
-        if (mixed == null) return null;
-        int start = mixed.indexOf('{');
-        int end = mixed.lastIndexOf('}');
-        if (start < 0 || end < 0 || end <= start) return null;
-        return mixed.substring(start, end + 1);
-    }
-
-    private Optional<String> pickBest(String json) {
+    /**
+     * Lê o JSON do alpr em streaming (até o fim do objeto raiz, ignorando o que vier depois) e confere cada candidato do top-N, já normalizado, contra as placas cadastradas numa
+     * única passada. Vence o melhor candidato cadastrado; sem nenhum, o melhor acima de minConfidence.
+     *
+     * @throws IOException saída sem JSON ou JSON malformado
+     */
+    private Optional<Candidate> pickBest(String sessionId, String cfgRegion, JsonParser p) throws IOException {
+        long parseStart = System.nanoTime();
+        Selection sel = new Selection();
+        boolean failed = true;
         try {
-            JsonNode root = om.readTree(json);
-            JsonNode results = root.get("results");
-            if (results == null || !results.isArray() || results.isEmpty()) return Optional.empty();
-
-            double bestScore = -1.0;
-            String bestPlate = null;
-
-            for (JsonNode r : results) {
-                if (r.hasNonNull("plate") && r.hasNonNull("confidence")) {
-                    String p = r.get("plate").asText("");
-                    double c = r.get("confidence").asDouble(0.0);
-                    if (c >= minConfidence && c > bestScore) { bestScore = c; bestPlate = p; }
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("JSON sem objeto raiz");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if ("results".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_OBJECT) parseResult(p, sel);
+                } else {
+                    p.skipChildren();
                 }
-                JsonNode cs = r.get("candidates");
-                if (cs != null && cs.isArray()) {
-                    for (JsonNode cand : cs) {
-                        String p = cand.hasNonNull("plate") ? cand.get("plate").asText("") : "";
-                        double c = cand.hasNonNull("confidence") ? cand.get("confidence").asDouble(0.0) : 0.0;
-                        boolean matches = cand.hasNonNull("matches_template") && cand.get("matches_template").asInt(0) == 1;
-                        double score = c + (matches ? 2.0 : 0.0);
-                        if (c >= minConfidence && score > bestScore) { bestScore = score; bestPlate = p; }
+            }
+            failed = false;
+        } finally {
+            // JSON malformado (ou qualquer outra exceção) conta como ERROR nas duas etapas
+            long total = System.nanoTime() - parseStart;
+            metrics.record(sessionId, "normalize", name(), cfgRegion,
+                    failed ? OcrMetrics.ERROR : OcrMetrics.SUCCESS, sel.normalizeNanos);
+            metrics.record(sessionId, "parse", name(), cfgRegion,
+                    failed ? OcrMetrics.ERROR : sel.best() != null ? OcrMetrics.SUCCESS : "empty",
+                    total - sel.normalizeNanos);
+        }
+        Candidate best = sel.best();
+        if (best != null) {
+            log.info("[OCR:{}] {} candidato(s) do alpr ({}); escolhido {} (confiança {}, cadastrada: {}).",
+                    sessionId, sel.offered, cfgRegion, best.plate(), best.confidence(),
+                    placasCadastradas.isLoaded() ? best.registered() : "cadastro indisponível");
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /** Um item de "results": a leitura principal e os candidatos do top-N. */
+    private void parseResult(JsonParser p, Selection sel) throws IOException {
+        String plate = null;
+        double confidence = 0.0;
+        boolean matches = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "plate" -> plate = p.getValueAsString();
+                case "confidence" -> confidence = p.getValueAsDouble(0.0);
+                case "matches_template" -> matches = p.getValueAsInt(0) == 1;
+                case "candidates" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        while (p.nextToken() == JsonToken.START_OBJECT) parseCandidate(p, sel);
+                    } else {
+                        p.skipChildren();
                     }
                 }
+                default -> p.skipChildren();
             }
-            return Optional.ofNullable(bestPlate);
-        } catch (IOException e) {
-            log.warn("Falha ao parsear JSON do OpenALPR", e);
-            return Optional.empty();
         }
+        if (plate != null) sel.offer(plate, confidence, matches);
     }
 
-    private void dumpJsonDebug(String mixedOut, String cfgRegion) {
-        try {
-            Path dir = Path.of(debugOutputDir);
-            Files.createDirectories(dir);
-            Files.writeString(dir.resolve("ultima-saida-alpr-cfg-" + cfgRegion + ".json"), mixedOut);
-            String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
-            Files.writeString(dir.resolve("saida-" + cfgRegion + "-" + ts + ".json"), mixedOut);
-        } catch (IOException e) {
-            log.debug("Não foi possível salvar JSON de debug: {}", e.toString());
+    private void parseCandidate(JsonParser p, Selection sel) throws IOException {
+        String plate = null;
+        double confidence = 0.0;
+        boolean matches = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "plate" -> plate = p.getValueAsString();
+                case "confidence" -> confidence = p.getValueAsDouble(0.0);
+                case "matches_template" -> matches = p.getValueAsInt(0) == 1;
+                default -> p.skipChildren();
+            }
         }
+        if (plate != null) sel.offer(plate, confidence, matches);
     }
 
-    private static String readAll(InputStream in) throws IOException {
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
-            StringBuilder sb = new StringBuilder();
-            String s;
-            while ((s = br.readLine()) != null) sb.append(s).append('\n');
-            return sb.toString();
+    /** Acumula o melhor candidato geral e o melhor que consta no cadastro durante o parse. */
+    private final class Selection {
+        Candidate bestAny;
+        double bestAnyScore = -1.0;
+        Candidate bestRegistered;
+        double bestRegisteredScore = -1.0;
+        long normalizeNanos;
+        int offered;
+
+        void offer(String raw, double confidence, boolean matchesTemplate) {
+            offered++;
+            long t = System.nanoTime();
+            String normalized = PlateUtils.normalizeMercosul(raw);
+            normalizeNanos += System.nanoTime() - t;
+            if (normalized.isBlank()) return;
+            double score = confidence + (matchesTemplate ? 2.0 : 0.0);
+            boolean registered = placasCadastradas.contains(normalized);
+            if (registered && confidence >= registeredMinConfidence && score > bestRegisteredScore) {
+                bestRegisteredScore = score;
+                bestRegistered = new Candidate(normalized, confidence, true);
+            }
+            if (confidence >= minConfidence && score > bestAnyScore) {
+                bestAnyScore = score;
+                bestAny = new Candidate(normalized, confidence, registered);
+            }
+        }
+
+        Candidate best() {
+            return bestRegistered != null ? bestRegistered : bestAny;
         }
     }
 
     // ---------------- Result helper ----------------
-    /** record privado; accessors públicos gerados automaticamente (ok(), normalizedPlate(), stderrOrMixed(), userMsg()) */
-    private record Result(boolean ok, String normalizedPlate, String stderrOrMixed, String userMsg) {
-        static Result success(String plate, String mixed) { return new Result(true, plate, mixed, null); }
-        static Result error(String msg, String mixed)    { return new Result(false, null, mixed, msg); }
+    /** Placa já normalizada, confiança do alpr e se consta no cadastro. */
+    private record Candidate(String plate, double confidence, boolean registered) {}
+
+    /** record privado; accessors públicos gerados automaticamente (ok(), normalizedPlate(), confidence(), registered(), stderrOrMixed(), userMsg()) */
+    private record Result(boolean ok, String normalizedPlate, Double confidence, boolean registered, String stderrOrMixed, String userMsg) {
+        static Result success(String plate, double confidence, boolean registered, String mixed) { return new Result(true, plate, confidence, registered, mixed, null); }
+        static Result error(String msg, String mixed)    { return new Result(false, null, null, false, mixed, msg); }
         String messageForUser() { return userMsg != null ? userMsg : "Falha no reconhecimento."; }
     }
 }
@@ -0,0 +1,22 @@
+package br.com.fiap.mottu.service.ocr;
+
+/**
+ * Motor de reconhecimento síncrono, usado pelo {@link HedgedPlateRecognizer} para disputar
+ * a mesma imagem entre engines. Diferente de {@link PlateRecognizer}, não mexe na sessão:
+ * só devolve a leitura ou lança a falha.
+ * A execução deve responder à interrupção da thread (o perdedor da disputa é cancelado).
+ */
+public interface PlateEngine {
+
+    /** Nome curto do motor, usado em logs e como tag das métricas. */
+    String name();
+
+    /**
+     * Reconhece a placa da imagem, bloqueando até terminar.
+     *
+     * @return placa normalizada com a confiança (0..100) do motor
+     * @throws br.com.fiap.mottu.exception.InvalidInputException quando nenhuma placa válida é lida (mensagem para o usuário)
+     * @throws InterruptedException se a thread for interrompida (disputa já decidida)
+     */
+    PlateResult recognize(String sessionId, byte[] imageBytes) throws Exception;
+}
@@ -0,0 +1,221 @@
+package br.com.fiap.mottu.service.ocr;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache de reconhecimentos já feitos.
+ * Chave exata: SHA-256 dos bytes (mesma foto reenviada), consultada na requisição antes de enfileirar o OCR.
+ * Chave aproximada: dHash de 256 bits da imagem reduzida (quadros quase idênticos de um burst), comparado
+ * por distância de Hamming. Ela é calculada no worker de OCR, sobre a imagem cinza que ele já decodificou
+ * ({@link #similar}), para a thread da requisição não decodificar a imagem uma segunda vez.
+ * O resultado entra no cache quando a sessão que processou a imagem termina em COMPLETED.
+ * <p>
+ * Numa portaria fixa, motos diferentes dão quadros inteiros quase iguais; por isso a chave aproximada
+ * só vale dentro de um burst: mesma origem (câmera, ou a sessão) e a até {@code mottu.ocr.cache.similar-window}
+ * do quadro reconhecido. Fora disso, só a imagem idêntica reaproveita a placa.
+ */
+@Component
+public class PlateRecognitionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PlateRecognitionCache.class);
+    private static final WorkerMats HASH_BUFFER = new WorkerMats();
+    private static final int HASH_SIDE = 16;
+
+    /**
+     * Impressão digital da imagem: hash de conteúdo + hash perceptual (null até o worker decodificar a imagem),
+     * a origem do quadro e quando ele chegou.
+     */
+    public record Fingerprint(String contentHash, long[] perceptualHash, String source, long takenAtNanos) {}
+
+    public record Hit(String plate, Double confidence, boolean exact) {}
+
+    private record Entry(String plate, Double confidence, long[] perceptualHash, String source,
+                         long takenAtNanos, long expiresAtNanos) {}
+
+    @Value("${mottu.ocr.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mottu.ocr.cache.max-entries:1024}")
+    private int maxEntries;
+
+    @Value("${mottu.ocr.cache.ttl:PT10M}")
+    private Duration ttl;
+
+    /** Bits diferentes (de 256) aceitos para considerar a imagem "a mesma"; 0 desliga a busca aproximada. */
+    @Value("${mottu.ocr.cache.similar-max-distance:6}")
+    private int similarMaxDistance;
+
+    /** Quanto depois de um quadro reconhecido outro da mesma origem ainda conta como o mesmo burst. */
+    @Value("${mottu.ocr.cache.similar-window:PT3S}")
+    private Duration similarWindow;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Fingerprint> pending = new ConcurrentHashMap<>();
+
+    private final Counter exactHits;
+    private final Counter similarHits;
+    private final Counter misses;
+
+    public PlateRecognitionCache(MeterRegistry meterRegistry) {
+        this.exactHits = meterRegistry.counter("mottu.ocr.cache.requests", "result", "hit-exact");
+        this.similarHits = meterRegistry.counter("mottu.ocr.cache.requests", "result", "hit-similar");
+        // "miss" conta as requisições sem imagem idêntica; parte delas vira "hit-similar" já no worker
+        this.misses = meterRegistry.counter("mottu.ocr.cache.requests", "result", "miss");
+        Gauge.builder("mottu.ocr.cache.size", this, PlateRecognitionCache::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Só o SHA-256 dos bytes: barato o bastante para a thread da requisição. O hash perceptual fica para
+     * o worker ({@link #similar}).
+     *
+     * @param source origem do quadro (câmera; na falta, a sessão): a busca aproximada só compara quadros
+     *               da mesma origem
+     */
+    public Fingerprint fingerprint(byte[] imageBytes, String source) {
+        return new Fingerprint(sha256(imageBytes), null, source, System.nanoTime());
+    }
+
+    /** Procura a imagem idêntica. */
+    public Optional<Hit> lookup(Fingerprint fp) {
+        if (!enabled) return Optional.empty();
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry exact = entries.get(fp.contentHash());
+            if (exact != null && now - exact.expiresAtNanos() < 0) {
+                exactHits.increment();
+                return Optional.of(new Hit(exact.plate(), exact.confidence(), true));
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Chamado pelo worker de OCR com a imagem cinza que ele já decodificou: calcula o dHash, guarda-o na
+     * impressão digital da sessão (para o resultado entrar no cache com a chave aproximada) e procura, no
+     * mesmo burst, o quadro reconhecido mais parecido dentro do limite. Não libera {@code gray}.
+     *
+     * @return a leitura reaproveitável, ou vazio se a sessão não foi registrada com {@link #track}
+     */
+    public Optional<Hit> similar(String sessionId, Mat gray) {
+        if (!enabled || similarMaxDistance <= 0 || gray == null || gray.empty()) return Optional.empty();
+        Fingerprint tracked = pending.get(sessionId);
+        if (tracked == null || tracked.source() == null) return Optional.empty();
+        long[] hash = dHash(gray);
+        if (hash == null) return Optional.empty();
+        Fingerprint fp = new Fingerprint(tracked.contentHash(), hash, tracked.source(), tracked.takenAtNanos());
+        pending.replace(sessionId, tracked, fp);
+
+        long now = System.nanoTime();
+        Entry best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        synchronized (entries) {
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                Entry e = it.next();
+                if (now - e.expiresAtNanos() >= 0) { it.remove(); continue; }
+                if (e.perceptualHash() == null || !fp.source().equals(e.source())) continue;
+                long age = fp.takenAtNanos() - e.takenAtNanos();
+                if (age < 0 || age > similarWindow.toNanos()) continue;
+                int d = hamming(e.perceptualHash(), hash);
+                if (d <= similarMaxDistance && d < bestDistance) { best = e; bestDistance = d; }
+            }
+        }
+        if (best == null) return Optional.empty();
+        similarHits.increment();
+        return Optional.of(new Hit(best.plate(), best.confidence(), false));
+    }
+
+    /** Associa a imagem à sessão; quando a sessão concluir, o resultado entra no cache. */
+    public void track(String sessionId, Fingerprint fp) {
+        if (enabled) pending.put(sessionId, fp);
+    }
+
+    @EventListener
+    public void onSessionEvent(OcrSessionEvent event) {
+        if (!event.terminal()) return;
+        Fingerprint fp = pending.remove(event.session().getId());
+        if (fp == null || event.expired() || event.session().getStatus() != OcrSession.Status.COMPLETED) return;
+        put(fp, event.session().getRecognizedPlate(), event.session().getConfidence());
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void put(Fingerprint fp, String plate, Double confidence) {
+        if (plate == null || plate.isBlank()) return;
+        Entry entry = new Entry(plate, confidence, fp.perceptualHash(), fp.source(), fp.takenAtNanos(),
+                System.nanoTime() + ttl.toNanos());
+        synchronized (entries) {
+            entries.put(fp.contentHash(), entry);
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * dHash 16x16: reduz a imagem cinza, compara cada pixel com o vizinho da direita e gera 256 bits.
+     * Retorna null se o OpenCV falhar: fica só a chave exata.
+     */
+    private static long[] dHash(Mat gray) {
+        Mat small = HASH_BUFFER.get();
+        try {
+            Imgproc.resize(gray, small, new Size(HASH_SIDE + 1, HASH_SIDE), 0, 0, Imgproc.INTER_AREA);
+            byte[] px = new byte[(HASH_SIDE + 1) * HASH_SIDE];
+            small.get(0, 0, px);
+            long[] hash = new long[HASH_SIDE * HASH_SIDE / 64];
+            int bit = 0;
+            for (int y = 0; y < HASH_SIDE; y++) {
+                int row = y * (HASH_SIDE + 1);
+                for (int x = 0; x < HASH_SIDE; x++, bit++) {
+                    if ((px[row + x] & 0xFF) > (px[row + x + 1] & 0xFF)) {
+                        hash[bit >>> 6] |= 1L << (bit & 63);
+                    }
+                }
+            }
+            return hash;
+        } catch (RuntimeException t) {
+            log.debug("Não foi possível calcular o hash perceptual: {}", t.toString());
+            return null;
+        }
+    }
+
+    private static int hamming(long[] a, long[] b) {
+        int d = 0;
+        for (int i = 0; i < a.length; i++) d += Long.bitCount(a[i] ^ b[i]);
+        return d;
+    }
+}
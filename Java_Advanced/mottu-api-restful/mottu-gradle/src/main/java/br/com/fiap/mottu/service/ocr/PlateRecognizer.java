@@ -5,7 +5,7 @@ package br.com.fiap.mottu.service.ocr;
  * Implementações devem:
  *  - Marcar a sessão como PROCESSING ao iniciar
  *  - Atualizar a sessão com COMPLETED + plate OU ERROR + mensagem
- *  - Executar o processamento de forma assíncrona (não bloquear o controller)
+ *  - Executar o processamento de forma assíncrona no {@link OcrExecutor} (não bloquear o controller)
  */
 public interface PlateRecognizer {
 
@@ -15,6 +15,7 @@ public interface PlateRecognizer {
      *
      * @param sessionId  ID da sessão (gerenciado por OcrSessionManager)
      * @param imageBytes bytes da imagem enviada (JPEG/PNG, etc.)
+     * @throws br.com.fiap.mottu.exception.OcrQueueFullException se a fila de OCR estiver cheia
      */
     void extractPlate(String sessionId, byte[] imageBytes);
 }
@@ -0,0 +1,12 @@
+package br.com.fiap.mottu.service.ocr;
+
+/**
+ * Leitura de um {@link PlateEngine}: placa normalizada, confiança (0..100), o motor que a produziu
+ * e se a placa foi conferida contra o cadastro (o motor já aplicou o seu próprio piso de confiança).
+ */
+public record PlateResult(String plate, Double confidence, String engine, boolean registered) {
+
+    public PlateResult(String plate, Double confidence, String engine) {
+        this(plate, confidence, engine, false);
+    }
+}
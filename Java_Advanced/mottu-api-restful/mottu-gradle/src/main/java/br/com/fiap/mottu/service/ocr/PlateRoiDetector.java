@@ -0,0 +1,225 @@
+package br.com.fiap.mottu.service.ocr;
+
+import br.com.fiap.mottu.config.OpenCvLoader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.opencv.core.*;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.objdetect.CascadeClassifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Localiza retângulos candidatos a placa com o Haar cascade empacotado
+ * ({@code classifiers/haarcascade_russian_plate_number.xml}) para que o OCR rode só no recorte,
+ * e não na foto inteira. A detecção roda numa cópia reduzida; os recortes saem da imagem original,
+ * com margem, alinhados (deskew) e ampliados quando muito pequenos.
+ */
+@Component
+public class PlateRoiDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(PlateRoiDetector.class);
+    private static final String CASCADE_RESOURCE = "/classifiers/haarcascade_russian_plate_number.xml";
+
+    @Value("${mottu.ocr.roi.enabled:true}")
+    private boolean enabled;
+
+    /** Cascade externo (arquivo); vazio = o XML empacotado no classpath. */
+    @Value("${mottu.ocr.roi.cascade-path:}")
+    private String cascadePath;
+
+    /** Largura da cópia usada na detecção; fotos maiores são reduzidas antes do detectMultiScale. */
+    @Value("${mottu.ocr.roi.detection-width:800}")
+    private int detectionWidth;
+
+    @Value("${mottu.ocr.roi.max-candidates:3}")
+    private int maxCandidates;
+
+    @Value("${mottu.ocr.roi.min-neighbors:3}")
+    private int minNeighbors;
+
+    /** Altura mínima do recorte entregue ao OCR; recortes menores são ampliados. */
+    @Value("${mottu.ocr.roi.min-ocr-height:96}")
+    private int minOcrHeight;
+
+    /** Inclinações acima disso são tratadas como ruído do minAreaRect e não são corrigidas. */
+    private static final double MAX_DESKEW_DEGREES = 20.0;
+    private static final double MIN_DESKEW_DEGREES = 1.0;
+
+    /** Buffers de trabalho por thread (imagem reduzida da detecção e máscaras do deskew). */
+    private static final WorkerMats DETECTION_BUFFER = new WorkerMats();
+    private static final WorkerMats DESKEW_BIN_BUFFER = new WorkerMats();
+    private static final WorkerMats DESKEW_POINTS_BUFFER = new WorkerMats();
+
+    private Path cascadeFile;
+    /** CascadeClassifier não é thread-safe: uma instância por worker de OCR. */
+    private ThreadLocal<CascadeClassifier> classifier;
+
+    public PlateRoiDetector(OpenCvLoader openCvLoader) {
+        // dependência só para garantir que os nativos do OpenCV já foram carregados
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Detecção de ROI de placa desativada (mottu.ocr.roi.enabled=false).");
+            return;
+        }
+        try {
+            String path = cascadePath != null && !cascadePath.isBlank() ? cascadePath : extractBundledCascade();
+            if (path == null) {
+                log.warn("Cascade de placas não encontrado no classpath: {}", CASCADE_RESOURCE);
+                enabled = false;
+                return;
+            }
+            CascadeClassifier probe = new CascadeClassifier(path);
+            if (probe.empty()) {
+                log.warn("Cascade de placas inválido ou incompleto ({}); o OCR usará a imagem inteira. "
+                        + "Aponte 'mottu.ocr.roi.cascade-path' para o XML completo do OpenCV.", path);
+                enabled = false;
+                return;
+            }
+            classifier = ThreadLocal.withInitial(() -> new CascadeClassifier(path));
+            log.info("Detector de ROI de placa pronto (cascade {}).", path);
+        } catch (IOException | UnsatisfiedLinkError e) {
+            log.warn("Detector de ROI de placa indisponível; o OCR usará a imagem inteira. ({})", e.toString());
+            enabled = false;
+        }
+    }
+
+    /** O CascadeClassifier só carrega de arquivo: copia o XML do classpath para um temporário. */
+    private String extractBundledCascade() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(CASCADE_RESOURCE)) {
+            if (in == null) return null;
+            cascadeFile = Files.createTempFile("mottu-plate-cascade-", ".xml");
+            Files.copy(in, cascadeFile, StandardCopyOption.REPLACE_EXISTING);
+            return cascadeFile.toString();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (cascadeFile != null) {
+            try {
+                Files.deleteIfExists(cascadeFile);
+            } catch (IOException ignored) {
+                // arquivo temporário; o SO limpa depois
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Detecta as placas na imagem em tons de cinza e devolve os recortes (maior área primeiro),
+     * já prontos para o OCR. Lista vazia quando nada é encontrado. Quem chama libera os Mats.
+     */
+    public List<Mat> detect(Mat gray) {
+        List<Mat> crops = new ArrayList<>();
+        if (!enabled || gray.empty()) return crops;
+        try {
+            for (Rect r : locate(gray)) {
+                crops.add(cropForOcr(gray, r));
+            }
+        } catch (RuntimeException e) {
+            crops.forEach(Mat::release);
+            crops.clear();
+            log.warn("Falha na detecção de ROI de placa: {}", e.toString());
+        }
+        return crops;
+    }
+
+    /** Só verifica se há alguma placa na imagem, sem recortar (triagem barata de quadros). */
+    public boolean containsPlate(Mat gray) {
+        if (!enabled || gray.empty()) return false;
+        try {
+            return !locate(gray).isEmpty();
+        } catch (RuntimeException e) {
+            log.warn("Falha na detecção de ROI de placa: {}", e.toString());
+            return false;
+        }
+    }
+
+    /** Retângulos candidatos (maior área primeiro) já na escala da imagem original, com margem. */
+    private List<Rect> locate(Mat gray) {
+        double scale = gray.cols() > detectionWidth ? (double) detectionWidth / gray.cols() : 1.0;
+        Mat small = DETECTION_BUFFER.get();
+        try (MatScope scope = new MatScope()) {
+            MatOfRect found = scope.add(new MatOfRect());
+            if (scale < 1.0) {
+                Imgproc.resize(gray, small, new Size(), scale, scale, Imgproc.INTER_AREA);
+            } else {
+                gray.copyTo(small);
+            }
+            Imgproc.equalizeHist(small, small);
+            Size minSize = new Size(Math.max(24, small.cols() / 20.0), Math.max(8, small.cols() / 80.0));
+            classifier.get().detectMultiScale(small, found, 1.1, minNeighbors, 0, minSize, new Size());
+
+            List<Rect> rects = new ArrayList<>(found.toList());
+            rects.sort(Comparator.comparingDouble(Rect::area).reversed());
+            List<Rect> out = new ArrayList<>();
+            for (Rect r : rects.subList(0, Math.min(maxCandidates, rects.size()))) {
+                out.add(toOriginal(r, scale, gray.size()));
+            }
+            return out;
+        }
+    }
+
+    /** Volta o retângulo para a escala original e acrescenta margem (a cascade corta rente aos caracteres). */
+    private static Rect toOriginal(Rect r, double scale, Size bounds) {
+        double padX = r.width * 0.08, padY = r.height * 0.15;
+        int x = (int) Math.max(0, Math.floor((r.x - padX) / scale));
+        int y = (int) Math.max(0, Math.floor((r.y - padY) / scale));
+        int x2 = (int) Math.min(bounds.width, Math.ceil((r.x + r.width + padX) / scale));
+        int y2 = (int) Math.min(bounds.height, Math.ceil((r.y + r.height + padY) / scale));
+        return new Rect(x, y, x2 - x, y2 - y);
+    }
+
+    /** Recorta (cópia contínua, independente da imagem original), corrige a inclinação e amplia se preciso. */
+    private Mat cropForOcr(Mat gray, Rect roi) {
+        try (MatScope scope = new MatScope()) {
+            Mat crop = scope.add(scope.add(gray.submat(roi)).clone());
+            deskewInPlace(crop);
+            if (crop.rows() < minOcrHeight) {
+                double f = (double) minOcrHeight / crop.rows();
+                Imgproc.resize(crop, crop, new Size(), f, f, Imgproc.INTER_CUBIC);
+            }
+            return scope.detach(crop);
+        }
+    }
+
+    /**
+     * Estima a inclinação pelo menor retângulo que envolve os pixels escuros (Otsu invertido)
+     * e gira o recorte para deixar os caracteres na horizontal.
+     */
+    private static void deskewInPlace(Mat crop) {
+        Mat bin = DESKEW_BIN_BUFFER.get();
+        Mat points = DESKEW_POINTS_BUFFER.get();
+        try (MatScope scope = new MatScope()) {
+            MatOfPoint2f points2f = scope.add(new MatOfPoint2f());
+            Imgproc.threshold(crop, bin, 0, 255, Imgproc.THRESH_BINARY_INV | Imgproc.THRESH_OTSU);
+            Core.findNonZero(bin, points);
+            if (points.rows() < 20) return;
+            points.convertTo(points2f, CvType.CV_32FC2);
+            double angle = Imgproc.minAreaRect(points2f).angle;
+            if (angle > 45) angle -= 90;
+            if (Math.abs(angle) < MIN_DESKEW_DEGREES || Math.abs(angle) > MAX_DESKEW_DEGREES) return;
+            Mat rotation = scope.add(
+                    Imgproc.getRotationMatrix2D(new Point(crop.cols() / 2.0, crop.rows() / 2.0), angle, 1.0));
+            Imgproc.warpAffine(crop, crop, rotation, crop.size(), Imgproc.INTER_LINEAR, Core.BORDER_REPLICATE);
+        }
+    }
+}
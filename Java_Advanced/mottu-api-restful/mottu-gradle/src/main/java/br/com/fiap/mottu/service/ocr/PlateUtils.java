@@ -2,7 +2,6 @@ package br.com.fiap.mottu.service.ocr;
 
 import java.text.Normalizer;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Objects;
 
 /**
@@ -11,14 +10,22 @@ import java.util.Objects;
  */
 public final class PlateUtils {
 
+    /** Linhas da matriz de distância, reaproveitadas por thread (placas são curtas; cresce se precisar). */
+    private static final ThreadLocal<int[][]> DISTANCE_ROWS = ThreadLocal.withInitial(() -> new int[2][16]);
+
     private PlateUtils() {}
 
-    /** Remove acentos, espaços, traços e qualquer caractere não [A-Za-z0-9], e coloca em UPPERCASE. */
+    /**
+     * Remove acentos, espaços, traços e qualquer caractere não [A-Za-z0-9], e coloca em UPPERCASE.
+     * Mesmo resultado de NFD + remoção das marcas + filtro [A-Za-z0-9], sem regex: o texto já limpo
+     * volta sem cópia e só caracteres fora do ASCII passam pelo {@link Normalizer}.
+     */
     public static String cleanRaw(String s) {
         if (s == null) return "";
-        String nfd = Normalizer.normalize(s, Normalizer.Form.NFD);
-        String noMarks = nfd.replaceAll("\\p{M}", "");
-        return noMarks.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
+        if (isClean(s)) return s;
+        char[] buf = new char[s.length()];
+        int n = clean(s, buf, buf.length);
+        return new String(buf, 0, n);
     }
 
     /**
@@ -26,10 +33,11 @@ public final class PlateUtils {
      * Faz mapeamento heurístico letra↔número por posição para corrigir confusões comuns do OCR.
      */
     public static String normalizeMercosul(String raw) {
-        String s = cleanRaw(raw);
-        if (s.length() < 7) return s; // retorna o que tiver; o chamador decide se aceita
+        if (raw == null) return "";
+        char[] a = new char[7]; // só os 7 primeiros caracteres limpos importam
+        int n = clean(raw, a, a.length);
+        if (n < 7) return new String(a, 0, n); // retorna o que tiver; o chamador decide se aceita
 
-        char[] a = s.toCharArray();
         // Posições: 0..2 (letras), 3 (número), 4 (letra), 5..6 (números)
         fixAsLetter(a, 0);
         fixAsLetter(a, 1);
@@ -38,9 +46,44 @@ public final class PlateUtils {
         fixAsLetter(a, 4);
         fixAsDigit(a, 5);
         fixAsDigit(a, 6);
+        return new String(a);
+    }
 
-        String out = new String(a);
-        return out.substring(0, 7);
+    private static boolean isClean(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < '0' || c > '9')) return false;
+        }
+        return true;
+    }
+
+    /** Copia para {@code dst} até {@code limit} caracteres [A-Z0-9] de {@code s} (sem acento, em maiúsculas); devolve quantos. */
+    private static int clean(String s, char[] dst, int limit) {
+        int n = 0;
+        for (int i = 0; i < s.length() && n < limit; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                char u = upperAlnum(c);
+                if (u != 0) dst[n++] = u;
+                continue;
+            }
+            // fora do ASCII só a decomposição canônica pode render [A-Za-z0-9] ("É" -> "E" + acento)
+            int cp = s.codePointAt(i);
+            i += Character.charCount(cp) - 1;
+            String nfd = Normalizer.normalize(Character.toString(cp), Normalizer.Form.NFD);
+            for (int j = 0; j < nfd.length() && n < limit; j++) {
+                char d = nfd.charAt(j);
+                char u = d < 0x80 ? upperAlnum(d) : 0;
+                if (u != 0) dst[n++] = u;
+            }
+        }
+        return n;
+    }
+
+    private static char upperAlnum(char c) {
+        if (c >= 'a' && c <= 'z') return (char) (c - ('a' - 'A'));
+        if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) return c;
+        return 0;
     }
 
     private static void fixAsLetter(char[] a, int i) {
@@ -85,36 +128,72 @@ public final class PlateUtils {
         if (Objects.equals(a, b)) return 0;
         if (a == null || a.isEmpty()) return b == null ? 0 : b.length();
         if (b == null || b.isEmpty()) return a.length();
+        return distance(a, b, Math.max(a.length(), b.length()));
+    }
+
+    /**
+     * Distância limitada: o valor exato quando for até {@code max}, senão {@code max + 1}.
+     * Desiste cedo (tamanhos muito diferentes ou uma linha inteira acima do limite), o que é o caso
+     * comum ao comparar uma leitura com o cadastro inteiro.
+     */
+    public static int levenshtein(String a, String b, int max) {
+        if (max < 0) throw new IllegalArgumentException("max < 0");
+        if (a == null || a.isEmpty() || b == null || b.isEmpty()) {
+            int d = levenshtein(a, b);
+            return d > max ? max + 1 : d;
+        }
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        if (a.equals(b)) return 0;
+        return distance(a, b, Math.min(max, Math.max(a.length(), b.length())));
+    }
 
-        int[] prev = new int[b.length() + 1];
-        int[] curr = new int[b.length() + 1];
+    /** Núcleo com as duas linhas da thread; devolve {@code max + 1} assim que a linha toda passa de {@code max}. */
+    private static int distance(String a, String b, int max) {
+        int n = b.length();
+        int[][] rows = DISTANCE_ROWS.get();
+        if (rows[0].length <= n) {
+            rows = new int[2][n + 1];
+            DISTANCE_ROWS.set(rows);
+        }
+        int[] prev = rows[0];
+        int[] curr = rows[1];
 
-        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int j = 0; j <= n; j++) prev[j] = j;
 
         for (int i = 1; i <= a.length(); i++) {
             curr[0] = i;
+            int rowMin = i;
             char ca = a.charAt(i - 1);
-            for (int j = 1; j <= b.length(); j++) {
+            for (int j = 1; j <= n; j++) {
                 int cost = (ca == b.charAt(j - 1)) ? 0 : 1;
-                curr[j] = Math.min(
-                        Math.min(curr[j - 1] + 1, prev[j] + 1),
-                        prev[j - 1] + cost
-                );
+                int v = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                curr[j] = v;
+                if (v < rowMin) rowMin = v;
             }
+            if (rowMin > max) return max + 1;
             int[] tmp = prev; prev = curr; curr = tmp;
         }
-        return prev[b.length()];
+        return Math.min(prev[n], max + 1);
     }
 
     /**
-     * Retorna o melhor match (menor distância) até maxDistance ou null.
+     * Retorna o melhor match (menor distância) até maxDistance ou null; no empate, o primeiro da coleção.
      * A coleção pode ser a lista de placas do repositório já normalizadas.
+     * O limite da distância aperta a cada candidato melhor, então a maioria das placas é descartada
+     * nas primeiras linhas da matriz.
      */
     public static String bestCandidate(Collection<String> knownPlates, String candidate, int maxDistance) {
-        if (candidate == null) return null;
-        return knownPlates.stream()
-                .min(Comparator.comparingInt(p -> levenshtein(p, candidate)))
-                .filter(best -> levenshtein(best, candidate) <= maxDistance)
-                .orElse(null);
+        if (candidate == null || maxDistance < 0) return null;
+        String best = null;
+        int bound = maxDistance; // distância máxima que ainda melhora o resultado
+        for (String plate : knownPlates) {
+            int d = levenshtein(plate, candidate, bound);
+            if (d <= bound) {
+                best = plate;
+                if (d == 0) break;
+                bound = d - 1;
+            }
+        }
+        return best;
     }
 }
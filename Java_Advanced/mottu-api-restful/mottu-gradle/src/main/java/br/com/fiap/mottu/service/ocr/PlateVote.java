@@ -0,0 +1,82 @@
+package br.com.fiap.mottu.service.ocr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Votação caractere a caractere entre leituras de vários quadros da mesma placa.
+ * Cada leitura de 7 caracteres vota em cada posição com peso igual à sua confiança;
+ * o consenso é o caractere mais votado por posição. Na fusão, leituras que concordam se reforçam
+ * (1 - produto das chances de erro de cada uma) e a divergência desconta na proporção do peso
+ * contrário; a confiança da placa é a da posição mais fraca.
+ * Empate de peso numa posição: vence o caractere com a maior confiança num quadro só, depois o lido
+ * em mais quadros, depois o menor (a ordem do mapa não decide).
+ * Não é thread-safe: quem usa sincroniza.
+ */
+class PlateVote {
+
+    static final int PLATE_LENGTH = 7;
+
+    /** Placa de consenso, confiança fundida (0..100) e quantas leituras concordam com ela inteira. */
+    record Consensus(String plate, double confidence, int agreeingFrames, int frames) {}
+
+    /** Por posição: caractere -> {soma das confianças, produto das chances de erro, maior confiança, leituras}. */
+    @SuppressWarnings("unchecked")
+    private final Map<Character, double[]>[] votes = new Map[PLATE_LENGTH];
+    private final Map<String, Integer> exactReads = new HashMap<>();
+    private double totalWeight;
+    private int frames;
+
+    PlateVote() {
+        for (int i = 0; i < PLATE_LENGTH; i++) votes[i] = new HashMap<>();
+    }
+
+    /** Registra uma leitura; ignora as que não têm 7 caracteres. */
+    boolean add(String plate, double confidence) {
+        if (plate == null || plate.length() != PLATE_LENGTH) return false;
+        double w = Math.max(1.0, Math.min(100.0, confidence)); // leitura sem confiança ainda vale um voto
+        double miss = 1.0 - Math.min(99.0, w) / 100.0;
+        for (int i = 0; i < PLATE_LENGTH; i++) {
+            double[] v = votes[i].computeIfAbsent(plate.charAt(i), c -> new double[]{0.0, 1.0, 0.0, 0.0});
+            v[0] += w;
+            v[1] *= miss;
+            v[2] = Math.max(v[2], w);
+            v[3]++;
+        }
+        exactReads.merge(plate, 1, Integer::sum);
+        totalWeight += w;
+        frames++;
+        return true;
+    }
+
+    int frames() {
+        return frames;
+    }
+
+    Consensus consensus() {
+        if (frames == 0) return null;
+        char[] plate = new char[PLATE_LENGTH];
+        double confidence = 100.0;
+        for (int i = 0; i < PLATE_LENGTH; i++) {
+            Map.Entry<Character, double[]> best = null;
+            for (Map.Entry<Character, double[]> e : votes[i].entrySet()) {
+                if (best == null || beats(e, best)) best = e;
+            }
+            plate[i] = best.getKey();
+            double agreement = best.getValue()[0] / totalWeight;
+            double position = 100.0 * (1.0 - best.getValue()[1]) * agreement;
+            confidence = Math.min(confidence, position);
+        }
+        String p = new String(plate);
+        return new Consensus(p, confidence, exactReads.getOrDefault(p, 0), frames);
+    }
+
+    private static boolean beats(Map.Entry<Character, double[]> a, Map.Entry<Character, double[]> b) {
+        double[] va = a.getValue();
+        double[] vb = b.getValue();
+        int c = Double.compare(va[0], vb[0]);
+        if (c == 0) c = Double.compare(va[2], vb[2]);
+        if (c == 0) c = Double.compare(va[3], vb[3]);
+        return c != 0 ? c > 0 : a.getKey() < b.getKey();
+    }
+}
@@ -0,0 +1,228 @@
+package br.com.fiap.mottu.service.ocr;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.jar.JarEntry;
+import java.util.stream.Stream;
+
+/**
+ * Cache persistente do tessdata empacotado no jar. Os .traineddata são extraídos uma única vez para
+ * {@code <dir>/tessdata-<hash>/tessdata}, onde o hash vem do conteúdo dos recursos (CRC e tamanho das
+ * entradas do jar, sem descompactar). Boots seguintes só conferem o manifesto (SHA-256 e tamanho de
+ * cada arquivo) e apontam o Tesseract direto para lá. A extração vai para um diretório temporário
+ * renomeado atomicamente, então duas instâncias subindo juntas não se atrapalham.
+ * Também remove os diretórios {@code mottu-ocr-*} deixados no temp pelas versões antigas.
+ */
+@Component
+public class TessdataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TessdataCache.class);
+    private static final String[] ENTRIES = {"eng.traineddata", "por.traineddata", "osd.traineddata"};
+    private static final String CACHE_PREFIX = "tessdata-";
+    private static final String LEGACY_PREFIX = "mottu-ocr-";
+    private static final String MANIFEST = "manifest.properties";
+
+    @Value("${mottu.ocr.tessdata-cache.dir:${java.io.tmpdir}/mottu-ocr-cache}")
+    private String cacheDir;
+
+    /** true = confere o SHA-256 de cada arquivo ao reaproveitar; false = só o tamanho. */
+    @Value("${mottu.ocr.tessdata-cache.verify-checksum:true}")
+    private boolean verifyChecksum;
+
+    /** Versões antigas do cache (outro hash) sem uso há mais que isso são apagadas. */
+    @Value("${mottu.ocr.tessdata-cache.stale-after:P7D}")
+    private Duration staleAfter;
+
+    /**
+     * Garante o cache da versão atual e devolve o diretório {@code tessdata} (o datapath do Tesseract
+     * é o pai dele), ou null se o jar não tiver nenhum .traineddata.
+     */
+    public Path resolve() throws IOException {
+        long start = System.currentTimeMillis();
+        Map<String, URL> resources = new LinkedHashMap<>();
+        for (String entry : ENTRIES) {
+            URL url = getClass().getResource("/tessdata/" + entry);
+            if (url == null) {
+                log.warn("Recurso de OCR não encontrado no classpath: /tessdata/{}", entry);
+            } else {
+                resources.put(entry, url);
+            }
+        }
+        if (resources.isEmpty()) return null;
+
+        Path root = Files.createDirectories(Path.of(cacheDir));
+        Path target = root.resolve(CACHE_PREFIX + contentKey(resources));
+        if (Files.isDirectory(target)) {
+            if (valid(target)) {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                log.info("Tessdata reaproveitado do cache {} ({} ms).", target, System.currentTimeMillis() - start);
+                return target.resolve("tessdata");
+            }
+            log.warn("Cache de tessdata {} corrompido; extraindo de novo.", target);
+            deleteTree(target);
+        }
+        extract(root, target, resources);
+        log.info("Tessdata extraído para o cache {} ({} ms).", target, System.currentTimeMillis() - start);
+        return target.resolve("tessdata");
+    }
+
+    /** Remove os diretórios de execução antigos (mottu-ocr-<millis>) e versões do cache sem uso. */
+    public void cleanup(Path current) {
+        Path tmp = Path.of(System.getProperty("java.io.tmpdir"));
+        Path root = Path.of(cacheDir).toAbsolutePath().normalize();
+        int removed = 0;
+        removed += deleteMatching(tmp, p -> {
+            String n = p.getFileName().toString();
+            return n.startsWith(LEGACY_PREFIX) && n.substring(LEGACY_PREFIX.length()).chars().allMatch(Character::isDigit)
+                    && !p.toAbsolutePath().normalize().equals(root);
+        });
+        Instant staleBefore = Instant.now().minus(staleAfter);
+        removed += deleteMatching(Path.of(cacheDir), p -> {
+            String n = p.getFileName().toString();
+            if (!n.startsWith(CACHE_PREFIX) && !n.startsWith(".extract-")) return false;
+            if (current != null && p.equals(current.getParent())) return false;
+            try {
+                return Files.getLastModifiedTime(p).toInstant().isBefore(staleBefore);
+            } catch (IOException e) {
+                return false;
+            }
+        });
+        if (removed > 0) log.info("{} diretório(s) antigo(s) de tessdata removido(s).", removed);
+    }
+
+    /**
+     * Hash dos recursos sem descompactar: no jar, CRC-32 e tamanho de cada entrada; fora dele
+     * (IDE, testes), SHA-256 do próprio conteúdo.
+     */
+    private static String contentKey(Map<String, URL> resources) throws IOException {
+        MessageDigest md = sha256();
+        for (Map.Entry<String, URL> e : resources.entrySet()) {
+            md.update(e.getKey().getBytes(StandardCharsets.UTF_8));
+            URLConnection c = e.getValue().openConnection();
+            JarEntry entry = c instanceof JarURLConnection j ? j.getJarEntry() : null;
+            if (entry != null && entry.getCrc() != -1) {
+                md.update((entry.getCrc() + ":" + entry.getSize()).getBytes(StandardCharsets.UTF_8));
+            } else {
+                try (InputStream in = c.getInputStream()) {
+                    md.update(digest(in));
+                }
+            }
+        }
+        return HexFormat.of().formatHex(md.digest(), 0, 8);
+    }
+
+    private void extract(Path root, Path target, Map<String, URL> resources) throws IOException {
+        Path work = Files.createTempDirectory(root, ".extract-");
+        try {
+            Path tessdata = Files.createDirectories(work.resolve("tessdata"));
+            Properties manifest = new Properties();
+            for (Map.Entry<String, URL> e : resources.entrySet()) {
+                Path file = tessdata.resolve(e.getKey());
+                MessageDigest md = sha256();
+                try (InputStream in = new DigestInputStream(e.getValue().openStream(), md)) {
+                    Files.copy(in, file);
+                }
+                manifest.setProperty(e.getKey(), HexFormat.of().formatHex(md.digest()) + ":" + Files.size(file));
+            }
+            try (Writer w = Files.newBufferedWriter(work.resolve(MANIFEST))) {
+                manifest.store(w, "tessdata extraído do classpath");
+            }
+            try {
+                Files.move(work, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // outra instância terminou antes: vale a dela, se estiver íntegra
+                if (!valid(target)) throw new IOException("Cache de tessdata concorrente inválido: " + target, e);
+            }
+        } finally {
+            if (Files.exists(work)) deleteTree(work);
+        }
+    }
+
+    private boolean valid(Path dir) {
+        Path manifestFile = dir.resolve(MANIFEST);
+        if (!Files.isRegularFile(manifestFile)) return false;
+        try {
+            Properties manifest = new Properties();
+            try (Reader r = Files.newBufferedReader(manifestFile)) {
+                manifest.load(r);
+            }
+            if (manifest.isEmpty()) return false;
+            for (String entry : manifest.stringPropertyNames()) {
+                String[] expected = manifest.getProperty(entry).split(":");
+                Path file = dir.resolve("tessdata").resolve(entry);
+                if (!Files.isRegularFile(file) || Files.size(file) != Long.parseLong(expected[1])) return false;
+                if (verifyChecksum) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        if (!HexFormat.of().formatHex(digest(in)).equals(expected[0])) return false;
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Manifesto do cache de tessdata ilegível em {}: {}", dir, e.toString());
+            return false;
+        }
+    }
+
+    private static byte[] digest(InputStream in) throws IOException {
+        MessageDigest md = sha256();
+        byte[] buf = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        return md.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int deleteMatching(Path dir, Predicate<Path> filter) {
+        if (!Files.isDirectory(dir)) return 0;
+        int removed = 0;
+        try (Stream<Path> s = Files.list(dir)) {
+            for (Path p : s.filter(Files::isDirectory).filter(filter).toList()) {
+                try {
+                    deleteTree(p);
+                    removed++;
+                } catch (IOException e) {
+                    log.debug("Não foi possível remover {}: {}", p, e.toString());
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Não foi possível listar {}: {}", dir, e.toString());
+        }
+        return removed;
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : s.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package br.com.fiap.mottu.service.ocr;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.TesseractException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool limitado de engines nativas do Tesseract (TessBaseAPI) já inicializadas.
+ * Cada engine carrega os modelos LSTM uma única vez; quem processa uma imagem
+ * empresta a engine, usa e devolve. O tamanho do pool limita quantas imagens
+ * o Tesseract processa ao mesmo tempo (uma engine por worker).
+ */
+public class TesseractEnginePool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TesseractEnginePool.class);
+
+    /** Texto reconhecido + confiança média (0..100) informada pelo Tesseract. */
+    public record OcrText(String text, int confidence) {}
+
+    private final TessAPI api = TessAPI.INSTANCE;
+    private final BlockingQueue<TessBaseAPI> idle;
+    private final List<TessBaseAPI> all = new ArrayList<>();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final int size;
+    private final Timer waitTimer;
+
+    public TesseractEnginePool(String datapath, String language, int size, MeterRegistry meterRegistry) throws TesseractException {
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                TessBaseAPI handle = api.TessBaseAPICreate();
+                if (api.TessBaseAPIInit3(handle, datapath, language) != 0) {
+                    api.TessBaseAPIDelete(handle);
+                    throw new TesseractException("Falha ao inicializar o Tesseract (datapath=" + datapath + ", lang=" + language + ").");
+                }
+                api.TessBaseAPISetVariable(handle, "user_defined_dpi", "300");
+                all.add(handle);
+                idle.add(handle);
+            }
+        } catch (TesseractException | RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        this.waitTimer = Timer.builder("mottu.ocr.tesseract.pool.wait")
+                .description("Tempo de espera por uma engine livre do Tesseract")
+                .register(meterRegistry);
+        Gauge.builder("mottu.ocr.tesseract.pool.size", this, p -> p.size).register(meterRegistry);
+        Gauge.builder("mottu.ocr.tesseract.pool.in-use", inUse, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("mottu.ocr.tesseract.pool.utilization", this, TesseractEnginePool::utilization).register(meterRegistry);
+    }
+
+    /**
+     * Reconhece o texto de um buffer de pixels (8 bits por canal).
+     * Bloqueia até {@code acquireTimeoutMs} esperando uma engine livre.
+     */
+    public OcrText recognize(ByteBuffer pixels, int width, int height, int bytesPerPixel, int bytesPerLine,
+                             long acquireTimeoutMs) throws TesseractException, InterruptedException {
+        long start = System.nanoTime();
+        TessBaseAPI handle = idle.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (handle == null) {
+            throw new TesseractException("Nenhuma engine do Tesseract disponível em " + acquireTimeoutMs + " ms.");
+        }
+        inUse.incrementAndGet();
+        try {
+            api.TessBaseAPISetImage(handle, pixels, width, height, bytesPerPixel, bytesPerLine);
+            Pointer textPtr = api.TessBaseAPIGetUTF8Text(handle);
+            String text = "";
+            if (textPtr != null) {
+                text = textPtr.getString(0, StandardCharsets.UTF_8.name());
+                api.TessDeleteText(textPtr);
+            }
+            int confidence = api.TessBaseAPIMeanTextConf(handle);
+            return new OcrText(text.trim(), confidence);
+        } finally {
+            api.TessBaseAPIClear(handle);
+            inUse.decrementAndGet();
+            idle.offer(handle);
+        }
+    }
+
+    /**
+     * Aquece todas as engines com uma placa sintética, para que a primeira
+     * imagem real não pague a inicialização preguiçosa das redes LSTM.
+     */
+    public void warmUp() throws TesseractException, InterruptedException {
+        BufferedImage plate = syntheticPlate("ABC1D23");
+        byte[] data = ((DataBufferByte) plate.getRaster().getDataBuffer()).getData();
+        ByteBuffer buf = ByteBuffer.allocateDirect(data.length).put(data).flip();
+
+        List<TessBaseAPI> borrowed = new ArrayList<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                TessBaseAPI handle = idle.take();
+                borrowed.add(handle);
+                api.TessBaseAPISetImage(handle, buf, plate.getWidth(), plate.getHeight(), 1, plate.getWidth());
+                Pointer textPtr = api.TessBaseAPIGetUTF8Text(handle);
+                if (textPtr != null) api.TessDeleteText(textPtr);
+                api.TessBaseAPIClear(handle);
+            }
+        } finally {
+            idle.addAll(borrowed);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double utilization() {
+        return size == 0 ? 0.0 : (double) inUse.get() / size;
+    }
+
+    @Override
+    public void close() {
+        for (TessBaseAPI handle : all) {
+            try {
+                api.TessBaseAPIEnd(handle);
+                api.TessBaseAPIDelete(handle);
+            } catch (Throwable t) {
+                log.debug("Falha ao liberar engine do Tesseract: {}", t.toString());
+            }
+        }
+        all.clear();
+        idle.clear();
+    }
+
+    /** Desenha uma placa em tons de cinza (preto sobre branco), no formato esperado pelo OCR. */
+    static BufferedImage syntheticPlate(String text) {
+        BufferedImage img = new BufferedImage(400, 130, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = img.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, img.getWidth(), img.getHeight());
+            g.setColor(Color.BLACK);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(new Font(Font.MONOSPACED, Font.BOLD, 72));
+            g.drawString(text, 40, 92);
+        } finally {
+            g.dispose();
+        }
+        return img;
+    }
+
+    /**
+     * Limita as threads OpenMP do Tesseract (OMP_THREAD_LIMIT) antes de a biblioteca nativa ser carregada.
+     * Com N engines em paralelo, deixar cada uma abrir uma thread por core gera oversubscription.
+     * Só tem efeito se chamado antes do primeiro uso de {@link TessAPI}; em Windows apenas registra o aviso.
+     */
+    public static void capOpenMpThreads(int threads) {
+        String current = System.getenv("OMP_THREAD_LIMIT");
+        if (current != null && !current.isBlank()) {
+            log.info("OMP_THREAD_LIMIT já definido no ambiente: {}", current);
+            return;
+        }
+        if (Platform.isWindows()) {
+            log.warn("Defina OMP_THREAD_LIMIT={} no ambiente para evitar oversubscription do Tesseract.", threads);
+            return;
+        }
+        try {
+            CLib.INSTANCE.setenv("OMP_THREAD_LIMIT", String.valueOf(threads), 1);
+            log.info("OMP_THREAD_LIMIT definido para {}.", threads);
+        } catch (Throwable t) {
+            log.warn("Não foi possível definir OMP_THREAD_LIMIT: {}", t.toString());
+        }
+    }
+
+    private interface CLib extends Library {
+        CLib INSTANCE = Native.load("c", CLib.class);
+
+        int setenv(String name, String value, int overwrite);
+    }
+}
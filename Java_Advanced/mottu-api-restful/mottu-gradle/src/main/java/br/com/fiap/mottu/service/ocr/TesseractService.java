@@ -1,36 +1,39 @@
 package br.com.fiap.mottu.service.ocr;
 
 import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.exception.OcrQueueFullException;
+import com.sun.jna.Pointer;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
-import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
+import jakarta.annotation.PreDestroy;
 import net.sourceforge.tess4j.TesseractException;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Size;
-import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
-import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.time.Instant;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
-public class TesseractService {
+public class TesseractService implements PlateRecognizer, PlateEngine {
 
     private static final Logger log = LoggerFactory.getLogger(TesseractService.class);
+    private static final Size PREPROCESS_BLUR = new Size(3, 3);
+    private static final WorkerMats PREPROCESS_BUFFER = new WorkerMats();
 
     // --- DECLARAÇÃO DAS VARIÁVEIS DE CLASSE (ESTA PARTE ESTAVA FALTANDO) ---
     @Value("${mottu.ocr.lang:por+eng}")
@@ -39,31 +42,146 @@ public class TesseractService {
     @Value("${mottu.ocr.tessdata-path:}")
     private String configuredTessdataPath;
 
+    /** Quantidade de engines no pool; 0 = automático (cores / threads OpenMP por engine). */
+    @Value("${mottu.ocr.tesseract.pool-size:0}")
+    private int configuredPoolSize;
+
+    @Value("${mottu.ocr.tesseract.omp-threads:1}")
+    private int ompThreads;
+
+    @Value("${mottu.ocr.tesseract.acquire-timeout-ms:15000}")
+    private long acquireTimeoutMs;
+
+    @Value("${mottu.ocr.tesseract.warmup:true}")
+    private boolean warmUpOnStartup;
+
+    /** true = carrega tessdata e engines em background depois que a aplicação subiu (a API não espera o OCR). */
+    @Value("${mottu.ocr.tesseract.lazy-init:true}")
+    private boolean lazyInit;
+
     private File tessdataDirResolved;
+    private String resolvedLang;
+    private TesseractEnginePool enginePool;
+    /** Executa o OCR dos recortes de uma mesma imagem em paralelo; dimensionado pelo pool de engines. */
+    private ExecutorService roiExecutor;
     private final OcrSessionManager sessionManager;
-    private final Path runtimeRootDir; // <-- A VARIÁVEL QUE FALTAVA
-    private final Path runtimeTessdataDir;
+    private final PlateRoiDetector roiDetector;
+    private final BoundedImageDecoder imageDecoder;
+    private final OcrMetrics metrics;
+    private final OcrDiagnostics diagnostics;
+    private final OcrExecutor ocrExecutor;
+    private final MeterRegistry meterRegistry;
+    private final TessdataCache tessdataCache;
+    private final PlateRecognitionCache recognitionCache;
+    /** Completo quando o pool terminou de subir (com ou sem sucesso). */
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
     // --- FIM DAS DECLARAÇÕES ---
 
-    public TesseractService(OcrSessionManager sessionManager) {
+    /** Placa normalizada lida num recorte (ou na imagem inteira) com a confiança do Tesseract. */
+    private record Candidate(String plate, int confidence) {
+        boolean valid() {
+            return plate != null && plate.length() >= 7;
+        }
+    }
+
+    public TesseractService(OcrSessionManager sessionManager, OcrExecutor ocrExecutor, PlateRoiDetector roiDetector,
+                            BoundedImageDecoder imageDecoder, OcrMetrics metrics, OcrDiagnostics diagnostics,
+                            TessdataCache tessdataCache, PlateRecognitionCache recognitionCache,
+                            MeterRegistry meterRegistry) {
+        this.metrics = metrics;
+        this.diagnostics = diagnostics;
         this.sessionManager = sessionManager;
+        this.roiDetector = roiDetector;
+        this.imageDecoder = imageDecoder;
+        this.ocrExecutor = ocrExecutor;
+        this.meterRegistry = meterRegistry;
+        this.tessdataCache = tessdataCache;
+        this.recognitionCache = recognitionCache;
         ImageIO.setUseCache(false);
-
-        try {
-            // Inicialização das variáveis
-            this.runtimeRootDir = Files.createTempDirectory("mottu-ocr-" + Instant.now().toEpochMilli());
-            this.runtimeTessdataDir = Files.createDirectories(this.runtimeRootDir.resolve("tessdata"));
-            copyTessdataFromClasspath();
-            log.info("TesseractService inicializado. Diretório de trabalho: {}", runtimeRootDir);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Falha crítica ao preparar diretório de trabalho do OCR", e);
-        }
     }
 
     @PostConstruct
     public void init() {
-        resolveTessdataPath();
         log.info("Idiomas de OCR configurados='{}'", configuredLang);
+        if (!lazyInit) {
+            initialize();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!lazyInit || ready.isDone()) return;
+        Thread t = new Thread(this::initialize, "ocr-tesseract-init");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /** Resolve o tessdata (cache persistente), sobe o pool e só então limpa os diretórios antigos. */
+    private void initialize() {
+        try {
+            resolveTessdataPath();
+            initEnginePool();
+            tessdataCache.cleanup(tessdataDirResolved == null ? null : tessdataDirResolved.toPath());
+        } catch (Throwable t) {
+            log.error("❌ Falha ao inicializar o Tesseract: {}", t.toString(), t);
+        } finally {
+            ready.complete(null);
+        }
+    }
+
+    /** Espera a inicialização em background (no máximo o timeout de aquisição de engine). */
+    private void awaitReady() throws TesseractException, InterruptedException {
+        if (ready.isDone()) return;
+        try {
+            ready.get(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new TesseractException("Tesseract ainda está inicializando.");
+        } catch (ExecutionException e) {
+            throw new TesseractException("Falha na inicialização do Tesseract.");
+        }
+    }
+
+    /** Cria o pool de engines uma única vez (idiomas resolvidos aqui, não a cada imagem) e aquece. */
+    private void initEnginePool() {
+        if (tessdataDirResolved == null || !tessdataDirResolved.isDirectory()) {
+            log.error("Pool do Tesseract não criado: diretório 'tessdata' indisponível.");
+            return;
+        }
+        resolvedLang = chooseLanguage(configuredLang);
+        int threadsPerEngine = Math.max(1, ompThreads);
+        int poolSize = configuredPoolSize > 0 ? configuredPoolSize
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / threadsPerEngine);
+        TesseractEnginePool.capOpenMpThreads(threadsPerEngine);
+        try {
+            long start = System.currentTimeMillis();
+            enginePool = new TesseractEnginePool(
+                    tessdataDirResolved.getParentFile().getAbsolutePath(), resolvedLang, poolSize, meterRegistry);
+            if (warmUpOnStartup) {
+                enginePool.warmUp();
+            }
+            AtomicInteger roiThreads = new AtomicInteger();
+            roiExecutor = Executors.newFixedThreadPool(poolSize, r -> {
+                Thread t = new Thread(r, "ocr-roi-" + roiThreads.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            log.info("Pool do Tesseract pronto: {} engine(s), idioma '{}', {} thread(s) OpenMP cada ({} ms).",
+                    poolSize, resolvedLang, threadsPerEngine, System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            log.error("❌ Falha ao criar o pool do Tesseract: {}", t.toString(), t);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (roiExecutor != null) {
+            roiExecutor.shutdownNow();
+        }
+        if (enginePool != null) {
+            enginePool.close();
+        }
     }
 
     private void resolveTessdataPath() {
@@ -86,49 +204,41 @@ public class TesseractService {
             }
         }
         if (tessdataDirResolved == null) {
-            tessdataDirResolved = this.runtimeTessdataDir.toFile();
-            triedPaths.add("extração do classpath para: " + tessdataDirResolved.getAbsolutePath());
+            try {
+                Path cached = tessdataCache.resolve();
+                if (cached != null) {
+                    tessdataDirResolved = cached.toFile();
+                    triedPaths.add("cache extraído do classpath: " + tessdataDirResolved.getAbsolutePath());
+                }
+            } catch (IOException e) {
+                triedPaths.add("cache extraído do classpath: " + e);
+            }
         }
 
-        if (tessdataDirResolved != null && tessdataDirResolved.listFiles((dir, name) -> name.endsWith(".traineddata")).length > 0) {
+        File[] traineddata = tessdataDirResolved == null ? null
+                : tessdataDirResolved.listFiles((dir, name) -> name.endsWith(".traineddata"));
+        if (traineddata != null && traineddata.length > 0) {
             log.info("✅ Tesseract 'tessdata' localizado com sucesso em: {}", tessdataDirResolved.getAbsolutePath());
         } else {
             log.error("❌ FALHA CRÍTICA: Não foi possível resolver a pasta 'tessdata'. Tentativas: {}", triedPaths);
         }
     }
 
-    private void copyTessdataFromClasspath() throws IOException {
-        String[] entries = {"eng.traineddata", "por.traineddata", "osd.traineddata"};
-        for (String entry : entries) {
-            String resourcePath = "/tessdata/" + entry;
-            try (InputStream in = getClass().getResourceAsStream(resourcePath)) {
-                if (in == null) {
-                    log.warn("Recurso de OCR não encontrado no classpath: {}", resourcePath);
-                    continue;
-                }
-                Files.copy(in, this.runtimeTessdataDir.resolve(entry));
-                log.info("Recurso de OCR copiado: {}", entry);
-            }
+    @Override
+    public void extractPlate(String sessionId, byte[] imageBytes) {
+        sessionManager.setSessionProcessing(sessionId);
+        try {
+            ocrExecutor.submit(sessionId, () -> runOcr(sessionId, imageBytes));
+        } catch (OcrQueueFullException e) {
+            sessionManager.setSessionPending(sessionId);
+            throw e;
         }
     }
 
-    public void extractPlate(String sessionId, byte[] imageBytes) {
-        sessionManager.setSessionProcessing(sessionId);
+    private void runOcr(String sessionId, byte[] imageBytes) {
         try {
-            if (imageBytes == null || imageBytes.length == 0) {
-                throw new InvalidInputException("Arquivo de imagem está vazio ou corrompido.");
-            }
-            BufferedImage sourceImage = readImageStrict(imageBytes);
-            BufferedImage processedImage = preprocessImageForOcr(sourceImage);
-            Path pngTempFile = writePngTemp(processedImage);
-            String ocrResult = runTesseractOcr(pngTempFile);
-            String normalizedPlate = PlateUtils.normalizeMercosul(ocrResult);
-
-            if (normalizedPlate == null || normalizedPlate.length() < 7) {
-                throw new InvalidInputException("Não foi possível reconhecer uma placa válida na imagem.");
-            }
-            log.info("Sessão {}: Placa reconhecida e normalizada: {}", sessionId, normalizedPlate);
-            sessionManager.updateSessionSuccess(sessionId, normalizedPlate);
+            PlateResult result = recognize(sessionId, imageBytes);
+            sessionManager.updateSessionSuccess(sessionId, result.plate(), result.confidence());
         } catch (Throwable ex) {
             log.error("Sessão {}: Falha no processo de OCR: {}", sessionId, ex.getMessage(), ex);
             String errorMessage = (ex instanceof InvalidInputException) ? ex.getMessage() : "Erro interno ao processar a imagem.";
@@ -136,20 +246,148 @@ public class TesseractService {
         }
     }
 
-    private String runTesseractOcr(Path imageFile) throws TesseractException {
-        if (tessdataDirResolved == null || !tessdataDirResolved.isDirectory()) {
-            throw new TesseractException("Diretório 'tessdata' não foi inicializado.");
+    @Override
+    public String name() {
+        return "tesseract";
+    }
+
+    @Override
+    public PlateResult recognize(String sessionId, byte[] imageBytes) throws Exception {
+        if (imageBytes == null || imageBytes.length == 0) {
+            throw new InvalidInputException("Arquivo de imagem está vazio ou corrompido.");
         }
-        ITesseract tesseract = new Tesseract();
-        tesseract.setDatapath(tessdataDirResolved.getParentFile().getAbsolutePath());
-        String langToUse = chooseLanguage(configuredLang);
-        tesseract.setLanguage(langToUse);
-        tesseract.setTessVariable("user_defined_dpi", "300");
+        awaitReady();
+        Candidate best;
+        try (BoundedImageDecoder.DecodedImage decoded = metrics.time(sessionId, "decode", name(), OcrMetrics.NONE,
+                () -> imageDecoder.decodeGray(imageBytes))) {
+            Mat image = decoded.mat();
+            // quadro de um burst já reconhecido: o hash sai da imagem já decodificada, sem rodar o OCR
+            Optional<PlateRecognitionCache.Hit> hit = recognitionCache.similar(sessionId, image);
+            if (hit.isPresent()) {
+                log.info("Sessão {}: placa {} obtida do cache (imagem semelhante).", sessionId, hit.get().plate());
+                return new PlateResult(hit.get().plate(), hit.get().confidence(), name());
+            }
+            best = recognizeRois(sessionId, image);
+            if (best == null) {
+                // nenhum recorte legível: volta ao OCR da imagem inteira
+                preprocess(sessionId, image);
+                best = recognize(sessionId, image);
+            }
+        }
+
+        if (!best.valid()) {
+            throw new InvalidInputException("Não foi possível reconhecer uma placa válida na imagem.");
+        }
+        log.info("Sessão {}: Placa reconhecida e normalizada: {}", sessionId, best.plate());
+        return new PlateResult(best.plate(), (double) best.confidence(), name());
+    }
+
+    /**
+     * Roda o OCR só nos recortes encontrados pelo {@link PlateRoiDetector} (em paralelo quando há mais
+     * de um) e devolve a leitura válida de maior confiança, ou null se nenhum recorte render uma placa.
+     * Cada tarefa é dona do seu recorte e o libera ao terminar.
+     */
+    private Candidate recognizeRois(String sessionId, Mat image) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        List<Mat> crops = metrics.time(sessionId, "roi", name(), OcrMetrics.NONE, () -> roiDetector.detect(image));
+        if (crops.isEmpty()) {
+            log.info("Sessão {}: nenhuma região de placa detectada; OCR na imagem inteira.", sessionId);
+            return null;
+        }
+        log.info("Sessão {}: {} região(ões) de placa detectada(s) em {} ms.", sessionId, crops.size(),
+                System.currentTimeMillis() - start);
+
+        Candidate best = null;
+        if (crops.size() == 1 || roiExecutor == null) {
+            for (Mat crop : crops) {
+                best = better(best, recognizeCrop(sessionId, crop));
+            }
+            return best;
+        }
+
+        List<Future<Candidate>> futures = new ArrayList<>(crops.size());
+        for (int i = 0; i < crops.size(); i++) {
+            Mat crop = crops.get(i);
+            try {
+                futures.add(roiExecutor.submit(() -> recognizeCrop(sessionId, crop)));
+            } catch (RejectedExecutionException e) {
+                crops.subList(i, crops.size()).forEach(Mat::release);
+                break;
+            }
+        }
+        for (Future<Candidate> f : futures) {
+            try {
+                best = better(best, f.get());
+            } catch (ExecutionException e) {
+                log.warn("Sessão {}: falha no OCR de um recorte: {}", sessionId, e.getCause().toString());
+            }
+        }
+        return best;
+    }
+
+    private Candidate recognizeCrop(String sessionId, Mat crop) {
+        try {
+            preprocess(sessionId, crop);
+            diagnostics.roiCrop(sessionId, name(), crop);
+            Candidate c = recognize(sessionId, crop);
+            log.info("Sessão {}: recorte {}x{} -> '{}' (confiança {})", sessionId, crop.cols(), crop.rows(),
+                    c.plate(), c.confidence());
+            return c;
+        } catch (TesseractException e) {
+            log.warn("Sessão {}: falha no OCR do recorte: {}", sessionId, e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            crop.release();
+        }
+    }
+
+    private static Candidate better(Candidate current, Candidate other) {
+        if (other == null || !other.valid()) return current;
+        return current == null || other.confidence() > current.confidence() ? other : current;
+    }
+
+    private Candidate recognize(String sessionId, Mat gray) throws TesseractException, InterruptedException {
+        long start = System.nanoTime();
+        TesseractEnginePool.OcrText text;
+        try {
+            text = runTesseractOcr(gray);
+        } catch (TesseractException | InterruptedException | RuntimeException e) {
+            metrics.record(sessionId, "engine", name(), OcrMetrics.NONE, OcrMetrics.ERROR, System.nanoTime() - start);
+            throw e;
+        }
+        metrics.record(sessionId, "engine", name(), OcrMetrics.NONE, OcrMetrics.SUCCESS, System.nanoTime() - start);
+        String plate = metrics.time(sessionId, "normalize", name(), OcrMetrics.NONE,
+                () -> PlateUtils.normalizeMercosul(text.text()));
+        return new Candidate(plate, text.confidence());
+    }
+
+    private void preprocess(String sessionId, Mat gray) {
+        long start = System.nanoTime();
+        preprocessInPlace(gray);
+        metrics.record(sessionId, "preprocess", name(), OcrMetrics.NONE, OcrMetrics.SUCCESS, System.nanoTime() - start);
+    }
+
+    /**
+     * Entrega ao Tesseract o próprio buffer nativo do Mat (8 bits, 1 canal), sem cópia nem arquivo.
+     */
+    private TesseractEnginePool.OcrText runTesseractOcr(Mat gray) throws TesseractException, InterruptedException {
+        if (enginePool == null) {
+            throw new TesseractException("Pool do Tesseract não foi inicializado.");
+        }
+        if (!gray.isContinuous() || gray.type() != CvType.CV_8UC1) {
+            throw new TesseractException("Imagem pré-processada em formato inesperado para o OCR.");
+        }
+        int bytesPerLine = (int) gray.step1();
+        ByteBuffer pixels = new Pointer(gray.dataAddr()).getByteBuffer(0, (long) bytesPerLine * gray.rows());
         long startTime = System.currentTimeMillis();
-        String result = tesseract.doOCR(imageFile.toFile());
+        TesseractEnginePool.OcrText result = enginePool.recognize(pixels, gray.cols(), gray.rows(),
+                1, bytesPerLine, acquireTimeoutMs);
         long duration = System.currentTimeMillis() - startTime;
-        log.info("Tess4J executado em {} ms com o idioma '{}'", duration, langToUse);
-        return result != null ? result.trim() : "";
+        log.info("Tesseract executado em {} ms com o idioma '{}' (confiança {})", duration, resolvedLang, result.confidence());
+        return result;
     }
 
     private String chooseLanguage(String requested) {
@@ -189,63 +427,11 @@ public class TesseractService {
         return languages;
     }
 
-    private BufferedImage readImageStrict(byte[] bytes) throws IOException {
-        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
-            if (iis == null) throw new IOException("Não foi possível criar ImageInputStream.");
-            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
-            if (!readers.hasNext()) throw new IOException("Formato de imagem não suportado.");
-            ImageReader reader = readers.next();
-            try {
-                reader.setInput(iis, true, true);
-                BufferedImage img = reader.read(0);
-                if (img == null) throw new IOException("Falha ao decodificar a imagem.");
-                return ensureBufferedRgb(img);
-            } finally {
-                reader.dispose();
-            }
-        }
-    }
-
-    private BufferedImage ensureBufferedRgb(BufferedImage img) {
-        if (img.getType() == BufferedImage.TYPE_INT_RGB) return img;
-        BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = copy.createGraphics();
-        try { g.drawImage(img, 0, 0, null); } finally { g.dispose(); }
-        return copy;
-    }
-
-    private Path writePngTemp(BufferedImage img) throws IOException {
-        Path tmp = Files.createTempFile(this.runtimeRootDir, "ocr-processed-", ".png");
-        ImageIO.write(img, "png", tmp.toFile());
-        return tmp;
-    }
-
-    private BufferedImage preprocessImageForOcr(BufferedImage image) throws IOException {
-        Mat mat = bufferedImageToMat(image);
-        Mat grayMat = new Mat();
-        Imgproc.cvtColor(mat, grayMat, Imgproc.COLOR_BGR2GRAY);
-        Mat blurredMat = new Mat();
-        Imgproc.GaussianBlur(grayMat, blurredMat, new Size(3, 3), 0);
-        Mat threshMat = new Mat();
-        Imgproc.adaptiveThreshold(blurredMat, threshMat, 255, Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C, Imgproc.THRESH_BINARY, 11, 2);
-        log.info("Pré-processamento da imagem concluído.");
-        return matToBufferedImage(threshMat);
-    }
-
-    private Mat bufferedImageToMat(BufferedImage bi) {
-        BufferedImage bgrImage = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-        bgrImage.getGraphics().drawImage(bi, 0, 0, null);
-        byte[] data = ((java.awt.image.DataBufferByte) bgrImage.getRaster().getDataBuffer()).getData();
-        Mat mat = new Mat(bi.getHeight(), bi.getWidth(), org.opencv.core.CvType.CV_8UC3);
-        mat.put(0, 0, data);
-        return mat;
-    }
-
-    private BufferedImage matToBufferedImage(Mat mat) throws IOException {
-        Path tmp = Files.createTempFile(this.runtimeRootDir, "mat-to-img-", ".png");
-        Imgcodecs.imwrite(tmp.toString(), mat);
-        BufferedImage image = ImageIO.read(tmp.toFile());
-        Files.delete(tmp);
-        return image;
+    /** Suaviza no buffer de trabalho da thread e binariza de volta no próprio Mat (sem alocar por imagem). */
+    private void preprocessInPlace(Mat gray) {
+        Mat blurred = PREPROCESS_BUFFER.get();
+        Imgproc.GaussianBlur(gray, blurred, PREPROCESS_BLUR, 0);
+        Imgproc.adaptiveThreshold(blurred, gray, 255, Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C, Imgproc.THRESH_BINARY, 11, 2);
+        log.debug("Pré-processamento da imagem concluído.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package br.com.fiap.mottu.service.ocr;
+
+import org.opencv.core.Mat;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mat de trabalho reaproveitado por thread (workers do OCR, threads de câmera). As funções do OpenCV
+ * só realocam o destino quando tamanho ou tipo mudam, então quadros do mesmo tamanho usam sempre o
+ * mesmo buffer nativo. O conteúdo só vale até a próxima chamada na mesma thread: não guarde nem
+ * devolva o Mat, e use uma instância por finalidade (nunca a mesma em etapas aninhadas).
+ * Threads de vida curta chamam {@link #releaseThread()} ao terminar.
+ */
+final class WorkerMats {
+
+    private static final Set<WorkerMats> INSTANCES = ConcurrentHashMap.newKeySet();
+    /** Todos os buffers vivos, para a métrica de memória retida. */
+    private static final Set<Mat> ALL = ConcurrentHashMap.newKeySet();
+
+    private final ThreadLocal<Mat> local = new ThreadLocal<>();
+
+    WorkerMats() {
+        INSTANCES.add(this);
+    }
+
+    Mat get() {
+        Mat m = local.get();
+        if (m == null) {
+            m = new Mat();
+            local.set(m);
+            ALL.add(m);
+        }
+        return m;
+    }
+
+    /** Libera todos os buffers de trabalho da thread atual. */
+    static void releaseThread() {
+        for (WorkerMats w : INSTANCES) {
+            Mat m = w.local.get();
+            if (m != null) {
+                m.release();
+                ALL.remove(m);
+                w.local.remove();
+            }
+        }
+    }
+
+    /** Bytes retidos pelos buffers de trabalho (aproximado: lido sem sincronizar com as threads donas). */
+    static long retainedBytes() {
+        long total = 0;
+        for (Mat m : ALL) {
+            total += m.total() * m.elemSize();
+        }
+        return total;
+    }
+
+    static int count() {
+        return ALL.size();
+    }
+}
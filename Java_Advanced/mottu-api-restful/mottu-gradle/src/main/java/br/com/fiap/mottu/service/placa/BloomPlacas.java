@@ -0,0 +1,199 @@
+package br.com.fiap.mottu.service.placa;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom sobre placas normalizadas e sua vizinhança a 1 erro. Em vez de inserir os ~540
+ * vizinhos de cada placa, insere a placa e as 7 formas com um caractere apagado, cada uma marcada com a
+ * posição apagada. A consulta testa as chaves que uma placa a 1 erro teria em comum com ela:
+ * <ul>
+ *   <li>a própria placa (igual);</li>
+ *   <li>ela sem o caractere i, na posição i (troca de um caractere);</li>
+ *   <li>ela inteira como "apagada na posição i" (falta um caractere na leitura);</li>
+ *   <li>ela sem o caractere i, como placa inteira (sobra um caractere na leitura).</li>
+ * </ul>
+ * Com a posição na chave só casam vizinhas de verdade (sem a posição, transposições e afins também
+ * casariam), então a taxa de falsos positivos é só a do Bloom.
+ * <p>
+ * As chaves viram números em base 36 (até 8 caracteres) e os k bits saem de hashing duplo sobre um
+ * único fmix64 delas: consultar não aloca. Bloom não remove; placas que saem do cadastro só deixam
+ * falsos positivos até a próxima reconstrução.
+ */
+final class BloomPlacas {
+
+    /** A placa + uma forma por caractere apagado (placas normalizadas têm até 7 caracteres). */
+    static final int CHAVES_POR_PLACA = 8;
+    /** Chaves testadas por consulta de 7 caracteres: 1 + 7 + 8 + 7. */
+    static final int CHAVES_POR_CONSULTA = 23;
+    private static final int TAMANHO_MAX = 8;
+    private static final int INTEIRA = 0;
+    private static final long[] POTENCIAS = {1L, 36L, 1_296L, 46_656L, 1_679_616L, 60_466_176L, 2_176_782_336L, 78_364_164_096L};
+
+    private final AtomicLongArray bits;
+    private final long m;
+    private final int k;
+    private final int capacidade;
+    private final AtomicInteger adicionadas = new AtomicInteger();
+
+    /**
+     * @param capacidade placas esperadas; acima disso a taxa de falsos positivos passa da pedida
+     * @param fpp        taxa de falsos positivos por consulta (cada consulta testa até 23 chaves)
+     */
+    BloomPlacas(int capacidade, double fpp) {
+        if (!(fpp > 0 && fpp < 1)) throw new IllegalArgumentException("fpp deve estar entre 0 e 1: " + fpp);
+        this.capacidade = Math.max(1, capacidade);
+        double n = (double) this.capacidade * CHAVES_POR_PLACA;
+        double pChave = fpp / CHAVES_POR_CONSULTA;
+        long palavras = Math.max(1, (long) Math.ceil(-n * Math.log(pChave) / (Math.log(2) * Math.log(2)) / 64));
+        // m precisa caber em 32 bits para a redução por multiplicação em indice()
+        if (palavras >= (1L << 26)) throw new IllegalArgumentException("Filtro grande demais: " + palavras * 8 + " bytes");
+        this.bits = new AtomicLongArray((int) palavras);
+        this.m = palavras * 64;
+        this.k = Math.max(1, (int) Math.round(m / n * Math.log(2)));
+    }
+
+    void add(CharSequence placa) {
+        int n = placa == null ? 0 : placa.length();
+        if (n == 0 || n > TAMANHO_MAX) return;
+        long digitos = digitos(placa);
+        if (digitos < 0) return;
+        long inteira = codigo(digitos, n);
+        set(chave(inteira, n, INTEIRA));
+        long prefixo = 0;
+        for (int i = 0; i < n && n > 1; i++) {
+            long proximo = prefixo * 36 + digito(digitos, i);
+            set(chave(semPosicao(inteira, prefixo, proximo, n, i), n - 1, i + 1));
+            prefixo = proximo;
+        }
+        adicionadas.incrementAndGet();
+    }
+
+    /** false = a placa certamente não foi adicionada. */
+    boolean podeConter(CharSequence placa) {
+        int n = placa == null ? 0 : placa.length();
+        if (n == 0 || n > TAMANHO_MAX) return true;
+        long digitos = digitos(placa);
+        return digitos < 0 || get(chave(codigo(digitos, n), n, INTEIRA));
+    }
+
+    /** false = nenhuma placa adicionada está a Levenshtein ≤ 1 desta. */
+    boolean podeTerVizinha(CharSequence placa) {
+        int n = placa == null ? 0 : placa.length();
+        if (n == 0 || n > TAMANHO_MAX) return true;
+        long digitos = digitos(placa);
+        if (digitos < 0) return true;
+        long inteira = codigo(digitos, n);
+        if (get(chave(inteira, n, INTEIRA))) return true;
+        for (int i = 0; i <= n && n < TAMANHO_MAX; i++) {
+            if (get(chave(inteira, n, i + 1))) return true;
+        }
+        long prefixo = 0;
+        for (int i = 0; i < n && n > 1; i++) {
+            long proximo = prefixo * 36 + digito(digitos, i);
+            long sem = semPosicao(inteira, prefixo, proximo, n, i);
+            if (get(chave(sem, n - 1, i + 1)) || get(chave(sem, n - 1, INTEIRA))) return true;
+            prefixo = proximo;
+        }
+        return false;
+    }
+
+    int capacidade() {
+        return capacidade;
+    }
+
+    int adicionadas() {
+        return adicionadas.get();
+    }
+
+    long bits() {
+        return m;
+    }
+
+    int hashes() {
+        return k;
+    }
+
+    /** Taxa de falsos positivos por chave esperada com a carga atual. */
+    double fppPorChave() {
+        double n = (double) adicionadas.get() * CHAVES_POR_PLACA;
+        return Math.pow(1 - Math.exp(-k * n / m), k);
+    }
+
+    private void set(long chave) {
+        long h = mix(chave);
+        int h1 = (int) (h >>> 32);
+        int h2 = (int) h | 1;
+        for (int i = 0; i < k; i++) {
+            long bit = indice(h1 + i * h2);
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long atual = bits.get(w);
+            while ((atual & mask) == 0 && !bits.compareAndSet(w, atual, atual | mask)) {
+                atual = bits.get(w);
+            }
+        }
+    }
+
+    private boolean get(long chave) {
+        long h = mix(chave);
+        int h1 = (int) (h >>> 32);
+        int h2 = (int) h | 1;
+        for (int i = 0; i < k; i++) {
+            long bit = indice(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Bit em [0, m) a partir de 32 bits de hash, por multiplicação (sem a divisão do %). */
+    private long indice(int h) {
+        return ((h & 0xFFFF_FFFFL) * m) >>> 32;
+    }
+
+    /** Valores em base 36 dos caracteres, 6 bits cada (até 8 cabem num long), ou -1 se algum for inválido. */
+    private static long digitos(CharSequence placa) {
+        long out = 0;
+        int invalido = 0;
+        for (int j = 0; j < placa.length(); j++) {
+            int d = PlateCodec.digito(placa.charAt(j));
+            invalido |= d;
+            out |= (long) (d & 63) << (6 * j);
+        }
+        return invalido < 0 ? -1 : out;
+    }
+
+    private static int digito(long digitos, int i) {
+        return (int) (digitos >>> (6 * i)) & 63;
+    }
+
+    private static long codigo(long digitos, int n) {
+        long code = 0;
+        for (int j = 0; j < n; j++) code = code * 36 + digito(digitos, j);
+        return code;
+    }
+
+    /**
+     * Código sem o caractere i, em O(1): com {@code prefixo} = código dos i primeiros e {@code proximo} =
+     * dos i + 1 primeiros, o sufixo é {@code inteira - proximo * 36^(n-1-i)}.
+     */
+    private static long semPosicao(long inteira, long prefixo, long proximo, int n, int i) {
+        long peso = POTENCIAS[n - 1 - i];
+        return prefixo * peso + (inteira - proximo * peso);
+    }
+
+    /** Código (base 36), tamanho (4 bits) e marca (4 bits): {@link #INTEIRA} ou posição apagada + 1. */
+    private static long chave(long codigo, int tamanho, int marca) {
+        return codigo << 8 | (long) tamanho << 4 | marca;
+    }
+
+    /** Finalizador do MurmurHash3 (fmix64). */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53a87ebL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,167 @@
+package br.com.fiap.mottu.service.placa;
+
+import br.com.fiap.mottu.repository.VeiculoRepository;
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Responde "certamente não cadastrada (nem a 1 erro)" sem ir ao banco, para a portaria descartar leituras
+ * erradas e motos de terceiros antes da consulta exata e do fuzzy. Um {@link BloomPlacas} dimensionado
+ * para {@code mottu.placas.filtro.fpp} por consulta, com folga de {@code mottu.placas.filtro.folga} sobre
+ * o cadastro atual.
+ * <p>
+ * Construído do banco quando a aplicação sobe e mantido pelos {@link PlacaAlteradaEvent}. Como Bloom não
+ * remove, placas excluídas/trocadas só contam; o filtro é reconstruído do banco quando elas passam de um
+ * quarto da capacidade ou quando as novas estouram a folga (numa thread própria, fora da requisição que
+ * fez o commit), ou sob demanda, por {@link #reconstruir()}.
+ * <p>
+ * Os eventos só trazem as placas gravadas por esta instância. Placa gravada por outra instância ou direto
+ * no banco fica de fora (e a portaria a recusa) até a próxima reconstrução, agendada a cada
+ * {@code mottu.placas.filtro.reconstrucao-ms}: esse intervalo, mais o tempo da carga, é o atraso máximo.
+ */
+@Component
+public class FiltroPlacas {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroPlacas.class);
+
+    private final VeiculoRepository veiculoRepository;
+    private volatile BloomPlacas filtro;
+    /** Filtro em construção: recebe também as placas novas que chegam durante a carga. */
+    private volatile BloomPlacas emConstrucao;
+    private final AtomicInteger removidas = new AtomicInteger();
+    private final AtomicBoolean reconstrucaoAgendada = new AtomicBoolean();
+    private final ExecutorService reconstrucao = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "filtro-placas-reconstrucao");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${mottu.placas.filtro.fpp:0.01}")
+    private double fpp = 0.01;
+
+    @Value("${mottu.placas.filtro.folga:1.5}")
+    private double folga = 1.5;
+
+    public FiltroPlacas(VeiculoRepository veiculoRepository) {
+        this.veiculoRepository = veiculoRepository;
+    }
+
+    /** Situação do filtro. */
+    public record Estatisticas(boolean carregado, int placas, int capacidade, int removidas,
+                               long bytes, int hashes, double fppEstimada) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            log.warn("Filtro de placas não carregado; portaria segue sem descarte antecipado: {}", e.toString());
+        }
+    }
+
+    /** Reconstrói do banco (recalcula o tamanho e zera as remoções acumuladas). */
+    public synchronized Estatisticas reconstruir() {
+        long start = System.currentTimeMillis();
+        long total = veiculoRepository.count();
+        BloomPlacas novo = new BloomPlacas((int) Math.min(Integer.MAX_VALUE, Math.max(1024, (long) (total * folga))), fpp);
+        emConstrucao = novo;
+        try {
+            List<String> cadastradas = veiculoRepository.listarPlacas();
+            for (String placa : cadastradas) {
+                novo.add(PlateUtils.normalizeMercosul(placa));
+            }
+            filtro = novo;
+            removidas.set(0);
+        } finally {
+            emConstrucao = null;
+        }
+        Estatisticas e = estatisticas();
+        log.info("Filtro de placas: {} placas, {} KB, {} hashes, fpp estimada {} em {} ms.",
+                e.placas(), e.bytes() / 1024, e.hashes(), String.format("%.4f", e.fppEstimada()),
+                System.currentTimeMillis() - start);
+        return e;
+    }
+
+    /** Pega as placas gravadas fora desta instância, que não chegam como evento. */
+    @Scheduled(initialDelayString = "${mottu.placas.filtro.reconstrucao-ms:60000}",
+            fixedDelayString = "${mottu.placas.filtro.reconstrucao-ms:60000}")
+    public void reconstrucaoAgendada() {
+        agendarReconstrucao();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconstrucao.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlacaAlterada(PlacaAlteradaEvent event) {
+        // emConstrucao antes de filtro: reconstruir() publica o novo filtro antes de limpar emConstrucao, então
+        // ou a placa entra no filtro em construção, ou o filtro lido já é o novo (ou a carga ainda vai lê-la
+        // do banco); lidos na ordem inversa, a troca no meio deixaria a placa só no filtro descartado
+        BloomPlacas novo = emConstrucao;
+        BloomPlacas atual = filtro;
+        if (event.placaNova() != null) {
+            String normalized = PlateUtils.normalizeMercosul(event.placaNova());
+            if (novo != null) novo.add(normalized);
+            if (atual != null) atual.add(normalized);
+        }
+        if (event.placaAnterior() != null) {
+            removidas.incrementAndGet();
+        }
+        if (atual != null && (atual.adicionadas() > atual.capacidade() || removidas.get() > atual.capacidade() / 4)) {
+            agendarReconstrucao();
+        }
+    }
+
+    /** Reconstrução pedida pelos limites ou pelo agendamento: uma por vez, em background. */
+    private void agendarReconstrucao() {
+        if (!reconstrucaoAgendada.compareAndSet(false, true)) return;
+        reconstrucao.execute(() -> {
+            try {
+                reconstruir();
+            } catch (RuntimeException e) {
+                log.warn("Falha ao reconstruir o filtro de placas; segue o atual: {}", e.toString());
+            } finally {
+                reconstrucaoAgendada.set(false);
+            }
+        });
+    }
+
+    public boolean isLoaded() {
+        return filtro != null;
+    }
+
+    /**
+     * true = nenhuma placa cadastrada está a até 1 erro (Levenshtein) desta placa normalizada; com o filtro
+     * ainda não carregado, sempre false.
+     */
+    public boolean certamenteAusente(String normalized) {
+        BloomPlacas atual = filtro;
+        return atual != null && !atual.podeTerVizinha(normalized);
+    }
+
+    public Estatisticas estatisticas() {
+        BloomPlacas atual = filtro;
+        if (atual == null) return new Estatisticas(false, 0, 0, removidas.get(), 0, 0, 0);
+        double porChave = atual.fppPorChave();
+        // a consulta testa até 23 chaves: P(ao menos um falso positivo)
+        double porConsulta = 1 - Math.pow(1 - porChave, BloomPlacas.CHAVES_POR_CONSULTA);
+        return new Estatisticas(true, atual.adicionadas(), atual.capacidade(), removidas.get(),
+                atual.bits() / 8, atual.hashes(), porConsulta);
+    }
+}
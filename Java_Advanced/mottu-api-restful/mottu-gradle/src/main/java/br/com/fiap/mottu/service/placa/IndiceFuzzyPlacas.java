@@ -0,0 +1,136 @@
+package br.com.fiap.mottu.service.placa;
+
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice "symmetric delete" das placas normalizadas: cada placa fica registrada sob todas as formas obtidas
+ * apagando até {@code maxDistance} caracteres (8 chaves por placa de 7 caracteres com distância 1).
+ * Duas placas a Levenshtein ≤ k têm alguma dessas formas em comum, então a busca gera as remoções da
+ * consulta, junta as placas das chaves e só confirma a distância nelas: algumas dezenas de comparações
+ * limitadas em vez do cadastro inteiro.
+ * <p>
+ * Leituras não bloqueiam; escritas trocam o array da chave (copy-on-write), uma chave de cada vez.
+ */
+public final class IndiceFuzzyPlacas {
+
+    private static final String[] VAZIO = new String[0];
+    private static final Comparator<Proxima> ORDEM =
+            Comparator.comparingInt(Proxima::distancia).thenComparing(Proxima::placa);
+
+    private final int maxDistance;
+    /** forma com remoções -> placas (normalizadas) que a geram. */
+    private final ConcurrentHashMap<String, String[]> chaves;
+
+    public IndiceFuzzyPlacas(int maxDistance) {
+        this(maxDistance, 16);
+    }
+
+    /**
+     * @param maxDistance    maior distância que {@link #buscar} aceita
+     * @param placasEsperadas dimensiona a tabela para evitar rehash na carga inicial
+     */
+    public IndiceFuzzyPlacas(int maxDistance, int placasEsperadas) {
+        if (maxDistance < 0) throw new IllegalArgumentException("maxDistance não pode ser negativo: " + maxDistance);
+        this.maxDistance = maxDistance;
+        this.chaves = new ConcurrentHashMap<>(Math.max(16, placasEsperadas * (maxDistance * 7 + 1)));
+    }
+
+    /** Placa cadastrada a {@code distancia} da consulta. */
+    public record Proxima(String placa, int distancia) {}
+
+    public int maxDistance() {
+        return maxDistance;
+    }
+
+    public void add(String placa) {
+        if (placa == null || placa.isEmpty()) return;
+        for (String chave : remocoes(placa, maxDistance)) {
+            chaves.compute(chave, (k, atual) -> {
+                if (atual == null) return new String[] {placa};
+                if (indexOf(atual, placa) >= 0) return atual;
+                String[] novo = Arrays.copyOf(atual, atual.length + 1);
+                novo[atual.length] = placa;
+                return novo;
+            });
+        }
+    }
+
+    public void remove(String placa) {
+        if (placa == null || placa.isEmpty()) return;
+        for (String chave : remocoes(placa, maxDistance)) {
+            chaves.computeIfPresent(chave, (k, atual) -> {
+                int i = indexOf(atual, placa);
+                if (i < 0) return atual;
+                if (atual.length == 1) return null;
+                String[] novo = new String[atual.length - 1];
+                System.arraycopy(atual, 0, novo, 0, i);
+                System.arraycopy(atual, i + 1, novo, i, atual.length - i - 1);
+                return novo;
+            });
+        }
+    }
+
+    public boolean contains(String placa) {
+        return placa != null && indexOf(chaves.getOrDefault(placa, VAZIO), placa) >= 0;
+    }
+
+    /**
+     * Todas as placas a distância ≤ {@code k} da consulta, da mais próxima para a mais distante
+     * (empates em ordem alfabética). Mais de uma na menor distância = leitura ambígua.
+     */
+    public List<Proxima> buscar(String consulta, int k) {
+        if (k < 0 || k > maxDistance) {
+            throw new IllegalArgumentException("k deve estar entre 0 e " + maxDistance + ": " + k);
+        }
+        if (consulta == null || consulta.isEmpty()) return List.of();
+        List<Proxima> out = new ArrayList<>(2);
+        Set<String> vistas = new HashSet<>();
+        for (String chave : remocoes(consulta, k)) {
+            for (String placa : chaves.getOrDefault(chave, VAZIO)) {
+                if (!vistas.add(placa)) continue;
+                int d = PlateUtils.levenshtein(consulta, placa, k);
+                if (d <= k) out.add(new Proxima(placa, d));
+            }
+        }
+        out.sort(ORDEM);
+        return out;
+    }
+
+    /** Número de chaves (formas com remoções) no índice. */
+    public int chaves() {
+        return chaves.size();
+    }
+
+    /** A própria palavra e todas as formas com 1..k caracteres apagados, sem repetição. */
+    static Set<String> remocoes(String s, int k) {
+        Set<String> out = new HashSet<>();
+        out.add(s);
+        List<String> nivel = List.of(s);
+        for (int d = 1; d <= k; d++) {
+            List<String> proximo = new ArrayList<>();
+            for (String w : nivel) {
+                for (int i = 0; i < w.length(); i++) {
+                    String r = w.substring(0, i) + w.substring(i + 1);
+                    if (out.add(r)) proximo.add(r);
+                }
+            }
+            nivel = proximo;
+        }
+        return out;
+    }
+
+    private static int indexOf(String[] placas, String placa) {
+        for (int i = 0; i < placas.length; i++) {
+            if (placas[i].equals(placa)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.fiap.mottu.service.placa;
+
+/**
+ * Publicado (VeiculoService, VagaOracleService) quando a placa de um veículo entra, muda ou sai do cadastro,
+ * para quem mantém cópias das placas em memória.
+ *
+ * @param veiculoId     id do veículo alterado
+ * @param placaAnterior placa antes da alteração (null na criação)
+ * @param placaNova     placa depois da alteração (null na exclusão)
+ */
+public record PlacaAlteradaEvent(Long veiculoId, String placaAnterior, String placaNova) {}
@@ -0,0 +1,10 @@
+package br.com.fiap.mottu.service.placa;
+
+/**
+ * Placa do cadastro próxima de uma leitura.
+ *
+ * @param normalizada forma normalizada (Mercosul), a que foi comparada
+ * @param cadastrada  placa como está no cadastro
+ * @param distancia   distância de Levenshtein até a leitura normalizada
+ */
+public record PlacaProxima(String normalizada, String cadastrada, int distancia) {}
@@ -0,0 +1,142 @@
+package br.com.fiap.mottu.service.placa;
+
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.repository.VeiculoRepository;
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Placas cadastradas em memória, já normalizadas (Mercosul), para o OCR conferir candidatos sem ir ao banco.
+ * Carregada quando a aplicação sobe e mantida pelos {@link PlacaAlteradaEvent} após o commit.
+ * Enquanto não carregar (banco fora do ar), {@link #isLoaded()} é false e quem consulta segue sem o cadastro.
+ * <p>
+ * Junto do mapa fica um {@link IndiceFuzzyPlacas}, mantido pelos mesmos eventos, para achar as placas a
+ * até {@code mottu.placas.fuzzy.max-distance} erros da leitura sem varrer o cadastro.
+ */
+@Component
+public class PlacasCadastradas {
+
+    private static final Logger log = LoggerFactory.getLogger(PlacasCadastradas.class);
+
+    private final VeiculoRepository veiculoRepository;
+    /** placa normalizada -> placa como está no cadastro (UPPERCASE). */
+    private volatile Map<String, String> placas = new ConcurrentHashMap<>();
+    private volatile IndiceFuzzyPlacas indice = new IndiceFuzzyPlacas(1);
+    private volatile boolean loaded;
+
+    @Value("${mottu.placas.fuzzy.max-distance:1}")
+    private int fuzzyMaxDistance = 1;
+
+    public PlacasCadastradas(VeiculoRepository veiculoRepository) {
+        this.veiculoRepository = veiculoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    /** Recarrega tudo do banco. */
+    public void reload() {
+        try {
+            long start = System.currentTimeMillis();
+            List<String> cadastradas = veiculoRepository.listarPlacas();
+            Map<String, String> novo = new ConcurrentHashMap<>(Math.max(16, cadastradas.size() * 2));
+            IndiceFuzzyPlacas novoIndice = new IndiceFuzzyPlacas(fuzzyMaxDistance, cadastradas.size());
+            for (String placa : cadastradas) {
+                String normalized = PlateUtils.normalizeMercosul(placa);
+                if (!normalized.isEmpty()) {
+                    novo.put(normalized, placa);
+                    novoIndice.add(normalized);
+                }
+            }
+            indice = novoIndice;
+            placas = novo;
+            loaded = true;
+            log.info("{} placas cadastradas carregadas em {} ms.", novo.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("Placas cadastradas não carregadas; OCR segue sem conferir o cadastro: {}", e.toString());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlacaAlterada(PlacaAlteradaEvent event) {
+        Map<String, String> atual = placas;
+        IndiceFuzzyPlacas atualIndice = indice;
+        if (event.placaAnterior() != null) {
+            String normalized = PlateUtils.normalizeMercosul(event.placaAnterior());
+            atual.remove(normalized);
+            atualIndice.remove(normalized);
+        }
+        if (event.placaNova() != null) {
+            String normalized = PlateUtils.normalizeMercosul(event.placaNova());
+            if (!normalized.isEmpty()) {
+                atual.put(normalized, event.placaNova().toUpperCase());
+                atualIndice.add(normalized);
+            }
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** A placa (já normalizada) está no cadastro? */
+    public boolean contains(String normalized) {
+        return normalized != null && placas.containsKey(normalized);
+    }
+
+    /** Placa como está no cadastro para a forma normalizada, ou null. */
+    public String cadastrada(String normalized) {
+        return normalized == null ? null : placas.get(normalized);
+    }
+
+    /** Visão (somente leitura) das placas normalizadas. */
+    public Collection<String> normalizadas() {
+        return Collections.unmodifiableSet(placas.keySet());
+    }
+
+    /**
+     * Placas cadastradas a até {@code k} erros da placa (já normalizada), da mais próxima para a mais
+     * distante. Mais de uma na menor distância quer dizer que a leitura é ambígua.
+     */
+    public List<PlacaProxima> proximas(String normalized, int k) {
+        if (k < 0 || k > fuzzyMaxDistance) {
+            throw new InvalidInputException("Distância deve estar entre 0 e " + fuzzyMaxDistance + ".");
+        }
+        IndiceFuzzyPlacas atual = indice;
+        List<IndiceFuzzyPlacas.Proxima> encontradas = atual.buscar(normalized, Math.min(k, atual.maxDistance()));
+        List<PlacaProxima> out = new ArrayList<>(encontradas.size());
+        for (IndiceFuzzyPlacas.Proxima p : encontradas) {
+            String cadastrada = placas.get(p.placa());
+            if (cadastrada != null) out.add(new PlacaProxima(p.placa(), cadastrada, p.distancia()));
+        }
+        return out;
+    }
+
+    /** {@link #proximas(String, int)} com a distância configurada. */
+    public List<PlacaProxima> proximas(String normalized) {
+        return proximas(normalized, fuzzyMaxDistance);
+    }
+
+    public int fuzzyMaxDistance() {
+        return fuzzyMaxDistance;
+    }
+
+    public int size() {
+        return placas.size();
+    }
+}
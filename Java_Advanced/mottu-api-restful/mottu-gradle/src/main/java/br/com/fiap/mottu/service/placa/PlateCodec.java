@@ -0,0 +1,63 @@
+package br.com.fiap.mottu.service.placa;
+
+import java.util.Arrays;
+
+/**
+ * Placa (Mercosul ou antiga, 7 caracteres de [A-Z0-9]) como um número em base 36: cabe em 37 bits
+ * (36^7 ≈ 7,8 × 10^10) e os códigos seguem a mesma ordem das placas em texto. Minúsculas viram o mesmo
+ * código das maiúsculas, como no {@code UPPER(PLACA) = ?} das consultas. Nada é alocado para codificar.
+ */
+public final class PlateCodec {
+
+    public static final int LENGTH = 7;
+    /** Devolvido por {@link #encode} quando a placa não tem 7 caracteres alfanuméricos. */
+    public static final long INVALIDA = -1L;
+    /** 36^7: os códigos válidos vão de 0 a LIMITE - 1. */
+    public static final long LIMITE = 78_364_164_096L;
+
+    /** ASCII -> valor em base 36, -1 fora de [0-9A-Za-z]. Tabela em vez de ifs: sem desvio imprevisível por caractere. */
+    private static final byte[] DIGITO = new byte[128];
+
+    static {
+        Arrays.fill(DIGITO, (byte) -1);
+        for (int c = '0'; c <= '9'; c++) DIGITO[c] = (byte) (c - '0');
+        for (int c = 'A'; c <= 'Z'; c++) {
+            DIGITO[c] = (byte) (c - 'A' + 10);
+            DIGITO[c + ('a' - 'A')] = (byte) (c - 'A' + 10);
+        }
+    }
+
+    private PlateCodec() {}
+
+    public static long encode(CharSequence placa) {
+        if (placa == null || placa.length() != LENGTH) return INVALIDA;
+        long code = 0;
+        int invalido = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int d = digito(placa.charAt(i));
+            invalido |= d;
+            code = code * 36 + d;
+        }
+        return invalido < 0 ? INVALIDA : code;
+    }
+
+    public static String decode(long code) {
+        if (code < 0 || code >= LIMITE) throw new IllegalArgumentException("Código de placa inválido: " + code);
+        char[] out = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            int d = (int) (code % 36);
+            out[i] = (char) (d < 10 ? '0' + d : 'A' + d - 10);
+            code /= 36;
+        }
+        return new String(out);
+    }
+
+    /** Valor do caractere em base 36, ou -1 fora de [0-9A-Za-z]. */
+    static int digito(char c) {
+        return DIGITO[c & 0x7F] | -(c >>> 7); // não ASCII vira -1
+    }
+
+    public static boolean isValid(CharSequence placa) {
+        return encode(placa) != INVALIDA;
+    }
+}
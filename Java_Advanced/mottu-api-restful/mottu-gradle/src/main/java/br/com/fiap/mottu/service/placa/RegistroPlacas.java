@@ -0,0 +1,165 @@
+package br.com.fiap.mottu.service.placa;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Placa -> (id do veículo, box atual, status do box) em memória, para as consultas de portaria não
+ * irem ao banco: {@link PlateCodec} + {@link TabelaPlacas}, O(1) e sem alocar por consulta, 23 a 46
+ * bytes por veículo em vez da entidade hidratada.
+ * <p>
+ * Carregado quando a aplicação sobe, numa consulta só lida em streaming (sem montar lista), e mantido
+ * pelos {@link PlacaAlteradaEvent} e {@link VagaAlteradaEvent} após o commit. Só responde por placas de
+ * 7 caracteres alfanuméricos; para as demais, ou enquanto não carregar, {@link #conhece} é false e quem
+ * consulta vai ao banco como antes.
+ */
+@Component
+public class RegistroPlacas {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroPlacas.class);
+
+    public static final long AUSENTE = TabelaPlacas.AUSENTE;
+
+    private static final String SQL_CARGA = """
+            SELECT v.ID_VEICULO, v.PLACA, vb.TB_BOX_ID_BOX, b.STATUS
+              FROM TB_VEICULO v
+              LEFT JOIN TB_VEICULOBOX vb ON vb.TB_VEICULO_ID_VEICULO = v.ID_VEICULO
+              LEFT JOIN TB_BOX b ON b.ID_BOX = vb.TB_BOX_ID_BOX
+            """;
+
+    private final JdbcTemplate jdbc;
+    private volatile TabelaPlacas tabela = new TabelaPlacas(16);
+    private volatile boolean loaded;
+
+    @Value("${mottu.placas.registro.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    public RegistroPlacas(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reload();
+    }
+
+    /** Recarrega tudo do banco. */
+    public void reload() {
+        try {
+            long start = System.currentTimeMillis();
+            Integer total = jdbc.queryForObject("SELECT COUNT(1) FROM TB_VEICULO", Integer.class);
+            TabelaPlacas nova = new TabelaPlacas(total == null ? 16 : total);
+            int[] ignoradas = {0};
+            jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL_CARGA);
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, (ResultSet rs) -> {
+                long codigo = PlateCodec.encode(rs.getString(2));
+                long veiculoId = rs.getLong(1);
+                if (codigo == PlateCodec.INVALIDA || veiculoId > TabelaPlacas.VEICULO_ID_MAX) {
+                    ignoradas[0]++;
+                    return;
+                }
+                String status = rs.getString(4);
+                nova.put(codigo, veiculoId, rs.getLong(3), status == null || status.isEmpty() ? 0 : status.charAt(0));
+            });
+            tabela = nova;
+            loaded = true;
+            log.info("Registro de placas: {} veículos ({} KB) em {} ms; {} placas fora do formato ficam no banco.",
+                    nova.size(), nova.bytes() / 1024, System.currentTimeMillis() - start, ignoradas[0]);
+        } catch (RuntimeException e) {
+            log.warn("Registro de placas não carregado; consultas por placa seguem no banco: {}", e.toString());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlacaAlterada(PlacaAlteradaEvent event) {
+        TabelaPlacas atual = tabela;
+        long boxId = 0;
+        int status = 0;
+        long anterior = PlateCodec.encode(event.placaAnterior());
+        if (anterior != PlateCodec.INVALIDA) {
+            long ids = atual.ids(anterior);
+            if (ids != AUSENTE) {
+                // troca de placa: o veículo continua no mesmo box
+                boxId = ids & TabelaPlacas.BOX_ID_MAX;
+                status = atual.status(anterior);
+            }
+            atual.remove(anterior);
+        }
+        long nova = PlateCodec.encode(event.placaNova());
+        if (nova != PlateCodec.INVALIDA && event.veiculoId() != null && event.veiculoId() <= TabelaPlacas.VEICULO_ID_MAX) {
+            atual.put(nova, event.veiculoId(), boxId, status);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVagaAlterada(VagaAlteradaEvent event) {
+        TabelaPlacas atual = tabela;
+        long codigo = PlateCodec.encode(event.placa());
+        if (event.ocupado()) {
+            if (codigo != PlateCodec.INVALIDA) {
+                atual.atualizarBox(codigo, event.boxId(), event.status() == null ? 'O' : event.status().charAt(0));
+            }
+        } else if (codigo == PlateCodec.INVALIDA || !atual.atualizarBox(codigo, 0, 0)) {
+            atual.liberarBox(event.boxId());
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * O registro responde por esta placa? (carregado e placa no formato do {@link PlateCodec}).
+     * Responde pelos acertos: ele acompanha só os commits desta instância, então {@link #AUSENTE} pode ser
+     * atraso e quem precisa de "não existe" confere no banco.
+     */
+    public boolean conhece(CharSequence placa) {
+        return loaded && PlateCodec.isValid(placa);
+    }
+
+    /** Id do veículo com a placa (qualquer caixa), ou {@link #AUSENTE}. */
+    public long veiculoId(CharSequence placa) {
+        long ids = ids(placa);
+        return ids == AUSENTE ? AUSENTE : ids >>> 32;
+    }
+
+    /** Box atual do veículo com a placa, 0 se não está estacionado, ou {@link #AUSENTE}. */
+    public long boxId(CharSequence placa) {
+        long ids = ids(placa);
+        return ids == AUSENTE ? AUSENTE : ids & TabelaPlacas.BOX_ID_MAX;
+    }
+
+    /** Status do box atual (ex. 'O'), 0 se não está estacionado ou a placa não está no registro. */
+    public char status(CharSequence placa) {
+        long codigo = PlateCodec.encode(placa);
+        if (codigo == PlateCodec.INVALIDA) return 0;
+        int s = tabela.status(codigo);
+        return s < 0 ? 0 : (char) s;
+    }
+
+    public int size() {
+        return tabela.size();
+    }
+
+    /** Memória ocupada pela tabela, em bytes. */
+    public long bytes() {
+        return tabela.bytes();
+    }
+
+    private long ids(CharSequence placa) {
+        long codigo = PlateCodec.encode(placa);
+        return codigo == PlateCodec.INVALIDA ? AUSENTE : tabela.ids(codigo);
+    }
+}
@@ -0,0 +1,221 @@
+package br.com.fiap.mottu.service.placa;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Tabela de endereçamento aberto (sondagem linear) de código de placa ({@link PlateCodec}) para
+ * id do veículo, id do box atual e status do box, num único {@code long[]} com chave e valor lado a lado
+ * (uma linha de cache por consulta): 16 bytes por posição, de 23 a 46 bytes por veículo conforme a
+ * ocupação (no máximo 70%, a capacidade dobra ao passar).
+ * <ul>
+ *   <li>{@code slots[2i]} = (código + 1) | status &lt;&lt; 40 — 0 é posição vazia;</li>
+ *   <li>{@code slots[2i + 1]} = veiculoId &lt;&lt; 32 | boxId — 0 no box é "sem box".</li>
+ * </ul>
+ * Leituras são otimistas ({@link StampedLock}) e não alocam; escritas pegam o lock de escrita.
+ * Remoção por deslocamento para trás, sem lápides, então a sondagem nunca degrada com o uso.
+ */
+final class TabelaPlacas {
+
+    static final long AUSENTE = -1L;
+    /** veiculoId fica nos 31 bits altos (o valor empacotado nunca é negativo); boxId nos 32 baixos. */
+    static final long VEICULO_ID_MAX = Integer.MAX_VALUE;
+    static final long BOX_ID_MAX = 0xFFFF_FFFFL;
+
+    private static final long VAZIO = 0L;
+    private static final int STATUS_SHIFT = 40;
+    private static final long CHAVE_MASK = (1L << STATUS_SHIFT) - 1;
+    private static final double OCUPACAO_MAX = 0.7;
+
+    private final StampedLock lock = new StampedLock();
+    /** chave, valor, chave, valor... */
+    private long[] slots;
+    private int size;
+
+    TabelaPlacas(int esperados) {
+        int cap = Integer.highestOneBit(Math.max(16, (int) (esperados / OCUPACAO_MAX) + 1) - 1) << 1;
+        slots = new long[cap * 2];
+    }
+
+    /** veiculoId &lt;&lt; 32 | boxId, ou {@link #AUSENTE}. */
+    long ids(long codigo) {
+        long stamp = lock.tryOptimisticRead();
+        long r = idsSemLock(codigo);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = idsSemLock(codigo);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return r;
+    }
+
+    /** Status do box (caractere, ex. 'O'), 0 sem box, ou -1 se a placa não está na tabela. */
+    int status(long codigo) {
+        long stamp = lock.tryOptimisticRead();
+        int r = statusSemLock(codigo);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                r = statusSemLock(codigo);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return r;
+    }
+
+    // leitura otimista pode ver a tabela no meio de uma escrita; o validate de quem chama descarta
+    private long idsSemLock(long codigo) {
+        long[] t = slots;
+        int i = slot(t, codigo);
+        return i < 0 ? AUSENTE : t[i + 1];
+    }
+
+    private int statusSemLock(long codigo) {
+        long[] t = slots;
+        int i = slot(t, codigo);
+        return i < 0 ? -1 : (int) (t[i] >>> STATUS_SHIFT);
+    }
+
+    /** Insere ou substitui. */
+    void put(long codigo, long veiculoId, long boxId, int status) {
+        checkCodigo(codigo);
+        long valor = pack(veiculoId, boxId);
+        long chave = (codigo + 1) | ((long) (status & 0xFF) << STATUS_SHIFT);
+        long stamp = lock.writeLock();
+        try {
+            int i = slot(slots, codigo);
+            if (i < 0) {
+                if (size + 1 > (slots.length >> 1) * OCUPACAO_MAX) resize(slots.length << 1);
+                int m = slots.length - 1;
+                i = (hash(codigo) << 1) & m;
+                while (slots[i] != VAZIO) i = (i + 2) & m;
+                size++;
+            }
+            slots[i] = chave;
+            slots[i + 1] = valor;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Troca o box/status de uma placa já cadastrada; false se ela não está na tabela. */
+    boolean atualizarBox(long codigo, long boxId, int status) {
+        long stamp = lock.writeLock();
+        try {
+            int i = slot(slots, codigo);
+            if (i < 0) return false;
+            slots[i + 1] = pack(slots[i + 1] >>> 32, boxId);
+            slots[i] = (slots[i] & CHAVE_MASK) | ((long) (status & 0xFF) << STATUS_SHIFT);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Tira o box de quem estiver nele. Sem índice reverso: varre a tabela (liberar por box é raro). */
+    int liberarBox(long boxId) {
+        if (boxId <= 0) return 0;
+        long stamp = lock.writeLock();
+        try {
+            int n = 0;
+            for (int i = 0; i < slots.length; i += 2) {
+                if (slots[i] != VAZIO && (slots[i + 1] & BOX_ID_MAX) == boxId) {
+                    slots[i + 1] &= ~BOX_ID_MAX;
+                    slots[i] &= CHAVE_MASK;
+                    n++;
+                }
+            }
+            return n;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    boolean remove(long codigo) {
+        long stamp = lock.writeLock();
+        try {
+            int i = slot(slots, codigo);
+            if (i < 0) return false;
+            int m = slots.length - 1;
+            // desloca para trás quem sondou por cima da posição liberada
+            for (int j = (i + 2) & m; slots[j] != VAZIO; j = (j + 2) & m) {
+                int ideal = (hash((slots[j] & CHAVE_MASK) - 1) << 1) & m;
+                boolean ficaOnde = i <= j ? (ideal > i && ideal <= j) : (ideal > i || ideal <= j);
+                if (!ficaOnde) {
+                    slots[i] = slots[j];
+                    slots[i + 1] = slots[j + 1];
+                    i = j;
+                }
+            }
+            slots[i] = VAZIO;
+            slots[i + 1] = 0;
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Bytes ocupados pela tabela. */
+    long bytes() {
+        long stamp = lock.readLock();
+        try {
+            return 8L * slots.length;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Índice da chave em {@code t}, ou -1. */
+    private static int slot(long[] t, long codigo) {
+        int m = t.length - 1;
+        long alvo = codigo + 1;
+        int i = (hash(codigo) << 1) & m;
+        for (int n = 0; n < t.length; n += 2, i = (i + 2) & m) {
+            long c = t[i];
+            if (c == VAZIO) return -1;
+            if ((c & CHAVE_MASK) == alvo) return i;
+        }
+        return -1;
+    }
+
+    private void resize(int tamanho) {
+        long[] t = slots;
+        long[] nt = new long[tamanho];
+        int m = tamanho - 1;
+        for (int j = 0; j < t.length; j += 2) {
+            if (t[j] == VAZIO) continue;
+            int i = (hash((t[j] & CHAVE_MASK) - 1) << 1) & m;
+            while (nt[i] != VAZIO) i = (i + 2) & m;
+            nt[i] = t[j];
+            nt[i + 1] = t[j + 1];
+        }
+        slots = nt;
+    }
+
+    private static int hash(long codigo) {
+        return (int) ((codigo * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private static long pack(long veiculoId, long boxId) {
+        if (veiculoId <= 0 || veiculoId > VEICULO_ID_MAX) throw new IllegalArgumentException("veiculoId fora da faixa: " + veiculoId);
+        if (boxId < 0 || boxId > BOX_ID_MAX) throw new IllegalArgumentException("boxId fora da faixa: " + boxId);
+        return veiculoId << 32 | boxId;
+    }
+
+    private static void checkCodigo(long codigo) {
+        if (codigo < 0 || codigo >= PlateCodec.LIMITE) throw new IllegalArgumentException("Código de placa inválido: " + codigo);
+    }
+}
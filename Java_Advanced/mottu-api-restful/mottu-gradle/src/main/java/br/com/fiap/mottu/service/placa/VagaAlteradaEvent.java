@@ -0,0 +1,16 @@
+package br.com.fiap.mottu.service.placa;
+
+/**
+ * Publicado quando um veículo é estacionado num box ou um box é liberado, para o {@link RegistroPlacas}
+ * acompanhar o box atual de cada placa.
+ *
+ * @param placa  placa do veículo (null quando o box é liberado sem saber quem estava nele)
+ * @param boxId  box ocupado ou liberado
+ * @param status status do box depois da alteração ("O" ocupado, "L" livre)
+ */
+public record VagaAlteradaEvent(String placa, long boxId, String status) {
+
+    public boolean ocupado() {
+        return !"L".equals(status);
+    }
+}
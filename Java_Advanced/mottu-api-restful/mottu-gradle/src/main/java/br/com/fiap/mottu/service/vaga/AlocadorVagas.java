@@ -0,0 +1,235 @@
+package br.com.fiap.mottu.service.vaga;
+
+import br.com.fiap.mottu.service.placa.VagaAlteradaEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Escolhe o box livre do estacionamento sem carregar os boxes: um {@link MapaVagas} por pátio/zona em
+ * memória dá o candidato em O(1) e o banco o trava com {@code SELECT ... FOR UPDATE SKIP LOCKED}
+ * ({@code STATUS = 'L'} e sem veículo vinculado) antes de ocupá-lo, na transação de quem estaciona. Como o
+ * CAS do mapa entrega um box diferente a cada chamada, alocações simultâneas nesta instância não disputam a
+ * mesma linha; entre instâncias, que montam o mesmo mapa e oferecem os mesmos candidatos na mesma ordem,
+ * o candidato travado por outra conta como tomado e a alocação passa ao próximo sem esperar. Se a trava não
+ * pega linha (o mapa estava atrasado, ou outra instância está com o box), tenta o próximo; o bit fica
+ * desligado até a reconciliação. Se a transação é desfeita, o box volta a ficar livre no mapa.
+ * <p>
+ * Carregado quando a aplicação sobe e reconciliado com o banco a cada
+ * {@code mottu.vagas.alocador.reconciliacao-ms} (boxes criados, excluídos ou alterados fora daqui);
+ * entre uma carga e outra, acompanha os {@link VagaAlteradaEvent} após o commit. Enquanto não carregar,
+ * ou quando o mapa não tem mais livres, reserva pelo banco com {@code FOR UPDATE SKIP LOCKED}: cada
+ * transação fica com o primeiro box livre que ninguém travou, sem esperar as outras.
+ */
+@Component
+public class AlocadorVagas {
+
+    private static final Logger log = LoggerFactory.getLogger(AlocadorVagas.class);
+
+    public static final long NENHUM = MapaVagas.NENHUM;
+
+    private static final String SQL_CARGA = """
+            SELECT b.ID_BOX, b.STATUS, MIN(pb.TB_PATIO_ID_PATIO), MIN(zb.TB_ZONA_ID_ZONA), COUNT(vb.TB_BOX_ID_BOX)
+              FROM TB_BOX b
+              LEFT JOIN TB_PATIOBOX pb ON pb.TB_BOX_ID_BOX = b.ID_BOX
+              LEFT JOIN TB_ZONABOX zb ON zb.TB_BOX_ID_BOX = b.ID_BOX
+              LEFT JOIN TB_VEICULOBOX vb ON vb.TB_BOX_ID_BOX = b.ID_BOX
+             GROUP BY b.ID_BOX, b.STATUS
+            """;
+    private static final String SQL_OCUPAR = """
+            UPDATE TB_BOX b SET STATUS = 'O'
+             WHERE b.ID_BOX = ? AND b.STATUS = 'L'
+               AND NOT EXISTS (SELECT 1 FROM TB_VEICULOBOX vb WHERE vb.TB_BOX_ID_BOX = b.ID_BOX)
+            """;
+    /** Candidato do mapa: travado por outra transação volta vazio na hora, em vez de esperar o desfecho dela. */
+    private static final String SQL_TRAVAR_CANDIDATO = """
+            SELECT b.ID_BOX
+              FROM TB_BOX b
+             WHERE b.ID_BOX = ? AND b.STATUS = 'L'
+               AND NOT EXISTS (SELECT 1 FROM TB_VEICULOBOX vb WHERE vb.TB_BOX_ID_BOX = b.ID_BOX)
+               FOR UPDATE SKIP LOCKED
+            """;
+    /** Lido só até a primeira linha: com SKIP LOCKED a trava é posta na linha quando ela é buscada. */
+    private static final String SQL_RESERVAR_LIVRE = """
+            SELECT b.ID_BOX
+              FROM TB_BOX b
+             WHERE b.STATUS = 'L'
+               AND NOT EXISTS (SELECT 1 FROM TB_VEICULOBOX vb WHERE vb.TB_BOX_ID_BOX = b.ID_BOX)
+             ORDER BY b.ID_BOX
+               FOR UPDATE SKIP LOCKED
+            """;
+    private static final String SQL_OCUPAR_RESERVADO = "UPDATE TB_BOX SET STATUS = 'O' WHERE ID_BOX = ?";
+
+    private final JdbcTemplate jdbc;
+    private volatile MapaVagas mapa;
+
+    @Value("${mottu.vagas.alocador.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    public AlocadorVagas(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Situação do alocador. */
+    public record Estatisticas(boolean carregado, int boxes, int livres, long bytes, List<MapaVagas.Resumo> setores) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        reconciliar();
+    }
+
+    @Scheduled(initialDelayString = "${mottu.vagas.alocador.reconciliacao-ms:60000}",
+            fixedDelayString = "${mottu.vagas.alocador.reconciliacao-ms:60000}")
+    public void reconciliacaoAgendada() {
+        reconciliar();
+    }
+
+    /** Relê os boxes do banco e troca o mapa. */
+    public Estatisticas reconciliar() {
+        try {
+            long start = System.currentTimeMillis();
+            MapaVagas.Builder builder = MapaVagas.builder();
+            jdbc.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL_CARGA);
+                ps.setFetchSize(fetchSize);
+                return ps;
+            }, (ResultSet rs) -> {
+                builder.add(rs.getLong(1), rs.getLong(3), rs.getLong(4), "L".equals(rs.getString(2)) && rs.getLong(5) == 0);
+            });
+            MapaVagas novo = builder.build();
+            MapaVagas anterior = mapa;
+            mapa = novo;
+            if (anterior == null) {
+                log.info("Alocador de vagas: {} boxes em {} setores, {} livres, em {} ms.",
+                        novo.boxes(), novo.setores().size(), novo.livres(), System.currentTimeMillis() - start);
+            } else if (anterior.livres() != novo.livres() || anterior.boxes() != novo.boxes()) {
+                log.info("Alocador de vagas reconciliado: {} -> {} boxes, {} -> {} livres.",
+                        anterior.boxes(), novo.boxes(), anterior.livres(), novo.livres());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Alocador de vagas não {}; alocação segue pelo banco: {}",
+                    mapa == null ? "carregado" : "reconciliado", e.toString());
+        }
+        return estatisticas();
+    }
+
+    /**
+     * Ocupa um box livre no banco ({@code STATUS = 'O'}) e devolve o id, ou {@link #NENHUM} se não há.
+     * Participa da transação de quem chama: o box só fica ocupado para os outros se ela fizer commit.
+     */
+    @Transactional
+    public long ocuparLivre() {
+        MapaVagas atual = mapa;
+        if (atual != null) {
+            long boxId;
+            while ((boxId = atual.alocar()) != NENHUM) {
+                if (travarCandidato(boxId)) {
+                    jdbc.update(SQL_OCUPAR_RESERVADO, boxId);
+                    devolverSeDesfeita(atual, boxId);
+                    return boxId;
+                }
+                // ocupado no banco ou travado por outra instância: o bit fica desligado até a próxima reconciliação
+            }
+        }
+        // sem mapa, ou mapa sem livres: pode haver box criado/liberado depois da última carga
+        long boxId = reservarLivrePeloBanco();
+        if (boxId != NENHUM && atual != null) atual.ocupar(boxId);
+        return boxId;
+    }
+
+    /**
+     * Ocupa o box pedido no banco, se ele estiver livre e sem veículo. Se outra transação estiver com ele,
+     * espera o desfecho dela (quem pede um box específico aceita a fila por ele).
+     */
+    @Transactional
+    public boolean ocupar(long boxId) {
+        if (jdbc.update(SQL_OCUPAR, boxId) != 1) return false;
+        confirmarOcupado(boxId);
+        return true;
+    }
+
+    /**
+     * Só o candidato do mapa, já tirado dos livres em memória, para quem confirma no banco por conta
+     * própria (o bloco PL/SQL de {@link VagaOracleService}); {@link #NENHUM} sem mapa ou sem livres.
+     * Depois, {@link #confirmarOcupado} com o box que ficou ou {@link #devolverCandidato} se ele nem foi tentado.
+     */
+    public long reservarCandidato() {
+        MapaVagas atual = mapa;
+        return atual == null ? NENHUM : atual.alocar();
+    }
+
+    /** Candidato de {@link #reservarCandidato} que não chegou ao banco: volta a ficar livre. */
+    public void devolverCandidato(long boxId) {
+        MapaVagas atual = mapa;
+        if (boxId != NENHUM && atual != null) atual.liberar(boxId);
+    }
+
+    /** O box foi ocupado no banco por quem chamou: fica ocupado no mapa e volta se a transação for desfeita. */
+    public void confirmarOcupado(long boxId) {
+        MapaVagas atual = mapa;
+        if (atual == null) return;
+        atual.ocupar(boxId);
+        devolverSeDesfeita(atual, boxId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onVagaAlterada(VagaAlteradaEvent event) {
+        MapaVagas atual = mapa;
+        if (atual == null) return;
+        if (event.ocupado()) {
+            atual.ocupar(event.boxId());
+        } else {
+            atual.liberar(event.boxId());
+        }
+    }
+
+    public boolean isLoaded() {
+        return mapa != null;
+    }
+
+    public Estatisticas estatisticas() {
+        MapaVagas atual = mapa;
+        if (atual == null) return new Estatisticas(false, 0, 0, 0, List.of());
+        return new Estatisticas(true, atual.boxes(), atual.livres(), atual.bytes(), atual.setores());
+    }
+
+    private boolean travarCandidato(long boxId) {
+        return Boolean.TRUE.equals(jdbc.query(SQL_TRAVAR_CANDIDATO, ResultSet::next, boxId));
+    }
+
+    private long reservarLivrePeloBanco() {
+        Long boxId = jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_RESERVAR_LIVRE);
+            ps.setFetchSize(1);
+            ps.setMaxRows(1);
+            return ps;
+        }, rs -> rs.next() ? rs.getLong(1) : null);
+        if (boxId == null) return NENHUM;
+        jdbc.update(SQL_OCUPAR_RESERVADO, boxId);
+        return boxId;
+    }
+
+    /** Rollback de quem alocou: o UPDATE é desfeito, então o box volta a ficar livre no mapa. */
+    private void devolverSeDesfeita(MapaVagas alocadoEm, long boxId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED && mapa == alocadoEm) alocadoEm.liberar(boxId);
+            }
+        });
+    }
+}
@@ -0,0 +1,292 @@
+package br.com.fiap.mottu.service.vaga;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Boxes livres por setor (pátio + zona) em bitsets: um bit por box, 1 = livre. Alocar é achar o primeiro
+ * bit ligado e desligá-lo com CAS, sem lock; um segundo nível ("resumo", um bit por palavra de 64 boxes)
+ * aponta as palavras que podem ter livres, então a busca olha uma palavra de resumo a cada 4096 boxes do
+ * setor em vez de percorrer todos. Cerca de 1 bit por box, mais o id (8 bytes) e o índice por id.
+ * <p>
+ * A composição dos setores é fixa: box novo, excluído ou trocado de setor só aparece numa nova carga.
+ * O mapa é uma dica rápida: quem aloca confirma no banco (ver {@link AlocadorVagas}).
+ */
+public final class MapaVagas {
+
+    public static final long NENHUM = -1;
+
+    private final Setor[] setores;
+    /** ids de todos os boxes, ordenados, e a posição de cada um (setor << 32 | índice no setor). */
+    private final long[] ids;
+    private final long[] posicoes;
+
+    private MapaVagas(Setor[] setores, long[] ids, long[] posicoes) {
+        this.setores = setores;
+        this.ids = ids;
+        this.posicoes = posicoes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Situação de um setor. */
+    public record Resumo(long patioId, long zonaId, int boxes, int livres) {}
+
+    /** Primeiro box livre (setores em ordem de pátio/zona, boxes em ordem de id), já marcado ocupado; ou {@link #NENHUM}. */
+    public long alocar() {
+        for (Setor s : setores) {
+            int i = s.alocar();
+            if (i >= 0) return s.boxIds[i];
+        }
+        return NENHUM;
+    }
+
+    /** Como {@link #alocar()}, só no setor pedido (0 = box sem pátio/zona). */
+    public long alocar(long patioId, long zonaId) {
+        for (Setor s : setores) {
+            if (s.patioId == patioId && s.zonaId == zonaId) {
+                int i = s.alocar();
+                return i < 0 ? NENHUM : s.boxIds[i];
+            }
+        }
+        return NENHUM;
+    }
+
+    /** Marca o box como livre. false se ele já estava livre ou não está no mapa. */
+    public boolean liberar(long boxId) {
+        long p = posicao(boxId);
+        return p >= 0 && setores[(int) (p >>> 32)].liberar((int) p);
+    }
+
+    /** Marca o box como ocupado. false se ele já estava ocupado ou não está no mapa. */
+    public boolean ocupar(long boxId) {
+        long p = posicao(boxId);
+        return p >= 0 && setores[(int) (p >>> 32)].ocupar((int) p);
+    }
+
+    public boolean contem(long boxId) {
+        return posicao(boxId) >= 0;
+    }
+
+    public boolean livre(long boxId) {
+        long p = posicao(boxId);
+        return p >= 0 && setores[(int) (p >>> 32)].livre((int) p);
+    }
+
+    public int boxes() {
+        return ids.length;
+    }
+
+    public int livres() {
+        int total = 0;
+        for (Setor s : setores) total += s.livres();
+        return total;
+    }
+
+    public List<Resumo> setores() {
+        List<Resumo> out = new ArrayList<>(setores.length);
+        for (Setor s : setores) out.add(new Resumo(s.patioId, s.zonaId, s.boxIds.length, s.livres()));
+        return out;
+    }
+
+    /** Memória aproximada, em bytes. */
+    public long bytes() {
+        long total = 16L * ids.length;
+        for (Setor s : setores) total += 8L * s.boxIds.length + 8L * (s.bits.length() + s.resumo.length());
+        return total;
+    }
+
+    private long posicao(long boxId) {
+        int i = Arrays.binarySearch(ids, boxId);
+        return i < 0 ? -1 : posicoes[i];
+    }
+
+    /** Boxes de um pátio/zona. */
+    static final class Setor {
+
+        final long patioId;
+        final long zonaId;
+        final long[] boxIds;
+        private final AtomicLongArray bits;
+        /** bit w ligado = a palavra w de {@link #bits} pode ter box livre (desligado = certamente não tem). */
+        private final AtomicLongArray resumo;
+        /** Nunca abaixo do número real de bits ligados: sobe antes de ligar, desce depois de desligar. */
+        private final AtomicInteger disponiveis = new AtomicInteger();
+
+        Setor(long patioId, long zonaId, long[] boxIds) {
+            this.patioId = patioId;
+            this.zonaId = zonaId;
+            this.boxIds = boxIds;
+            int palavras = (boxIds.length + 63) >>> 6;
+            this.bits = new AtomicLongArray(Math.max(1, palavras));
+            this.resumo = new AtomicLongArray(Math.max(1, (palavras + 63) >>> 6));
+        }
+
+        int alocar() {
+            if (disponiveis.get() <= 0) return -1;
+            for (int r = 0; r < resumo.length(); r++) {
+                long s;
+                while ((s = resumo.get(r)) != 0) {
+                    int w = (r << 6) + Long.numberOfTrailingZeros(s);
+                    long palavra;
+                    while ((palavra = bits.get(w)) != 0) {
+                        long bit = palavra & -palavra;
+                        if (bits.compareAndSet(w, palavra, palavra & ~bit)) {
+                            disponiveis.decrementAndGet();
+                            if (palavra == bit) limparResumo(w);
+                            return (w << 6) + Long.numberOfTrailingZeros(bit);
+                        }
+                    }
+                    limparResumo(w);
+                }
+            }
+            return -1;
+        }
+
+        boolean liberar(int i) {
+            int w = i >>> 6;
+            long bit = 1L << i;
+            disponiveis.incrementAndGet();
+            long antes = bits.getAndAccumulate(w, bit, (p, b) -> p | b);
+            if ((antes & bit) != 0) {
+                disponiveis.decrementAndGet();
+                return false;
+            }
+            int r = w >>> 6;
+            long m = 1L << w;
+            resumo.getAndAccumulate(r, m, (s, b) -> s | b);
+            return true;
+        }
+
+        boolean ocupar(int i) {
+            int w = i >>> 6;
+            long bit = 1L << i;
+            long antes = bits.getAndAccumulate(w, ~bit, (p, b) -> p & b);
+            if ((antes & bit) == 0) return false;
+            disponiveis.decrementAndGet();
+            if (antes == bit) limparResumo(w);
+            return true;
+        }
+
+        boolean livre(int i) {
+            return (bits.get(i >>> 6) & (1L << i)) != 0;
+        }
+
+        int livres() {
+            int n = 0;
+            for (int w = 0; w < bits.length(); w++) n += Long.bitCount(bits.get(w));
+            return n;
+        }
+
+        /** Desliga a dica da palavra w; se um box foi liberado nela no meio tempo, religa. */
+        private void limparResumo(int w) {
+            int r = w >>> 6;
+            long m = 1L << w;
+            resumo.getAndAccumulate(r, ~m, (s, b) -> s & b);
+            if (bits.get(w) != 0) resumo.getAndAccumulate(r, m, (s, b) -> s | b);
+        }
+    }
+
+    /** Monta o mapa a partir das linhas da carga, em qualquer ordem (box em mais de um setor fica no menor deles). */
+    public static final class Builder {
+
+        private long[] boxIds = new long[64];
+        private long[] patioIds = new long[64];
+        private long[] zonaIds = new long[64];
+        private boolean[] livres = new boolean[64];
+        private int n;
+
+        private Builder() {}
+
+        /**
+         * @param patioId 0 quando o box não está em nenhum pátio
+         * @param zonaId  0 quando o box não está em nenhuma zona
+         */
+        public Builder add(long boxId, long patioId, long zonaId, boolean livre) {
+            if (n == boxIds.length) {
+                int cap = n * 2;
+                boxIds = Arrays.copyOf(boxIds, cap);
+                patioIds = Arrays.copyOf(patioIds, cap);
+                zonaIds = Arrays.copyOf(zonaIds, cap);
+                livres = Arrays.copyOf(livres, cap);
+            }
+            boxIds[n] = boxId;
+            patioIds[n] = patioId;
+            zonaIds[n] = zonaId;
+            livres[n] = livre;
+            n++;
+            return this;
+        }
+
+        public MapaVagas build() {
+            // ordena as linhas por (pátio, zona, box) através de um vetor de índices
+            Integer[] ordem = new Integer[n];
+            for (int i = 0; i < n; i++) ordem[i] = i;
+            Arrays.sort(ordem, (a, b) -> {
+                int c = Long.compare(patioIds[a], patioIds[b]);
+                if (c == 0) c = Long.compare(zonaIds[a], zonaIds[b]);
+                return c != 0 ? c : Long.compare(boxIds[a], boxIds[b]);
+            });
+
+            // um box vai para um setor só (o primeiro em que aparece na ordem)
+            long[] vistos = Arrays.copyOf(boxIds, n);
+            Arrays.sort(vistos);
+            boolean[] usado = new boolean[n];
+
+            List<Setor> setores = new ArrayList<>();
+            long[] ids = new long[n];
+            long[] posicoes = new long[n];
+            int total = 0;
+            int inicio = 0;
+            while (inicio < n) {
+                int a = ordem[inicio];
+                int fim = inicio;
+                while (fim < n && patioIds[ordem[fim]] == patioIds[a] && zonaIds[ordem[fim]] == zonaIds[a]) fim++;
+
+                long[] doSetor = new long[fim - inicio];
+                boolean[] livreNoSetor = new boolean[fim - inicio];
+                int k = 0;
+                for (int j = inicio; j < fim; j++) {
+                    int linha = ordem[j];
+                    int v = Arrays.binarySearch(vistos, boxIds[linha]);
+                    while (v > 0 && vistos[v - 1] == boxIds[linha]) v--;
+                    if (usado[v]) continue;
+                    usado[v] = true;
+                    doSetor[k] = boxIds[linha];
+                    livreNoSetor[k] = livres[linha];
+                    k++;
+                }
+                if (k > 0) {
+                    Setor s = new Setor(patioIds[a], zonaIds[a], Arrays.copyOf(doSetor, k));
+                    int indiceSetor = setores.size();
+                    for (int i = 0; i < k; i++) {
+                        if (livreNoSetor[i]) s.liberar(i);
+                        ids[total] = doSetor[i];
+                        posicoes[total] = (long) indiceSetor << 32 | i;
+                        total++;
+                    }
+                    setores.add(s);
+                }
+                inicio = fim;
+            }
+
+            // índice por id para liberar/ocupar
+            Integer[] porId = new Integer[total];
+            for (int i = 0; i < total; i++) porId[i] = i;
+            long[] idsCarga = ids;
+            Arrays.sort(porId, (a, b) -> Long.compare(idsCarga[a], idsCarga[b]));
+            long[] idsOrdenados = new long[total];
+            long[] posicoesOrdenadas = new long[total];
+            for (int i = 0; i < total; i++) {
+                idsOrdenados[i] = ids[porId[i]];
+                posicoesOrdenadas[i] = posicoes[porId[i]];
+            }
+            return new MapaVagas(setores.toArray(new Setor[0]), idsOrdenados, posicoesOrdenadas);
+        }
+    }
+}
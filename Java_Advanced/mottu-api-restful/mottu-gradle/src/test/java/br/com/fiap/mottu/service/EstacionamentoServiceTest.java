@@ -0,0 +1,128 @@
+package br.com.fiap.mottu.service;
+
+import br.com.fiap.mottu.exception.InvalidInputException;
+import br.com.fiap.mottu.model.Box;
+import br.com.fiap.mottu.model.Veiculo;
+import br.com.fiap.mottu.model.relacionamento.VeiculoBox;
+import br.com.fiap.mottu.repository.BoxRepository;
+import br.com.fiap.mottu.repository.VeiculoRepository;
+import br.com.fiap.mottu.repository.relacionamento.VeiculoBoxRepository;
+import br.com.fiap.mottu.service.placa.FiltroPlacas;
+import br.com.fiap.mottu.service.placa.PlacasCadastradas;
+import br.com.fiap.mottu.service.placa.RegistroPlacas;
+import br.com.fiap.mottu.service.placa.VagaAlteradaEvent;
+import br.com.fiap.mottu.service.vaga.AlocadorVagas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link EstacionamentoService} com o {@link RegistroPlacas} atrasado: placa trocada, estacionamento e
+ * liberação feitos fora desta instância. O registro só pode encurtar o caminho; quem decide é o banco
+ * (aqui, os repositórios simulados).
+ */
+class EstacionamentoServiceTest {
+
+    private final VeiculoRepository veiculos = mock(VeiculoRepository.class);
+    private final BoxRepository boxes = mock(BoxRepository.class);
+    private final VeiculoBoxRepository vinculos = mock(VeiculoBoxRepository.class);
+    private final PlacasCadastradas placasCadastradas = mock(PlacasCadastradas.class);
+    private final RegistroPlacas registro = mock(RegistroPlacas.class);
+    private final FiltroPlacas filtro = mock(FiltroPlacas.class);
+    private final AlocadorVagas alocador = mock(AlocadorVagas.class);
+    private final ApplicationEventPublisher eventos = mock(ApplicationEventPublisher.class);
+
+    private EstacionamentoService service;
+
+    @BeforeEach
+    void montar() {
+        service = new EstacionamentoService(veiculos, boxes, vinculos, placasCadastradas, registro, filtro, alocador, eventos);
+        when(placasCadastradas.fuzzyMaxDistance()).thenReturn(1);
+        when(boxes.findById(any())).thenAnswer(inv -> Optional.of(box(inv.getArgument(0))));
+    }
+
+    @Test
+    void placaTrocadaForaDoRegistroNaoEstacionaOVeiculoErrado() {
+        // o registro ainda aponta ABC1D23 -> 1, mas o veículo 1 agora é QWE4R56; ABC1D23 é o veículo 2
+        registroConhece("ABC1D23", 1L, 0L);
+        when(veiculos.findById(1L)).thenReturn(Optional.of(veiculo(1L, "QWE4R56")));
+        when(veiculos.findByPlacaIgnoreCase("ABC1D23")).thenReturn(Optional.of(veiculo(2L, "ABC1D23")));
+        when(alocador.ocuparLivre()).thenReturn(7L);
+
+        Box box = service.parkMoto("ABC1D23");
+
+        assertThat(box.getIdBox()).isEqualTo(7L);
+        verify(vinculos).save(argThat(vb -> vb.getId().getVeiculoId() == 2L && vb.getId().getBoxId() == 7L));
+    }
+
+    @Test
+    void estacionadoForaDoRegistroNaoGanhaSegundoBox() {
+        registroConhece("ABC1D23", 1L, 0L); // registro diz "sem box"
+        Veiculo v = veiculo(1L, "ABC1D23");
+        v.getVeiculoBoxes().add(new VeiculoBox(v, box(5L))); // outro gravador estacionou no box 5
+        when(veiculos.findById(1L)).thenReturn(Optional.of(v));
+
+        assertThatThrownBy(() -> service.parkMoto("ABC1D23"))
+                .isInstanceOf(InvalidInputException.class).hasMessageContaining("já está estacionado");
+        verify(alocador, never()).ocuparLivre();
+        verify(vinculos, never()).save(any());
+    }
+
+    @Test
+    void liberacaoComRegistroAtrasadoNaoLiberaBoxDeOutroVeiculo() {
+        // o registro ainda tem ABC1D23 no box 5, que já foi liberado e hoje é de outro veículo;
+        // no banco, ABC1D23 está no box 9
+        registroConhece("ABC1D23", 1L, 5L);
+        when(vinculos.desvincular(1L, 5L, "ABC1D23")).thenReturn(0);
+        when(vinculos.desvincular(1L, 9L, "ABC1D23")).thenReturn(1);
+        Veiculo v = veiculo(1L, "ABC1D23");
+        v.getVeiculoBoxes().add(new VeiculoBox(v, box(9L)));
+        when(veiculos.findByPlacaIgnoreCase("ABC1D23")).thenReturn(Optional.of(v));
+
+        service.releaseSpot("ABC1D23");
+
+        verify(boxes, never()).findById(5L);
+        verify(boxes).save(argThat(b -> b.getIdBox() == 9L && "L".equals(b.getStatus())));
+        verify(eventos).publishEvent(new VagaAlteradaEvent("ABC1D23", 9L, "L"));
+    }
+
+    @Test
+    void liberacaoForaDoRegistroNaoMexeEmBox() {
+        // o registro tem ABC1D23 no box 5, mas outra instância já o liberou
+        registroConhece("ABC1D23", 1L, 5L);
+        when(vinculos.desvincular(anyLong(), anyLong(), anyString())).thenReturn(0);
+        when(veiculos.findByPlacaIgnoreCase("ABC1D23")).thenReturn(Optional.of(veiculo(1L, "ABC1D23")));
+
+        assertThatThrownBy(() -> service.releaseSpot("ABC1D23"))
+                .hasMessageContaining("não está estacionado");
+        verify(boxes, never()).save(any());
+    }
+
+    private void registroConhece(String placa, long veiculoId, long boxId) {
+        when(registro.conhece(placa)).thenReturn(true);
+        when(registro.veiculoId(placa)).thenReturn(veiculoId);
+        when(registro.boxId(placa)).thenReturn(boxId);
+    }
+
+    private static Veiculo veiculo(long id, String placa) {
+        Veiculo v = new Veiculo();
+        v.setIdVeiculo(id);
+        v.setPlaca(placa);
+        return v;
+    }
+
+    private static Box box(long id) {
+        Box b = new Box();
+        b.setIdBox(id);
+        b.setStatus("O");
+        return b;
+    }
+}
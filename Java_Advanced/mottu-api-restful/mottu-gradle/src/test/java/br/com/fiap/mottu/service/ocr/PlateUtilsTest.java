@@ -0,0 +1,209 @@
+package br.com.fiap.mottu.service.ocr;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confere a implementação sem regex/alocação do {@link PlateUtils} contra a versão original
+ * (NFD + replaceAll + arrays novos a cada comparação), mantida aqui como referência.
+ */
+class PlateUtilsTest {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789"
+            + " -._/\t\nÁÉÍÓÚáéíóúÇçÃÕãõÂÊÔâêôÀàÜüÑņ̃́KÅﬁＡ¹①";
+
+    @Test
+    void cleanRawIgualAoOriginal() {
+        for (String s : edgeCases()) {
+            assertThat(PlateUtils.cleanRaw(s)).as("cleanRaw(%s)", s).isEqualTo(Reference.cleanRaw(s));
+        }
+        for (String s : randomStrings(20_000, 12)) {
+            assertThat(PlateUtils.cleanRaw(s)).as("cleanRaw(%s)", s).isEqualTo(Reference.cleanRaw(s));
+        }
+    }
+
+    @Test
+    void cleanRawIgualAoOriginalEmCadaCaractereBmp() {
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            String s = "a" + c + "1";
+            assertThat(PlateUtils.cleanRaw(s)).as("U+%04X", (int) c).isEqualTo(Reference.cleanRaw(s));
+        }
+    }
+
+    @Test
+    void cleanRawDevolveOMesmoTextoQuandoJaLimpo() {
+        String clean = "BRA2E19";
+        assertThat(PlateUtils.cleanRaw(clean)).isSameAs(clean);
+    }
+
+    @Test
+    void normalizeMercosulIgualAoOriginal() {
+        for (String s : edgeCases()) {
+            assertThat(PlateUtils.normalizeMercosul(s)).as("normalizeMercosul(%s)", s).isEqualTo(Reference.normalizeMercosul(s));
+        }
+        for (String s : randomStrings(20_000, 10)) {
+            assertThat(PlateUtils.normalizeMercosul(s)).as("normalizeMercosul(%s)", s).isEqualTo(Reference.normalizeMercosul(s));
+        }
+    }
+
+    @Test
+    void levenshteinIgualAoOriginal() {
+        List<String> words = randomPlates(2_000, new Random(7));
+        words.addAll(Arrays.asList(null, "", "A", "ABC", "ABC1234567890"));
+        Random rnd = new Random(11);
+        for (int k = 0; k < 20_000; k++) {
+            String a = words.get(rnd.nextInt(words.size()));
+            String b = rnd.nextInt(4) == 0 ? mutate(a, rnd) : words.get(rnd.nextInt(words.size()));
+            int expected = Reference.levenshtein(a, b);
+            assertThat(PlateUtils.levenshtein(a, b)).as("%s x %s", a, b).isEqualTo(expected);
+            int max = rnd.nextInt(4);
+            assertThat(PlateUtils.levenshtein(a, b, max)).as("%s x %s (max %d)", a, b, max)
+                    .isEqualTo(Math.min(expected, max + 1));
+        }
+    }
+
+    @Test
+    void bestCandidateIgualAoOriginal() {
+        Random rnd = new Random(3);
+        List<String> registry = randomPlates(2_000, rnd);
+        for (int k = 0; k < 300; k++) {
+            String candidate = rnd.nextBoolean() ? mutate(registry.get(rnd.nextInt(registry.size())), rnd) : randomPlates(1, rnd).get(0);
+            for (int max = 0; max <= 2; max++) {
+                assertThat(PlateUtils.bestCandidate(registry, candidate, max)).as("%s (max %d)", candidate, max)
+                        .isEqualTo(Reference.bestCandidate(registry, candidate, max));
+            }
+        }
+        assertThat(PlateUtils.bestCandidate(registry, null, 1)).isNull();
+        assertThat(PlateUtils.bestCandidate(List.of(), "BRA2E19", 1)).isNull();
+    }
+
+    private static List<String> edgeCases() {
+        return Arrays.asList(null, "", " ", "-", "abc-1d23", " bra 2é19 ", "BRA2E19", "bra2e19xyz", "ÁÉÍÓÚ", "ção",
+                "́", "é", "KÅ", "ﬁ", "ＡＢ", "𝐀", "🚗abc1234",
+                "\uD800", "x\uDC00y", "ABC1D2́", "a".repeat(50));
+    }
+
+    private static List<String> randomStrings(int count, int maxLength) {
+        Random rnd = new Random(42);
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = rnd.nextInt(maxLength + 1);
+            for (int j = 0; j < len; j++) sb.append(ALPHABET.charAt(rnd.nextInt(ALPHABET.length())));
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    private static List<String> randomPlates(int count, Random rnd) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder(7);
+            for (int j = 0; j < 7; j++) {
+                boolean letter = j < 3 || (j == 4 && rnd.nextBoolean());
+                sb.append(letter ? (char) ('A' + rnd.nextInt(26)) : (char) ('0' + rnd.nextInt(10)));
+            }
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    /** Uma troca, inserção ou remoção. */
+    private static String mutate(String s, Random rnd) {
+        if (s == null || s.isEmpty()) return "X";
+        StringBuilder sb = new StringBuilder(s);
+        int i = rnd.nextInt(s.length());
+        switch (rnd.nextInt(3)) {
+            case 0 -> sb.setCharAt(i, (char) ('A' + rnd.nextInt(26)));
+            case 1 -> sb.insert(i, (char) ('0' + rnd.nextInt(10)));
+            default -> sb.deleteCharAt(i);
+        }
+        return sb.toString();
+    }
+
+    /** Implementação original, usada como referência. */
+    private static final class Reference {
+
+        static String cleanRaw(String s) {
+            if (s == null) return "";
+            String nfd = Normalizer.normalize(s, Normalizer.Form.NFD);
+            String noMarks = nfd.replaceAll("\\p{M}", "");
+            return noMarks.replaceAll("[^A-Za-z0-9]", "").toUpperCase(Locale.ROOT);
+        }
+
+        static String normalizeMercosul(String raw) {
+            String s = cleanRaw(raw);
+            if (s.length() < 7) return s;
+            char[] a = s.toCharArray();
+            fixAsLetter(a, 0);
+            fixAsLetter(a, 1);
+            fixAsLetter(a, 2);
+            fixAsDigit(a, 3);
+            fixAsLetter(a, 4);
+            fixAsDigit(a, 5);
+            fixAsDigit(a, 6);
+            return new String(a).substring(0, 7);
+        }
+
+        private static void fixAsLetter(char[] a, int i) {
+            switch (a[i]) {
+                case '0': a[i] = 'O'; break;
+                case '1': a[i] = 'I'; break;
+                case '2': a[i] = 'Z'; break;
+                case '5': a[i] = 'S'; break;
+                case '6': a[i] = 'G'; break;
+                case '8': a[i] = 'B'; break;
+                case '4': a[i] = 'A'; break;
+                case '7': a[i] = 'T'; break;
+                default: a[i] = Character.toUpperCase(a[i]);
+            }
+        }
+
+        private static void fixAsDigit(char[] a, int i) {
+            char c = Character.toUpperCase(a[i]);
+            switch (c) {
+                case 'O': case 'Q': case 'D': a[i] = '0'; break;
+                case 'I': case 'L': a[i] = '1'; break;
+                case 'Z': a[i] = '2'; break;
+                case 'S': a[i] = '5'; break;
+                case 'B': a[i] = '8'; break;
+                case 'G': a[i] = '6'; break;
+                case 'A': a[i] = '4'; break;
+                case 'T': a[i] = '7'; break;
+                default: a[i] = c;
+            }
+            if (!Character.isDigit(a[i])) a[i] = '0';
+        }
+
+        static int levenshtein(String a, String b) {
+            if (Objects.equals(a, b)) return 0;
+            if (a == null || a.isEmpty()) return b == null ? 0 : b.length();
+            if (b == null || b.isEmpty()) return a.length();
+            int[] prev = new int[b.length() + 1];
+            int[] curr = new int[b.length() + 1];
+            for (int j = 0; j <= b.length(); j++) prev[j] = j;
+            for (int i = 1; i <= a.length(); i++) {
+                curr[0] = i;
+                char ca = a.charAt(i - 1);
+                for (int j = 1; j <= b.length(); j++) {
+                    int cost = (ca == b.charAt(j - 1)) ? 0 : 1;
+                    curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                }
+                int[] tmp = prev; prev = curr; curr = tmp;
+            }
+            return prev[b.length()];
+        }
+
+        static String bestCandidate(Collection<String> knownPlates, String candidate, int maxDistance) {
+            if (candidate == null) return null;
+            return knownPlates.stream()
+                    .min(Comparator.comparingInt(p -> levenshtein(p, candidate)))
+                    .filter(best -> levenshtein(best, candidate) <= maxDistance)
+                    .orElse(null);
+        }
+    }
+}
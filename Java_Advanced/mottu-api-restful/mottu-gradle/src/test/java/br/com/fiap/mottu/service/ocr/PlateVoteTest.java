@@ -0,0 +1,81 @@
+package br.com.fiap.mottu.service.ocr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Votação da {@link PlateVote}: maioria por posição, fusão das confianças, leituras descartadas e
+ * desempate (que não pode depender da ordem das leituras).
+ */
+class PlateVoteTest {
+
+    @Test
+    void maioriaPorPosicao() {
+        PlateVote vote = votar(List.of("ABC1D23", "ABC1O23", "ABC1D23"), List.of(90.0, 85.0, 80.0));
+
+        PlateVote.Consensus c = vote.consensus();
+        assertThat(c.plate()).isEqualTo("ABC1D23");
+        assertThat(c.agreeingFrames()).isEqualTo(2);
+        assertThat(c.frames()).isEqualTo(3);
+    }
+
+    @Test
+    void fusaoDasConfiancas() {
+        assertThat(votar(List.of("BRA2E19"), List.of(80.0)).consensus().confidence()).isCloseTo(80.0, within(1e-9));
+        // leituras que concordam se reforçam: 1 - 0,2 * 0,2
+        assertThat(votar(List.of("BRA2E19", "BRA2E19"), List.of(80.0, 80.0)).consensus().confidence())
+                .isCloseTo(96.0, within(1e-9));
+        // posição divergente: (1 - 0,1 * 0,2) * 170 / 255, a mais fraca da placa
+        PlateVote divergente = votar(List.of("ABC1D23", "ABC1O23", "ABC1D23"), List.of(90.0, 85.0, 80.0));
+        assertThat(divergente.consensus().confidence()).isCloseTo(98.0 * 170 / 255, within(1e-9));
+        // sem confiança ainda vale um voto
+        assertThat(votar(List.of("BRA2E19"), List.of(0.0)).consensus().confidence()).isCloseTo(1.0, within(1e-9));
+    }
+
+    @Test
+    void ignoraLeiturasQueNaoTemSeteCaracteres() {
+        PlateVote vote = new PlateVote();
+        assertThat(vote.add(null, 90)).isFalse();
+        assertThat(vote.add("ABC12", 90)).isFalse();
+        assertThat(vote.add("ABC12345", 90)).isFalse();
+        assertThat(vote.frames()).isZero();
+        assertThat(vote.consensus()).isNull();
+
+        assertThat(vote.add("ABC1234", 50)).isTrue();
+        assertThat(vote.add("ABC123", 99)).isFalse();
+        assertThat(vote.consensus().plate()).isEqualTo("ABC1234");
+        assertThat(vote.consensus().frames()).isEqualTo(1);
+    }
+
+    @Test
+    void empatePelaMaiorConfiancaNumQuadro() {
+        // B: 90 num quadro; C: 50 + 40
+        List<String> placas = List.of("AAA1B11", "AAA1C11", "AAA1C11");
+        List<Double> confiancas = List.of(90.0, 50.0, 40.0);
+        assertThat(votar(placas, confiancas).consensus().plate()).isEqualTo("AAA1B11");
+        assertThat(votar(placas.reversed(), confiancas.reversed()).consensus().plate()).isEqualTo("AAA1B11");
+    }
+
+    @Test
+    void empatePeloNumeroDeLeiturasEDepoisPeloMenorCaractere() {
+        // mesmo peso (90) e mesma maior confiança (60); C foi lido em mais quadros
+        List<String> placas = List.of("AAA1B11", "AAA1C11", "AAA1B11", "AAA1C11", "AAA1C11");
+        List<Double> confiancas = List.of(60.0, 60.0, 30.0, 20.0, 10.0);
+        assertThat(votar(placas, confiancas).consensus().plate()).isEqualTo("AAA1C11");
+        assertThat(votar(placas.reversed(), confiancas.reversed()).consensus().plate()).isEqualTo("AAA1C11");
+
+        // empate completo: o menor caractere, em qualquer ordem
+        assertThat(votar(List.of("AAA1Z11", "AAA1D11"), List.of(70.0, 70.0)).consensus().plate()).isEqualTo("AAA1D11");
+        assertThat(votar(List.of("AAA1D11", "AAA1Z11"), List.of(70.0, 70.0)).consensus().plate()).isEqualTo("AAA1D11");
+    }
+
+    private static PlateVote votar(List<String> placas, List<Double> confiancas) {
+        PlateVote vote = new PlateVote();
+        for (int i = 0; i < placas.size(); i++) vote.add(placas.get(i), confiancas.get(i));
+        return vote;
+    }
+}
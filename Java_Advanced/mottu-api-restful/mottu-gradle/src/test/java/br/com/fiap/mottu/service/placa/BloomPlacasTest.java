@@ -0,0 +1,94 @@
+package br.com.fiap.mottu.service.placa;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link BloomPlacas}: nenhum falso negativo na vizinhança a 1 erro e taxa de falsos positivos perto da pedida.
+ */
+class BloomPlacasTest {
+
+    private static final String ALFABETO = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    @Test
+    void vizinhancaADistancia1NuncaEhDescartada() {
+        Random rnd = new Random(3);
+        List<String> registry = randomPlates(2_000, rnd);
+        BloomPlacas bloom = new BloomPlacas(registry.size(), 0.01);
+        registry.forEach(bloom::add);
+
+        for (String placa : registry.subList(0, 200)) {
+            assertThat(bloom.podeConter(placa)).isTrue();
+            for (String vizinha : vizinhanca(placa)) {
+                assertThat(bloom.podeTerVizinha(vizinha)).as("%s -> %s", placa, vizinha).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void falsosPositivosPertoDaTaxaPedida() {
+        Random rnd = new Random(5);
+        double fpp = 0.01;
+        List<String> registry = randomPlates(20_000, rnd);
+        BloomPlacas bloom = new BloomPlacas(registry.size(), fpp);
+        registry.forEach(bloom::add);
+        IndiceFuzzyPlacas indice = new IndiceFuzzyPlacas(1, registry.size());
+        registry.forEach(indice::add);
+
+        int consultas = 0;
+        int positivos = 0;
+        while (consultas < 20_000) {
+            String q = randomPlates(1, rnd).get(0);
+            if (!indice.buscar(q, 1).isEmpty()) continue; // vizinha de verdade: não conta
+            consultas++;
+            if (bloom.podeTerVizinha(q)) positivos++;
+        }
+        double taxa = (double) positivos / consultas;
+        assertThat(taxa).as("fpp medida").isLessThan(fpp * 2);
+        assertThat(bloom.fppPorChave()).isLessThan(fpp / BloomPlacas.CHAVES_POR_CONSULTA * 1.5);
+    }
+
+    @Test
+    void entradasForaDoFormatoSaoConservadoras() {
+        BloomPlacas bloom = new BloomPlacas(16, 0.01);
+        bloom.add("BRA2E19");
+        bloom.add("");
+        bloom.add(null);
+        assertThat(bloom.adicionadas()).isEqualTo(1);
+        assertThat(bloom.podeTerVizinha("BRA-2E1")).isTrue();
+        assertThat(bloom.podeTerVizinha("ABCDEFGHIJ")).isTrue();
+        assertThat(bloom.podeTerVizinha(null)).isTrue();
+        assertThatThrownBy(() -> new BloomPlacas(16, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomPlacas(16, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /** Todas as trocas, inserções e remoções de um caractere. */
+    private static List<String> vizinhanca(String placa) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i <= placa.length(); i++) {
+            for (char c : ALFABETO.toCharArray()) {
+                out.add(placa.substring(0, i) + c + placa.substring(i));
+                if (i < placa.length()) out.add(placa.substring(0, i) + c + placa.substring(i + 1));
+            }
+            if (i < placa.length()) out.add(placa.substring(0, i) + placa.substring(i + 1));
+        }
+        return out;
+    }
+
+    private static List<String> randomPlates(int count, Random rnd) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder(7);
+            for (int j = 0; j < 7; j++) {
+                boolean letter = j < 3 || (j == 4 && rnd.nextBoolean());
+                sb.append(letter ? (char) ('A' + rnd.nextInt(26)) : (char) ('0' + rnd.nextInt(10)));
+            }
+            out.add(sb.toString());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.fiap.mottu.service.placa;
+
+import br.com.fiap.mottu.service.ocr.PlateUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Confere o {@link IndiceFuzzyPlacas} contra a varredura completa do cadastro com Levenshtein.
+ */
+class IndiceFuzzyPlacasTest {
+
+    @Test
+    void buscarIgualAVarreduraCompleta() {
+        Random rnd = new Random(5);
+        List<String> registry = randomPlates(3_000, rnd);
+        IndiceFuzzyPlacas indice = new IndiceFuzzyPlacas(2, registry.size());
+        registry.forEach(indice::add);
+
+        for (int i = 0; i < 500; i++) {
+            String base = registry.get(rnd.nextInt(registry.size()));
+            String consulta = switch (i % 4) {
+                case 0 -> base;
+                case 1 -> mutate(base, rnd);
+                case 2 -> mutate(mutate(base, rnd), rnd);
+                default -> randomPlates(1, rnd).get(0);
+            };
+            for (int k = 0; k <= 2; k++) {
+                assertThat(indice.buscar(consulta, k)).as("%s (k=%d)", consulta, k)
+                        .isEqualTo(varredura(registry, consulta, k));
+            }
+        }
+    }
+
+    @Test
+    void addRemoveMantemOIndice() {
+        IndiceFuzzyPlacas indice = new IndiceFuzzyPlacas(1);
+        indice.add("BRA2E19");
+        indice.add("BRA2E18");
+        indice.add("BRA2E19");
+
+        assertThat(indice.contains("BRA2E19")).isTrue();
+        assertThat(indice.buscar("BRA2E10", 1)).extracting(IndiceFuzzyPlacas.Proxima::placa)
+                .containsExactly("BRA2E18", "BRA2E19");
+
+        indice.remove("BRA2E19");
+        assertThat(indice.contains("BRA2E19")).isFalse();
+        assertThat(indice.buscar("BRA2E10", 1)).containsExactly(new IndiceFuzzyPlacas.Proxima("BRA2E18", 1));
+
+        indice.remove("BRA2E18");
+        assertThat(indice.buscar("BRA2E10", 1)).isEmpty();
+        assertThat(indice.chaves()).isZero();
+    }
+
+    @Test
+    void buscarValidaDistancia() {
+        IndiceFuzzyPlacas indice = new IndiceFuzzyPlacas(1);
+        assertThat(indice.buscar(null, 1)).isEmpty();
+        assertThat(indice.buscar("", 0)).isEmpty();
+        assertThatThrownBy(() -> indice.buscar("BRA2E19", 2)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IndiceFuzzyPlacas(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<IndiceFuzzyPlacas.Proxima> varredura(List<String> registry, String consulta, int k) {
+        List<IndiceFuzzyPlacas.Proxima> out = new ArrayList<>();
+        for (String p : new TreeSet<>(registry)) {
+            int d = PlateUtils.levenshtein(consulta, p);
+            if (d <= k) out.add(new IndiceFuzzyPlacas.Proxima(p, d));
+        }
+        out.sort(Comparator.comparingInt(IndiceFuzzyPlacas.Proxima::distancia));
+        return out;
+    }
+
+    private static List<String> randomPlates(int count, Random rnd) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder(7);
+            for (int j = 0; j < 7; j++) {
+                boolean letter = j < 3 || (j == 4 && rnd.nextBoolean());
+                // alfabeto pequeno para o cadastro ter vizinhos próximos de verdade
+                sb.append(letter ? (char) ('A' + rnd.nextInt(3)) : (char) ('0' + rnd.nextInt(3)));
+            }
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    /** Uma troca, inserção ou remoção. */
+    private static String mutate(String s, Random rnd) {
+        StringBuilder sb = new StringBuilder(s);
+        int i = rnd.nextInt(s.length());
+        switch (rnd.nextInt(3)) {
+            case 0 -> sb.setCharAt(i, (char) ('A' + rnd.nextInt(3)));
+            case 1 -> sb.insert(i, (char) ('0' + rnd.nextInt(3)));
+            default -> sb.deleteCharAt(i);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package br.com.fiap.mottu.service.placa;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link PlateCodec} e {@link TabelaPlacas} contra um {@link HashMap} fazendo as mesmas operações.
+ */
+class TabelaPlacasTest {
+
+    @Test
+    void codecIdaEVolta() {
+        Random rnd = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            String placa = randomPlate(rnd);
+            long code = PlateCodec.encode(placa);
+            assertThat(code).isBetween(0L, PlateCodec.LIMITE - 1);
+            assertThat(PlateCodec.decode(code)).isEqualTo(placa);
+            assertThat(PlateCodec.encode(placa.toLowerCase(Locale.ROOT))).isEqualTo(code);
+        }
+        assertThat(PlateCodec.encode("0000000")).isZero();
+        assertThat(PlateCodec.encode("ZZZZZZZ")).isEqualTo(PlateCodec.LIMITE - 1);
+        assertThat(PlateCodec.encode("ABC1234")).isLessThan(PlateCodec.encode("ABC1D23"));
+    }
+
+    @Test
+    void codecRejeitaForaDoFormato() {
+        for (String s : Arrays.asList(null, "", "ABC123", "ABC12345", "ABC-123", "ABÇ1234", "ABC 123")) {
+            assertThat(PlateCodec.encode(s)).as("%s", s).isEqualTo(PlateCodec.INVALIDA);
+        }
+        assertThatThrownBy(() -> PlateCodec.decode(PlateCodec.LIMITE)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void operacoesIguaisAoHashMap() {
+        Random rnd = new Random(9);
+        TabelaPlacas tabela = new TabelaPlacas(16);
+        Map<Long, long[]> esperado = new HashMap<>();
+        List<Long> codigos = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) codigos.add(PlateCodec.encode(randomPlate(rnd)));
+
+        for (int op = 0; op < 200_000; op++) {
+            long codigo = codigos.get(rnd.nextInt(codigos.size()));
+            switch (rnd.nextInt(4)) {
+                case 0, 1 -> {
+                    long veiculo = 1 + rnd.nextInt(Integer.MAX_VALUE);
+                    long box = rnd.nextInt(3) == 0 ? 0 : 1 + rnd.nextInt(200);
+                    int status = box == 0 ? 0 : 'O';
+                    tabela.put(codigo, veiculo, box, status);
+                    esperado.put(codigo, new long[] {veiculo, box, status});
+                }
+                case 2 -> assertThat(tabela.remove(codigo)).isEqualTo(esperado.remove(codigo) != null);
+                default -> {
+                    long box = 1 + rnd.nextInt(200);
+                    boolean presente = esperado.containsKey(codigo);
+                    assertThat(tabela.atualizarBox(codigo, box, 'O')).isEqualTo(presente);
+                    if (presente) {
+                        esperado.get(codigo)[1] = box;
+                        esperado.get(codigo)[2] = 'O';
+                    }
+                }
+            }
+            if (op % 1_000 == 0) confere(tabela, esperado, codigos);
+        }
+        confere(tabela, esperado, codigos);
+
+        long box = esperado.values().stream().filter(v -> v[1] > 0).findFirst().orElseThrow()[1];
+        long ocupantes = esperado.values().stream().filter(v -> v[1] == box).count();
+        assertThat(tabela.liberarBox(box)).isEqualTo((int) ocupantes);
+        esperado.values().stream().filter(v -> v[1] == box).forEach(v -> { v[1] = 0; v[2] = 0; });
+        confere(tabela, esperado, codigos);
+    }
+
+    @Test
+    void rejeitaIdsForaDaFaixa() {
+        TabelaPlacas tabela = new TabelaPlacas(16);
+        long codigo = PlateCodec.encode("BRA2E19");
+        assertThatThrownBy(() -> tabela.put(codigo, 0, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> tabela.put(codigo, TabelaPlacas.VEICULO_ID_MAX + 1, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> tabela.put(-1, 1, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+        tabela.put(codigo, TabelaPlacas.VEICULO_ID_MAX, TabelaPlacas.BOX_ID_MAX, 'O');
+        assertThat(tabela.ids(codigo) >>> 32).isEqualTo(TabelaPlacas.VEICULO_ID_MAX);
+        assertThat(tabela.ids(codigo) & TabelaPlacas.BOX_ID_MAX).isEqualTo(TabelaPlacas.BOX_ID_MAX);
+    }
+
+    private static void confere(TabelaPlacas tabela, Map<Long, long[]> esperado, List<Long> codigos) {
+        assertThat(tabela.size()).isEqualTo(esperado.size());
+        for (long codigo : codigos) {
+            long[] v = esperado.get(codigo);
+            if (v == null) {
+                assertThat(tabela.ids(codigo)).isEqualTo(TabelaPlacas.AUSENTE);
+                assertThat(tabela.status(codigo)).isEqualTo(-1);
+            } else {
+                assertThat(tabela.ids(codigo)).isEqualTo(v[0] << 32 | v[1]);
+                assertThat(tabela.status(codigo)).isEqualTo((int) v[2]);
+            }
+        }
+    }
+
+    private static String randomPlate(Random rnd) {
+        StringBuilder sb = new StringBuilder(7);
+        for (int j = 0; j < 7; j++) {
+            boolean letter = j < 3 || (j == 4 && rnd.nextBoolean());
+            sb.append(letter ? (char) ('A' + rnd.nextInt(26)) : (char) ('0' + rnd.nextInt(10)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,185 @@
+package br.com.fiap.mottu.service.vaga;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Confere o {@link MapaVagas} contra um {@code TreeSet} de boxes livres por setor (primeiro livre = menor
+ * id do primeiro setor com vaga) e, com várias threads, que nenhum box é entregue a duas ao mesmo tempo.
+ */
+class MapaVagasTest {
+
+    @Test
+    void alocaOPrimeiroLivreComoAReferencia() {
+        Random rnd = new Random(5);
+        int total = 5_000;
+        MapaVagas.Builder builder = MapaVagas.builder();
+        TreeMap<Long, TreeSet<Long>> livresPorSetor = new TreeMap<>();
+        Map<Long, Long> setorDoBox = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            long boxId = 1 + i * 3L + rnd.nextInt(3); // ids esparsos
+            long patio = rnd.nextInt(3);
+            long zona = patio == 0 ? 0 : 1 + rnd.nextInt(4);
+            boolean livre = rnd.nextInt(3) == 0;
+            builder.add(boxId, patio, zona, livre);
+            long setor = patio * 100 + zona;
+            setorDoBox.put(boxId, setor);
+            TreeSet<Long> livres = livresPorSetor.computeIfAbsent(setor, k -> new TreeSet<>());
+            if (livre) livres.add(boxId);
+            ids.add(boxId);
+        }
+        MapaVagas mapa = builder.build();
+        assertThat(mapa.boxes()).isEqualTo(total);
+
+        for (int k = 0; k < 50_000; k++) {
+            long boxId = ids.get(rnd.nextInt(total));
+            TreeSet<Long> doSetor = livresPorSetor.get(setorDoBox.get(boxId));
+            switch (rnd.nextInt(4)) {
+                case 0 -> {
+                    long esperado = livresPorSetor.values().stream()
+                            .filter(s -> !s.isEmpty()).findFirst().map(TreeSet::pollFirst).orElse(MapaVagas.NENHUM);
+                    assertThat(mapa.alocar()).isEqualTo(esperado);
+                }
+                case 1 -> {
+                    long setor = setorDoBox.get(boxId);
+                    Long esperado = doSetor.pollFirst();
+                    assertThat(mapa.alocar(setor / 100, setor % 100)).isEqualTo(esperado == null ? MapaVagas.NENHUM : esperado);
+                }
+                case 2 -> assertThat(mapa.liberar(boxId)).isEqualTo(doSetor.add(boxId));
+                default -> assertThat(mapa.ocupar(boxId)).isEqualTo(doSetor.remove(boxId));
+            }
+            assertThat(mapa.livre(boxId)).isEqualTo(doSetor.contains(boxId));
+        }
+        assertThat(mapa.livres()).isEqualTo(livresPorSetor.values().stream().mapToInt(Set::size).sum());
+        for (MapaVagas.Resumo r : mapa.setores()) {
+            assertThat(r.livres()).isEqualTo(livresPorSetor.get(r.patioId() * 100 + r.zonaId()).size());
+        }
+    }
+
+    @Test
+    void esgotaEVoltaAAlocarDepoisDeLiberar() {
+        MapaVagas.Builder builder = MapaVagas.builder();
+        for (long id = 1; id <= 200; id++) builder.add(id, 1, 1, true);
+        MapaVagas mapa = builder.build();
+        for (long id = 1; id <= 200; id++) assertThat(mapa.alocar()).isEqualTo(id);
+        assertThat(mapa.alocar()).isEqualTo(MapaVagas.NENHUM);
+        assertThat(mapa.livres()).isZero();
+
+        assertThat(mapa.liberar(130)).isTrue();
+        assertThat(mapa.liberar(130)).isFalse();
+        assertThat(mapa.liberar(7)).isTrue();
+        assertThat(mapa.alocar()).isEqualTo(7);
+        assertThat(mapa.alocar()).isEqualTo(130);
+        assertThat(mapa.alocar(1, 1)).isEqualTo(MapaVagas.NENHUM);
+        assertThat(mapa.alocar(2, 1)).isEqualTo(MapaVagas.NENHUM);
+    }
+
+    @Test
+    void boxDesconhecidoOuEmVariosSetores() {
+        MapaVagas mapa = MapaVagas.builder()
+                .add(10, 2, 5, true)
+                .add(10, 1, 3, true) // mesmo box em outro pátio: fica no menor setor
+                .add(11, 0, 0, false)
+                .build();
+        assertThat(mapa.boxes()).isEqualTo(2);
+        assertThat(mapa.alocar(2, 5)).isEqualTo(MapaVagas.NENHUM);
+        assertThat(mapa.alocar(1, 3)).isEqualTo(10);
+        assertThat(mapa.liberar(99)).isFalse();
+        assertThat(mapa.ocupar(99)).isFalse();
+        assertThat(mapa.contem(99)).isFalse();
+        assertThat(mapa.liberar(11)).isTrue();
+        assertThat(mapa.alocar()).isEqualTo(11);
+        assertThat(MapaVagas.builder().build().alocar()).isEqualTo(MapaVagas.NENHUM);
+    }
+
+    @Test
+    void threadsNaoRecebemOMesmoBox() throws Exception {
+        int total = 20_000;
+        MapaVagas.Builder builder = MapaVagas.builder();
+        for (int i = 0; i < total; i++) builder.add(i + 1, i % 4, i % 7, true);
+        MapaVagas mapa = builder.build();
+
+        int threads = 8;
+        Set<Long> entregues = ConcurrentHashMap.newKeySet();
+        AtomicReference<String> erro = new AtomicReference<>();
+        rodar(threads, t -> {
+            long id;
+            while ((id = mapa.alocar()) != MapaVagas.NENHUM) {
+                if (!entregues.add(id)) erro.compareAndSet(null, "box entregue duas vezes: " + id);
+            }
+        });
+        assertThat(erro.get()).isNull();
+        assertThat(entregues).hasSize(total);
+        assertThat(mapa.livres()).isZero();
+    }
+
+    @Test
+    void alocarELiberarConcorrentes() throws Exception {
+        int total = 1_000;
+        MapaVagas.Builder builder = MapaVagas.builder();
+        for (int i = 0; i < total; i++) builder.add(i + 1, i % 2, 0, true);
+        MapaVagas mapa = builder.build();
+
+        AtomicIntegerArray dono = new AtomicIntegerArray(total + 1);
+        AtomicReference<String> erro = new AtomicReference<>();
+        int threads = 8;
+        rodar(threads, t -> {
+            Random rnd = new Random(t);
+            List<Long> meus = new ArrayList<>();
+            for (int k = 0; k < 200_000; k++) {
+                if (meus.isEmpty() || (meus.size() < 200 && rnd.nextBoolean())) {
+                    long id = mapa.alocar();
+                    if (id == MapaVagas.NENHUM) continue;
+                    if (!dono.compareAndSet((int) id, 0, t + 1)) erro.compareAndSet(null, "box " + id + " já tinha dono");
+                    meus.add(id);
+                } else {
+                    long id = meus.remove(rnd.nextInt(meus.size()));
+                    dono.set((int) id, 0);
+                    if (!mapa.liberar(id)) erro.compareAndSet(null, "box " + id + " já estava livre");
+                }
+            }
+            for (long id : meus) {
+                dono.set((int) id, 0);
+                mapa.liberar(id);
+            }
+        });
+        assertThat(erro.get()).isNull();
+        assertThat(mapa.livres()).isEqualTo(total);
+        for (int i = 0; i < total; i++) assertThat(mapa.alocar()).isNotEqualTo(MapaVagas.NENHUM);
+        assertThat(mapa.alocar()).isEqualTo(MapaVagas.NENHUM);
+    }
+
+    private interface Tarefa {
+        void rodar(int thread) throws Exception;
+    }
+
+    private static void rodar(int threads, Tarefa tarefa) throws InterruptedException {
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Thread> ts = new ArrayList<>();
+        AtomicReference<Throwable> falha = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread th = new Thread(() -> {
+                try {
+                    largada.await();
+                    tarefa.rodar(id);
+                } catch (Throwable e) {
+                    falha.compareAndSet(null, e);
+                }
+            });
+            th.start();
+            ts.add(th);
+        }
+        largada.countDown();
+        for (Thread th : ts) th.join();
+        assertThat(falha.get()).isNull();
+    }
+}
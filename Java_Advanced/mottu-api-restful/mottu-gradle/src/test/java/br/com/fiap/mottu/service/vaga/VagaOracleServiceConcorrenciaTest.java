@@ -0,0 +1,343 @@
+package br.com.fiap.mottu.service.vaga;
+
+import br.com.fiap.mottu.service.placa.PlacaAlteradaEvent;
+import br.com.fiap.mottu.service.placa.RegistroPlacas;
+import br.com.fiap.mottu.service.placa.VagaAlteradaEvent;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Várias portarias armazenando placas ao mesmo tempo ({@link VagaOracleService#alocarPlaca}) num H2 em
+ * modo Oracle, com as tabelas de box/veículo do projeto: cada placa armazenada tem que ficar num box só
+ * dela, nenhuma pode falhar enquanto houver box livre, e o banco tem que terminar coerente.
+ * Roda com o alocador em memória carregado e sem ele (reserva só pelo {@code FOR UPDATE SKIP LOCKED}).
+ * No H2 o serviço usa os comandos separados; {@link VagaOracleServiceOracleTest} repete os casos num
+ * Oracle, pelos blocos PL/SQL.
+ * <p>
+ * O H2 trava todas as linhas do SELECT ... SKIP LOCKED ao executar, não ao buscar como o Oracle; sem o
+ * alocador, então, portarias concorrentes podem ouvir "sem vaga" antes da hora (e cada reserva trava
+ * todos os livres, por isso esse caso roda com o pátio quase cheio). Nele o teste só cobra que nenhum box
+ * vá para duas placas.
+ */
+class VagaOracleServiceConcorrenciaTest {
+
+    static final int BOXES = 2_000;
+    static final int PLACAS = 2_400;
+    static final int PORTARIAS = 16;
+
+    HikariDataSource ds;
+    JdbcTemplate jdbc;
+    TransactionTemplate tx;
+
+    /** H2 em memória, um banco por teste. */
+    HikariDataSource abrirBanco() {
+        HikariDataSource h2 = new HikariDataSource();
+        h2.setJdbcUrl("jdbc:h2:mem:vagas" + System.nanoTime() + ";MODE=Oracle;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        return h2;
+    }
+
+    void descartarBanco() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    @BeforeEach
+    void criarBanco() {
+        ds = abrirBanco();
+        ds.setMaximumPoolSize(PORTARIAS);
+        jdbc = new JdbcTemplate(ds);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+
+        jdbc.execute("""
+                CREATE TABLE TB_BOX (ID_BOX NUMBER PRIMARY KEY, NOME VARCHAR2(50) NOT NULL, STATUS CHAR(1) NOT NULL,
+                                     DATA_ENTRADA DATE, DATA_SAIDA DATE, OBSERVACAO VARCHAR2(100))""");
+        jdbc.execute("CREATE TABLE TB_VEICULO (ID_VEICULO NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, PLACA VARCHAR2(10) NOT NULL)");
+        jdbc.execute("""
+                CREATE TABLE TB_VEICULOBOX (TB_VEICULO_ID_VEICULO NUMBER NOT NULL REFERENCES TB_VEICULO,
+                                            TB_BOX_ID_BOX NUMBER NOT NULL REFERENCES TB_BOX,
+                                            PRIMARY KEY (TB_VEICULO_ID_VEICULO, TB_BOX_ID_BOX))""");
+        jdbc.execute("CREATE INDEX IX_VEICULOBOX_BOX ON TB_VEICULOBOX (TB_BOX_ID_BOX)"); // não único: o teste é quem confere
+        jdbc.execute("CREATE TABLE TB_PATIOBOX (TB_PATIO_ID_PATIO NUMBER NOT NULL, TB_BOX_ID_BOX NUMBER NOT NULL)");
+        jdbc.execute("CREATE TABLE TB_ZONABOX (TB_ZONA_ID_ZONA NUMBER NOT NULL, TB_BOX_ID_BOX NUMBER NOT NULL)");
+
+        List<Object[]> boxes = new ArrayList<>();
+        List<Object[]> patios = new ArrayList<>();
+        for (int i = 1; i <= BOXES; i++) {
+            boxes.add(new Object[] {i, "B" + i, "L"});
+            patios.add(new Object[] {1 + i % 3, i});
+        }
+        jdbc.batchUpdate("INSERT INTO TB_BOX (ID_BOX, NOME, STATUS, DATA_ENTRADA, DATA_SAIDA) VALUES (?, ?, ?, SYSDATE, SYSDATE)", boxes);
+        jdbc.batchUpdate("INSERT INTO TB_PATIOBOX (TB_PATIO_ID_PATIO, TB_BOX_ID_BOX) VALUES (?, ?)", patios);
+    }
+
+    @AfterEach
+    void fecharBanco() {
+        if (ds == null) return;
+        try {
+            descartarBanco();
+        } finally {
+            ds.close();
+        }
+    }
+
+    @Test
+    void portariasSimultaneasRecebemBoxesDistintosComAlocadorEmMemoria() throws Exception {
+        AlocadorVagas alocador = new AlocadorVagas(jdbc);
+        alocador.reconciliar();
+        assertThat(alocador.estatisticas().livres()).isEqualTo(BOXES);
+
+        Resultado r = armazenarEmParalelo(alocador);
+
+        // enquanto houve box livre, nenhuma placa ficou de fora
+        assertThat(r.alocados()).hasSize(BOXES);
+        assertThat(r.erros()).hasSize(PLACAS - BOXES);
+        assertThat(alocador.estatisticas().livres()).isZero();
+    }
+
+    @Test
+    void portariasSimultaneasRecebemBoxesDistintosSoPeloBanco() throws Exception {
+        jdbc.update("UPDATE TB_BOX SET STATUS = 'O' WHERE ID_BOX > ?", BOXES / 5);
+        Resultado r = armazenarEmParalelo(new AlocadorVagas(jdbc)); // não carregado: SKIP LOCKED em toda alocação
+
+        assertThat(r.alocados()).isNotEmpty().allSatisfy((placa, box) -> assertThat(box).isLessThanOrEqualTo(BOXES / 5));
+        assertThat(r.alocados().size() + r.erros().size()).isEqualTo(PLACAS);
+    }
+
+    @Test
+    void duasInstanciasComOMesmoMapaNaoEsperamUmaPelaOutra() throws Exception {
+        // cada instância carrega o próprio mapa: os dois oferecem os mesmos candidatos, na mesma ordem
+        AlocadorVagas a = new AlocadorVagas(jdbc);
+        AlocadorVagas b = new AlocadorVagas(jdbc);
+        a.reconciliar();
+        b.reconciliar();
+
+        // A segura o primeiro candidato numa transação aberta; B não espera por ele e passa ao próximo
+        CountDownLatch ocupado = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        ExecutorService segurando = Executors.newSingleThreadExecutor();
+        Future<Long> deA = segurando.submit(() -> tx.execute(s -> {
+            long box = a.ocuparLivre();
+            ocupado.countDown();
+            try {
+                soltar.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return box;
+        }));
+        assertThat(ocupado.await(10, TimeUnit.SECONDS)).isTrue();
+        long inicio = System.nanoTime();
+        Long deB = tx.execute(s -> b.ocuparLivre());
+        long esperaMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        soltar.countDown();
+        long primeiro = deA.get(30, TimeUnit.SECONDS);
+        segurando.shutdown();
+        assertThat(primeiro).isNotEqualTo(AlocadorVagas.NENHUM);
+        assertThat(deB).isNotIn(AlocadorVagas.NENHUM, primeiro);
+        assertThat(esperaMs).isLessThan(5_000); // LOCK_TIMEOUT do H2 é 10 s
+
+        // em carga, com as placas divididas entre as duas, cada box vai para uma placa só
+        VagaOracleService servicoA = service(a);
+        VagaOracleService servicoB = service(b);
+        List<String> placas = new ArrayList<>();
+        for (int i = 0; i < PORTARIAS * 20; i++) placas.add(placa(i));
+        Resultado r = emParalelo(placas, p -> (p.hashCode() & 1) == 0
+                ? servicoA.alocarPlaca(p, null)
+                : servicoB.alocarPlaca(p, null));
+
+        assertThat(r.erros()).isEmpty();
+        assertThat(r.alocados()).hasSize(placas.size());
+        assertThat(new HashSet<>(r.alocados().values())).hasSize(placas.size()).doesNotContain(primeiro, deB);
+        assertThat(jdbc.queryForList("""
+                SELECT TB_BOX_ID_BOX FROM TB_VEICULOBOX GROUP BY TB_BOX_ID_BOX HAVING COUNT(1) > 1""")).isEmpty();
+    }
+
+    @Test
+    void boxPreferidoSoVaiParaUmaPlaca() throws Exception {
+        AlocadorVagas alocador = new AlocadorVagas(jdbc);
+        alocador.reconciliar();
+        VagaOracleService service = service(alocador);
+        List<String> placas = new ArrayList<>();
+        for (int i = 0; i < PORTARIAS * 4; i++) placas.add(placa(i));
+
+        Resultado r = emParalelo(placas, p -> service.alocarPlaca(p, 7L));
+
+        assertThat(r.alocados()).hasSize(1).containsValue(7L);
+        assertThat(r.erros()).hasSize(placas.size() - 1).allMatch(m -> m.startsWith("Box já ocupado"));
+        assertThat(jdbc.queryForObject("SELECT COUNT(1) FROM TB_VEICULOBOX WHERE TB_BOX_ID_BOX = 7", Integer.class)).isEqualTo(1);
+        assertThat(alocador.ocuparLivre()).isNotEqualTo(7L);
+    }
+
+    @Test
+    void liberacoesSimultaneasDevolvemQuemEstavaNoBox() throws Exception {
+        AlocadorVagas alocador = new AlocadorVagas(jdbc);
+        alocador.reconciliar();
+        VagaOracleService service = service(alocador);
+        Resultado r = armazenarEmParalelo(alocador);
+
+        Map<Long, String> liberados = new ConcurrentHashMap<>();
+        List<Long> boxes = new ArrayList<>();
+        for (long box = 1; box <= BOXES; box++) boxes.add(box);
+        ExecutorService pool = Executors.newFixedThreadPool(PORTARIAS);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (Long box : boxes) {
+            tarefas.add(pool.submit(() -> {
+                VagaOracleService.LiberacaoResult l = tx.execute(s -> service.liberarBox(box));
+                assertThat(l.statusAnterior()).isEqualTo("O");
+                liberados.put(l.boxId(), l.placa());
+            }));
+        }
+        for (Future<?> f : tarefas) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        Map<Long, String> esperado = new HashMap<>();
+        r.alocados().forEach((placa, box) -> esperado.put(box, placa));
+        assertThat(liberados).isEqualTo(esperado);
+        assertThat(jdbc.queryForObject("SELECT COUNT(1) FROM TB_VEICULOBOX", Integer.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT COUNT(1) FROM TB_BOX WHERE STATUS = 'L'", Integer.class)).isEqualTo(BOXES);
+        assertThat(alocador.estatisticas().livres()).isEqualTo(BOXES);
+        assertThat(service.liberarBox(BOXES + 1L).statusAnterior()).isNull();
+    }
+
+    @Test
+    void placaGravadaForaDoRegistroNaoDuplicaVeiculo() {
+        AlocadorVagas alocador = new AlocadorVagas(jdbc);
+        alocador.reconciliar();
+        VagaOracleService service = service(alocador);
+        // gravados depois da carga do registro (outra instância, carga direta): ele não os conhece
+        jdbc.update("INSERT INTO TB_VEICULO (PLACA) VALUES ('ABC1D23')");
+        jdbc.update("INSERT INTO TB_VEICULO (PLACA) VALUES ('XYZ9K88')");
+        long estacionado = jdbc.queryForObject("SELECT ID_VEICULO FROM TB_VEICULO WHERE PLACA = 'XYZ9K88'", Long.class);
+        jdbc.update("UPDATE TB_BOX SET STATUS = 'O' WHERE ID_BOX = 5");
+        jdbc.update("INSERT INTO TB_VEICULOBOX (TB_VEICULO_ID_VEICULO, TB_BOX_ID_BOX) VALUES (?, 5)", estacionado);
+
+        VagaOracleService.AlocacaoResult r = tx.execute(s -> service.alocarPlaca("abc1d23", null));
+
+        assertThat(r.veiculoId()).isEqualTo(jdbc.queryForObject("SELECT ID_VEICULO FROM TB_VEICULO WHERE PLACA = 'ABC1D23'", Long.class));
+        assertThat(jdbc.queryForObject("SELECT COUNT(1) FROM TB_VEICULO", Integer.class)).isEqualTo(2);
+        assertThat(service.findVeiculoIdByPlaca("XYZ9K88")).contains(estacionado);
+        assertThatThrownBy(() -> tx.execute(s -> service.alocarPlaca("XYZ9K88", null)))
+                .isInstanceOf(IllegalStateException.class).hasMessageStartingWith("Placa já alocada no box 5");
+    }
+
+    @Test
+    void registroAtrasadoComPlacaTrocadaNaoEstacionaOVeiculoErrado() {
+        jdbc.update("INSERT INTO TB_VEICULO (PLACA) VALUES ('ABC1D23')");
+        long antigo = jdbc.queryForObject("SELECT ID_VEICULO FROM TB_VEICULO WHERE PLACA = 'ABC1D23'", Long.class);
+        AlocadorVagas alocador = new AlocadorVagas(jdbc);
+        alocador.reconciliar();
+        VagaOracleService service = service(alocador); // o registro carrega ABC1D23 -> antigo
+        jdbc.update("UPDATE TB_VEICULO SET PLACA = 'QWE4R56' WHERE ID_VEICULO = ?", antigo); // fora desta instância
+
+        VagaOracleService.AlocacaoResult r = tx.execute(s -> service.alocarPlaca("ABC1D23", null));
+
+        assertThat(r.veiculoId()).isNotEqualTo(antigo);
+        assertThat(r.statusAnterior()).isEqualTo("L");
+        assertThat(jdbc.queryForObject("SELECT PLACA FROM TB_VEICULO WHERE ID_VEICULO = ?", String.class, r.veiculoId()))
+                .isEqualTo("ABC1D23");
+        assertThat(jdbc.queryForObject("SELECT COUNT(1) FROM TB_VEICULOBOX WHERE TB_VEICULO_ID_VEICULO = ?",
+                Integer.class, antigo)).isZero();
+    }
+
+    @Test
+    void registroAtrasadoSemBoxNaoGeraSegundoVinculo() {
+        jdbc.update("INSERT INTO TB_VEICULO (PLACA) VALUES ('ABC1D23')");
+        long veiculo = jdbc.queryForObject("SELECT ID_VEICULO FROM TB_VEICULO WHERE PLACA = 'ABC1D23'", Long.class);
+        AlocadorVagas alocador = new AlocadorVagas(jdbc);
+        alocador.reconciliar();
+        VagaOracleService service = service(alocador); // o registro carrega ABC1D23 sem box
+        jdbc.update("UPDATE TB_BOX SET STATUS = 'O' WHERE ID_BOX = 5"); // estacionado por outro gravador
+        jdbc.update("INSERT INTO TB_VEICULOBOX (TB_VEICULO_ID_VEICULO, TB_BOX_ID_BOX) VALUES (?, 5)", veiculo);
+
+        assertThatThrownBy(() -> tx.execute(s -> service.alocarPlaca("ABC1D23", null)))
+                .isInstanceOf(IllegalStateException.class).hasMessageStartingWith("Placa já alocada no box 5");
+        assertThat(jdbc.queryForObject("SELECT COUNT(1) FROM TB_VEICULOBOX WHERE TB_VEICULO_ID_VEICULO = ?",
+                Integer.class, veiculo)).isEqualTo(1);
+    }
+
+    /** Placas a mais que boxes; confere que cada box armazenado foi para uma placa só, no retorno e no banco. */
+    private Resultado armazenarEmParalelo(AlocadorVagas alocador) throws Exception {
+        VagaOracleService service = service(alocador);
+        int ocupadosAntes = jdbc.queryForObject("SELECT COUNT(1) FROM TB_BOX WHERE STATUS = 'O'", Integer.class);
+        List<String> placas = new ArrayList<>();
+        for (int i = 0; i < PLACAS; i++) placas.add(placa(i));
+
+        Resultado r = emParalelo(placas, p -> service.alocarPlaca(p, null));
+
+        assertThat(new HashSet<>(r.alocados().values())).hasSize(r.alocados().size());
+        assertThat(r.erros()).allMatch("Não há boxes livres."::equals);
+
+        assertThat(jdbc.queryForList("""
+                SELECT TB_BOX_ID_BOX FROM TB_VEICULOBOX GROUP BY TB_BOX_ID_BOX HAVING COUNT(1) > 1""")).isEmpty();
+        Map<String, Long> noBanco = new HashMap<>();
+        jdbc.query("""
+                SELECT v.PLACA, vb.TB_BOX_ID_BOX
+                  FROM TB_VEICULOBOX vb JOIN TB_VEICULO v ON v.ID_VEICULO = vb.TB_VEICULO_ID_VEICULO""",
+                rs -> { noBanco.put(rs.getString(1), rs.getLong(2)); });
+        assertThat(noBanco).isEqualTo(r.alocados());
+        assertThat(jdbc.queryForObject("SELECT COUNT(1) FROM TB_BOX WHERE STATUS = 'O'", Integer.class))
+                .isEqualTo(ocupadosAntes + r.alocados().size());
+        return r;
+    }
+
+    VagaOracleService service(AlocadorVagas alocador) {
+        // sem Spring: os eventos vão direto para o registro de placas e o alocador, como após cada commit
+        RegistroPlacas registro = new RegistroPlacas(jdbc);
+        registro.reload();
+        return new VagaOracleService(jdbc, registro, alocador, event -> {
+            if (event instanceof PlacaAlteradaEvent p) registro.onPlacaAlterada(p);
+            if (event instanceof VagaAlteradaEvent v) {
+                registro.onVagaAlterada(v);
+                alocador.onVagaAlterada(v);
+            }
+        });
+    }
+
+    private record Resultado(Map<String, Long> alocados, List<String> erros) {}
+
+    private interface Alocacao {
+        VagaOracleService.AlocacaoResult alocar(String placa);
+    }
+
+    /** Cada placa numa transação própria, {@link #PORTARIAS} ao mesmo tempo. */
+    private Resultado emParalelo(List<String> placas, Alocacao alocacao) throws Exception {
+        Map<String, Long> alocados = new ConcurrentHashMap<>();
+        List<String> erros = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(PORTARIAS);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger inesperados = new AtomicInteger();
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (String p : placas) {
+            tarefas.add(pool.submit(() -> {
+                largada.await();
+                try {
+                    VagaOracleService.AlocacaoResult r = tx.execute(s -> alocacao.alocar(p));
+                    if (alocados.put(r.placa(), r.boxId()) != null) inesperados.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    erros.add(e.getMessage());
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> f : tarefas) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        assertThat(inesperados.get()).isZero();
+        return new Resultado(alocados, erros);
+    }
+
+    private static String placa(int i) {
+        return "TST" + (i / 1000) + (char) ('A' + (i / 100) % 10) + String.format("%02d", i % 100);
+    }
+}
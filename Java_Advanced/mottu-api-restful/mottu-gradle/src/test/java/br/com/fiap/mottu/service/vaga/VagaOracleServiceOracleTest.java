@@ -0,0 +1,57 @@
+package br.com.fiap.mottu.service.vaga;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Os casos de {@link VagaOracleServiceConcorrenciaTest} num Oracle, onde armazenar e liberar rodam pelos
+ * blocos PL/SQL do {@link VagaOracleService}. Fora do build padrão: {@code gradle test -Poracle}, com
+ * {@code MOTTU_TESTE_ORACLE_URL}, {@code MOTTU_TESTE_ORACLE_USUARIO} e {@code MOTTU_TESTE_ORACLE_SENHA}
+ * apontando para um schema vazio (por exemplo o usuário de aplicação de um container gvenzl/oracle-free).
+ * As tabelas são criadas e apagadas a cada teste; se o schema já tiver TB_BOX o teste não roda.
+ */
+@Tag("oracle")
+class VagaOracleServiceOracleTest extends VagaOracleServiceConcorrenciaTest {
+
+    private static final List<String> TABELAS = List.of("TB_VEICULOBOX", "TB_ZONABOX", "TB_PATIOBOX", "TB_VEICULO", "TB_BOX");
+
+    private boolean criado;
+
+    @Override
+    HikariDataSource abrirBanco() {
+        String url = System.getenv("MOTTU_TESTE_ORACLE_URL");
+        Assumptions.assumeTrue(url != null && !url.isBlank(), "MOTTU_TESTE_ORACLE_URL não definida");
+        HikariDataSource oracle = new HikariDataSource();
+        oracle.setJdbcUrl(url);
+        oracle.setUsername(System.getenv("MOTTU_TESTE_ORACLE_USUARIO"));
+        oracle.setPassword(System.getenv("MOTTU_TESTE_ORACLE_SENHA"));
+        try {
+            Integer existentes = new JdbcTemplate(oracle)
+                    .queryForObject("SELECT COUNT(1) FROM USER_TABLES WHERE TABLE_NAME = 'TB_BOX'", Integer.class);
+            if (existentes != null && existentes > 0) {
+                throw new IllegalStateException("O schema de teste já tem TB_BOX; use um schema vazio.");
+            }
+        } catch (RuntimeException e) {
+            oracle.close();
+            throw e;
+        }
+        criado = true;
+        return oracle;
+    }
+
+    @Override
+    void descartarBanco() {
+        if (!criado) return;
+        for (String tabela : TABELAS) {
+            try {
+                jdbc.execute("DROP TABLE " + tabela + " CASCADE CONSTRAINTS PURGE");
+            } catch (RuntimeException ignored) {
+                // não chegou a ser criada
+            }
+        }
+    }
+}